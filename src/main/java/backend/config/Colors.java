@@ -31,4 +31,20 @@ public class Colors {
      */
     public static Color textEditorForeground = Color.BLACK;
 
+    /**
+     * Stores the color for the highlights of the matches of the search. The color is translucent, so that it can be
+     * used with light and dark themes.
+     */
+    public static Color searchMatchHighlight = new Color(255, 190, 0, 110);
+
+    /**
+     * Stores the color for the highlights of the occurrences of the selected word.
+     */
+    public static Color occurrenceHighlight = new Color(120, 160, 255, 80);
+
+    /**
+     * Stores the color for the locations of the matches within the search results.
+     */
+    public static Color searchResultLocation = Color.GRAY;
+
 }
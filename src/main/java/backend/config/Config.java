@@ -6,6 +6,7 @@ import com.google.gson.JsonSyntaxException;
 import java.io.*;
 import java.lang.reflect.Modifier;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 
@@ -23,6 +24,16 @@ public class Config {
      */
     private static String configFilePath = "vate.config";
 
+    /**
+     * Stores the filepath for the index of the workspace, which is located next to the config.
+     */
+    private static String indexFilePath = "vate.index";
+
+    /**
+     * Stores the filepath for the directory of the undo journals, which is located next to the config.
+     */
+    private static String undoJournalDirectoryPath = "vate.undo";
+
     /**
      * Stores all colors for VATE.
      * (i.e. background colors, text colors, ...)
@@ -54,6 +65,25 @@ public class Config {
     public static Settings settings = new Settings();
 
 
+    /**
+     * Returns the path of the file in which the index of the workspace is stored.
+     *
+     * @return  Path of the index file.
+     */
+    public static Path getIndexFilePath() {
+        return Paths.get(configFilePath).resolveSibling(indexFilePath);
+    }
+
+    /**
+     * Returns the path of the directory in which the undo journals of all files are stored.
+     *
+     * @return  Path of the undo journal directory.
+     */
+    public static Path getUndoJournalDirectoryPath() {
+        return Paths.get(configFilePath).resolveSibling(undoJournalDirectoryPath);
+    }
+
+
     /**
      * Saves the config to a configuration file.
      *
@@ -1,6 +1,7 @@
 package backend.config;
 
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Stores all settings for VATE.
@@ -37,4 +38,67 @@ public class Settings {
      */
     public static int previousHeight = -1;
 
+    /**
+     * Stores the extensions of files that are edited as plain text, without the overhead of styled documents.
+     */
+    public static ArrayList<String> plainTextExtensions = new ArrayList<>(List.of("txt", "log", "csv", "tsv", "cfg", "conf", "config", "ini", "properties", "json", "xml", "yml", "yaml", "md"));
+
+    /**
+     * Stores the directory of the workspace whose files are indexed for searching, or an empty String if no workspace
+     * is indexed.
+     */
+    public static String indexedWorkspace = "";
+
+    /**
+     * Stores the maximum amount of memory (in megabytes) that is used to search a file as a stream, i.e. a file that
+     * is too large to be loaded.
+     */
+    public static int streamingSearchMemory = 64;
+
+    /**
+     * Stores the maximum length (in characters) of matches of regular expressions which span the boundary between
+     * two windows of a file that is searched as a stream. Longer matches may be missed or shortened at the boundary.
+     */
+    public static int streamingSearchOverlap = 4096;
+
+    /**
+     * Stores the maximum number of characters that a regular expression, which cannot be matched in linear time, may
+     * read per searched character before the search is aborted.
+     */
+    public static int regexStepsPerCharacter = 1000;
+
+    /**
+     * Stores the maximum time (in milliseconds) that a regular expression, which cannot be matched in linear time, may
+     * take per million searched characters (but at least once) before the search is aborted.
+     */
+    public static int regexTimeLimit = 2000;
+
+    /**
+     * Stores the number of lines before and after a match that are shown as tooltip of the match in the
+     * {@linkplain frontend.frames.main.components.SearchResultsPanel}, or 0 if no lines shall be shown.
+     */
+    public static int searchResultsContextLines = 2;
+
+    /**
+     * Stores the maximum amount of memory (in megabytes) that the undo history of a single tab may occupy. Once the
+     * history exceeds this limit, its oldest edits are discarded.
+     */
+    public static int undoMemoryLimit = 64;
+
+    /**
+     * Stores the minimum number of removed characters that are spilled to a temporary file instead of being kept in
+     * memory by the undo history.
+     */
+    public static int undoSpillThreshold = 1024 * 1024;
+
+    /**
+     * Stores the maximum pause (in milliseconds) between two typed characters that are undone in one step.
+     */
+    public static int undoCoalesceDelay = 1000;
+
+    /**
+     * Stores whether the undo history of a file shall be restored after the file is reopened.
+     */
+    public static boolean persistUndoHistory = true;
+
 }
@@ -32,6 +32,37 @@ public class Strings {
      */
     public static String fileLines = "Lines: ";
 
+    /**
+     * Stores the String indicating a file's charset in a {@linkplain frontend.frames.main.components.Subline}.
+     */
+    public static String fileCharset = "Encoding: ";
+
+    /**
+     * Stores the String indicating a file's line separator in a {@linkplain frontend.frames.main.components.Subline}.
+     */
+    public static String fileLineSeparator = "Line separator: ";
+
+    /**
+     * Stores the String that prefixes the memory of the undo history within the subline of a tab.
+     */
+    public static String undoMemory = "Undo history: ";
+
+    /**
+     * Stores the String indicating that a file uses different line separators in a
+     * {@linkplain frontend.frames.main.components.Subline}.
+     */
+    public static String lineSeparatorMixed = "Mixed";
+
+    /**
+     * Stores the String indicating that a file is loaded in a {@linkplain frontend.frames.main.components.Subline}.
+     */
+    public static String loadingFile = "Loading: ";
+
+    /**
+     * Stores the String indicating that a file was saved in a {@linkplain frontend.frames.main.components.Subline}.
+     */
+    public static String savedFile = "Saved: ";
+
     /**
      * Stores the String asking the user to save unsaved changes (i.e. in q {@linkplain frontend.frames.main.components.EditorTab}).
      */
@@ -67,6 +98,26 @@ public class Strings {
      */
     public static String couldNotCreateFile = "Could not create file.";
 
+    /**
+     * Stores the information message for when a file cannot be opened (i.e. in {@linkplain frontend.frames.main.components.TabbedPane}).
+     */
+    public static String couldNotOpenFile = "Could not open file.";
+
+    /**
+     * Stores the information message for when a file cannot be saved (i.e. in {@linkplain frontend.frames.main.components.EditorTab}).
+     */
+    public static String couldNotSaveFile = "Could not save file.";
+
+    /**
+     * Stores the information message for when the text cannot be encoded with the charset of the file (i.e. in {@linkplain frontend.frames.main.components.EditorTab}).
+     */
+    public static String couldNotEncodeFile = "The text contains characters that cannot be encoded with the charset of the file. The file was not changed.";
+
+    /**
+     * Stores the warning for when a file whose bytes could not be decoded is saved (i.e. in {@linkplain frontend.frames.main.components.EditorTab}).
+     */
+    public static String lossyFileWarning = "Some bytes of the file could not be decoded and were replaced. Saving the file replaces them permanently. Save anyway?";
+
     /**
      * Indicates that a file cannot be exported to the desired format in {@linkplain frontend.frames.main.components.TabbedPane}).
      */
@@ -137,6 +188,22 @@ public class Strings {
      */
     public static String searchAndReplace = "Search and Replace";
 
+    /**
+     * Stores the String for the menu item to search a regex within all files of a directory in a
+     * {@linkplain frontend.menus.EditMenu}.
+     */
+    public static String findInFiles = "Find in Files";
+
+    /**
+     * Stores the String for the menu item to move the cursor to a line in a {@linkplain frontend.menus.EditMenu}.
+     */
+    public static String goToLine = "Go to Line";
+
+    /**
+     * Asks the user to enter the number of the line to which the cursor shall be moved.
+     */
+    public static String enterLineNumber = "Line number (1 - %d):";
+
     /**
      * Stores the String that allows the user to undo changes.
      */
@@ -207,6 +274,88 @@ public class Strings {
      */
     public static String searchAllTabs = "Search all tabs";
 
+    /**
+     * Allows the user to search for a regular expression in {@linkplain frontend.dialogs.SearchDialog}.
+     */
+    public static String searchRegex = "Regular expression";
+
+    /**
+     * Allows the user to distinguish uppercase and lowercase letters in {@linkplain frontend.dialogs.SearchDialog}.
+     */
+    public static String searchMatchCase = "Match case";
+
+    /**
+     * Allows the user to only search whole words in {@linkplain frontend.dialogs.SearchDialog}.
+     */
+    public static String searchWholeWord = "Whole word";
+
+    /**
+     * Allows the user to search multiple terms at once in {@linkplain frontend.dialogs.SearchDialog}.
+     */
+    public static String searchMultipleTerms = "Multiple terms";
+
+    /**
+     * Stores the title of the {@linkplain frontend.dialogs.TermsDialog}.
+     */
+    public static String termsDialogTitle = "Search Terms";
+
+    /**
+     * Asks the user to enter one term per line in {@linkplain frontend.dialogs.TermsDialog}.
+     */
+    public static String termsHint = "Terms (one per line):";
+
+    /**
+     * Allows the user to load the terms from a file in {@linkplain frontend.dialogs.TermsDialog}.
+     */
+    public static String loadTermsButton = "Load from File";
+
+    /**
+     * Stores the text for the button to confirm the entered terms in {@linkplain frontend.dialogs.TermsDialog}.
+     */
+    public static String applyTermsButton = "Apply";
+
+    /**
+     * Stores the heading of the column listing the terms in {@linkplain frontend.dialogs.TermsDialog}.
+     */
+    public static String termColumn = "Term";
+
+    /**
+     * Stores the heading of the column listing the number of matches of every term in
+     * {@linkplain frontend.dialogs.TermsDialog}.
+     */
+    public static String termMatchesColumn = "Matches";
+
+    /**
+     * Shows the user the number of searched terms in {@linkplain frontend.dialogs.SearchDialog}.
+     */
+    public static String numberOfTerms = "%d terms";
+
+    /**
+     * Shows the user that the entered regex is invalid in {@linkplain frontend.dialogs.SearchDialog}.
+     */
+    public static String invalidRegex = "Invalid regular expression";
+
+    /**
+     * Shows the user that the entered regex takes too long to be searched in {@linkplain frontend.dialogs.SearchDialog}
+     * and {@linkplain frontend.dialogs.FindInFilesDialog}.
+     */
+    public static String regexTooComplex = "Regular expression is too complex";
+
+    /**
+     * Text for the button which lists all matches in {@linkplain frontend.dialogs.SearchDialog}.
+     */
+    public static String showSearchResults = "List All";
+
+    /**
+     * Stores the title of the {@linkplain frontend.frames.main.components.SearchResultsPanel}.
+     */
+    public static String searchResultsTitle = "Search Results";
+
+    /**
+     * Shows the user the number of listed matches in {@linkplain frontend.frames.main.components.SearchResultsPanel}.
+     */
+    public static String searchResultsSummary = "Search Results: %,d matches";
+
     /**
      * Allows the user to replace the searched contents with another String in {@linkplain frontend.dialogs.SearchDialog}.
      */
@@ -237,6 +386,64 @@ public class Strings {
      */
     public static String noMatches = "No matches";
 
+    /**
+     * Asks the user to enter the directory to search in {@linkplain frontend.dialogs.FindInFilesDialog}.
+     */
+    public static String searchDirectory = "Directory:";
+
+    /**
+     * Asks the user to enter glob filters for the names of the files to search in
+     * {@linkplain frontend.dialogs.FindInFilesDialog}.
+     */
+    public static String searchFileFilter = "File names:";
+
+    /**
+     * Shows the user that files are being searched in {@linkplain frontend.dialogs.FindInFilesDialog}.
+     */
+    public static String searchingFiles = "Searching... %d matches in %d files";
+
+    /**
+     * Shows the user the result of searching files in {@linkplain frontend.dialogs.FindInFilesDialog}.
+     */
+    public static String searchedFiles = "%d matches in %d of %d files";
+
+    /**
+     * Shows the user that the directory to search does not exist in {@linkplain frontend.dialogs.FindInFilesDialog}.
+     */
+    public static String directoryNotFound = "Directory not found";
+
+    /**
+     * Allows the user to only count the matches within a single file in {@linkplain frontend.dialogs.FindInFilesDialog}.
+     */
+    public static String countOnly = "Count only";
+
+    /**
+     * Shows the user the progress of searching a single file in {@linkplain frontend.dialogs.FindInFilesDialog}. The
+     * arguments are the number of matches, the percentage and size of the file that was searched, and the throughput.
+     */
+    public static String streamingFile = "Searching... %,d matches in %d%% of %s (%s/s)";
+
+    /**
+     * Shows the user the result of searching a single file in {@linkplain frontend.dialogs.FindInFilesDialog}. The
+     * arguments are the number of matches, the size of the file, the duration in seconds and the throughput.
+     */
+    public static String streamedFile = "%,d matches in %s (%.1f s, %s/s)";
+
+    /**
+     * Shows the user that the file to search could not be read in {@linkplain frontend.dialogs.FindInFilesDialog}.
+     */
+    public static String fileNotReadable = "File could not be read";
+
+    /**
+     * Text for the button which indexes the directory to search in {@linkplain frontend.dialogs.FindInFilesDialog}.
+     */
+    public static String indexDirectory = "Index Directory";
+
+    /**
+     * Shows the user that the directory is being indexed in {@linkplain frontend.dialogs.FindInFilesDialog}.
+     */
+    public static String indexingDirectory = "Indexing %s in the background...";
+
     /**
      * Allows the user to see the license of VATE in {@linkplain frontend.menus.HelpMenu}.
      */
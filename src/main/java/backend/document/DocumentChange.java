@@ -0,0 +1,55 @@
+package backend.document;
+
+
+/**
+ * This class stores a single change of a document, i.e. an insertion or removal of text. Instances of this class are
+ * collected while a document is edited and passed in batches to {@linkplain DocumentChangeListener}s.
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public class DocumentChange {
+
+    /**
+     * Stores whether text was inserted ({@code true}) or removed ({@code false}).
+     */
+    private final boolean insertion;
+
+    /**
+     * Stores the offset at which the text was inserted or removed.
+     */
+    private final int offset;
+
+    /**
+     * Stores the number of characters that were inserted or removed.
+     */
+    private final int length;
+
+
+    /**
+     * Constructs a new DocumentChange.
+     *
+     * @param insertion Whether text was inserted ({@code true}) or removed ({@code false}).
+     * @param offset    Offset at which the text was inserted or removed.
+     * @param length    Number of characters that were inserted or removed.
+     */
+    public DocumentChange(boolean insertion, int offset, int length) {
+        this.insertion = insertion;
+        this.offset = offset;
+        this.length = length;
+    }
+
+
+    public boolean isInsertion() {
+        return insertion;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+}
@@ -0,0 +1,24 @@
+package backend.document;
+
+import java.util.List;
+
+
+/**
+ * This interface can be implemented by classes that need to know every change of a document, but do not need to be
+ * notified about each change immediately. The changes are collected and passed in batches.
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public interface DocumentChangeListener {
+
+    /**
+     * This method is called with all changes that happened since the previous call. The changes are passed in the
+     * order in which they happened, so that the offset of each change refers to the document after all previous
+     * changes were applied.
+     *
+     * @param changes   Changes of the document.
+     */
+    void documentChanged(List<DocumentChange> changes);
+
+}
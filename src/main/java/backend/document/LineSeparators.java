@@ -0,0 +1,299 @@
+package backend.document;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.util.Arrays;
+
+
+/**
+ * This class stores the line separators of a file. Within a document, every line ends with {@code '\n'}, regardless of
+ * the line separator that was used by the file. Therefore, this class stores the default line separator of the file,
+ * which replaces every {@code '\n'} when the file is saved. If the file uses different line separators, the offsets of
+ * all separators that differ from the default separator are stored as well. As a DocumentListener, instances of this
+ * class keep these offsets up to date while the document is edited.
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public class LineSeparators implements DocumentListener {
+
+    /**
+     * Indicates the line separator {@code "\n"}.
+     */
+    public static final byte LF = 0;
+
+    /**
+     * Indicates the line separator {@code "\r\n"}.
+     */
+    public static final byte CRLF = 1;
+
+    /**
+     * Indicates the line separator {@code "\r"}.
+     */
+    public static final byte CR = 2;
+
+    /**
+     * Stores the line separators, indexed by {@link #LF}, {@link #CRLF} and {@link #CR}.
+     */
+    private static final String[] SEPARATORS = {"\n", "\r\n", "\r"};
+
+
+    /**
+     * Stores the default line separator.
+     */
+    private byte defaultSeparator;
+
+    /**
+     * Stores the sorted offsets of all {@code '\n'} characters whose line separator differs from the default separator.
+     */
+    private int[] offsets;
+
+    /**
+     * Stores the line separators of the offsets within {@link #offsets}.
+     */
+    private byte[] separators;
+
+    /**
+     * Stores the number of offsets that differ from the default separator.
+     */
+    private int size;
+
+
+    /**
+     * Constructs new LineSeparators that use the passed default separator for all lines.
+     *
+     * @param defaultSeparator  Default line separator, i.e. {@link #LF}.
+     */
+    public LineSeparators(byte defaultSeparator) {
+        this.defaultSeparator = defaultSeparator;
+        offsets = new int[0];
+        separators = new byte[0];
+        size = 0;
+    }
+
+
+    public byte getDefaultSeparator() {
+        return defaultSeparator;
+    }
+
+    public void setDefaultSeparator(byte defaultSeparator) {
+        this.defaultSeparator = defaultSeparator;
+    }
+
+    /**
+     * Returns the number of line separators that differ from the default separator.
+     *
+     * @return  Number of differing line separators.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the offset of the {@code '\n'} character whose line separator differs from the default separator at the
+     * passed index.
+     *
+     * @param index Index of the differing line separator.
+     * @return      Offset of the {@code '\n'} character.
+     */
+    public int getOffset(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * Returns the line separator that differs from the default separator at the passed index.
+     *
+     * @param index Index of the differing line separator.
+     * @return      Line separator, i.e. {@link #CRLF}.
+     */
+    public byte getSeparator(int index) {
+        return separators[index];
+    }
+
+    /**
+     * Tests whether the file uses different line separators.
+     *
+     * @return  Whether the line separators are mixed.
+     */
+    public boolean isMixed() {
+        return size > 0;
+    }
+
+    /**
+     * Tests whether saving requires converting {@code '\n'} characters, i.e. whether any line separator is not
+     * {@code "\n"}.
+     *
+     * @return  Whether line separators need to be converted.
+     */
+    public boolean requiresConversion() {
+        return defaultSeparator != LF || size > 0;
+    }
+
+
+    /**
+     * Returns the passed line separator as String.
+     *
+     * @param separator Line separator, i.e. {@link #CRLF}.
+     * @return          Line separator, i.e. {@code "\r\n"}.
+     */
+    public static String toString(byte separator) {
+        return SEPARATORS[separator];
+    }
+
+    /**
+     * Returns the name of the passed line separator, i.e. {@code "CRLF"}.
+     *
+     * @param separator Line separator, i.e. {@link #CRLF}.
+     * @return          Name of the line separator.
+     */
+    public static String getName(byte separator) {
+        switch (separator) {
+            case CRLF:
+                return "CRLF";
+            case CR:
+                return "CR";
+            default:
+                return "LF";
+        }
+    }
+
+
+    /**
+     * Appends a line separator that differs from the default separator. The passed offset MUST be larger than all
+     * stored offsets.
+     *
+     * @param offset    Offset of the {@code '\n'} character.
+     * @param separator Line separator of the character.
+     */
+    public void add(int offset, byte separator) {
+        if (size == offsets.length) {
+            int capacity = Math.max(16, size * 2);
+            offsets = Arrays.copyOf(offsets, capacity);
+            separators = Arrays.copyOf(separators, capacity);
+        }
+        offsets[size] = offset;
+        separators[size] = separator;
+        size++;
+    }
+
+    /**
+     * Changes the line separator of the last differing line separator.
+     *
+     * @param separator New line separator.
+     */
+    public void setLastSeparator(byte separator) {
+        separators[size - 1] = separator;
+    }
+
+    /**
+     * Removes the last differing line separator.
+     */
+    public void removeLast() {
+        size--;
+    }
+
+    /**
+     * Returns a copy of these line separators, which is not changed when the document is edited afterwards.
+     *
+     * @return  Copy of these line separators.
+     */
+    public LineSeparators copy() {
+        LineSeparators copy = new LineSeparators(defaultSeparator);
+        copy.offsets = Arrays.copyOf(offsets, size);
+        copy.separators = Arrays.copyOf(separators, size);
+        copy.size = size;
+        return copy;
+    }
+
+
+    /**
+     * Moves the offsets of all line separators behind the inserted text.
+     *
+     * @param e Document event.
+     */
+    @Override
+    public void insertUpdate(DocumentEvent e) {
+        int length = e.getLength();
+        for (int i = indexOf(e.getOffset()); i < size; i++) {
+            offsets[i] += length;
+        }
+    }
+
+    /**
+     * Removes the line separators within the removed text and moves the offsets of all line separators behind it.
+     *
+     * @param e Document event.
+     */
+    @Override
+    public void removeUpdate(DocumentEvent e) {
+        int offset = e.getOffset();
+        int length = e.getLength();
+        int from = indexOf(offset);
+        int to = indexOf(offset + length);
+        if (to > from) {
+            //Remove separators within the removed text:
+            System.arraycopy(offsets, to, offsets, from, size - to);
+            System.arraycopy(separators, to, separators, from, size - to);
+            size -= to - from;
+        }
+        for (int i = from; i < size; i++) {
+            offsets[i] -= length;
+        }
+    }
+
+    /**
+     * Removes the line separators within the replaced ranges and moves the offsets of all other line separators, if
+     * multiple ranges were replaced at once. Attributes do not change the line separators.
+     *
+     * @param e Document event.
+     */
+    @Override
+    public void changedUpdate(DocumentEvent e) {
+        if (!(e instanceof ReplaceEvent)) {
+            //Attributes do not change the line separators:
+            return;
+        }
+        ReplaceEvent event = (ReplaceEvent)e;
+        int range = 0;
+        int shift = 0;
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            //Skip the ranges in front of the separator:
+            while (range < event.size() && event.getStart(range) + event.getRemovedLength(range) <= offsets[i]) {
+                shift += event.getInsertedLength(range) - event.getRemovedLength(range);
+                range++;
+            }
+            if (range < event.size() && event.getStart(range) <= offsets[i]) {
+                //Separator was removed:
+                continue;
+            }
+            offsets[kept] = offsets[i] + shift;
+            separators[kept] = separators[i];
+            kept++;
+        }
+        size = kept;
+    }
+
+
+    /**
+     * Returns the index of the first differing line separator whose offset is not smaller than the passed offset.
+     *
+     * @param offset    Offset to be searched.
+     * @return          Index of the first line separator at or behind the offset.
+     */
+    private int indexOf(int offset) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (offsets[middle] < offset) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+}
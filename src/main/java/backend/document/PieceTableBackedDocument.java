@@ -0,0 +1,49 @@
+package backend.document;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+
+
+/**
+ * This interface is implemented by all documents whose content is stored within a {@linkplain PieceTableContent}, so
+ * that the editor can load and save documents without knowing whether they are styled or plain.
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public interface PieceTableBackedDocument extends Document {
+
+    /**
+     * Inserts the passed buffer into the document without copying it. The buffer MUST NOT be modified afterwards.
+     * The insertion cannot be undone, as it is intended to be used when a file is loaded.
+     *
+     * @param offset                Offset at which the buffer shall be inserted.
+     * @param buffer                Buffer to be inserted.
+     * @throws BadLocationException The passed offset is not a valid position within the document.
+     */
+    void insertBuffer(int offset, CharSequence buffer) throws BadLocationException;
+
+    /**
+     * Replaces the passed ranges with the passed text through a single edit, which is undone in one step. Only the
+     * ranges are replaced, so that the text between them and all positions within that text remain untouched. The
+     * listeners are notified once through a {@linkplain ReplaceEvent}, which is a change that carries text changes.
+     * Therefore, every listener of this document must handle changes as described by the {@linkplain ReplaceEvent}.
+     *
+     * @param starts                Offsets of the ranges in ascending order.
+     * @param lengths               Lengths of the ranges, which must not overlap.
+     * @param count                 Number of ranges.
+     * @param replacement           Text that replaces every range.
+     * @throws BadLocationException The ranges overlap or are not contained in this document.
+     */
+    void replaceRanges(int[] starts, int[] lengths, int count, String replacement) throws BadLocationException;
+
+    /**
+     * Creates an immutable snapshot of the text of this document. No characters are copied, so that creating a
+     * snapshot is cheap even for huge documents. The snapshot can be read by any thread while the document continues
+     * to be edited.
+     *
+     * @return  Snapshot of the text of this document.
+     */
+    PieceTableContent.Snapshot snapshot();
+
+}
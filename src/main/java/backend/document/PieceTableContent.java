@@ -0,0 +1,2088 @@
+package backend.document;
+
+import backend.config.Settings;
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Position;
+import javax.swing.text.Segment;
+import javax.swing.undo.AbstractUndoableEdit;
+import javax.swing.undo.CannotRedoException;
+import javax.swing.undo.CannotUndoException;
+import javax.swing.undo.UndoableEdit;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+
+/**
+ * This class implements the content of a document as a piece table. The text is never stored in one contiguous array.
+ * Instead, the content consists of a sequence of pieces, each of which references a range of characters within a
+ * read-only buffer. Buffers that are inserted through {@link #insertBuffer(int, CharSequence)} (i.e. the contents of a
+ * loaded file) are referenced as they are and never copied. Text that is inserted by the user is appended to an
+ * append-only add-buffer. Therefore, the memory used by this content only grows with the amount of edited text.
+ * <br><b><i>IMPORTANT:</i> Buffers that are passed to this content MUST NOT be modified afterwards!</b>
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public class PieceTableContent implements AbstractDocument.Content {
+
+    /**
+     * This class implements a piece of the piece table. A piece references a range of characters within a read-only
+     * buffer. Pieces are immutable, which allows them to be shared between the table and the undo history.
+     */
+    private static class Piece {
+
+        /**
+         * Stores the array containing the characters of the piece. This is {@code null} if the characters are not
+         * accessible through an array.
+         */
+        private final char[] array;
+
+        /**
+         * Stores the sequence containing the characters of the piece. This is {@code null} if the characters are
+         * accessible through {@link #array}.
+         */
+        private final CharSequence sequence;
+
+        /**
+         * Stores the index of the first character of the piece within the {@link #array} or {@link #sequence}.
+         */
+        private final int start;
+
+        /**
+         * Stores the number of characters of the piece.
+         */
+        private final int length;
+
+
+        /**
+         * Constructs a new piece that references the passed range of characters within the passed array.
+         *
+         * @param array     Array containing the characters.
+         * @param start     Index of the first character within the array.
+         * @param length    Number of characters.
+         */
+        private Piece(char[] array, int start, int length) {
+            this.array = array;
+            this.sequence = null;
+            this.start = start;
+            this.length = length;
+        }
+
+        /**
+         * Constructs a new piece that references the passed range of characters within the passed sequence. If the
+         * sequence is a CharBuffer that is backed by an array, the array is referenced instead.
+         *
+         * @param sequence  Sequence containing the characters.
+         * @param start     Index of the first character within the sequence.
+         * @param length    Number of characters.
+         */
+        private Piece(CharSequence sequence, int start, int length) {
+            if (sequence instanceof CharBuffer && ((CharBuffer)sequence).hasArray()) {
+                CharBuffer buffer = (CharBuffer)sequence;
+                this.array = buffer.array();
+                this.sequence = null;
+                this.start = buffer.arrayOffset() + buffer.position() + start;
+            }
+            else {
+                this.array = null;
+                this.sequence = sequence;
+                this.start = start;
+            }
+            this.length = length;
+        }
+
+        /**
+         * Constructs a new piece that references the same buffer as the passed piece.
+         *
+         * @param piece     Piece whose buffer shall be referenced.
+         * @param start     Index of the first character within the buffer.
+         * @param length    Number of characters.
+         */
+        private Piece(Piece piece, int start, int length) {
+            this.array = piece.array;
+            this.sequence = piece.sequence;
+            this.start = start;
+            this.length = length;
+        }
+
+
+        /**
+         * Returns the character at the passed index.
+         *
+         * @param index Index of the character, relative to the beginning of the piece.
+         * @return      Character at the passed index.
+         */
+        private char charAt(int index) {
+            return array != null ? array[start + index] : sequence.charAt(start + index);
+        }
+
+        /**
+         * Returns a CharBuffer that wraps the passed range of this piece without copying it. If the piece is backed
+         * by an array, the returned buffer is backed by the same array.
+         *
+         * @param from  Index of the first character, relative to the beginning of the piece.
+         * @param count Number of characters.
+         * @return      CharBuffer wrapping the range.
+         */
+        private CharBuffer wrap(int from, int count) {
+            int index = start + from;
+            if (array != null) {
+                return CharBuffer.wrap(array, index, count);
+            }
+            else if (sequence instanceof CharBuffer) {
+                CharBuffer buffer = ((CharBuffer)sequence).duplicate();
+                buffer.position(buffer.position() + index);
+                buffer.limit(buffer.position() + count);
+                return buffer;
+            }
+            return CharBuffer.wrap(sequence, index, index + count);
+        }
+
+        /**
+         * Copies characters of this piece into the passed array.
+         *
+         * @param from          Index of the first character to copy, relative to the beginning of the piece.
+         * @param destination   Array into which the characters are copied.
+         * @param position      Index within the destination array at which the first character is stored.
+         * @param count         Number of characters to copy.
+         */
+        private void copy(int from, char[] destination, int position, int count) {
+            int index = start + from;
+            if (array != null) {
+                System.arraycopy(array, index, destination, position, count);
+            }
+            else if (sequence instanceof String) {
+                ((String)sequence).getChars(index, index + count, destination, position);
+            }
+            else if (sequence instanceof CharBuffer) {
+                CharBuffer buffer = (CharBuffer)sequence;
+                buffer.get(buffer.position() + index, destination, position, count);
+            }
+            else {
+                for (int i = 0; i < count; i++) {
+                    destination[position + i] = sequence.charAt(index + i);
+                }
+            }
+        }
+
+    }
+
+
+    /**
+     * This class implements a mark within the content. Marks are held weakly, so that they are discarded once the
+     * respective {@linkplain StickyPosition} is no longer referenced.
+     */
+    private static class Mark extends WeakReference<StickyPosition> {
+
+        /**
+         * Stores the offset of the mark within the {@linkplain MarkVector}, which includes the length of the gap if
+         * the mark is located behind the gap.
+         */
+        private long offset;
+
+
+        /**
+         * Constructs a new mark for the passed position.
+         *
+         * @param position  Position for which the mark is created.
+         * @param queue     Queue with which the mark is registered.
+         */
+        private Mark(StickyPosition position, ReferenceQueue<StickyPosition> queue) {
+            super(position, queue);
+        }
+
+    }
+
+
+    /**
+     * This class implements the sorted vector of all marks within the content, much like the marks of a
+     * {@linkplain javax.swing.text.GapContent}. The marks are sorted by their offsets and separated by a gap, which is
+     * moved to the position of every edit. The marks behind the gap store their offset plus the {@link #gapLength},
+     * so that an edit only changes the gap length instead of the offsets of all marks behind it. Moving the gap only
+     * touches the marks between its old and its new position, which are few while the user edits one part of the text.
+     * Therefore, an edit costs logarithmic time in the number of marks (i.e. lines) instead of linear time.
+     */
+    private static class MarkVector {
+
+        /**
+         * Stores the initial length of the gap. The length of the gap only changes by the length of the content, so
+         * that the stored offsets of the marks behind the gap are always larger than {@link #GAP_THRESHOLD}.
+         */
+        private static final long GAP_BASE = 1L << 50;
+
+        /**
+         * Stores the stored offset from which on a mark is located behind the gap.
+         */
+        private static final long GAP_THRESHOLD = 1L << 49;
+
+
+        /**
+         * Stores the marks in front of the gap, followed by the free space of the gap and the marks behind the gap.
+         */
+        private Mark[] marks;
+
+        /**
+         * Stores the number of marks.
+         */
+        private int count;
+
+        /**
+         * Stores the index of the first mark behind the gap, which is the number of marks in front of the gap.
+         */
+        private int gapIndex;
+
+        /**
+         * Stores the length of the gap, which is added to the offsets of the marks behind the gap.
+         */
+        private long gapLength;
+
+        /**
+         * Stores the number of marks whose positions are no longer referenced.
+         */
+        private int unused;
+
+
+        /**
+         * Constructs a new empty MarkVector.
+         */
+        private MarkVector() {
+            marks = new Mark[16];
+            gapLength = GAP_BASE;
+        }
+
+
+        /**
+         * Returns the offset of the passed mark within the content.
+         *
+         * @param mark  Mark whose offset shall be returned.
+         * @return      Offset of the mark.
+         */
+        private int getOffset(Mark mark) {
+            return (int)(mark.offset >= GAP_THRESHOLD ? mark.offset - gapLength : mark.offset);
+        }
+
+        /**
+         * Returns the mark at the passed index.
+         *
+         * @param index Index of the mark, regardless of the gap.
+         * @return      Mark at the index.
+         */
+        private Mark get(int index) {
+            return marks[index < gapIndex ? index : index + marks.length - count];
+        }
+
+        /**
+         * Returns the index of the first mark whose offset is not smaller than the passed offset.
+         *
+         * @param offset    Offset to be found.
+         * @return          Index of the first mark at or behind the offset, or the number of marks.
+         */
+        private int indexOf(int offset) {
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (getOffset(get(middle)) < offset) {
+                    low = middle + 1;
+                }
+                else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Returns a position at exactly the passed offset that is still referenced, so that positions at the same
+         * offset share their mark. Without sharing, the positions of the elements that the undo history keeps alive
+         * would pile up at the offset of repeated edits.
+         *
+         * @param index     Index of the first mark at or behind the offset.
+         * @param offset    Offset of the position.
+         * @return          Position at the offset, or {@code null} if there is none.
+         */
+        private StickyPosition getPosition(int index, int offset) {
+            for (int i = index; i < count && getOffset(get(i)) == offset; i++) {
+                StickyPosition position = get(i).get();
+                if (position != null) {
+                    return position;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Inserts the passed mark at the passed index.
+         *
+         * @param index     Index of the first mark at or behind the offset of the new mark.
+         * @param mark      Mark to be inserted.
+         * @param offset    Offset of the mark.
+         */
+        private void insert(int index, Mark mark, int offset) {
+            moveGap(index);
+            if (count == marks.length) {
+                Mark[] larger = new Mark[marks.length * 2];
+                System.arraycopy(marks, 0, larger, 0, gapIndex);
+                System.arraycopy(marks, gapIndex, larger, larger.length - count + gapIndex, count - gapIndex);
+                marks = larger;
+            }
+            mark.offset = offset;
+            marks[gapIndex++] = mark;
+            count++;
+        }
+
+        /**
+         * Moves the gap in front of the mark at the passed index. The offsets of the marks that move from one side of
+         * the gap to the other are converted accordingly.
+         *
+         * @param index Index of the mark behind the gap.
+         */
+        private void moveGap(int index) {
+            int gapSize = marks.length - count;
+            if (index < gapIndex) {
+                for (int i = index; i < gapIndex; i++) {
+                    marks[i].offset += gapLength;
+                }
+                System.arraycopy(marks, index, marks, index + gapSize, gapIndex - index);
+                Arrays.fill(marks, index, Math.min(gapIndex, index + gapSize), null);
+            }
+            else if (index > gapIndex) {
+                for (int i = gapIndex + gapSize; i < index + gapSize; i++) {
+                    marks[i].offset -= gapLength;
+                }
+                System.arraycopy(marks, gapIndex + gapSize, marks, gapIndex, index - gapIndex);
+                Arrays.fill(marks, Math.max(index, gapIndex + gapSize), index + gapSize, null);
+            }
+            gapIndex = index;
+        }
+
+        /**
+         * Moves all marks at or behind the passed offset after characters were inserted.
+         *
+         * @param offset    Offset at which the characters were inserted.
+         * @param length    Number of inserted characters.
+         */
+        private void insertUpdate(int offset, int length) {
+            moveGap(indexOf(offset));
+            gapLength -= length;
+        }
+
+        /**
+         * Moves all marks behind the passed range after the range was removed. Marks within the range move to its
+         * beginning.
+         *
+         * @param offset    Offset at which the characters were removed.
+         * @param length    Number of removed characters.
+         */
+        private void removeUpdate(int offset, int length) {
+            moveGap(indexOf(offset + length));
+            for (int i = gapIndex - 1; i >= 0 && marks[i].offset > offset; i--) {
+                marks[i].offset = offset;
+            }
+            gapLength += length;
+        }
+
+        /**
+         * Adds the positions of all referenced marks within the passed range to the passed list.
+         *
+         * @param offset    Offset of the range.
+         * @param end       Offset of the last character within the range.
+         * @param positions List to which the positions are added.
+         */
+        private void getPositions(int offset, int end, ArrayList<UndoPosition> positions) {
+            for (int i = indexOf(offset); i < count; i++) {
+                Mark mark = get(i);
+                int markOffset = getOffset(mark);
+                if (markOffset > end) {
+                    break;
+                }
+                if (mark.get() != null) {
+                    positions.add(new UndoPosition(mark, markOffset));
+                }
+            }
+        }
+
+        /**
+         * Restores the passed positions to their previous offsets. Since the restored offsets may change the order of
+         * the marks, the marks between the smallest and the largest affected offset are sorted again.
+         *
+         * @param positions Positions to restore.
+         */
+        private void restore(ArrayList<UndoPosition> positions) {
+            long low = Long.MAX_VALUE;
+            long high = Long.MIN_VALUE;
+            for (UndoPosition position : positions) {
+                if (position.mark.get() != null) {
+                    int offset = getOffset(position.mark);
+                    low = Math.min(low, Math.min(offset, position.offset));
+                    high = Math.max(high, Math.max(offset, position.offset));
+                }
+            }
+            if (low > high) {
+                return;
+            }
+            //All affected marks are moved in front of the gap, where their stored offsets are their actual offsets:
+            int from = indexOf((int)low);
+            moveGap(indexOf((int)high + 1));
+            for (UndoPosition position : positions) {
+                if (position.mark.get() != null) {
+                    position.mark.offset = position.offset;
+                }
+            }
+            Arrays.sort(marks, from, gapIndex, (a, b) -> Long.compare(a.offset, b.offset));
+        }
+
+        /**
+         * Removes all marks whose positions are no longer referenced, once there are enough of them.
+         *
+         * @param released  Number of marks whose positions were released since the last call.
+         */
+        private void removeUnused(int released) {
+            unused += released;
+            if (unused <= Math.max(5, count / 10)) {
+                return;
+            }
+            moveGap(count);
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                if (marks[i].get() != null) {
+                    marks[kept++] = marks[i];
+                }
+            }
+            Arrays.fill(marks, kept, count, null);
+            count = kept;
+            gapIndex = kept;
+            unused = 0;
+        }
+
+    }
+
+
+    /**
+     * This class implements a position that automatically changes its offset whenever the content is edited.
+     */
+    private class StickyPosition implements Position {
+
+        /**
+         * Stores the mark that keeps track of the offset.
+         */
+        private Mark mark;
+
+
+        @Override
+        public int getOffset() {
+            return marks.getOffset(mark);
+        }
+
+        @Override
+        public String toString() {
+            return Integer.toString(getOffset());
+        }
+
+    }
+
+
+    /**
+     * This class stores the offset of a mark before an edit, so that the mark can be restored when the edit is undone.
+     */
+    private static class UndoPosition {
+
+        /**
+         * Stores the mark to be restored.
+         */
+        private final Mark mark;
+
+        /**
+         * Stores the offset of the mark before the edit.
+         */
+        private final int offset;
+
+
+        /**
+         * Constructs a new UndoPosition for the passed mark.
+         *
+         * @param mark      Mark whose offset shall be stored.
+         * @param offset    Current offset of the mark.
+         */
+        private UndoPosition(Mark mark, int offset) {
+            this.mark = mark;
+            this.offset = offset;
+        }
+
+    }
+
+
+    /**
+     * This class implements an undoable insertion of text.
+     */
+    private class InsertUndo extends AbstractUndoableEdit implements TextEdit {
+
+        /**
+         * Stores the offset at which the text was inserted.
+         */
+        private final int offset;
+
+        /**
+         * Stores the number of inserted characters.
+         */
+        private final int length;
+
+        /**
+         * Stores a piece referencing the inserted text, which is not changed by later edits.
+         */
+        private final Piece text;
+
+        /**
+         * Stores the inserted pieces while the insertion is undone.
+         */
+        private Piece[] pieces;
+
+        /**
+         * Stores the positions within the inserted text while the insertion is undone.
+         */
+        private ArrayList<UndoPosition> positions;
+
+
+        /**
+         * Constructs a new InsertUndo.
+         *
+         * @param offset    Offset at which the text was inserted.
+         * @param text      Piece referencing the inserted text.
+         */
+        private InsertUndo(int offset, Piece text) {
+            this.offset = offset;
+            this.length = text.length;
+            this.text = text;
+        }
+
+
+        @Override
+        public void undo() throws CannotUndoException {
+            super.undo();
+            positions = getPositionsInRange(offset, length);
+            pieces = cut(offset, length);
+        }
+
+        @Override
+        public void redo() throws CannotRedoException {
+            super.redo();
+            paste(offset, pieces);
+            restorePositions(positions);
+            pieces = null;
+            positions = null;
+        }
+
+
+        @Override
+        public boolean isInsertion() {
+            return true;
+        }
+
+        @Override
+        public int getOffset() {
+            return offset;
+        }
+
+        @Override
+        public int getLength() {
+            return length;
+        }
+
+        @Override
+        public Callable<char[]> captureText() {
+            return () -> {
+                char[] chars = new char[length];
+                text.copy(0, chars, 0, length);
+                return chars;
+            };
+        }
+
+    }
+
+
+    /**
+     * This class implements an undoable removal of text. The removed text is not copied, instead the pieces
+     * referencing the removed text are kept. If many characters were removed, they are spilled to a temporary file in
+     * the background, so that the pieces (and the buffers which they reference) can be released.
+     */
+    private class RemoveUndo extends AbstractUndoableEdit implements TextEdit {
+
+        /**
+         * Stores the offset at which the text was removed.
+         */
+        private final int offset;
+
+        /**
+         * Stores the number of removed characters.
+         */
+        private final int length;
+
+        /**
+         * Stores the removed pieces while the removal is not undone, or {@code null} if the removed text was spilled
+         * to the {@link #spillFile}.
+         */
+        private Piece[] pieces;
+
+        /**
+         * Stores the positions within the removed text while the removal is not undone.
+         */
+        private ArrayList<UndoPosition> positions;
+
+        /**
+         * Stores the temporary file containing the removed text, or {@code null} if the text was not spilled.
+         */
+        private Path spillFile;
+
+        /**
+         * Stores how often the removed text was restored or discarded, so that spills which finish afterwards are
+         * dropped.
+         */
+        private int generation;
+
+
+        /**
+         * Constructs a new RemoveUndo.
+         *
+         * @param offset    Offset at which the text was removed.
+         * @param length    Number of removed characters.
+         * @param pieces    Pieces that were removed.
+         * @param positions Positions within the removed text.
+         */
+        private RemoveUndo(int offset, int length, Piece[] pieces, ArrayList<UndoPosition> positions) {
+            this.offset = offset;
+            this.length = length;
+            this.pieces = pieces;
+            this.positions = positions;
+            spill();
+        }
+
+
+        @Override
+        public void undo() throws CannotUndoException {
+            Piece[] restored = restore();
+            super.undo();
+            paste(offset, restored);
+            restorePositions(positions);
+            positions = null;
+        }
+
+        @Override
+        public void redo() throws CannotRedoException {
+            super.redo();
+            positions = getPositionsInRange(offset, length);
+            Piece[] removed = cut(offset, length);
+            synchronized (this) {
+                pieces = removed;
+            }
+            spill();
+        }
+
+        @Override
+        public void die() {
+            super.die();
+            synchronized (this) {
+                generation++;
+                pieces = null;
+                deleteSpillFile();
+            }
+        }
+
+
+        /**
+         * Spills the removed text to a temporary file in the background, if at least
+         * {@linkplain Settings#undoSpillThreshold} characters were removed. If the file cannot be written, the pieces
+         * are kept.
+         */
+        private void spill() {
+            if (length < Settings.undoSpillThreshold) {
+                return;
+            }
+            Piece[] spilled;
+            int spilledGeneration;
+            synchronized (this) {
+                spilled = pieces;
+                spilledGeneration = generation;
+            }
+            SPILL_EXECUTOR.execute(() -> {
+                Path file;
+                try {
+                    file = writeSpillFile(spilled);
+                }
+                catch (IOException e) {
+                    //Keep the pieces:
+                    return;
+                }
+                synchronized (this) {
+                    if (generation == spilledGeneration) {
+                        spillFile = file;
+                        pieces = null;
+                        return;
+                    }
+                }
+                //Removed text was restored or discarded in the meantime:
+                try {
+                    Files.deleteIfExists(file);
+                }
+                catch (IOException e) {
+                    //File is deleted on exit...
+                }
+            });
+        }
+
+        /**
+         * Returns the removed pieces so that they can be pasted into the content again. If the removed text was
+         * spilled, it is read from the temporary file, which is deleted afterwards.
+         *
+         * @return                      Removed pieces.
+         * @throws CannotUndoException  The temporary file cannot be read.
+         */
+        private synchronized Piece[] restore() throws CannotUndoException {
+            if (!canUndo()) {
+                throw new CannotUndoException();
+            }
+            generation++;
+            Piece[] restored = pieces;
+            if (restored == null) {
+                try {
+                    restored = new Piece[] {new Piece(readSpillFile(spillFile, length), 0, length)};
+                }
+                catch (IOException e) {
+                    throw new CannotUndoException();
+                }
+            }
+            pieces = null;
+            deleteSpillFile();
+            return restored;
+        }
+
+        /**
+         * Deletes the temporary file containing the removed text, if the text was spilled.
+         */
+        private void deleteSpillFile() {
+            if (spillFile == null) {
+                return;
+            }
+            try {
+                Files.deleteIfExists(spillFile);
+            }
+            catch (IOException e) {
+                //File is deleted on exit...
+            }
+            spillFile = null;
+        }
+
+
+        @Override
+        public boolean isInsertion() {
+            return false;
+        }
+
+        @Override
+        public int getOffset() {
+            return offset;
+        }
+
+        @Override
+        public int getLength() {
+            return length;
+        }
+
+        @Override
+        public synchronized Callable<char[]> captureText() {
+            Piece[] captured = pieces;
+            Path file = spillFile;
+            return () -> {
+                if (captured != null) {
+                    char[] chars = new char[length];
+                    int position = 0;
+                    for (Piece piece : captured) {
+                        piece.copy(0, chars, position, piece.length);
+                        position += piece.length;
+                    }
+                    return chars;
+                }
+                if (file == null) {
+                    throw new IOException("Removal was undone");
+                }
+                //Fails if the spill file was deleted since:
+                return readSpillFile(file, length);
+            };
+        }
+
+    }
+
+
+    /**
+     * This class implements the insertion or removal of text that is part of a {@linkplain ReplaceUndo}. The pieces
+     * referencing the text are immutable, so that the text remains available after the replacement was undone.
+     */
+    private static class PieceEdit implements TextEdit {
+
+        /**
+         * Stores whether the text was inserted ({@code true}) or removed ({@code false}).
+         */
+        private final boolean insertion;
+
+        /**
+         * Stores the offset at which the text was inserted or removed.
+         */
+        private final int offset;
+
+        /**
+         * Stores the number of inserted or removed characters.
+         */
+        private final int length;
+
+        /**
+         * Stores the pieces referencing the inserted or removed text.
+         */
+        private final Piece[] pieces;
+
+
+        /**
+         * Constructs a new PieceEdit.
+         *
+         * @param insertion Whether the text was inserted.
+         * @param offset    Offset at which the text was inserted or removed.
+         * @param length    Number of inserted or removed characters.
+         * @param pieces    Pieces referencing the text.
+         */
+        private PieceEdit(boolean insertion, int offset, int length, Piece[] pieces) {
+            this.insertion = insertion;
+            this.offset = offset;
+            this.length = length;
+            this.pieces = pieces;
+        }
+
+
+        @Override
+        public boolean isInsertion() {
+            return insertion;
+        }
+
+        @Override
+        public int getOffset() {
+            return offset;
+        }
+
+        @Override
+        public int getLength() {
+            return length;
+        }
+
+        @Override
+        public Callable<char[]> captureText() {
+            return () -> {
+                char[] chars = new char[length];
+                int position = 0;
+                for (Piece piece : pieces) {
+                    piece.copy(0, chars, position, piece.length);
+                    position += piece.length;
+                }
+                return chars;
+            };
+        }
+
+    }
+
+
+    /**
+     * This class implements an undoable replacement of multiple ranges through {@link #replace(int[], int[], int,
+     * String)}. Undoing the replacement replaces the inserted texts with the removed texts again, which is done by
+     * the same single pass over the pieces. Therefore, the text between the ranges and the positions within it are
+     * never touched.
+     */
+    class ReplaceUndo extends AbstractUndoableEdit {
+
+        /**
+         * Stores the number of replaced ranges.
+         */
+        private final int count;
+
+        /**
+         * Stores the offsets of the ranges that were replaced last, relative to the content before that replacement.
+         */
+        private final int[] starts;
+
+        /**
+         * Stores the numbers of characters that were removed from the ranges that were replaced last.
+         */
+        private final int[] removedLengths;
+
+        /**
+         * Stores the numbers of characters that were inserted into the ranges that were replaced last.
+         */
+        private final int[] insertedLengths;
+
+        /**
+         * Stores for every range that was replaced last, whether the removed or the inserted text contains a line
+         * break.
+         */
+        private final boolean[] lineBreaks;
+
+        /**
+         * Stores the pieces that were removed from the ranges that were replaced last, which are inserted again when
+         * the replacement is undone or redone.
+         */
+        private Piece[][] texts;
+
+        /**
+         * Stores the positions within or at the borders of the ranges that were replaced last, which are restored when
+         * the replacement is undone or redone.
+         */
+        private ArrayList<UndoPosition> positions;
+
+        /**
+         * Stores the removals and insertions of the replacement in the order in which they would have been made one
+         * after another.
+         */
+        private final ArrayList<TextEdit> textEdits;
+
+
+        /**
+         * Constructs a new ReplaceUndo and replaces the passed ranges with the passed text.
+         *
+         * @param starts    Offsets of the ranges in ascending order.
+         * @param lengths   Lengths of the ranges.
+         * @param count     Number of ranges.
+         * @param text      Pieces referencing the text that replaces every range.
+         */
+        private ReplaceUndo(int[] starts, int[] lengths, int count, Piece[] text) {
+            this.count = count;
+            this.starts = Arrays.copyOf(starts, count);
+            this.removedLengths = Arrays.copyOf(lengths, count);
+            this.insertedLengths = new int[count];
+            this.lineBreaks = new boolean[count];
+            int textLength = 0;
+            for (Piece piece : text) {
+                textLength += piece.length;
+            }
+            Arrays.fill(insertedLengths, textLength);
+            Piece[][] inserted = new Piece[count][];
+            Arrays.fill(inserted, text);
+            apply(inserted);
+
+            textEdits = new ArrayList<TextEdit>();
+            int shift = 0;
+            for (int i = 0; i < count; i++) {
+                int offset = this.starts[i] + shift;
+                if (removedLengths[i] > 0) {
+                    textEdits.add(new PieceEdit(false, offset, removedLengths[i], texts[i]));
+                }
+                if (textLength > 0) {
+                    textEdits.add(new PieceEdit(true, offset, textLength, text));
+                }
+                shift += textLength - removedLengths[i];
+            }
+        }
+
+
+        @Override
+        public void undo() throws CannotUndoException {
+            super.undo();
+            invert();
+        }
+
+        @Override
+        public void redo() throws CannotRedoException {
+            super.redo();
+            invert();
+        }
+
+        @Override
+        public void die() {
+            super.die();
+            texts = null;
+            positions = null;
+        }
+
+
+        /**
+         * Returns the number of replaced ranges.
+         *
+         * @return  Number of ranges.
+         */
+        int size() {
+            return count;
+        }
+
+        /**
+         * Returns the offset of the passed range that was replaced last, relative to the content before that
+         * replacement. The ranges are replaced again whenever the replacement is undone or redone.
+         *
+         * @param index Index of the range.
+         * @return      Offset of the range.
+         */
+        int getStart(int index) {
+            return starts[index];
+        }
+
+        /**
+         * Returns the number of characters that were removed from the passed range that was replaced last.
+         *
+         * @param index Index of the range.
+         * @return      Number of removed characters.
+         */
+        int getRemovedLength(int index) {
+            return removedLengths[index];
+        }
+
+        /**
+         * Returns the number of characters that were inserted into the passed range that was replaced last.
+         *
+         * @param index Index of the range.
+         * @return      Number of inserted characters.
+         */
+        int getInsertedLength(int index) {
+            return insertedLengths[index];
+        }
+
+        /**
+         * Returns whether the text that was removed from or inserted into the passed range that was replaced last
+         * contains a line break, so that the lines of the range changed.
+         *
+         * @param index Index of the range.
+         * @return      Whether the lines of the range changed.
+         */
+        boolean changesLines(int index) {
+            return lineBreaks[index];
+        }
+
+        /**
+         * Returns the removals and insertions of the replacement, in the order in which they would have been made one
+         * after another.
+         *
+         * @return  Text edits of the replacement.
+         */
+        List<TextEdit> getTextEdits() {
+            return textEdits;
+        }
+
+
+        /**
+         * Replaces the inserted texts with the texts that were removed by the replacement that was made last.
+         */
+        private void invert() {
+            int shift = 0;
+            for (int i = 0; i < count; i++) {
+                starts[i] += shift;
+                shift += insertedLengths[i] - removedLengths[i];
+                int removed = removedLengths[i];
+                removedLengths[i] = insertedLengths[i];
+                insertedLengths[i] = removed;
+            }
+            apply(texts);
+        }
+
+        /**
+         * Replaces the {@link #starts ranges} with the passed texts. The positions that were moved by the previous
+         * replacement are restored afterwards.
+         *
+         * @param inserted  Pieces referencing the texts that replace the ranges.
+         */
+        private void apply(Piece[][] inserted) {
+            ArrayList<UndoPosition> moved = new ArrayList<UndoPosition>();
+            texts = replaceRanges(starts, removedLengths, count, inserted, moved);
+            for (int i = 0; i < count; i++) {
+                lineBreaks[i] = containsBreak(texts[i]) || containsBreak(inserted[i]);
+            }
+            if (positions != null) {
+                restorePositions(positions);
+            }
+            positions = moved;
+        }
+
+    }
+
+
+    /**
+     * This class implements an immutable snapshot of the content. Creating a snapshot only copies the (small) table
+     * of pieces, but no characters, since the buffers referenced by the pieces are never modified. Therefore, a
+     * snapshot can be read by any thread while the content continues to be edited, i.e. to save the content in the
+     * background. The snapshot does not contain the implied break at the end of the content.
+     */
+    public static class Snapshot implements CharSequence, Iterable<CharBuffer> {
+
+        /**
+         * Stores the pieces of the snapshot.
+         */
+        private final Piece[] pieces;
+
+        /**
+         * Stores the offset of the first character of every piece within the snapshot.
+         */
+        private final int[] pieceOffsets;
+
+        /**
+         * Stores the length of the snapshot.
+         */
+        private final int length;
+
+        /**
+         * Stores the index of the piece that was accessed last.
+         */
+        private int lastPiece;
+
+
+        /**
+         * Constructs a new snapshot from the passed pieces.
+         *
+         * @param pieces        Pieces of the snapshot.
+         * @param pieceOffsets  Offsets of the pieces.
+         * @param length        Length of the snapshot.
+         */
+        private Snapshot(Piece[] pieces, int[] pieceOffsets, int length) {
+            this.pieces = pieces;
+            this.pieceOffsets = pieceOffsets;
+            this.length = length;
+        }
+
+
+        /**
+         * Returns the length of the snapshot.
+         *
+         * @return  Number of characters within the snapshot.
+         */
+        @Override
+        public int length() {
+            return length;
+        }
+
+        /**
+         * Returns the character at the passed index. Sequential accesses are answered without searching the piece.
+         *
+         * @param index Index of the character.
+         * @return      Character at the passed index.
+         */
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            int piece = lastPiece;
+            if (pieceOffsets[piece] > index || (piece + 1 < pieces.length && pieceOffsets[piece + 1] <= index)) {
+                piece = findPiece(pieceOffsets, pieces.length, index);
+                lastPiece = piece;
+            }
+            return pieces[piece].charAt(index - pieceOffsets[piece]);
+        }
+
+        /**
+         * Returns a copy of the characters within the passed range.
+         *
+         * @param start Index of the first character.
+         * @param end   Index after the last character.
+         * @return      Characters within the passed range.
+         */
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > length || start > end) {
+                throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+            }
+            char[] chars = new char[end - start];
+            getChars(start, end, chars, 0);
+            return new String(chars);
+        }
+
+        /**
+         * Copies the characters within the passed range into the passed array.
+         *
+         * @param start         Index of the first character.
+         * @param end           Index after the last character.
+         * @param destination   Array into which the characters are copied.
+         * @param position      Index within the destination array at which the first character is stored.
+         */
+        public void getChars(int start, int end, char[] destination, int position) {
+            if (start == end) {
+                return;
+            }
+            int index = findPiece(pieceOffsets, pieces.length, start);
+            int from = start - pieceOffsets[index];
+            int count = end - start;
+            while (count > 0) {
+                Piece piece = pieces[index];
+                int n = Math.min(piece.length - from, count);
+                piece.copy(from, destination, position, n);
+                position += n;
+                count -= n;
+                from = 0;
+                index++;
+            }
+        }
+
+        /**
+         * Returns an iterator over the chunks of the snapshot. Every chunk is a CharBuffer that wraps the buffer of a
+         * piece without copying it. The returned chunks MUST NOT be modified.
+         *
+         * @return  Iterator over the chunks of the snapshot.
+         */
+        @Override
+        public Iterator<CharBuffer> iterator() {
+            return new Iterator<CharBuffer>() {
+                private int index = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return index < pieces.length;
+                }
+
+                @Override
+                public CharBuffer next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    Piece piece = pieces[index++];
+                    return piece.wrap(0, piece.length);
+                }
+            };
+        }
+
+        /**
+         * Returns a copy of the whole snapshot as String.
+         *
+         * @return  Content of the snapshot.
+         */
+        @Override
+        public String toString() {
+            return subSequence(0, length).toString();
+        }
+
+    }
+
+
+    /**
+     * Stores the number of characters that are allocated for every block of the add-buffer.
+     */
+    private static final int ADD_BLOCK_SIZE = 16384;
+
+    /**
+     * Stores an empty array that is returned for empty ranges.
+     */
+    private static final char[] EMPTY = new char[0];
+
+    /**
+     * Stores the number of characters that are written to or read from a spill file at once.
+     */
+    private static final int SPILL_BUFFER_SIZE = 65536;
+
+    /**
+     * Stores the executor that spills removed text to temporary files. A single thread is used, so that spills do not
+     * compete for the disk.
+     */
+    private static final ExecutorService SPILL_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "UndoSpill");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+
+    /**
+     * Stores the pieces of the table. Only the first {@link #pieceCount} pieces are used.
+     */
+    private Piece[] pieces;
+
+    /**
+     * Stores the offset of the first character of every piece within the content.
+     */
+    private int[] pieceOffsets;
+
+    /**
+     * Stores the number of used pieces.
+     */
+    private int pieceCount;
+
+    /**
+     * Stores the length of the content (including the implied break at the end).
+     */
+    private int length;
+
+    /**
+     * Stores the block of the add-buffer to which inserted text is currently appended. Previous blocks are only
+     * referenced by the pieces (and the undo history), so that they are released once they are no longer used.
+     */
+    private char[] addBlock;
+
+    /**
+     * Stores the number of used characters within the {@link #addBlock}.
+     */
+    private int addBlockLength;
+
+    /**
+     * Stores the index of the piece that was accessed last. Most accesses are sequential, which allows to skip the
+     * binary search most of the time.
+     */
+    private int lastPiece;
+
+    /**
+     * Stores the edit that was created by the last insertion or removal, until it is taken through
+     * {@link #takeLastEdit()}.
+     */
+    private TextEdit lastEdit;
+
+    /**
+     * Stores all marks that track positions within the content.
+     */
+    private MarkVector marks;
+
+    /**
+     * Stores the queue for marks that are no longer referenced.
+     */
+    private ReferenceQueue<StickyPosition> queue;
+
+
+    /**
+     * Constructs a new empty PieceTableContent. The content only contains the implied break at the end.
+     */
+    public PieceTableContent() {
+        pieces = new Piece[16];
+        pieceOffsets = new int[16];
+        pieceCount = 0;
+        marks = new MarkVector();
+        queue = new ReferenceQueue<StickyPosition>();
+        addBlock = new char[ADD_BLOCK_SIZE];
+        addBlock[0] = '\n'; //Implied break at the end of the content.
+        addBlockLength = 1;
+        insertPiece(0, new Piece(addBlock, 0, 1));
+        length = 1;
+    }
+
+
+    /**
+     * Creates a position within the content that will track change as the content is mutated.
+     *
+     * @param offset                the offset in the content &gt;= 0
+     * @return                      a Position
+     * @throws BadLocationException for an invalid offset
+     */
+    @Override
+    public Position createPosition(int offset) throws BadLocationException {
+        if (offset < 0 || offset > length) {
+            throw new BadLocationException("Invalid position", offset);
+        }
+        removeUnusedMarks();
+        int index = marks.indexOf(offset);
+        StickyPosition position = marks.getPosition(index, offset);
+        if (position == null) {
+            position = new StickyPosition();
+            position.mark = new Mark(position, queue);
+            marks.insert(index, position.mark, offset);
+        }
+        return position;
+    }
+
+    /**
+     * Current length of the sequence of character content.
+     *
+     * @return  the length &gt;= 1
+     */
+    @Override
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Inserts a string of characters into the sequence. The characters are appended to the add-buffer.
+     *
+     * @param where                 offset into the sequence to make the insertion &gt;= 0
+     * @param str                   string to insert
+     * @return                      if the implementation supports a history mechanism, a reference to an
+     *                              {@code Edit} implementation will be returned, otherwise returns {@code null}
+     * @throws BadLocationException thrown if the area covered by the arguments is not contained in the character
+     *                              sequence
+     */
+    @Override
+    public UndoableEdit insertString(int where, String str) throws BadLocationException {
+        if (where > length || where < 0) {
+            throw new BadLocationException("Invalid insert", length);
+        }
+        int count = str.length();
+        if (count == 0) {
+            return null;
+        }
+
+        int index = findPiece(where);
+        Piece previous = null;
+        if (index > 0 && pieceOffsets[index] == where) {
+            previous = pieces[index - 1];
+        }
+
+        Piece inserted = append(str);
+        if (previous != null && previous.array == inserted.array && previous.start + previous.length == inserted.start) {
+            //Extend the previous piece instead of creating a new piece (i.e. when typing):
+            pieces[index - 1] = new Piece(previous, previous.start, previous.length + count);
+            updateOffsets(index, count);
+            length += count;
+        }
+        else {
+            insertPieceAt(where, inserted);
+        }
+
+        updateMarksForInsert(where, count);
+        InsertUndo edit = new InsertUndo(where, inserted);
+        lastEdit = edit;
+        return edit;
+    }
+
+    /**
+     * Inserts the passed buffer into the sequence. The buffer is NOT copied, instead it is referenced by the content.
+     * Therefore, the buffer MUST NOT be modified afterwards. If the buffer is a {@linkplain CharBuffer}, the characters
+     * between its position and limit are inserted.
+     *
+     * @param where                 Offset into the sequence to make the insertion.
+     * @param buffer                Buffer to insert.
+     * @return                      Undoable edit for the insertion, or {@code null} if nothing was inserted.
+     * @throws BadLocationException The passed offset is not contained in the character sequence.
+     */
+    public UndoableEdit insertBuffer(int where, CharSequence buffer) throws BadLocationException {
+        if (where > length || where < 0) {
+            throw new BadLocationException("Invalid insert", length);
+        }
+        int count = buffer.length();
+        if (count == 0) {
+            return null;
+        }
+        Piece inserted = new Piece(buffer, 0, count);
+        insertPieceAt(where, inserted);
+        updateMarksForInsert(where, count);
+        return new InsertUndo(where, inserted);
+    }
+
+    /**
+     * Removes some portion of the sequence. The removed characters are not copied.
+     *
+     * @param where                 The offset into the sequence to make the insertion &gt;= 0.
+     * @param nitems                The number of items in the sequence to remove &gt;= 0.
+     * @return                      If the implementation supports a history mechanism, a reference to an Edit
+     *                              implementation will be returned, otherwise null.
+     * @throws BadLocationException Thrown if the area covered by the arguments is not contained in the character
+     *                              sequence.
+     */
+    @Override
+    public UndoableEdit remove(int where, int nitems) throws BadLocationException {
+        if (where < 0 || nitems < 0 || where + nitems >= length) {
+            throw new BadLocationException("Invalid remove", length + 1);
+        }
+        if (nitems == 0) {
+            return null;
+        }
+        ArrayList<UndoPosition> positions = getPositionsInRange(where, nitems);
+        Piece[] removed = cut(where, nitems);
+        RemoveUndo edit = new RemoveUndo(where, nitems, removed, positions);
+        lastEdit = edit;
+        return edit;
+    }
+
+    /**
+     * Replaces the passed ranges with the passed text in a single pass over the pieces. The text between the ranges
+     * is never copied, and positions between the ranges only move by the number of characters that were inserted or
+     * removed in front of them. Positions within a range move to the end of its replacement.
+     *
+     * @param starts                Offsets of the ranges in ascending order.
+     * @param lengths               Lengths of the ranges, which must not overlap.
+     * @param count                 Number of ranges.
+     * @param replacement           Text that replaces every range.
+     * @return                      Edit of the replacement, or {@code null} if no range was passed.
+     * @throws BadLocationException The ranges overlap or are not contained in the character sequence.
+     */
+    ReplaceUndo replace(int[] starts, int[] lengths, int count, String replacement) throws BadLocationException {
+        int end = 0;
+        for (int i = 0; i < count; i++) {
+            if (starts[i] < end || lengths[i] < 0 || starts[i] + lengths[i] >= length) {
+                throw new BadLocationException("Invalid replace", starts[i]);
+            }
+            end = starts[i] + lengths[i];
+        }
+        if (count == 0) {
+            return null;
+        }
+        Piece[] text = replacement.isEmpty() ? new Piece[0] : new Piece[] {append(replacement)};
+        lastEdit = null;
+        return new ReplaceUndo(starts, lengths, count, text);
+    }
+
+    /**
+     * Fetches a string of characters contained in the sequence.
+     *
+     * @param where                 Offset into the sequence to fetch &gt;= 0.
+     * @param len                   number of characters to copy &gt;= 0.
+     * @return                      the string
+     * @throws BadLocationException Thrown if the area covered by the arguments is not contained in the character
+     *                              sequence.
+     */
+    @Override
+    public String getString(int where, int len) throws BadLocationException {
+        if (where < 0 || len < 0 || where + len > length) {
+            throw new BadLocationException("Invalid range", length);
+        }
+        char[] chars = new char[len];
+        copy(where, chars, 0, len);
+        return new String(chars);
+    }
+
+    /**
+     * Gets a sequence of characters and copies them into a Segment. If the requested range lies within a single piece
+     * whose buffer is backed by an array, the segment references that array and no characters are copied. If the
+     * segment allows partial returns, only the characters up to the end of the first piece are returned.
+     *
+     * @param where                 the starting offset &gt;= 0
+     * @param len                   the number of characters &gt;= 0
+     * @param txt                   the target location to copy into
+     * @throws BadLocationException Thrown if the area covered by the arguments is not contained in the character
+     *                              sequence.
+     */
+    @Override
+    public void getChars(int where, int len, Segment txt) throws BadLocationException {
+        if (where < 0 || len < 0 || where + len > length) {
+            throw new BadLocationException("Invalid location", length);
+        }
+        if (len == 0) {
+            txt.array = EMPTY;
+            txt.offset = 0;
+            txt.count = 0;
+            return;
+        }
+
+        int index = findPiece(where);
+        Piece piece = pieces[index];
+        int from = where - pieceOffsets[index];
+        int available = piece.length - from;
+        if (available >= len || txt.isPartialReturn()) {
+            int count = Math.min(available, len);
+            if (piece.array != null) {
+                //Reference the buffer directly:
+                txt.array = piece.array;
+                txt.offset = piece.start + from;
+            }
+            else {
+                txt.array = new char[count];
+                txt.offset = 0;
+                piece.copy(from, txt.array, 0, count);
+            }
+            txt.count = count;
+            return;
+        }
+
+        //Range spans multiple pieces:
+        char[] chars = new char[len];
+        copy(where, chars, 0, len);
+        txt.array = chars;
+        txt.offset = 0;
+        txt.count = len;
+    }
+
+
+    /**
+     * Returns the edit that was created by the last insertion or removal and forgets it, so that every edit is only
+     * taken once. Edits of buffers that were inserted through {@link #insertBuffer(int, CharSequence)} are never
+     * returned, as they cannot be undone.
+     *
+     * @return  Edit of the last insertion or removal, or {@code null} if it was taken already.
+     */
+    TextEdit takeLastEdit() {
+        TextEdit edit = lastEdit;
+        lastEdit = null;
+        return edit;
+    }
+
+    /**
+     * Creates an immutable snapshot of the first characters of the content. No characters are copied. The snapshot
+     * MUST be created while the content is not modified, i.e. while holding the read lock of the document.
+     *
+     * @param count Number of characters to include in the snapshot, usually the length of the document.
+     * @return      Snapshot of the content.
+     */
+    public Snapshot snapshot(int count) {
+        if (count < 0 || count > length) {
+            throw new IndexOutOfBoundsException(count);
+        }
+        ArrayList<Piece> snapshotPieces = new ArrayList<Piece>();
+        int offset = 0;
+        for (int i = 0; i < pieceCount && offset < count; i++) {
+            Piece piece = pieces[i];
+            if (offset + piece.length > count) {
+                piece = new Piece(piece, piece.start, count - offset);
+            }
+            snapshotPieces.add(piece);
+            offset += piece.length;
+        }
+        Piece[] snapshotArray = snapshotPieces.toArray(new Piece[0]);
+        int[] offsets = new int[snapshotArray.length];
+        System.arraycopy(pieceOffsets, 0, offsets, 0, offsets.length);
+        return new Snapshot(snapshotArray, offsets, count);
+    }
+
+
+    /**
+     * Copies the characters within the passed range into the passed array.
+     *
+     * @param where         Offset of the first character to copy.
+     * @param destination   Array into which the characters are copied.
+     * @param position      Index within the destination array at which the first character is stored.
+     * @param count         Number of characters to copy.
+     */
+    private void copy(int where, char[] destination, int position, int count) {
+        int index = findPiece(where);
+        int from = where - pieceOffsets[index];
+        while (count > 0) {
+            Piece piece = pieces[index];
+            int n = Math.min(piece.length - from, count);
+            piece.copy(from, destination, position, n);
+            position += n;
+            count -= n;
+            from = 0;
+            index++;
+        }
+    }
+
+
+    /**
+     * Returns the index of the piece containing the character at the passed offset. If the offset equals the length
+     * of the content, the last piece is returned.
+     *
+     * @param offset    Offset of the character.
+     * @return          Index of the piece containing the character.
+     */
+    private int findPiece(int offset) {
+        if (lastPiece < pieceCount && pieceOffsets[lastPiece] <= offset && (lastPiece == pieceCount - 1 || pieceOffsets[lastPiece + 1] > offset)) {
+            return lastPiece;
+        }
+        lastPiece = findPiece(pieceOffsets, pieceCount, offset);
+        return lastPiece;
+    }
+
+    /**
+     * Searches the passed piece offsets for the piece containing the character at the passed offset.
+     *
+     * @param pieceOffsets  Offsets of the pieces.
+     * @param pieceCount    Number of pieces.
+     * @param offset        Offset of the character.
+     * @return              Index of the piece containing the character.
+     */
+    private static int findPiece(int[] pieceOffsets, int pieceCount, int offset) {
+        int low = 0;
+        int high = pieceCount - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (pieceOffsets[middle] <= offset) {
+                low = middle;
+            }
+            else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Splits the piece containing the passed offset, so that a piece begins at the offset. The index of that piece is
+     * returned. If the offset equals the length of the content, {@link #pieceCount} is returned.
+     *
+     * @param offset    Offset at which a piece shall begin.
+     * @return          Index of the piece beginning at the offset.
+     */
+    private int split(int offset) {
+        if (offset >= length) {
+            return pieceCount;
+        }
+        int index = findPiece(offset);
+        int from = offset - pieceOffsets[index];
+        if (from == 0) {
+            return index;
+        }
+        Piece piece = pieces[index];
+        pieces[index] = new Piece(piece, piece.start, from);
+        insertPiece(index + 1, new Piece(piece, piece.start + from, piece.length - from));
+        pieceOffsets[index + 1] = offset;
+        return index + 1;
+    }
+
+    /**
+     * Inserts the passed piece at the passed offset into the content.
+     *
+     * @param where Offset at which the piece is inserted.
+     * @param piece Piece to insert.
+     */
+    private void insertPieceAt(int where, Piece piece) {
+        int index = split(where);
+        insertPiece(index, piece);
+        pieceOffsets[index] = where;
+        updateOffsets(index + 1, piece.length);
+        length += piece.length;
+    }
+
+    /**
+     * Removes the passed range from the content and returns the pieces that referenced the removed characters.
+     *
+     * @param where Offset of the first character to remove.
+     * @param count Number of characters to remove.
+     * @return      Removed pieces.
+     */
+    private Piece[] cut(int where, int count) {
+        int first = split(where);
+        int last = split(where + count);
+        Piece[] removed = new Piece[last - first];
+        System.arraycopy(pieces, first, removed, 0, removed.length);
+        System.arraycopy(pieces, last, pieces, first, pieceCount - last);
+        System.arraycopy(pieceOffsets, last, pieceOffsets, first, pieceCount - last);
+        pieceCount -= removed.length;
+        for (int i = pieceCount; i < pieceCount + removed.length; i++) {
+            pieces[i] = null;
+        }
+        updateOffsets(first, -count);
+        length -= count;
+        updateMarksForRemove(where, count);
+        return removed;
+    }
+
+    /**
+     * Inserts the passed pieces at the passed offset into the content.
+     *
+     * @param where     Offset at which the pieces are inserted.
+     * @param inserted  Pieces to insert.
+     */
+    private void paste(int where, Piece[] inserted) {
+        int index = split(where);
+        int count = 0;
+        for (Piece piece : inserted) {
+            insertPiece(index, piece);
+            pieceOffsets[index] = where + count;
+            count += piece.length;
+            index++;
+        }
+        updateOffsets(index, count);
+        length += count;
+        updateMarksForInsert(where, count);
+    }
+
+    /**
+     * Replaces the passed ranges with the passed pieces. The table is rebuilt in a single pass, which references the
+     * pieces between the ranges as they are.
+     *
+     * @param starts    Offsets of the ranges in ascending order.
+     * @param lengths   Lengths of the ranges, which must not overlap.
+     * @param count     Number of ranges.
+     * @param inserted  Pieces that replace each range.
+     * @param moved     List to which the positions within or at the borders of the ranges are added.
+     * @return          Pieces that were removed from each range.
+     */
+    private Piece[][] replaceRanges(int[] starts, int[] lengths, int count, Piece[][] inserted, ArrayList<UndoPosition> moved) {
+        ArrayList<Piece> table = new ArrayList<Piece>(pieceCount + 2 * count + 1);
+        Piece[][] removed = new Piece[count][];
+        int[] shifts = new int[count + 1];
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            copyPieces(position, starts[i], table);
+            ArrayList<Piece> range = new ArrayList<Piece>();
+            copyPieces(starts[i], starts[i] + lengths[i], range);
+            removed[i] = range.toArray(new Piece[0]);
+            int insertedLength = 0;
+            for (Piece piece : inserted[i]) {
+                table.add(piece);
+                insertedLength += piece.length;
+            }
+            shifts[i + 1] = shifts[i] + insertedLength - lengths[i];
+            position = starts[i] + lengths[i];
+        }
+        copyPieces(position, length, table);
+        updateMarksForReplace(starts, lengths, shifts, count, moved);
+
+        int capacity = Math.max(16, Integer.highestOneBit(table.size()) << 1);
+        pieces = table.toArray(new Piece[capacity]);
+        pieceOffsets = new int[capacity];
+        pieceCount = table.size();
+        int offset = 0;
+        for (int i = 0; i < pieceCount; i++) {
+            pieceOffsets[i] = offset;
+            offset += pieces[i].length;
+        }
+        length = offset;
+        lastPiece = 0;
+        return removed;
+    }
+
+    /**
+     * Adds the pieces referencing the passed range of the content to the passed list. Pieces that lie partially
+     * within the range are trimmed.
+     *
+     * @param from          Offset of the first character of the range.
+     * @param to            Offset behind the last character of the range.
+     * @param destination   List to which the pieces are added.
+     */
+    private void copyPieces(int from, int to, ArrayList<Piece> destination) {
+        if (from >= to) {
+            return;
+        }
+        int index = findPiece(from);
+        int start = from - pieceOffsets[index];
+        while (from < to) {
+            Piece piece = pieces[index];
+            int count = Math.min(piece.length - start, to - from);
+            destination.add(start == 0 && count == piece.length ? piece : new Piece(piece, piece.start + start, count));
+            from += count;
+            start = 0;
+            index++;
+        }
+    }
+
+    /**
+     * Appends the passed text to the add-buffer and returns a piece referencing it. Large texts get their own block.
+     *
+     * @param str   Text to append.
+     * @return      Piece referencing the appended text.
+     */
+    private Piece append(String str) {
+        int count = str.length();
+        if (count > ADD_BLOCK_SIZE) {
+            //Large insertions get their own block:
+            char[] block = new char[count];
+            str.getChars(0, count, block, 0);
+            return new Piece(block, 0, count);
+        }
+        if (addBlockLength + count > addBlock.length) {
+            //Current block is full:
+            addBlock = new char[ADD_BLOCK_SIZE];
+            addBlockLength = 0;
+        }
+        str.getChars(0, count, addBlock, addBlockLength);
+        Piece piece = new Piece(addBlock, addBlockLength, count);
+        addBlockLength += count;
+        return piece;
+    }
+
+    /**
+     * Inserts the passed piece at the passed index into the table. The offsets of the pieces are NOT updated.
+     *
+     * @param index Index at which the piece is inserted.
+     * @param piece Piece to insert.
+     */
+    private void insertPiece(int index, Piece piece) {
+        if (pieceCount == pieces.length) {
+            Piece[] newPieces = new Piece[pieces.length * 2];
+            System.arraycopy(pieces, 0, newPieces, 0, pieceCount);
+            pieces = newPieces;
+            int[] newOffsets = new int[pieceOffsets.length * 2];
+            System.arraycopy(pieceOffsets, 0, newOffsets, 0, pieceCount);
+            pieceOffsets = newOffsets;
+        }
+        System.arraycopy(pieces, index, pieces, index + 1, pieceCount - index);
+        System.arraycopy(pieceOffsets, index, pieceOffsets, index + 1, pieceCount - index);
+        pieces[index] = piece;
+        pieceCount++;
+    }
+
+    /**
+     * Adds the passed difference to the offsets of all pieces beginning with the passed index.
+     *
+     * @param index         Index of the first piece to update.
+     * @param difference    Difference to add to the offsets.
+     */
+    private void updateOffsets(int index, int difference) {
+        for (int i = index; i < pieceCount; i++) {
+            pieceOffsets[i] += difference;
+        }
+    }
+
+
+    /**
+     * Updates the marks after an insertion. Marks at offset 0 are never moved.
+     *
+     * @param offset    Offset at which the characters were inserted.
+     * @param count     Number of inserted characters.
+     */
+    private void updateMarksForInsert(int offset, int count) {
+        //Zero is a special case where only marks after it are updated:
+        marks.insertUpdate(Math.max(offset, 1), count);
+    }
+
+    /**
+     * Updates the marks after a removal.
+     *
+     * @param offset    Offset at which the characters were removed.
+     * @param count     Number of removed characters.
+     */
+    private void updateMarksForRemove(int offset, int count) {
+        marks.removeUpdate(offset, count);
+    }
+
+    /**
+     * Updates the marks after the passed ranges were replaced. Marks in front of a range only move by the changes in
+     * front of them, marks within a range move to the end of its replacement. Marks at offset 0 are never moved. The
+     * marks within or at the borders of a range are remembered, since their offsets cannot be restored through the
+     * inverse replacement (i.e. a mark at the end of an inserted text would end up in front of it). Marks in front of
+     * the first range are not touched, and the order of the marks does not change.
+     *
+     * @param starts    Offsets of the replaced ranges in ascending order.
+     * @param lengths   Lengths of the replaced ranges.
+     * @param shifts    Number of characters by which the content grew in front of each range, and behind the last.
+     * @param count     Number of replaced ranges.
+     * @param moved     List to which the marks within or at the borders of the ranges are added before they move.
+     */
+    private void updateMarksForReplace(int[] starts, int[] lengths, int[] shifts, int count, ArrayList<UndoPosition> moved) {
+        removeUnusedMarks();
+        if (count == 0) {
+            return;
+        }
+        int first = marks.indexOf(starts[0]);
+        //All marks behind the first range move in front of the gap, where their stored offsets are their actual offsets:
+        marks.moveGap(marks.count);
+        for (int i = first; i < marks.count; i++) {
+            Mark mark = marks.marks[i];
+            int offset = (int)mark.offset;
+            //Find the last range that begins in front of the mark:
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (starts[middle] < offset) {
+                    low = middle + 1;
+                }
+                else {
+                    high = middle;
+                }
+            }
+            int index = low - 1;
+            int end = index < 0 ? -1 : starts[index] + lengths[index];
+            if (offset <= end || (low < count && starts[low] == offset)) {
+                moved.add(new UndoPosition(mark, offset));
+            }
+            if (index < 0) {
+                continue;
+            }
+            mark.offset = Math.max(offset, end) + shifts[index + 1];
+        }
+    }
+
+    /**
+     * Returns the positions of all marks within the passed range, so that they can be restored later.
+     *
+     * @param offset    Offset of the range.
+     * @param count     Length of the range.
+     * @return          Positions within the range.
+     */
+    private ArrayList<UndoPosition> getPositionsInRange(int offset, int count) {
+        ArrayList<UndoPosition> positions = new ArrayList<UndoPosition>();
+        marks.getPositions(offset, offset + count, positions);
+        return positions;
+    }
+
+    /**
+     * Restores the passed positions to their previous offsets.
+     *
+     * @param positions Positions to restore.
+     */
+    private void restorePositions(ArrayList<UndoPosition> positions) {
+        marks.restore(positions);
+    }
+
+    /**
+     * Tests whether the passed pieces contain a line break.
+     *
+     * @param pieces    Pieces to be tested.
+     * @return          Whether a line break is contained.
+     */
+    private static boolean containsBreak(Piece[] pieces) {
+        for (Piece piece : pieces) {
+            for (int i = 0; i < piece.length; i++) {
+                if (piece.charAt(i) == '\n') {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes all marks whose positions are no longer referenced.
+     */
+    private void removeUnusedMarks() {
+        int released = 0;
+        while (queue.poll() != null) {
+            released++;
+        }
+        if (released > 0) {
+            marks.removeUnused(released);
+        }
+    }
+
+
+
+    /**
+     * Writes the characters of the passed pieces to a new temporary file as UTF-16, which is deleted on exit.
+     *
+     * @param spilled       Pieces to be written.
+     * @return              Temporary file containing the characters.
+     * @throws IOException  The file cannot be written.
+     */
+    private static Path writeSpillFile(Piece[] spilled) throws IOException {
+        Path file = Files.createTempFile("vate-undo-", ".tmp");
+        file.toFile().deleteOnExit();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            char[] chars = new char[SPILL_BUFFER_SIZE];
+            ByteBuffer bytes = ByteBuffer.allocate(SPILL_BUFFER_SIZE * Character.BYTES);
+            for (Piece piece : spilled) {
+                for (int from = 0; from < piece.length; from += SPILL_BUFFER_SIZE) {
+                    int count = Math.min(SPILL_BUFFER_SIZE, piece.length - from);
+                    piece.copy(from, chars, 0, count);
+                    bytes.clear();
+                    bytes.asCharBuffer().put(chars, 0, count);
+                    bytes.limit(count * Character.BYTES);
+                    while (bytes.hasRemaining()) {
+                        channel.write(bytes);
+                    }
+                }
+            }
+        }
+        catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return file;
+    }
+
+    /**
+     * Reads the passed number of characters from the passed temporary file, which was written through
+     * {@link #writeSpillFile(Piece[])}.
+     *
+     * @param file          Temporary file to be read.
+     * @param count         Number of characters to be read.
+     * @return              Characters of the file.
+     * @throws IOException  The file cannot be read.
+     */
+    private static char[] readSpillFile(Path file, int count) throws IOException {
+        char[] chars = new char[count];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer bytes = ByteBuffer.allocate(SPILL_BUFFER_SIZE * Character.BYTES);
+            for (int position = 0; position < count; position += SPILL_BUFFER_SIZE) {
+                int length = Math.min(SPILL_BUFFER_SIZE, count - position);
+                bytes.clear();
+                bytes.limit(length * Character.BYTES);
+                while (bytes.hasRemaining()) {
+                    if (channel.read(bytes) < 0) {
+                        throw new EOFException("Spill file is incomplete: " + file);
+                    }
+                }
+                bytes.flip();
+                bytes.asCharBuffer().get(chars, position, length);
+            }
+        }
+        return chars;
+    }
+
+}
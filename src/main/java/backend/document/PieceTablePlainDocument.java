@@ -0,0 +1,100 @@
+package backend.document;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import javax.swing.text.PlainDocument;
+
+
+/**
+ * This class implements a plain document whose content is stored within a {@linkplain PieceTableContent}. Unlike the
+ * {@linkplain PieceTableDocument}, this document does not store any attributes, so that each line is represented by
+ * a single element. This makes the document considerably smaller and faster for files without any formatting, like
+ * logs, CSV or configuration files.
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public class PieceTablePlainDocument extends PlainDocument implements PieceTableBackedDocument {
+
+    /**
+     * Stores the functionalities that this document shares with all other {@linkplain PieceTableBackedDocument}s.
+     */
+    private final PieceTableSupport support;
+
+
+    /**
+     * Constructs a new empty PieceTablePlainDocument.
+     */
+    public PieceTablePlainDocument() {
+        super(new PieceTableContent());
+        support = new PieceTableSupport(this, (PieceTableContent)getContent(), this::writeLock, this::writeUnlock, this::insertUpdate, this::fireInsertUpdate, this::fireChangedUpdate, this::fireUndoableEditUpdate, this::createLine);
+    }
+
+
+    /**
+     * Inserts the passed buffer into the document without copying it. The buffer MUST NOT be modified afterwards.
+     * Unlike {@link #insertString(int, String, javax.swing.text.AttributeSet)}, the insertion cannot be undone, as it
+     * is intended to be used when a file is loaded.
+     *
+     * @param offset                Offset at which the buffer shall be inserted.
+     * @param buffer                Buffer to be inserted.
+     * @throws BadLocationException The passed offset is not a valid position within the document.
+     */
+    @Override
+    public void insertBuffer(int offset, CharSequence buffer) throws BadLocationException {
+        support.insertBuffer(offset, buffer);
+    }
+
+
+    /**
+     * Replaces the passed ranges of this document with the passed text, as described in
+     * {@link PieceTableBackedDocument#replaceRanges(int[], int[], int, String)}.
+     *
+     * @param starts                Offsets of the ranges in ascending order.
+     * @param lengths               Lengths of the ranges, which must not overlap.
+     * @param count                 Number of ranges.
+     * @param replacement           Text that replaces every range.
+     * @throws BadLocationException The ranges overlap or are not contained in this document.
+     */
+    @Override
+    public void replaceRanges(int[] starts, int[] lengths, int count, String replacement) throws BadLocationException {
+        support.replaceRanges(starts, lengths, count, replacement);
+    }
+
+
+    /**
+     * Returns the edit of the text that was created by the last insertion or removal, so that the
+     * {@linkplain UndoHistory} can record its text.
+     *
+     * @return  Edit of the last insertion or removal, or {@code null} if it was taken already.
+     */
+    TextEdit takeLastEdit() {
+        return support.takeLastEdit();
+    }
+
+    /**
+     * Creates an immutable snapshot of the text of this document. No characters are copied, so that creating a
+     * snapshot is cheap even for huge documents. The snapshot can be read by any thread while the document continues
+     * to be edited.
+     *
+     * @return  Snapshot of the text of this document.
+     */
+    @Override
+    public PieceTableContent.Snapshot snapshot() {
+        return support.snapshot();
+    }
+
+
+    /**
+     * Creates the element of a line, which is a leaf of the root element.
+     *
+     * @param template  Element of a line, which is not used since lines have no attributes.
+     * @param start     Offset of the first character of the line.
+     * @param end       Offset behind the line break of the line.
+     * @return          Element of the line.
+     */
+    private Element createLine(Element template, int start, int end) {
+        return createLeafElement(getDefaultRootElement(), null, start, end);
+    }
+
+}
@@ -0,0 +1,382 @@
+package backend.document;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.UndoableEditEvent;
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.AttributeSet;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import javax.swing.text.Segment;
+import javax.swing.undo.AbstractUndoableEdit;
+import javax.swing.undo.CannotRedoException;
+import javax.swing.undo.CannotUndoException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+
+/**
+ * This class implements the functionalities that are shared by all {@linkplain PieceTableBackedDocument}s. As the
+ * plain and the styled document extend different classes, each of them creates an instance of this class, to which it
+ * passes its protected operations of the {@linkplain AbstractDocument} as method references.
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+final class PieceTableSupport {
+
+    /**
+     * This interface is implemented by the documents to create the element of a line, since the lines of plain and
+     * styled documents are structured differently.
+     */
+    interface LineFactory {
+
+        /**
+         * Creates the element of a line that is a child of the root element.
+         *
+         * @param template  Element of a line whose attributes are used for the created line.
+         * @param start     Offset of the first character of the line.
+         * @param end       Offset behind the line break of the line.
+         * @return          Element of the line.
+         */
+        Element createLine(Element template, int start, int end);
+
+    }
+
+
+    /**
+     * This class implements the undoable edit of a replacement of multiple ranges. Undoing or redoing the edit
+     * replaces the ranges again and fires a single {@linkplain ReplaceEvent}.
+     */
+    class ReplaceEdit extends AbstractUndoableEdit {
+
+        /**
+         * Stores the edit of the content.
+         */
+        private final PieceTableContent.ReplaceUndo replaced;
+
+        /**
+         * Stores the change of the lines, or {@code null} if no line was added or removed.
+         */
+        private final AbstractDocument.ElementEdit lines;
+
+
+        /**
+         * Constructs a new ReplaceEdit for the passed edit of the content, which was just made. The lines are updated
+         * and the listeners of the document are notified.
+         *
+         * @param replaced  Edit of the content.
+         */
+        private ReplaceEdit(PieceTableContent.ReplaceUndo replaced) {
+            this.replaced = replaced;
+            lines = updateLines(replaced);
+            fireChangedUpdate.accept(new ReplaceEvent(document, replaced, lines));
+        }
+
+
+        @Override
+        public void undo() throws CannotUndoException {
+            super.undo();
+            writeLock.run();
+            try {
+                replaced.undo();
+                if (lines != null) {
+                    lines.undo();
+                }
+                fireChangedUpdate.accept(new ReplaceEvent(document, replaced, lines));
+            }
+            finally {
+                writeUnlock.run();
+            }
+        }
+
+        @Override
+        public void redo() throws CannotRedoException {
+            super.redo();
+            writeLock.run();
+            try {
+                replaced.redo();
+                if (lines != null) {
+                    lines.redo();
+                }
+                fireChangedUpdate.accept(new ReplaceEvent(document, replaced, lines));
+            }
+            finally {
+                writeUnlock.run();
+            }
+        }
+
+        @Override
+        public void die() {
+            super.die();
+            replaced.die();
+        }
+
+
+        /**
+         * Returns the removals and insertions of the replacement, in the order in which they would have been made one
+         * after another, so that the {@linkplain UndoHistory} can record them.
+         *
+         * @return  Text edits of the replacement.
+         */
+        List<TextEdit> getTextEdits() {
+            return replaced.getTextEdits();
+        }
+
+    }
+
+    /**
+     * Stores the document whose functionalities are implemented.
+     */
+    private final AbstractDocument document;
+
+    /**
+     * Stores the content of the {@link #document}.
+     */
+    private final PieceTableContent content;
+
+    /**
+     * Stores the operation that locks the {@link #document} for writing.
+     */
+    private final Runnable writeLock;
+
+    /**
+     * Stores the operation that unlocks the {@link #document} after writing.
+     */
+    private final Runnable writeUnlock;
+
+    /**
+     * Stores the operation that updates the elements of the {@link #document} after text was inserted.
+     */
+    private final BiConsumer<AbstractDocument.DefaultDocumentEvent, AttributeSet> insertUpdate;
+
+    /**
+     * Stores the operation that notifies the listeners of the {@link #document} after text was inserted.
+     */
+    private final Consumer<DocumentEvent> fireInsertUpdate;
+
+    /**
+     * Stores the operation that notifies the listeners of the {@link #document} after it changed.
+     */
+    private final Consumer<DocumentEvent> fireChangedUpdate;
+
+    /**
+     * Stores the operation that notifies the undoable edit listeners of the {@link #document}.
+     */
+    private final Consumer<UndoableEditEvent> fireUndoableEditUpdate;
+
+    /**
+     * Stores the factory that creates the lines of the {@link #document}.
+     */
+    private final LineFactory lineFactory;
+
+
+    /**
+     * Constructs a new PieceTableSupport for the passed document.
+     *
+     * @param document          Document whose functionalities are implemented.
+     * @param content           Content of the document.
+     * @param writeLock         Operation that locks the document for writing.
+     * @param writeUnlock       Operation that unlocks the document after writing.
+     * @param insertUpdate      Operation that updates the elements of the document after text was inserted.
+     * @param fireInsertUpdate  Operation that notifies the listeners of the document after text was inserted.
+     * @param fireChangedUpdate Operation that notifies the listeners of the document after it changed.
+     * @param fireUndoableEdit  Operation that notifies the undoable edit listeners of the document.
+     * @param lineFactory       Factory that creates the lines of the document.
+     */
+    PieceTableSupport(AbstractDocument document, PieceTableContent content, Runnable writeLock, Runnable writeUnlock, BiConsumer<AbstractDocument.DefaultDocumentEvent, AttributeSet> insertUpdate, Consumer<DocumentEvent> fireInsertUpdate, Consumer<DocumentEvent> fireChangedUpdate, Consumer<UndoableEditEvent> fireUndoableEdit, LineFactory lineFactory) {
+        this.document = document;
+        this.content = content;
+        this.writeLock = writeLock;
+        this.writeUnlock = writeUnlock;
+        this.insertUpdate = insertUpdate;
+        this.fireInsertUpdate = fireInsertUpdate;
+        this.fireChangedUpdate = fireChangedUpdate;
+        this.fireUndoableEditUpdate = fireUndoableEdit;
+        this.lineFactory = lineFactory;
+    }
+
+
+    /**
+     * Inserts the passed buffer into the document without copying it, as described in
+     * {@link PieceTableBackedDocument#insertBuffer(int, CharSequence)}.
+     *
+     * @param offset                Offset at which the buffer shall be inserted.
+     * @param buffer                Buffer to be inserted.
+     * @throws BadLocationException The passed offset is not a valid position within the document.
+     */
+    void insertBuffer(int offset, CharSequence buffer) throws BadLocationException {
+        if (buffer.length() == 0) {
+            return;
+        }
+        writeLock.run();
+        try {
+            content.insertBuffer(offset, buffer);
+            AbstractDocument.DefaultDocumentEvent event = document.new DefaultDocumentEvent(offset, buffer.length(), DocumentEvent.EventType.INSERT);
+            insertUpdate.accept(event, null);
+            event.end();
+            fireInsertUpdate.accept(event);
+        }
+        finally {
+            writeUnlock.run();
+        }
+    }
+
+    /**
+     * Replaces the passed ranges of the document with the passed text, as described in
+     * {@link PieceTableBackedDocument#replaceRanges(int[], int[], int, String)}.
+     *
+     * @param starts                Offsets of the ranges in ascending order.
+     * @param lengths               Lengths of the ranges, which must not overlap.
+     * @param count                 Number of ranges.
+     * @param replacement           Text that replaces every range.
+     * @throws BadLocationException The ranges overlap or are not contained in the document.
+     */
+    void replaceRanges(int[] starts, int[] lengths, int count, String replacement) throws BadLocationException {
+        if (count == 0) {
+            return;
+        }
+        writeLock.run();
+        try {
+            ReplaceEdit edit = new ReplaceEdit(content.replace(starts, lengths, count, replacement));
+            fireUndoableEditUpdate.accept(new UndoableEditEvent(document, edit));
+        }
+        finally {
+            writeUnlock.run();
+        }
+    }
+
+    /**
+     * Returns the edit of the text that was created by the last insertion or removal, so that the
+     * {@linkplain UndoHistory} can record its text.
+     *
+     * @return  Edit of the last insertion or removal, or {@code null} if it was taken already.
+     */
+    TextEdit takeLastEdit() {
+        return content.takeLastEdit();
+    }
+
+    /**
+     * Creates an immutable snapshot of the text of the document, as described in
+     * {@link PieceTableBackedDocument#snapshot()}.
+     *
+     * @return  Snapshot of the text of the document.
+     */
+    PieceTableContent.Snapshot snapshot() {
+        document.readLock();
+        try {
+            return content.snapshot(document.getLength());
+        }
+        finally {
+            document.readUnlock();
+        }
+    }
+
+
+
+    /**
+     * Rebuilds the lines of all ranges that were replaced last by the passed edit, whose removed or inserted text
+     * contains a line break. The lines of all other ranges did not change, since the positions of line breaks only
+     * move with the replacements in front of them. Lines between rebuilt ranges are kept.
+     *
+     * @param replaced  Edit that replaced the ranges.
+     * @return          Change of the lines, or {@code null} if no line was added or removed.
+     */
+    private AbstractDocument.ElementEdit updateLines(PieceTableContent.ReplaceUndo replaced) {
+        AbstractDocument.BranchElement root = (AbstractDocument.BranchElement)document.getDefaultRootElement();
+        Segment text = new Segment();
+        text.setPartialReturn(true);
+
+        //Find the lines of all ranges that contain line breaks:
+        ArrayList<int[]> rebuilt = new ArrayList<int[]>();
+        int shift = 0;
+        for (int i = 0; i < replaced.size(); i++) {
+            int start = replaced.getStart(i) + shift;
+            int end = start + replaced.getInsertedLength(i);
+            shift += replaced.getInsertedLength(i) - replaced.getRemovedLength(i);
+            if (!replaced.changesLines(i)) {
+                continue;
+            }
+            //Lines in front of the previous range were searched already:
+            int previous = rebuilt.isEmpty() ? 0 : rebuilt.get(rebuilt.size() - 1)[1];
+            int first = root.getElementIndex(start);
+            while (first > previous && !isLineStart(root.getElement(first).getStartOffset(), text)) {
+                first--;
+            }
+            int last = Math.max(Math.max(first, previous), root.getElementIndex(end));
+            while (last + 1 < root.getElementCount() && (root.getElement(last + 1).getStartOffset() <= end || !isLineStart(root.getElement(last).getEndOffset(), text))) {
+                last++;
+            }
+            if (!rebuilt.isEmpty() && first <= rebuilt.get(rebuilt.size() - 1)[1] + 1) {
+                //Lines overlap with the previous range:
+                rebuilt.get(rebuilt.size() - 1)[1] = last;
+            }
+            else {
+                rebuilt.add(new int[] {first, last});
+            }
+        }
+        if (rebuilt.isEmpty()) {
+            return null;
+        }
+
+        //Create the lines of the ranges, the lines in between are kept:
+        int index = rebuilt.get(0)[0];
+        Element[] removed = new Element[rebuilt.get(rebuilt.size() - 1)[1] + 1 - index];
+        for (int i = 0; i < removed.length; i++) {
+            removed[i] = root.getElement(index + i);
+        }
+        ArrayList<Element> added = new ArrayList<Element>();
+        int line = index;
+        for (int[] lines : rebuilt) {
+            while (line < lines[0]) {
+                added.add(root.getElement(line++));
+            }
+            Element template = root.getElement(lines[0]);
+            int lineStart = template.getStartOffset();
+            int position = lineStart;
+            int end = root.getElement(lines[1]).getEndOffset();
+            while (position < end) {
+                try {
+                    content.getChars(position, end - position, text);
+                }
+                catch (BadLocationException e) {
+                    //Cannot happen, as the lines are within the content...
+                    break;
+                }
+                for (int i = 0; i < text.count; i++) {
+                    if (text.array[text.offset + i] == '\n') {
+                        added.add(lineFactory.createLine(template, lineStart, position + i + 1));
+                        lineStart = position + i + 1;
+                    }
+                }
+                position += text.count;
+            }
+            line = lines[1] + 1;
+        }
+        Element[] addedLines = added.toArray(new Element[0]);
+        root.replace(index, removed.length, addedLines);
+        return new AbstractDocument.ElementEdit(root, index, removed, addedLines);
+    }
+
+    /**
+     * Tests whether a line begins at the passed offset, i.e. whether the offset is 0 or follows a line break.
+     *
+     * @param offset    Offset to be tested.
+     * @param text      Segment into which the character in front of the offset is read.
+     * @return          Whether a line begins at the offset.
+     */
+    private boolean isLineStart(int offset, Segment text) {
+        if (offset == 0) {
+            return true;
+        }
+        try {
+            content.getChars(offset - 1, 1, text);
+        }
+        catch (BadLocationException e) {
+            return false;
+        }
+        return text.array[text.offset] == '\n';
+    }
+
+}
@@ -0,0 +1,221 @@
+package backend.document;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+
+
+/**
+ * This class implements the event that is fired when multiple ranges of a {@linkplain PieceTableBackedDocument} were
+ * replaced at once, i.e. when all matches of a search were replaced. The event is fired as a change, which spans from
+ * the first to the last replaced range. Unlike other changes, which only change attributes, a ReplaceEvent changes the
+ * text. Therefore, every listener of a PieceTableBackedDocument must handle it:
+ * <ul>
+ *     <li>Views: {@link #getChange(Element)} reports all lines from the first to the last range as replaced, just like
+ *     a removal and insertion of that text would, so that the views measure and paint these lines again.</li>
+ *     <li>Listeners that track offsets (i.e. the caret, whose offsets are no {@linkplain javax.swing.text.Position}s):
+ *     These map their offsets through {@link #mapOffset(int)}.</li>
+ *     <li>Listeners that need to know which text was inserted or removed (i.e. to keep the line separators): These
+ *     query the replaced ranges, since the text between the ranges did not change.</li>
+ * </ul>
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public class ReplaceEvent implements DocumentEvent {
+
+    /**
+     * Stores the document whose ranges were replaced.
+     */
+    private final Document document;
+
+    /**
+     * Stores the offsets of the replaced ranges, relative to the document before the replacement.
+     */
+    private final int[] starts;
+
+    /**
+     * Stores the numbers of characters that were removed from the ranges.
+     */
+    private final int[] removedLengths;
+
+    /**
+     * Stores the numbers of characters that were inserted into the ranges.
+     */
+    private final int[] insertedLengths;
+
+    /**
+     * Stores the change of all lines from the first to the last range.
+     */
+    private final ElementChange change;
+
+    /**
+     * Stores the number of characters from the beginning of the first to the end of the last replacement.
+     */
+    private final int length;
+
+
+    /**
+     * Constructs a new ReplaceEvent for the ranges that were replaced last by the passed edit.
+     *
+     * @param document  Document whose ranges were replaced.
+     * @param replaced  Edit that replaced the ranges.
+     * @param lines     Change of the lines, or {@code null} if no line was added or removed.
+     */
+    ReplaceEvent(Document document, PieceTableContent.ReplaceUndo replaced, ElementChange lines) {
+        this.document = document;
+        int count = replaced.size();
+        starts = new int[count];
+        removedLengths = new int[count];
+        insertedLengths = new int[count];
+        int shift = 0;
+        for (int i = 0; i < count; i++) {
+            starts[i] = replaced.getStart(i);
+            removedLengths[i] = replaced.getRemovedLength(i);
+            insertedLengths[i] = replaced.getInsertedLength(i);
+            shift += insertedLengths[i] - removedLengths[i];
+        }
+        length = starts[count - 1] + removedLengths[count - 1] + shift - starts[0];
+        change = createChange(lines);
+    }
+
+
+    /**
+     * Returns the number of replaced ranges.
+     *
+     * @return  Number of ranges.
+     */
+    public int size() {
+        return starts.length;
+    }
+
+    /**
+     * Returns the offset of the passed range, relative to the document before the replacement.
+     *
+     * @param index Index of the range.
+     * @return      Offset of the range.
+     */
+    public int getStart(int index) {
+        return starts[index];
+    }
+
+    /**
+     * Returns the number of characters that were removed from the passed range.
+     *
+     * @param index Index of the range.
+     * @return      Number of removed characters.
+     */
+    public int getRemovedLength(int index) {
+        return removedLengths[index];
+    }
+
+    /**
+     * Returns the number of characters that were inserted into the passed range.
+     *
+     * @param index Index of the range.
+     * @return      Number of inserted characters.
+     */
+    public int getInsertedLength(int index) {
+        return insertedLengths[index];
+    }
+
+
+    /**
+     * Maps the passed offset within the document before the replacement to the document after the replacement, just
+     * like an offset is moved by the removal and insertion of each range: Offsets within a range or at its
+     * beginning move behind its replacement, all other offsets move by the changes in front of them.
+     *
+     * @param offset    Offset before the replacement.
+     * @return          Offset after the replacement.
+     */
+    public int mapOffset(int offset) {
+        int shift = 0;
+        int mapped = offset;
+        for (int i = 0; i < starts.length && starts[i] <= offset; i++) {
+            shift += insertedLengths[i] - removedLengths[i];
+            mapped = Math.max(offset, starts[i] + removedLengths[i]) + shift;
+        }
+        return mapped;
+    }
+
+
+    /**
+     * Returns the offset of the first replaced range.
+     *
+     * @return  Offset of the change.
+     */
+    @Override
+    public int getOffset() {
+        return starts[0];
+    }
+
+    /**
+     * Returns the number of characters from the beginning of the first to the end of the last replacement, within
+     * the document after the replacement.
+     *
+     * @return  Length of the change.
+     */
+    @Override
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    public Document getDocument() {
+        return document;
+    }
+
+    @Override
+    public EventType getType() {
+        return EventType.CHANGE;
+    }
+
+    /**
+     * Returns the change of the lines from the first to the last range, if the passed element is the root element of
+     * the document.
+     *
+     * @param elem  Element whose change shall be returned.
+     * @return      Change of the element, or {@code null} if it did not change.
+     */
+    @Override
+    public ElementChange getChange(Element elem) {
+        return change.getElement() == elem ? change : null;
+    }
+
+
+    /**
+     * Creates the change that reports all lines from the first to the last range as replaced. The lines that were
+     * actually added or removed are taken from the passed change, all other lines are reported as removed and added
+     * again, since their text may have changed.
+     *
+     * @param lines Change of the lines, or {@code null} if no line was added or removed.
+     * @return      Change of all lines from the first to the last range.
+     */
+    private ElementChange createChange(ElementChange lines) {
+        Element root = document.getDefaultRootElement();
+        int first = root.getElementIndex(starts[0]);
+        int last = root.getElementIndex(starts[0] + length);
+        int index = first;
+        Element[] removedLines = new Element[0];
+        Element[] addedLines = new Element[0];
+        if (lines != null) {
+            index = lines.getIndex();
+            removedLines = lines.getChildrenRemoved();
+            addedLines = lines.getChildrenAdded();
+            first = Math.min(first, index);
+            last = Math.max(last, index + addedLines.length - 1);
+        }
+        Element[] added = new Element[last + 1 - first];
+        for (int i = 0; i < added.length; i++) {
+            added[i] = root.getElement(first + i);
+        }
+        Element[] removed = new Element[added.length - addedLines.length + removedLines.length];
+        int kept = index - first;
+        System.arraycopy(added, 0, removed, 0, kept);
+        System.arraycopy(removedLines, 0, removed, kept, removedLines.length);
+        System.arraycopy(added, kept + addedLines.length, removed, kept + removedLines.length, added.length - kept - addedLines.length);
+        return new AbstractDocument.ElementEdit(root, first, removed, added);
+    }
+
+}
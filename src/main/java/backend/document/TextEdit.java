@@ -0,0 +1,44 @@
+package backend.document;
+
+import java.util.concurrent.Callable;
+
+
+/**
+ * This interface is implemented by all undoable edits that insert or remove text, so that the
+ * {@linkplain UndoHistory} can record the text of its edits within an {@linkplain UndoJournal}.
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+interface TextEdit {
+
+    /**
+     * Returns whether text was inserted ({@code true}) or removed ({@code false}).
+     *
+     * @return  Whether text was inserted.
+     */
+    boolean isInsertion();
+
+    /**
+     * Returns the offset at which the text was inserted or removed.
+     *
+     * @return  Offset of the edit.
+     */
+    int getOffset();
+
+    /**
+     * Returns the number of characters that were inserted or removed.
+     *
+     * @return  Length of the edit.
+     */
+    int getLength();
+
+    /**
+     * Captures the text that was inserted or removed. The returned reader can be called by any thread and fails with
+     * an {@linkplain java.io.IOException} if the text is no longer available (i.e. the edit was undone since).
+     *
+     * @return  Reader for the text of the edit.
+     */
+    Callable<char[]> captureText();
+
+}
@@ -0,0 +1,663 @@
+package backend.document;
+
+import backend.config.Settings;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.undo.AbstractUndoableEdit;
+import javax.swing.undo.CannotRedoException;
+import javax.swing.undo.CannotUndoException;
+import javax.swing.undo.CompoundEdit;
+import javax.swing.undo.UndoManager;
+import javax.swing.undo.UndoableEdit;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.Future;
+
+
+/**
+ * This class implements the undo history of a document. Unlike the default {@linkplain UndoManager}, whose history is
+ * limited to 100 edits, the history is limited by the memory that its edits occupy, which is configured through the
+ * {@linkplain Settings}. Whenever the limit is exceeded, the oldest edits are discarded.
+ * <p>
+ * Typed characters are coalesced into runs, each of which is undone in one step: A run contains a word and the
+ * characters behind it, and ends once the user begins the next word, types somewhere else or pauses for longer than a
+ * configurable delay. Removed characters (i.e. through backspace) are coalesced in the same way.
+ * <p>
+ * The memory of an edit is estimated through the text that only the history references: Inserted text is part of the
+ * document, whereas removed text is kept by the history. Large removals are spilled to a temporary file by the
+ * {@linkplain PieceTableContent}, so that they only occupy a constant amount of memory.
+ * <p>
+ * The history records the text edits of its entries, so that it can be persisted within an {@linkplain UndoJournal}
+ * when the file is saved. The journal of a previous session is read in the background and inserted in front of the
+ * edits of the current session afterwards.
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public class UndoHistory extends UndoManager {
+
+    /**
+     * Stores the estimated number of bytes that every edit occupies regardless of its text (i.e. the event and the
+     * changes of the elements).
+     */
+    private static final long EDIT_OVERHEAD = 256;
+
+
+    /**
+     * This class implements a run of typed (or removed) characters, which is undone in one step. The run remains in
+     * progress until it is ended by the history, but can be undone at any time.
+     */
+    private static class TypingRun extends CompoundEdit {
+
+        /**
+         * Stores the type of the events within the run.
+         */
+        private final DocumentEvent.EventType type;
+
+        /**
+         * Stores the offset of the last event of the run.
+         */
+        private int offset;
+
+        /**
+         * Stores the time (in milliseconds) of the last event of the run.
+         */
+        private long time;
+
+
+        /**
+         * Constructs a new TypingRun that begins with the passed event.
+         *
+         * @param event Event with which the run begins.
+         * @param time  Time (in milliseconds) of the event.
+         */
+        private TypingRun(DocumentEvent event, long time) {
+            type = event.getType();
+            offset = event.getOffset();
+            this.time = time;
+            addEdit((UndoableEdit)event);
+        }
+
+
+        /**
+         * Tests whether the passed edit continues the run. This is the case if it is a typed character (or a removed
+         * character) next to the last event of the run, which happened shortly after the last event and does not
+         * begin a new word.
+         *
+         * @param edit  Edit to be tested.
+         * @param time  Time (in milliseconds) of the edit.
+         * @return      Whether the edit continues the run.
+         */
+        private boolean accepts(UndoableEdit edit, long time) {
+            if (!isInProgress() || !isTyping(edit) || time - this.time > Settings.undoCoalesceDelay) {
+                return false;
+            }
+            DocumentEvent event = (DocumentEvent)edit;
+            if (event.getType() != type) {
+                return false;
+            }
+            if (type == DocumentEvent.EventType.REMOVE) {
+                //Backspace removes the previous character, delete removes the next character:
+                return event.getOffset() == offset - 1 || event.getOffset() == offset;
+            }
+            if (event.getOffset() != offset + 1) {
+                return false;
+            }
+            //The run ends when the next word begins:
+            try {
+                String text = event.getDocument().getText(event.getOffset() - 1, 2);
+                return !isWordCharacter(text.charAt(1)) || isWordCharacter(text.charAt(0));
+            }
+            catch (BadLocationException e) {
+                //Document changed since the event:
+                return false;
+            }
+        }
+
+        /**
+         * Adds the passed edit, which MUST be accepted through {@link #accepts(UndoableEdit, long)}, to the run.
+         *
+         * @param edit  Edit to be added.
+         * @param time  Time (in milliseconds) of the edit.
+         */
+        private void append(UndoableEdit edit, long time) {
+            addEdit(edit);
+            offset = ((DocumentEvent)edit).getOffset();
+            this.time = time;
+        }
+
+        /**
+         * Returns whether the run can be undone. Unlike other compound edits, the run can be undone while it is in
+         * progress, so that the history does not need to end it whenever the undo action is updated.
+         *
+         * @return  Whether the run can be undone.
+         */
+        @Override
+        public boolean canUndo() {
+            return isInProgress() ? !edits.isEmpty() : super.canUndo();
+        }
+
+    }
+
+
+    /**
+     * This class implements the record of an edit within the history, which stores its estimated memory and its text
+     * edits.
+     */
+    private static class Entry {
+
+        /**
+         * Stores the estimated memory (in bytes) of the edit.
+         */
+        private long memory;
+
+        /**
+         * Stores the text edits of the edit in the order in which they were made, or {@code null} if the text of some
+         * edit is unknown (i.e. it was made on a document that is not backed by a piece table).
+         */
+        private ArrayList<TextEdit> textEdits = new ArrayList<TextEdit>();
+
+
+        /**
+         * Records the passed edit.
+         *
+         * @param edit      Edit to be recorded.
+         * @param memory    Estimated memory of the edit.
+         * @param edits     Text edits of the edit, or {@code null} if they are unknown.
+         */
+        private void record(UndoableEdit edit, long memory, List<TextEdit> edits) {
+            this.memory += memory;
+            if (textEdits != null && isTextEdit(edit)) {
+                if (edits != null) {
+                    textEdits.addAll(edits);
+                }
+                else {
+                    textEdits = null;
+                }
+            }
+        }
+
+    }
+
+
+    /**
+     * This class implements an edit that was restored from an {@linkplain UndoJournal}. The edit is undone and redone
+     * by replaying its text edits on the document.
+     */
+    private class JournalEdit extends AbstractUndoableEdit {
+
+        /**
+         * Stores the document on which the edit is replayed.
+         */
+        private final Document document;
+
+        /**
+         * Stores the text edits of the edit in the order in which they were made.
+         */
+        private final List<UndoJournal.Operation> operations;
+
+
+        /**
+         * Constructs a new JournalEdit.
+         *
+         * @param document      Document on which the edit is replayed.
+         * @param operations    Text edits of the edit.
+         */
+        private JournalEdit(Document document, List<UndoJournal.Operation> operations) {
+            this.document = document;
+            this.operations = operations;
+        }
+
+
+        /**
+         * Undoes the edit by reverting its text edits in reverse order.
+         *
+         * @throws CannotUndoException  The edit cannot be undone.
+         */
+        @Override
+        public void undo() throws CannotUndoException {
+            super.undo();
+            try {
+                for (int i = operations.size() - 1; i >= 0; i--) {
+                    replay(operations.get(i), true);
+                }
+            }
+            catch (BadLocationException e) {
+                throw new CannotUndoException();
+            }
+        }
+
+        /**
+         * Redoes the edit by repeating its text edits.
+         *
+         * @throws CannotRedoException  The edit cannot be redone.
+         */
+        @Override
+        public void redo() throws CannotRedoException {
+            super.redo();
+            try {
+                for (UndoJournal.Operation operation : operations) {
+                    replay(operation, false);
+                }
+            }
+            catch (BadLocationException e) {
+                throw new CannotRedoException();
+            }
+        }
+
+        /**
+         * Repeats or reverts the passed text edit on the document. The events of the document are not added to the
+         * history.
+         *
+         * @param operation                 Text edit to be replayed.
+         * @param revert                    Whether the text edit shall be reverted.
+         * @throws BadLocationException     The text edit does not fit the document.
+         */
+        private void replay(UndoJournal.Operation operation, boolean revert) throws BadLocationException {
+            replaying = true;
+            try {
+                if (operation.isInsertion() != revert) {
+                    document.insertString(operation.getOffset(), operation.getText(), null);
+                }
+                else {
+                    document.remove(operation.getOffset(), operation.getLength());
+                }
+            }
+            finally {
+                replaying = false;
+            }
+        }
+
+    }
+
+
+    /**
+     * Stores the record of every edit within the history.
+     */
+    private final IdentityHashMap<UndoableEdit, Entry> entries;
+
+    /**
+     * Stores the estimated memory (in bytes) of all edits within the history.
+     */
+    private long memoryUsage;
+
+    /**
+     * Stores the run of typed characters that is in progress, or {@code null} if no run is in progress.
+     */
+    private TypingRun run;
+
+    /**
+     * Stores the edit that collects all edits between {@link #beginCompoundEdit()} and {@link #endCompoundEdit()}, or
+     * {@code null} if no compound edit is in progress.
+     */
+    private CompoundEdit compoundEdit;
+
+    /**
+     * Stores the record of the {@link #compoundEdit}.
+     */
+    private Entry compoundEntry;
+
+    /**
+     * Stores whether a {@linkplain JournalEdit} is replayed, whose events must not be added to the history.
+     */
+    private boolean replaying;
+
+    /**
+     * Stores whether the oldest edits were discarded since the history was cleared, so that the edits of a previous
+     * session no longer fit in front of the history.
+     */
+    private boolean truncated;
+
+
+    /**
+     * Constructs a new empty UndoHistory.
+     */
+    public UndoHistory() {
+        entries = new IdentityHashMap<UndoableEdit, Entry>();
+        setLimit(Integer.MAX_VALUE); //The history is limited by its memory.
+    }
+
+
+    public synchronized long getMemoryUsage() {
+        return memoryUsage;
+    }
+
+
+    /**
+     * Adds the passed edit to the history. Typed characters are added to the run that is in progress, if possible.
+     * Edits between {@link #beginCompoundEdit()} and {@link #endCompoundEdit()} are added to the compound edit.
+     *
+     * @param edit  Edit to be added.
+     * @return      Whether the edit was added.
+     */
+    @Override
+    public synchronized boolean addEdit(UndoableEdit edit) {
+        List<TextEdit> textEdits = takeTextEdits(edit);
+        if (replaying) {
+            edit.die();
+            return false;
+        }
+        long memory = estimateMemory(edit);
+        if (compoundEdit != null) {
+            compoundEdit.addEdit(edit);
+            compoundEntry.record(edit, memory, textEdits);
+            return true;
+        }
+        long time = System.currentTimeMillis();
+        if (run != null && run.accepts(edit, time)) {
+            run.append(edit, time);
+            entries.get(run).record(edit, memory, textEdits);
+            memoryUsage += memory;
+            trimForMemory();
+            return true;
+        }
+        endRun();
+        Entry entry = new Entry();
+        entry.record(edit, memory, textEdits);
+        if (isTyping(edit)) {
+            run = new TypingRun((DocumentEvent)edit, time);
+            edit = run;
+        }
+        return add(edit, entry);
+    }
+
+    /**
+     * Begins a compound edit, which collects all edits until {@link #endCompoundEdit()} is called, so that they are
+     * undone in one step (i.e. the removal and insertion of a replacement).
+     */
+    public synchronized void beginCompoundEdit() {
+        endRun();
+        compoundEdit = new CompoundEdit();
+        compoundEntry = new Entry();
+    }
+
+    /**
+     * Ends the compound edit that was begun through {@link #beginCompoundEdit()} and adds it to the history, unless it
+     * does not contain any significant edits.
+     */
+    public synchronized void endCompoundEdit() {
+        if (compoundEdit == null) {
+            return;
+        }
+        CompoundEdit edit = compoundEdit;
+        compoundEdit = null;
+        edit.end();
+        if (edit.isSignificant()) {
+            add(edit, compoundEntry);
+        }
+    }
+
+
+    /**
+     * Undoes the last edit. A run of typed characters that is in progress is ended first.
+     *
+     * @throws CannotUndoException  There is no edit to be undone.
+     */
+    @Override
+    public synchronized void undo() throws CannotUndoException {
+        endRun();
+        super.undo();
+    }
+
+    /**
+     * Redoes the last edit that was undone.
+     *
+     * @throws CannotRedoException  There is no edit to be redone.
+     */
+    @Override
+    public synchronized void redo() throws CannotRedoException {
+        endRun();
+        super.redo();
+    }
+
+    /**
+     * Discards all edits of the history.
+     */
+    @Override
+    public synchronized void discardAllEdits() {
+        endRun();
+        super.discardAllEdits();
+        entries.clear();
+        memoryUsage = 0;
+        truncated = false;
+    }
+
+
+    /**
+     * Removes the edits within the passed range from the history and releases their memory.
+     *
+     * @param from  Index of the first edit to be removed.
+     * @param to    Index of the last edit to be removed.
+     */
+    @Override
+    protected void trimEdits(int from, int to) {
+        for (int i = from; i <= to; i++) {
+            UndoableEdit edit = edits.get(i);
+            Entry entry = entries.remove(edit);
+            if (entry != null) {
+                memoryUsage -= entry.memory;
+            }
+            if (edit == run) {
+                run = null;
+            }
+        }
+        super.trimEdits(from, to);
+    }
+
+
+    /**
+     * Creates a journal of all edits that can be undone, which is written once the document was saved. Edits that are
+     * older than an edit whose text is unknown are not journaled, since they cannot be replayed. This MUST be called
+     * on the event dispatch thread.
+     *
+     * @param snapshot  Snapshot of the document as it is saved.
+     * @param previous  Journal of the previous session that was not loaded yet, or {@code null}. Its entries are
+     *                  journaled behind the edits of the history, if the history contains every edit since it was
+     *                  cleared.
+     * @return          Journal of the history.
+     */
+    public synchronized UndoJournal createJournal(PieceTableContent.Snapshot snapshot, Future<UndoJournal> previous) {
+        ArrayList<List<TextEdit>> journaled = new ArrayList<List<TextEdit>>();
+        boolean complete = !truncated;
+        int nextAdd = edits.indexOf(editToBeUndone()) + 1; //Edits behind this index can be redone.
+        for (int i = 0; i < nextAdd; i++) {
+            Entry entry = entries.get(edits.get(i));
+            if (entry == null || entry.textEdits == null) {
+                journaled.clear();
+                complete = false;
+            }
+            else if (!entry.textEdits.isEmpty()) {
+                journaled.add(entry.textEdits);
+            }
+        }
+        return new UndoJournal(snapshot, journaled, complete ? previous : null);
+    }
+
+    /**
+     * Inserts the edits of the passed journal in front of the history, so that the edits of a previous session can be
+     * undone. The journal MUST have been read for the text of the document before the oldest edit of the history
+     * (i.e. when the document was loaded), and is not inserted if the oldest edits were discarded since. This MUST be
+     * called on the event dispatch thread.
+     *
+     * @param document  Document whose history shall be loaded.
+     * @param journal   Journal of the previous session.
+     * @return          Whether the journal was loaded.
+     */
+    public synchronized boolean loadJournal(PieceTableBackedDocument document, UndoJournal journal) {
+        endRun();
+        if (truncated) {
+            return false;
+        }
+        ArrayList<ArrayList<UndoJournal.Operation>> journaled = journal.getOperations();
+        if (journaled.isEmpty()) {
+            return false;
+        }
+        //Edits of the current session are added behind the journaled edits:
+        int nextAdd = edits.indexOf(editToBeUndone()) + 1; //Edits behind this index can be redone.
+        ArrayList<UndoableEdit> session = new ArrayList<UndoableEdit>(edits);
+        edits.clear();
+        for (ArrayList<UndoJournal.Operation> operations : journaled) {
+            Entry entry = new Entry();
+            entry.memory = EDIT_OVERHEAD;
+            for (UndoJournal.Operation operation : operations) {
+                entry.memory += (long)operation.getLength() * Character.BYTES;
+            }
+            entry.textEdits = new ArrayList<TextEdit>(operations);
+            JournalEdit edit = new JournalEdit(document, operations);
+            super.addEdit(edit);
+            entries.put(edit, entry);
+            memoryUsage += entry.memory;
+        }
+        for (int i = 0; i < nextAdd; i++) {
+            super.addEdit(session.get(i));
+        }
+        edits.addAll(session.subList(nextAdd, session.size()));
+        trimForMemory();
+        return true;
+    }
+
+
+    /**
+     * Adds the passed edit to the history and discards the oldest edits if the history exceeds its memory limit.
+     *
+     * @param edit  Edit to be added.
+     * @param entry Record of the edit.
+     * @return      Whether the edit was added.
+     */
+    private boolean add(UndoableEdit edit, Entry entry) {
+        boolean added = super.addEdit(edit);
+        entries.put(edit, entry);
+        memoryUsage += entry.memory;
+        trimForMemory();
+        return added;
+    }
+
+    /**
+     * Discards edits until the history no longer exceeds its memory limit. The oldest edits are discarded first, then
+     * the edits that can be redone. The last edit is never discarded, so that it can always be undone.
+     */
+    private void trimForMemory() {
+        long limit = Math.max(1, Settings.undoMemoryLimit) * 1024L * 1024L;
+        while (memoryUsage > limit) {
+            int nextAdd = edits.indexOf(editToBeUndone()) + 1; //Edits behind this index can be redone.
+            if (nextAdd > 1) {
+                trimEdits(0, 0);
+                truncated = true;
+            }
+            else if (edits.size() > Math.max(1, nextAdd)) {
+                trimEdits(edits.size() - 1, edits.size() - 1);
+            }
+            else {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Ends the run of typed characters that is in progress, so that further characters begin a new run.
+     */
+    private void endRun() {
+        if (run != null) {
+            run.end();
+            run = null;
+        }
+    }
+
+
+    /**
+     * Estimates the memory of the passed edit. Removed text is counted, unless it is spilled to a temporary file.
+     *
+     * @param edit  Edit whose memory shall be estimated.
+     * @return      Estimated memory in bytes.
+     */
+    private static long estimateMemory(UndoableEdit edit) {
+        if (edit instanceof PieceTableSupport.ReplaceEdit) {
+            long memory = EDIT_OVERHEAD;
+            for (TextEdit textEdit : ((PieceTableSupport.ReplaceEdit)edit).getTextEdits()) {
+                if (!textEdit.isInsertion()) {
+                    memory += (long)textEdit.getLength() * Character.BYTES;
+                }
+            }
+            return memory;
+        }
+        if (edit instanceof DocumentEvent) {
+            DocumentEvent event = (DocumentEvent)edit;
+            if (event.getType() == DocumentEvent.EventType.REMOVE && event.getLength() < Settings.undoSpillThreshold) {
+                return EDIT_OVERHEAD + (long)event.getLength() * Character.BYTES;
+            }
+        }
+        return EDIT_OVERHEAD;
+    }
+
+    /**
+     * Takes the text edits of the passed edit from its document, if the document is backed by a piece table.
+     *
+     * @param edit  Edit whose text edits shall be taken.
+     * @return      Text edits of the edit, or {@code null} if they are unknown.
+     */
+    private static List<TextEdit> takeTextEdits(UndoableEdit edit) {
+        if (edit instanceof PieceTableSupport.ReplaceEdit) {
+            return ((PieceTableSupport.ReplaceEdit)edit).getTextEdits();
+        }
+        if (!isTextEdit(edit)) {
+            return null;
+        }
+        DocumentEvent event = (DocumentEvent)edit;
+        TextEdit textEdit = null;
+        if (event.getDocument() instanceof PieceTablePlainDocument) {
+            textEdit = ((PieceTablePlainDocument)event.getDocument()).takeLastEdit();
+        }
+        else if (event.getDocument() instanceof PieceTableDocument) {
+            textEdit = ((PieceTableDocument)event.getDocument()).takeLastEdit();
+        }
+        if (textEdit == null || textEdit.getOffset() != event.getOffset() || textEdit.getLength() != event.getLength()) {
+            return null;
+        }
+        return List.of(textEdit);
+    }
+
+    /**
+     * Tests whether the passed edit inserted or removed text.
+     *
+     * @param edit  Edit to be tested.
+     * @return      Whether the edit inserted or removed text.
+     */
+    private static boolean isTextEdit(UndoableEdit edit) {
+        if (edit instanceof PieceTableSupport.ReplaceEdit) {
+            return true;
+        }
+        if (!(edit instanceof DocumentEvent)) {
+            return false;
+        }
+        DocumentEvent.EventType type = ((DocumentEvent)edit).getType();
+        return type == DocumentEvent.EventType.INSERT || type == DocumentEvent.EventType.REMOVE;
+    }
+
+    /**
+     * Tests whether the passed edit inserted or removed a single character, which can be part of a run.
+     *
+     * @param edit  Edit to be tested.
+     * @return      Whether the edit inserted or removed a single character.
+     */
+    private static boolean isTyping(UndoableEdit edit) {
+        if (!(edit instanceof DocumentEvent)) {
+            return false;
+        }
+        DocumentEvent event = (DocumentEvent)edit;
+        return event.getLength() == 1 && (event.getType() == DocumentEvent.EventType.INSERT || event.getType() == DocumentEvent.EventType.REMOVE);
+    }
+
+    /**
+     * Tests whether the passed character is part of a word.
+     *
+     * @param c Character to be tested.
+     * @return  Whether the character is part of a word.
+     */
+    private static boolean isWordCharacter(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+}
@@ -0,0 +1,538 @@
+package backend.document;
+
+import backend.config.Config;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+
+/**
+ * This class implements the journal of an {@linkplain UndoHistory}, through which the history of a file is restored
+ * after the file is reopened. The journal of every file is stored in a compact binary file, whose name is derived from
+ * the path of the file. Besides the text edits of the history, the journal contains the length and hash of the text
+ * for which it was written, so that it is ignored once the file was changed elsewhere.
+ * <p>
+ * A journal is created on the event dispatch thread, which only captures references to the text of the edits, and
+ * written in the background. The entries are written newest first, so that an entry whose text is no longer available
+ * only discards the entries behind it. A journal that is written before the journal of the previous session was
+ * loaded contains the entries of the previous journal behind its own entries, so that the history of previous sessions
+ * is not lost.
+ * <p>
+ * Journals are read in the background as well. A journal that cannot be read, or whose edits do not fit the text for
+ * which it was written, is discarded.
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public class UndoJournal {
+
+    /**
+     * Stores the magic number with which every journal file begins ("VUJ1").
+     */
+    private static final int MAGIC = 0x56554A31;
+
+    /**
+     * Stores the number of characters that are hashed or written at once.
+     */
+    private static final int BUFFER_SIZE = 65536;
+
+    /**
+     * Stores the algorithm through which the text of a file and the names of the journal files are hashed.
+     */
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    /**
+     * Stores the executor that writes all journals one after another. Its thread is no daemon, so that a journal that
+     * is written while VATE is closed is completed.
+     */
+    private static final ExecutorService WRITER = new ThreadPoolExecutor(0, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), runnable -> new Thread(runnable, "UndoJournal"));
+
+
+    /**
+     * This class implements a text edit that was read from a journal file.
+     */
+    static class Operation implements TextEdit {
+
+        /**
+         * Stores whether the text was inserted.
+         */
+        private final boolean insertion;
+
+        /**
+         * Stores the offset at which the text was inserted or removed.
+         */
+        private final int offset;
+
+        /**
+         * Stores the text that was inserted or removed.
+         */
+        private final char[] text;
+
+
+        /**
+         * Constructs a new Operation.
+         *
+         * @param insertion Whether the text was inserted.
+         * @param offset    Offset at which the text was inserted or removed.
+         * @param text      Text that was inserted or removed.
+         */
+        private Operation(boolean insertion, int offset, char[] text) {
+            this.insertion = insertion;
+            this.offset = offset;
+            this.text = text;
+        }
+
+
+        @Override
+        public boolean isInsertion() {
+            return insertion;
+        }
+
+        @Override
+        public int getOffset() {
+            return offset;
+        }
+
+        @Override
+        public int getLength() {
+            return text.length;
+        }
+
+        public String getText() {
+            return new String(text);
+        }
+
+        @Override
+        public Callable<char[]> captureText() {
+            return () -> text;
+        }
+
+    }
+
+
+    /**
+     * This class implements a text edit whose text was captured for the journal.
+     */
+    private static class CapturedEdit {
+
+        /**
+         * Stores whether the text was inserted.
+         */
+        private final boolean insertion;
+
+        /**
+         * Stores the offset at which the text was inserted or removed.
+         */
+        private final int offset;
+
+        /**
+         * Stores the reader for the text that was inserted or removed.
+         */
+        private final Callable<char[]> text;
+
+
+        /**
+         * Constructs a new CapturedEdit, which captures the text of the passed edit.
+         *
+         * @param edit  Edit whose text shall be captured.
+         */
+        private CapturedEdit(TextEdit edit) {
+            insertion = edit.isInsertion();
+            offset = edit.getOffset();
+            text = edit.captureText();
+        }
+
+    }
+
+
+    /**
+     * Stores the snapshot of the text for which the journal was created.
+     */
+    private final PieceTableContent.Snapshot snapshot;
+
+    /**
+     * Stores the captured edits of every entry of the history, oldest first.
+     */
+    private final ArrayList<ArrayList<CapturedEdit>> entries;
+
+    /**
+     * Stores the journal of the previous session whose entries are written behind the entries of this journal, or
+     * {@code null}.
+     */
+    private final Future<UndoJournal> previous;
+
+
+    /**
+     * Constructs a new UndoJournal, which captures the passed entries of a history. This MUST be called on the thread
+     * that edits the document.
+     *
+     * @param snapshot  Snapshot of the text for which the journal is created.
+     * @param entries   Text edits of every entry of the history, oldest first.
+     * @param previous  Journal of the previous session, which was written for the text before the oldest entry, or
+     *                  {@code null}.
+     */
+    UndoJournal(PieceTableContent.Snapshot snapshot, List<? extends List<? extends TextEdit>> entries, Future<UndoJournal> previous) {
+        this.snapshot = snapshot;
+        this.previous = previous;
+        this.entries = new ArrayList<ArrayList<CapturedEdit>>(entries.size());
+        for (List<? extends TextEdit> entry : entries) {
+            ArrayList<CapturedEdit> edits = new ArrayList<CapturedEdit>(entry.size());
+            for (TextEdit edit : entry) {
+                edits.add(new CapturedEdit(edit));
+            }
+            this.entries.add(edits);
+        }
+    }
+
+
+    /**
+     * Writes the journal of the file with the passed path in the background. If the journal does not contain any
+     * entries, the journal file is left untouched. Errors are ignored, since the journal only restores the history.
+     *
+     * @param path  Path of the file whose journal shall be written.
+     */
+    public void writeInBackground(Path path) {
+        WRITER.execute(() -> {
+            try {
+                write(path);
+            }
+            catch (IOException e) {
+                //Journal cannot be written, the history is not restored:
+            }
+        });
+    }
+
+    /**
+     * Writes the journal of the file with the passed path. The journal is written to a temporary file first, which
+     * replaces the journal file once it is complete. If the journal has a previous journal, this waits until the
+     * previous journal was read.
+     *
+     * @param path          Path of the file whose journal shall be written.
+     * @throws IOException  The journal could not be written.
+     */
+    public void write(Path path) throws IOException {
+        Path journal = getJournalFile(path);
+        UndoJournal older = getPrevious();
+        if (entries.isEmpty() && (older == null || older.entries.isEmpty())) {
+            //The journal file may still belong to the saved text:
+            return;
+        }
+        Files.createDirectories(journal.getParent());
+        Path temp = journal.resolveSibling(journal.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            //The header is not compressed, so that it can be compared quickly:
+            out.writeInt(MAGIC);
+            out.writeUTF(path.toAbsolutePath().toString());
+            out.writeInt(snapshot.length());
+            out.write(hash(snapshot));
+            DataOutputStream data = new DataOutputStream(new DeflaterOutputStream(out));
+            if (writeEntries(data) && older != null) {
+                older.writeEntries(data);
+            }
+            data.writeInt(-1);
+            data.close();
+        }
+        catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        try {
+            Files.move(temp, journal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, journal, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+
+    /**
+     * Writes the entries of this journal (newest first) to the passed stream. Entries that are older than an entry
+     * whose text is no longer available are not written.
+     *
+     * @param data          Stream to which the entries shall be written.
+     * @return              Whether all entries were written.
+     * @throws IOException  The entries could not be written.
+     */
+    private boolean writeEntries(DataOutputStream data) throws IOException {
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            ArrayList<CapturedEdit> entry = entries.get(i);
+            char[][] texts = new char[entry.size()][];
+            try {
+                for (int j = 0; j < texts.length; j++) {
+                    texts[j] = entry.get(j).text.call();
+                }
+            }
+            catch (Exception e) {
+                //Text is no longer available, older entries cannot be undone either:
+                return false;
+            }
+            data.writeInt(texts.length);
+            for (int j = 0; j < texts.length; j++) {
+                data.writeBoolean(entry.get(j).insertion);
+                data.writeInt(entry.get(j).offset);
+                writeChars(data, texts[j]);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the journal of the previous session, once it was read.
+     *
+     * @return  Journal of the previous session, or {@code null} if there is none.
+     */
+    private UndoJournal getPrevious() {
+        if (previous == null) {
+            return null;
+        }
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return previous.get();
+                }
+                catch (InterruptedException e) {
+                    //The previous journal must be completed, otherwise its entries are lost:
+                    interrupted = true;
+                }
+            }
+        }
+        catch (ExecutionException | CancellationException e) {
+            //Previous journal could not be read:
+            return null;
+        }
+        finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+
+    /**
+     * Returns the text edits of every entry of the journal. This is meant for journals that were read through
+     * {@link #read(Path, PieceTableContent.Snapshot)}, whose text is always available.
+     *
+     * @return  Text edits of every entry, oldest first.
+     */
+    ArrayList<ArrayList<Operation>> getOperations() {
+        ArrayList<ArrayList<Operation>> operations = new ArrayList<ArrayList<Operation>>(entries.size());
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            ArrayList<Operation> entry = new ArrayList<Operation>(entries.get(i).size());
+            try {
+                for (CapturedEdit edit : entries.get(i)) {
+                    entry.add(new Operation(edit.insertion, edit.offset, edit.text.call()));
+                }
+            }
+            catch (Exception e) {
+                //Text is no longer available, older entries cannot be undone either:
+                break;
+            }
+            operations.add(entry);
+        }
+        Collections.reverse(operations);
+        return operations;
+    }
+
+
+    /**
+     * Reads the journal of the file with the passed path, which hashes the passed text and should therefore not be
+     * called on the event dispatch thread. The journal is only returned if it was written for the passed text. A
+     * journal that cannot be read is corrupted and therefore deleted.
+     *
+     * @param path      Path of the file whose journal shall be read.
+     * @param snapshot  Snapshot of the current text of the file.
+     * @return          Journal of the file, or {@code null} if the file has no journal for its current text.
+     */
+    public static UndoJournal read(Path path, PieceTableContent.Snapshot snapshot) {
+        Path journal = getJournalFile(path);
+        if (!Files.exists(journal)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(journal)))) {
+            if (in.readInt() != MAGIC || !in.readUTF().equals(path.toAbsolutePath().toString()) || in.readInt() != snapshot.length()) {
+                return null;
+            }
+            byte[] expected = hash(snapshot);
+            byte[] hash = new byte[expected.length];
+            in.readFully(hash);
+            if (!Arrays.equals(hash, expected)) {
+                return null;
+            }
+            DataInputStream data = new DataInputStream(new InflaterInputStream(in));
+            ArrayList<ArrayList<Operation>> entries = new ArrayList<ArrayList<Operation>>();
+            int length = snapshot.length(); //Length of the text after the entry that is read.
+            int count;
+            while ((count = data.readInt()) >= 0) {
+                ArrayList<Operation> entry = new ArrayList<Operation>(Math.min(count, BUFFER_SIZE));
+                for (int i = 0; i < count; i++) {
+                    boolean insertion = data.readBoolean();
+                    int offset = data.readInt();
+                    entry.add(new Operation(insertion, offset, readChars(data)));
+                }
+                length = revert(entry, length);
+                entries.add(entry);
+            }
+            //Entries are written newest first:
+            Collections.reverse(entries);
+            return new UndoJournal(snapshot, entries, null);
+        }
+        catch (IOException e) {
+            //Journal is corrupted or cannot be read:
+            try {
+                Files.deleteIfExists(journal);
+            }
+            catch (IOException ignored) {
+                //Journal is ignored once the file changes...
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Computes the length of the text before the passed entry, and validates that every text edit of the entry fits
+     * the text.
+     *
+     * @param entry         Text edits of the entry in the order in which they were made.
+     * @param length        Length of the text after the entry.
+     * @return              Length of the text before the entry.
+     * @throws IOException  Some text edit does not fit the text, the journal is corrupted.
+     */
+    private static int revert(List<Operation> entry, int length) throws IOException {
+        for (int i = entry.size() - 1; i >= 0; i--) {
+            Operation operation = entry.get(i);
+            int offset = operation.getOffset();
+            int count = operation.getLength();
+            if (offset < 0 || offset > length || (operation.isInsertion() && count > length - offset) || (!operation.isInsertion() && count > Integer.MAX_VALUE - length)) {
+                throw new IOException("Corrupted journal");
+            }
+            length += operation.isInsertion() ? -count : count;
+        }
+        return length;
+    }
+
+    /**
+     * Returns the journal file of the file with the passed path.
+     *
+     * @param path  Path of the file whose journal file shall be returned.
+     * @return      Path of the journal file.
+     */
+    public static Path getJournalFile(Path path) {
+        byte[] hash = digest().digest(path.toAbsolutePath().toString().getBytes(StandardCharsets.UTF_8));
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 16; i++) {
+            name.append(String.format("%02x", hash[i]));
+        }
+        return Config.getUndoJournalDirectoryPath().resolve(name.append(".undo").toString());
+    }
+
+
+    /**
+     * Hashes the text of the passed snapshot.
+     *
+     * @param snapshot  Snapshot to be hashed.
+     * @return          Hash of the text.
+     */
+    private static byte[] hash(PieceTableContent.Snapshot snapshot) {
+        MessageDigest digest = digest();
+        ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE * Character.BYTES);
+        for (CharBuffer chars : snapshot) {
+            while (chars.hasRemaining()) {
+                CharBuffer slice = chars.slice();
+                slice.limit(Math.min(slice.remaining(), BUFFER_SIZE));
+                bytes.clear();
+                bytes.asCharBuffer().put(slice);
+                bytes.limit(slice.limit() * Character.BYTES);
+                digest.update(bytes);
+                chars.position(chars.position() + slice.limit());
+            }
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Returns a new digest of the {@link #HASH_ALGORITHM}.
+     *
+     * @return  New digest.
+     */
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        }
+        catch (NoSuchAlgorithmException e) {
+            //Every Java platform supports SHA-256:
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Writes the passed characters (prefixed by their number) to the passed stream.
+     *
+     * @param out           Stream to which the characters shall be written.
+     * @param chars         Characters to be written.
+     * @throws IOException  The characters could not be written.
+     */
+    private static void writeChars(DataOutputStream out, char[] chars) throws IOException {
+        out.writeInt(chars.length);
+        byte[] bytes = new byte[Math.min(chars.length, BUFFER_SIZE) * Character.BYTES];
+        for (int position = 0; position < chars.length; position += BUFFER_SIZE) {
+            int count = Math.min(chars.length - position, BUFFER_SIZE);
+            ByteBuffer.wrap(bytes).asCharBuffer().put(chars, position, count);
+            out.write(bytes, 0, count * Character.BYTES);
+        }
+    }
+
+    /**
+     * Reads characters that were written through {@link #writeChars(DataOutputStream, char[])}. Since the number of
+     * characters is read from the stream, the array grows with the characters that were actually read, so that a
+     * corrupted number fails once the stream ends instead of allocating its memory upfront.
+     *
+     * @param in            Stream from which the characters shall be read.
+     * @return              Characters that were read.
+     * @throws IOException  The characters could not be read.
+     */
+    private static char[] readChars(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Corrupted journal");
+        }
+        char[] chars = new char[Math.min(length, BUFFER_SIZE)];
+        byte[] bytes = new byte[Math.min(length, BUFFER_SIZE) * Character.BYTES];
+        for (int position = 0; position < length; position += BUFFER_SIZE) {
+            int count = Math.min(length - position, BUFFER_SIZE);
+            in.readFully(bytes, 0, count * Character.BYTES);
+            if (position + count > chars.length) {
+                chars = Arrays.copyOf(chars, (int)Math.min(length, Math.max(2L * chars.length, position + count)));
+            }
+            ByteBuffer.wrap(bytes, 0, count * Character.BYTES).asCharBuffer().get(chars, position, count);
+        }
+        return chars;
+    }
+
+}
@@ -0,0 +1,218 @@
+package backend.files;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * This class detects the charset of a file from the first bytes of the file. A byte order mark always determines the
+ * charset. Without a byte order mark, the bytes are tested for UTF-16 (through the distribution of zero bytes) and
+ * UTF-8 (through the validity of multi-byte sequences). If none of these charsets match, a single-byte charset is
+ * assumed.
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public class CharsetDetector {
+
+    /**
+     * Stores the number of bytes at the beginning of a file that are used to detect the charset.
+     */
+    public static final int SAMPLE_SIZE = 8192;
+
+
+    /**
+     * Detects the charset of the passed sample. The position of the sample is not changed.
+     *
+     * @param sample    First bytes of the file, beginning at the position of the buffer.
+     * @param complete  Whether the sample contains the whole file. If not, a multi-byte sequence that is cut at the
+     *                  end of the sample is not considered invalid.
+     * @return          Detected charset.
+     */
+    public static Charset detect(ByteBuffer sample, boolean complete) {
+        Charset charset = detectByteOrderMark(sample);
+        if (charset != null) {
+            return charset;
+        }
+        charset = detectUtf16(sample);
+        if (charset != null) {
+            return charset;
+        }
+        if (isUtf8(sample, complete)) {
+            return StandardCharsets.UTF_8;
+        }
+        return getSingleByteCharset();
+    }
+
+    /**
+     * Tests whether the passed sample belongs to a binary file. Text files do not contain zero bytes, unless they are
+     * encoded in UTF-16, which is detected through a byte order mark or the distribution of the zero bytes. The
+     * position of the sample is not changed.
+     *
+     * @param sample    First bytes of the file, beginning at the position of the buffer.
+     * @return          Whether the file is binary.
+     */
+    public static boolean isBinary(ByteBuffer sample) {
+        int end = sample.limit();
+        for (int i = sample.position(); i < end; i++) {
+            if (sample.get(i) == 0) {
+                //Zero bytes only occur in UTF-16 text:
+                return detectByteOrderMark(sample) == null && detectUtf16(sample) == null;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the length of the byte order mark at the beginning of the passed sample. If the sample does not begin
+     * with a byte order mark, {@code 0} is returned. The position of the sample is not changed.
+     *
+     * @param sample    First bytes of the file, beginning at the position of the buffer.
+     * @return          Length of the byte order mark in bytes.
+     */
+    public static int getByteOrderMarkLength(ByteBuffer sample) {
+        Charset charset = detectByteOrderMark(sample);
+        if (charset == null) {
+            return 0;
+        }
+        return getByteOrderMark(charset).length;
+    }
+
+    /**
+     * Returns the byte order mark for the passed charset. If the charset does not have a byte order mark, an empty
+     * array is returned.
+     *
+     * @param charset   Charset whose byte order mark shall be returned.
+     * @return          Byte order mark of the charset.
+     */
+    public static byte[] getByteOrderMark(Charset charset) {
+        if (charset.equals(StandardCharsets.UTF_8)) {
+            return new byte[] {(byte)0xEF, (byte)0xBB, (byte)0xBF};
+        }
+        else if (charset.equals(StandardCharsets.UTF_16LE)) {
+            return new byte[] {(byte)0xFF, (byte)0xFE};
+        }
+        else if (charset.equals(StandardCharsets.UTF_16BE)) {
+            return new byte[] {(byte)0xFE, (byte)0xFF};
+        }
+        return new byte[0];
+    }
+
+
+    /**
+     * Detects the charset through the byte order mark at the beginning of the passed sample.
+     *
+     * @param sample    First bytes of the file.
+     * @return          Charset indicated by the byte order mark, or {@code null} if there is no byte order mark.
+     */
+    private static Charset detectByteOrderMark(ByteBuffer sample) {
+        int position = sample.position();
+        int remaining = sample.remaining();
+        if (remaining >= 3 && (sample.get(position) & 0xFF) == 0xEF && (sample.get(position + 1) & 0xFF) == 0xBB && (sample.get(position + 2) & 0xFF) == 0xBF) {
+            return StandardCharsets.UTF_8;
+        }
+        else if (remaining >= 2 && (sample.get(position) & 0xFF) == 0xFF && (sample.get(position + 1) & 0xFF) == 0xFE) {
+            return StandardCharsets.UTF_16LE;
+        }
+        else if (remaining >= 2 && (sample.get(position) & 0xFF) == 0xFE && (sample.get(position + 1) & 0xFF) == 0xFF) {
+            return StandardCharsets.UTF_16BE;
+        }
+        return null;
+    }
+
+    /**
+     * Detects UTF-16 without byte order mark. Text in UTF-16 that mostly consists of latin characters contains a
+     * zero byte in every other byte.
+     *
+     * @param sample    First bytes of the file.
+     * @return          Detected UTF-16 charset, or {@code null} if the sample does not look like UTF-16.
+     */
+    private static Charset detectUtf16(ByteBuffer sample) {
+        int pairs = sample.remaining() / 2;
+        if (pairs == 0) {
+            return null;
+        }
+        int evenZeros = 0;
+        int oddZeros = 0;
+        int position = sample.position();
+        for (int i = 0; i < pairs; i++) {
+            if (sample.get(position + 2 * i) == 0) {
+                evenZeros++;
+            }
+            if (sample.get(position + 2 * i + 1) == 0) {
+                oddZeros++;
+            }
+        }
+        if (oddZeros > pairs * 0.3 && evenZeros < pairs * 0.05) {
+            return StandardCharsets.UTF_16LE;
+        }
+        else if (evenZeros > pairs * 0.3 && oddZeros < pairs * 0.05) {
+            return StandardCharsets.UTF_16BE;
+        }
+        return null;
+    }
+
+    /**
+     * Tests whether the passed sample is valid UTF-8. Text that only consists of ASCII characters is valid UTF-8.
+     *
+     * @param sample    First bytes of the file.
+     * @param complete  Whether the sample contains the whole file.
+     * @return          Whether the sample is valid UTF-8.
+     */
+    private static boolean isUtf8(ByteBuffer sample, boolean complete) {
+        int end = sample.limit();
+        int i = sample.position();
+        while (i < end) {
+            int b = sample.get(i) & 0xFF;
+            int continuationBytes;
+            if (b < 0x80) {
+                i++;
+                continue;
+            }
+            else if (b >= 0xC2 && b <= 0xDF) {
+                continuationBytes = 1;
+            }
+            else if (b >= 0xE0 && b <= 0xEF) {
+                continuationBytes = 2;
+            }
+            else if (b >= 0xF0 && b <= 0xF4) {
+                continuationBytes = 3;
+            }
+            else {
+                //Invalid lead byte:
+                return false;
+            }
+            for (int j = 1; j <= continuationBytes; j++) {
+                if (i + j >= end) {
+                    //Sequence is cut at the end of the sample:
+                    return !complete;
+                }
+                if ((sample.get(i + j) & 0xC0) != 0x80) {
+                    return false;
+                }
+            }
+            i += continuationBytes + 1;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the single-byte charset that is assumed for files that are neither UTF-8 nor UTF-16. This is the
+     * default charset of the platform, unless the default charset is UTF-8 or US-ASCII, which cannot decode all
+     * bytes.
+     *
+     * @return  Single-byte charset.
+     */
+    public static Charset getSingleByteCharset() {
+        Charset charset = Charset.defaultCharset();
+        if (!charset.equals(StandardCharsets.UTF_8) && !charset.equals(StandardCharsets.US_ASCII)) {
+            return charset;
+        }
+        if (Charset.isSupported("windows-1252")) {
+            return Charset.forName("windows-1252");
+        }
+        return StandardCharsets.ISO_8859_1;
+    }
+
+}
@@ -1,7 +1,23 @@
 package backend.files;
 
-import backend.config.Config;
+import backend.document.LineSeparators;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.List;
 
 
 /**
@@ -16,6 +32,22 @@ import java.io.*;
  */
 public class File {
 
+    /**
+     * Stores the size (in bytes) up to which files are loaded as a single chunk when they are loaded through
+     * {@link #load(FileChunkListener)}.
+     */
+    public static final long WINDOWED_LOAD_THRESHOLD = 4L * 1024 * 1024;
+
+    /**
+     * Stores the size (in bytes) of the windows in which larger files are read.
+     */
+    public static final int LOAD_WINDOW_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * Stores the size (in bytes) of the buffer through which encoded content is written when the file is saved.
+     */
+    public static final int SAVE_BUFFER_SIZE = 1024 * 1024;
+
     /**
      * Stores the full path to the file.
      */
@@ -36,6 +68,35 @@ public class File {
      */
     protected String extension;
 
+    /**
+     * Stores the charset of the file. This charset is detected when the file is loaded and used when it is saved.
+     */
+    protected Charset charset;
+
+    /**
+     * Stores whether the file begins with a byte order mark. The byte order mark is written again when the file is
+     * saved.
+     */
+    protected boolean byteOrderMark;
+
+    /**
+     * Stores the line separators of the file. When the file is saved, every {@code '\n'} is replaced by the respective
+     * line separator.
+     */
+    protected LineSeparators lineSeparators;
+
+    /**
+     * Stores the index of the lines of the file as it was loaded. This is {@code null} until the file is loaded, and
+     * if the file was loaded through {@link #load(FileChunkListener)}.
+     */
+    protected LineIndex lineIndex;
+
+    /**
+     * Stores whether some bytes of the loaded file could not be decoded with its charset and were replaced, so that
+     * saving the file changes these bytes.
+     */
+    protected boolean lossy;
+
 
     /**
      * Constructs a new file with the passed path.
@@ -44,6 +105,10 @@ public class File {
      */
     public File(String path) {
         this.fullPath = path;
+        charset = Charset.defaultCharset();
+        byteOrderMark = false;
+        lineSeparators = new LineSeparators(LineSeparators.LF);
+        lineIndex = null;
         generateFileProperties();
     }
 
@@ -84,6 +149,42 @@ public class File {
         generateFullPath();
     }
 
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public void setCharset(Charset charset) {
+        this.charset = charset;
+    }
+
+    public boolean hasByteOrderMark() {
+        return byteOrderMark;
+    }
+
+    public void setByteOrderMark(boolean byteOrderMark) {
+        this.byteOrderMark = byteOrderMark;
+    }
+
+    public LineSeparators getLineSeparators() {
+        return lineSeparators;
+    }
+
+    public void setLineSeparators(LineSeparators lineSeparators) {
+        this.lineSeparators = lineSeparators;
+    }
+
+    public LineIndex getLineIndex() {
+        return lineIndex;
+    }
+
+    public boolean isLossy() {
+        return lossy;
+    }
+
+    public void setLossy(boolean lossy) {
+        this.lossy = lossy;
+    }
+
 
     /**
      * Returns the file's name with its extension in the following format:
@@ -121,21 +222,24 @@ public class File {
 
     /**
      * This method loads the contents of this file and returns them as String. If the file does not exist, a
-     * {@linkplain FileNotFoundException} will be thrown.
+     * {@linkplain FileNotFoundException} will be thrown. The charset of the file is detected through the
+     * {@linkplain CharsetDetector}. Line separators are replaced by {@code '\n'} and recorded within the
+     * {@link #lineIndex}. If some bytes are invalid in the detected charset, the file is decoded again with the
+     * single-byte charset.
      *
      * @return                          Content of the loaded file.
      * @throws FileNotFoundException    This file does not exist.
      */
     public String load() throws FileNotFoundException {
-        try (BufferedReader fileReader = new BufferedReader(new FileReader(fullPath))) {
-            StringBuilder fileContent = new StringBuilder();
-            //Read the file line by line:
-            while (fileReader.ready()) {
-                fileContent.append(fileReader.readLine());
-                fileContent.append(Config.formats.lineSeparator);
+        try (FileChannel channel = FileChannel.open(Paths.get(fullPath), StandardOpenOption.READ)) {
+            TextDecoder decoder = new TextDecoder();
+            CharBuffer content = decoder.decode(channel, channel.size());
+            if (canFallBack(decoder)) {
+                decoder = new TextDecoder(CharsetDetector.getSingleByteCharset());
+                content = decoder.decode(channel.position(0), channel.size());
             }
-            fileReader.close();
-            return fileContent.toString();
+            setLoaded(decoder);
+            return content.toString();
         }
         catch (IOException e) {
             //Could not open the file:
@@ -145,21 +249,354 @@ public class File {
 
 
     /**
-     * Saves the passed String to this file. If some error occurs, an IOException will be thrown.
+     * This method loads the contents of this file and passes them in chunks to the passed listener. The charset of the
+     * file is detected from its first bytes through the {@linkplain CharsetDetector}, and a byte order mark is skipped.
+     * Line separators are replaced by {@code '\n'} and recorded within the {@link #lineSeparators}. The offsets of the
+     * lines are not indexed, since the editor counts the lines through the elements of its document.
+     * Files that are not larger than {@link #WINDOWED_LOAD_THRESHOLD} are read through a single direct buffer and
+     * passed as a single chunk. Larger files are read in windows of {@link #LOAD_WINDOW_SIZE} bytes into a single
+     * direct buffer, which is reused for all windows. Each window is decoded directly from that buffer into a new
+     * chunk, so that the whole file is never held as bytes and no intermediate copies of the content are created. The
+     * file is not mapped into memory, since a mapped view would prevent the file from being replaced when it is saved
+     * (i.e. on Windows) until the view is garbage collected. If the calling thread is interrupted, loading is aborted
+     * with an {@linkplain InterruptedIOException}.
+     * The charset is only detected from the first bytes, so that later bytes may be invalid in the detected charset.
+     * If invalid bytes are decoded before the first chunk was passed to the listener, the file is decoded again with
+     * the single-byte charset of the {@linkplain CharsetDetector}, which can decode any byte. Otherwise, invalid bytes
+     * are replaced and the file is marked as {@link #lossy}.
+     *
+     * @param listener      Listener that receives the loaded chunks.
+     * @throws IOException  The file could not be loaded.
+     */
+    public void load(FileChunkListener listener) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fullPath), StandardOpenOption.READ)) {
+            load(channel, listener, false);
+        }
+    }
+
+    /**
+     * This method loads the contents of this file from the passed channel, which was opened for this file, as
+     * described in {@link #load(FileChunkListener)}. Unlike that method, the offsets of the lines are indexed within
+     * the {@link #lineIndex}. The channel is not closed.
+     *
+     * @param channel       Channel from which the file is read.
+     * @param listener      Listener that receives the loaded chunks.
+     * @throws IOException  The file could not be loaded.
+     */
+    public void load(FileChannel channel, FileChunkListener listener) throws IOException {
+        load(channel, listener, true);
+    }
+
+    /**
+     * This method loads the contents of this file from the passed channel, which was opened for this file, as
+     * described in {@link #load(FileChunkListener)}. The channel is not closed.
+     *
+     * @param channel       Channel from which the file is read.
+     * @param listener      Listener that receives the loaded chunks.
+     * @param indexLines    Whether the offsets of the lines shall be indexed within the {@link #lineIndex}.
+     * @throws IOException  The file could not be loaded.
+     */
+    public void load(FileChannel channel, FileChunkListener listener, boolean indexLines) throws IOException {
+        long size = channel.size();
+        TextDecoder decoder = createDecoder(null, indexLines);
+        if (size <= WINDOWED_LOAD_THRESHOLD) {
+            //Small file:
+            long start = channel.position();
+            CharBuffer content = decoder.decode(channel, size);
+            if (canFallBack(decoder)) {
+                decoder = createDecoder(CharsetDetector.getSingleByteCharset(), indexLines);
+                content = decoder.decode(channel.position(start), size);
+            }
+            setLoaded(decoder);
+            listener.chunkLoaded(content, size, size);
+            return;
+        }
+
+        ByteBuffer window = ByteBuffer.allocateDirect(LOAD_WINDOW_SIZE);
+        long position = 0; //Position of the next byte to be read.
+        long decoded = 0; //Number of bytes that were decoded.
+        boolean endOfInput = false;
+        while (!endOfInput) {
+            if (Thread.currentThread().isInterrupted()) {
+                //Loading was cancelled:
+                throw new InterruptedIOException("Loading " + fullPath + " was interrupted");
+            }
+            while (window.hasRemaining() && !endOfInput) {
+                int read = channel.read(window, position);
+                if (read < 0) {
+                    //File was truncated while loading:
+                    endOfInput = true;
+                }
+                else {
+                    position += read;
+                    endOfInput = position >= size;
+                }
+            }
+            window.flip();
+            CharBuffer chunk = decoder.decode(window, endOfInput); //The first window also detects the charset.
+            if (decoded == 0 && canFallBack(decoder)) {
+                //Nothing was passed to the listener yet, decode the file again:
+                decoder = createDecoder(CharsetDetector.getSingleByteCharset(), indexLines);
+                position = 0;
+                endOfInput = false;
+                window.clear();
+                continue;
+            }
+            if (!endOfInput && window.position() == 0) {
+                //Decoder cannot make any progress:
+                throw new IOException("Could not decode " + fullPath);
+            }
+            decoded += window.position();
+            //Bytes of a character that is split by the end of the window are decoded with the next window:
+            window.compact();
+            if (endOfInput) {
+                setLoaded(decoder);
+            }
+            listener.chunkLoaded(chunk, Math.min(decoded, size), size);
+        }
+    }
+
+
+    /**
+     * Creates a new decoder for this file.
+     *
+     * @param charset       Charset of the file, or {@code null} if the charset shall be detected.
+     * @param indexLines    Whether the offsets of the lines shall be indexed.
+     * @return              New decoder.
+     */
+    private TextDecoder createDecoder(Charset charset, boolean indexLines) {
+        TextDecoder decoder = charset != null ? new TextDecoder(charset) : new TextDecoder();
+        if (!indexLines) {
+            decoder.disableLineStarts();
+        }
+        return decoder;
+    }
+
+    /**
+     * Tests whether the passed decoder replaced invalid bytes of a charset that was detected from the first bytes of
+     * the file, so that the file should be decoded again with the single-byte charset. A charset that is indicated by
+     * a byte order mark is never replaced.
+     *
+     * @param decoder   Decoder to be tested.
+     * @return          Whether the file should be decoded with the single-byte charset.
+     */
+    private static boolean canFallBack(TextDecoder decoder) {
+        return decoder.isLossy() && !decoder.hasByteOrderMark() && !decoder.getCharset().equals(CharsetDetector.getSingleByteCharset());
+    }
+
+    /**
+     * Adopts the charset, byte order mark, line separators and line index of the file from the passed decoder, which
+     * decoded the whole file. The line index is only kept if it indexed the offsets of the lines.
+     *
+     * @param decoder   Decoder which decoded the file.
+     */
+    protected void setLoaded(TextDecoder decoder) {
+        charset = decoder.getCharset();
+        byteOrderMark = decoder.hasByteOrderMark();
+        lossy = decoder.isLossy();
+        LineIndex index = decoder.getLineIndex();
+        lineSeparators = index.getLineSeparators();
+        lineIndex = index.hasLineStarts() ? index : null;
+    }
+
+
+    /**
+     * Saves the passed String to this file. If some error occurs, an IOException will be thrown. The file is replaced
+     * atomically, as described in {@link #save(Iterable)}.
      *
      * @param s             Content that shall be saved to this file.
      * @throws IOException  Something went wrong.
      */
     public void save(String s) throws IOException {
-        try (BufferedWriter fileWriter = new BufferedWriter(new FileWriter(fullPath))) {
-            //Write the file:
-            fileWriter.write(s);
-            fileWriter.close();
+        save(List.of(CharBuffer.wrap(s)));
+    }
+
+    /**
+     * Saves the passed chunks to this file and returns the number of written bytes. The chunks are encoded one after
+     * another into a temporary file within the same directory, so that the content is never copied as a whole. The
+     * content is encoded with the {@link #charset} of this file, and a byte order mark is written if the loaded file
+     * began with one. Every {@code '\n'} is replaced by the line separator of the file, as recorded through the
+     * {@link #lineSeparators}. Once the temporary file is written to the storage device, it atomically replaces this
+     * file. Therefore, the file is never left in a partially written state, even if VATE crashes while saving.
+     * Characters that cannot be encoded with the charset are never replaced, instead the file is not saved.
+     *
+     * @param chunks                    Chunks of the content that shall be saved to this file.
+     * @return                          Number of bytes that were written.
+     * @throws CharacterCodingException Some character cannot be encoded with the charset of this file. The file is
+     *                                  not changed in this case.
+     * @throws IOException              Something went wrong. The file is not changed in this case.
+     */
+    public long save(Iterable<CharBuffer> chunks) throws IOException {
+        Path target = Paths.get(fullPath).toAbsolutePath();
+        Path temporary = Files.createTempFile(target.getParent(), "." + target.getFileName(), ".tmp");
+        long bytesWritten = 0;
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                CharsetEncoder encoder = charset.newEncoder();
+                encoder.onMalformedInput(CodingErrorAction.REPORT);
+                encoder.onUnmappableCharacter(CodingErrorAction.REPORT);
+                ByteBuffer buffer = ByteBuffer.allocateDirect(SAVE_BUFFER_SIZE);
+                if (byteOrderMark) {
+                    buffer.put(CharsetDetector.getByteOrderMark(charset));
+                }
+                CharBuffer carry = CharBuffer.allocate(2); //Stores a surrogate pair that is split between two chunks.
+                carry.flip();
+                LineSeparators separators = lineSeparators;
+                long offset = 0; //Offset of the current chunk within the content.
+                int next = 0; //Index of the next line separator that differs from the default separator.
+                for (CharBuffer chunk : chunks) {
+                    if (!separators.requiresConversion()) {
+                        bytesWritten += encode(encoder, chunk, carry, buffer, channel);
+                        continue;
+                    }
+                    //Replace every '\n' with the line separator of the file:
+                    int chunkStart = chunk.position();
+                    int chunkEnd = chunk.limit();
+                    int segmentStart = chunkStart;
+                    for (int i = chunkStart; i < chunkEnd; i++) {
+                        if (chunk.get(i) != '\n') {
+                            continue;
+                        }
+                        CharBuffer segment = chunk.duplicate();
+                        segment.position(segmentStart).limit(i);
+                        bytesWritten += encode(encoder, segment, carry, buffer, channel);
+                        long separatorOffset = offset + i - chunkStart;
+                        while (next < separators.size() && separators.getOffset(next) < separatorOffset) {
+                            next++;
+                        }
+                        byte separator = separators.getDefaultSeparator();
+                        if (next < separators.size() && separators.getOffset(next) == separatorOffset) {
+                            separator = separators.getSeparator(next++);
+                        }
+                        bytesWritten += encode(encoder, CharBuffer.wrap(LineSeparators.toString(separator)), carry, buffer, channel);
+                        segmentStart = i + 1;
+                    }
+                    CharBuffer segment = chunk.duplicate();
+                    segment.position(segmentStart);
+                    bytesWritten += encode(encoder, segment, carry, buffer, channel);
+                    offset += chunkEnd - chunkStart;
+                }
+                bytesWritten += encode(encoder, carry, buffer, channel, true);
+                while (encoder.flush(buffer).isOverflow()) {
+                    bytesWritten += write(buffer, channel);
+                }
+                bytesWritten += write(buffer, channel);
+                channel.force(true);
+            }
+            copyPermissions(target, temporary);
+            try {
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (AtomicMoveNotSupportedException e) {
+                //File system cannot replace the file atomically:
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
         }
-        catch (IOException e) {
+        catch (IOException | RuntimeException e) {
             //Could not save file:
+            Files.deleteIfExists(temporary);
             throw e;
         }
+        return bytesWritten;
+    }
+
+
+    /**
+     * Encodes the passed chunk into the passed buffer. A surrogate pair that is split between the previous chunk and
+     * this chunk is completed through the passed carry, and a character at the end of this chunk that cannot be
+     * encoded without the next chunk is moved into the carry.
+     *
+     * @param encoder       Encoder with which to encode the chunk.
+     * @param chunk         Chunk to be encoded.
+     * @param carry         Buffer storing the beginning of a surrogate pair that was split between two chunks.
+     * @param buffer        Buffer into which the chunk is encoded.
+     * @param channel       Channel to which the buffer is written.
+     * @return              Number of bytes written to the channel.
+     * @throws IOException  The buffer could not be written.
+     */
+    private long encode(CharsetEncoder encoder, CharBuffer chunk, CharBuffer carry, ByteBuffer buffer, FileChannel channel) throws IOException {
+        long bytesWritten = 0;
+        if (carry.hasRemaining() && chunk.hasRemaining()) {
+            //Complete the surrogate pair with the first character of this chunk:
+            char high = carry.get();
+            carry.clear();
+            carry.put(high).put(chunk.get()).flip();
+            bytesWritten += encode(encoder, carry, buffer, channel, false);
+        }
+        bytesWritten += encode(encoder, chunk, buffer, channel, false);
+        if (chunk.hasRemaining()) {
+            //The encoder needs the next chunk to encode the remaining character:
+            carry.clear();
+            carry.put(chunk).flip();
+        }
+        return bytesWritten;
+    }
+
+    /**
+     * Encodes the passed characters into the passed buffer. Whenever the buffer is full, it is written to the passed
+     * channel.
+     *
+     * @param encoder       Encoder with which to encode the characters.
+     * @param chars         Characters to be encoded.
+     * @param buffer        Buffer into which the characters are encoded.
+     * @param channel       Channel to which the buffer is written.
+     * @param endOfInput    Whether the passed characters are the last characters to be encoded.
+     * @return              Number of bytes written to the channel.
+     * @throws IOException  The buffer could not be written, or some character cannot be encoded.
+     */
+    private long encode(CharsetEncoder encoder, CharBuffer chars, ByteBuffer buffer, FileChannel channel, boolean endOfInput) throws IOException {
+        long bytesWritten = 0;
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, endOfInput);
+            if (result.isOverflow()) {
+                bytesWritten += write(buffer, channel);
+            }
+            else if (result.isError()) {
+                //Character cannot be encoded:
+                result.throwException();
+            }
+            else {
+                return bytesWritten;
+            }
+        }
+    }
+
+    /**
+     * Writes the contents of the passed buffer to the passed channel and clears the buffer afterwards.
+     *
+     * @param buffer        Buffer to be written.
+     * @param channel       Channel to which the buffer is written.
+     * @return              Number of bytes written.
+     * @throws IOException  The buffer could not be written.
+     */
+    private long write(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        long bytesWritten = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        return bytesWritten;
+    }
+
+    /**
+     * Copies the POSIX file permissions of the passed source to the passed target, so that replacing a file does not
+     * change its permissions. If the source does not exist or the file system does not support POSIX permissions,
+     * nothing happens.
+     *
+     * @param source    File whose permissions shall be copied.
+     * @param target    File to which the permissions shall be copied.
+     */
+    private void copyPermissions(Path source, Path target) {
+        try {
+            PosixFileAttributeView view = Files.getFileAttributeView(source, PosixFileAttributeView.class);
+            if (view != null && Files.exists(source)) {
+                Files.setPosixFilePermissions(target, view.readAttributes().permissions());
+            }
+        }
+        catch (IOException | UnsupportedOperationException e) {
+            //Could not copy permissions: Keep the default permissions...
+        }
     }
 
 
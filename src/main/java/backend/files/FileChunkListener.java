@@ -0,0 +1,23 @@
+package backend.files;
+
+
+/**
+ * This interface can be implemented by classes that want to receive the contents of a file in chunks while the file
+ * is loaded through {@link File#load(FileChunkListener)}.
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public interface FileChunkListener {
+
+    /**
+     * This method is called whenever a chunk of the file was loaded. The chunks are passed in the order in which they
+     * occur within the file. The passed chunk is not referenced by the file afterwards and will not be modified.
+     *
+     * @param chunk         Loaded chunk of the file.
+     * @param bytesLoaded   Number of bytes of the file that have been loaded so far.
+     * @param fileSize      Size of the file in bytes.
+     */
+    void chunkLoaded(CharSequence chunk, long bytesLoaded, long fileSize);
+
+}
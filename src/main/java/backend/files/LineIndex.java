@@ -0,0 +1,175 @@
+package backend.files;
+
+import backend.document.LineSeparators;
+import java.util.Arrays;
+
+
+/**
+ * This class implements an index of the lines of a loaded file. The index is built by the {@linkplain TextDecoder}
+ * while the file is decoded, so that the text does not need to be scanned again. The index stores the offset at which
+ * each line begins within the decoded text (in which every line separator is replaced by {@code '\n'}), how often
+ * each line separator occurs, and the {@linkplain LineSeparators} with which the file can be saved exactly as it was
+ * loaded. The offsets of the lines can be omitted (i.e. for files that are loaded into the editor, which counts its
+ * lines through the elements of the document), so that the index does not grow with the number of lines.
+ * <br><b><i>IMPORTANT:</i> The index describes the file as it was loaded and is not changed when the text is
+ * edited!</b>
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public class LineIndex {
+
+    /**
+     * Stores the offsets at which the lines begin, or {@code null} if the offsets are not indexed.
+     */
+    private int[] lineStarts;
+
+    /**
+     * Stores the offset at which the last line begins.
+     */
+    private int lastLineStart;
+
+    /**
+     * Stores the number of lines.
+     */
+    private int lineCount;
+
+    /**
+     * Stores how often each line separator occurs, indexed by {@link LineSeparators#LF}, {@link LineSeparators#CRLF}
+     * and {@link LineSeparators#CR}.
+     */
+    private long[] separatorCounts;
+
+    /**
+     * Stores the line separators of the file. The default separator is the first separator that occurs.
+     */
+    private LineSeparators lineSeparators;
+
+
+    /**
+     * Constructs a new LineIndex for a file that only consists of a single empty line. If the file does not contain
+     * any line separator, the passed default separator is used.
+     *
+     * @param defaultSeparator  Line separator used if the file does not contain any line separator.
+     */
+    public LineIndex(byte defaultSeparator) {
+        lineStarts = new int[1024];
+        lineStarts[0] = 0;
+        lineCount = 1;
+        separatorCounts = new long[3];
+        lineSeparators = new LineSeparators(defaultSeparator);
+    }
+
+
+    /**
+     * Stops indexing the offsets of the lines, which MUST be called before any line separator is added. Line
+     * separators are still counted and recorded within the {@linkplain LineSeparators}.
+     */
+    void disableLineStarts() {
+        lineStarts = null;
+    }
+
+
+    public boolean hasLineStarts() {
+        return lineStarts != null;
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    public LineSeparators getLineSeparators() {
+        return lineSeparators;
+    }
+
+    /**
+     * Returns how often the passed line separator occurs within the file.
+     *
+     * @param separator Line separator, i.e. {@link LineSeparators#CRLF}.
+     * @return          Number of occurrences.
+     */
+    public long getSeparatorCount(byte separator) {
+        return separatorCounts[separator];
+    }
+
+    /**
+     * Returns the offset at which the passed line begins. This requires the offsets of the lines to be indexed.
+     *
+     * @param line  Index of the line, beginning at 0.
+     * @return      Offset of the first character of the line.
+     */
+    public int getLineStart(int line) {
+        return lineStarts[line];
+    }
+
+    /**
+     * Returns the index of the line that contains the passed offset. This requires the offsets of the lines to be
+     * indexed.
+     *
+     * @param offset    Offset within the text.
+     * @return          Index of the line, beginning at 0.
+     */
+    public int getLineOfOffset(int offset) {
+        int index = Arrays.binarySearch(lineStarts, 0, lineCount, offset);
+        return index >= 0 ? index : -index - 2;
+    }
+
+
+    /**
+     * Adds a line separator to the index.
+     *
+     * @param offset    Offset of the {@code '\n'} character which replaces the line separator.
+     * @param separator Line separator.
+     */
+    void addSeparator(int offset, byte separator) {
+        if (lineStarts != null) {
+            if (lineCount == lineStarts.length) {
+                lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+            }
+            lineStarts[lineCount] = offset + 1;
+        }
+        lineCount++;
+        lastLineStart = offset + 1;
+        separatorCounts[separator]++;
+        if (lineCount == 2) {
+            //First line separator:
+            lineSeparators.setDefaultSeparator(separator);
+        }
+        else if (separator != lineSeparators.getDefaultSeparator()) {
+            lineSeparators.add(offset, separator);
+        }
+    }
+
+    /**
+     * Changes the last line separator, which was a {@code '\r'}, into {@code "\r\n"}, as the {@code '\n'} was decoded
+     * afterwards.
+     */
+    void joinLastSeparator() {
+        separatorCounts[LineSeparators.CR]--;
+        separatorCounts[LineSeparators.CRLF]++;
+        int offset = lastLineStart - 1;
+        if (lineCount == 2) {
+            //First line separator:
+            lineSeparators.setDefaultSeparator(LineSeparators.CRLF);
+        }
+        else if (lineSeparators.getDefaultSeparator() == LineSeparators.CR) {
+            lineSeparators.add(offset, LineSeparators.CRLF);
+        }
+        else if (lineSeparators.getDefaultSeparator() == LineSeparators.CRLF) {
+            lineSeparators.removeLast();
+        }
+        else {
+            lineSeparators.setLastSeparator(LineSeparators.CRLF);
+        }
+    }
+
+    /**
+     * Releases unused capacity once the whole file is indexed.
+     */
+    void trim() {
+        if (lineStarts != null) {
+            lineStarts = Arrays.copyOf(lineStarts, lineCount);
+        }
+    }
+
+}
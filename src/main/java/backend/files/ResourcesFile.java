@@ -1,9 +1,10 @@
 package backend.files;
 
 
-import backend.config.Config;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 
 /**
  * This class implements a resources file. It contains all the necessary information to handle resource file operations and provides
@@ -30,7 +31,8 @@ public class ResourcesFile extends File {
 
     /**
      * This method loads the contents of this resource file and returns them as String. If the resource file does not exist, a
-     * {@linkplain FileNotFoundException} will be thrown.
+     * {@linkplain FileNotFoundException} will be thrown. The charset of the resource file is detected through the
+     * {@linkplain CharsetDetector}.
      *
      * @return                          Content of the loaded resource file.
      * @throws FileNotFoundException    This resource file does not exist.
@@ -40,15 +42,16 @@ public class ResourcesFile extends File {
         StringBuilder resourcesPathBuilder = new StringBuilder();
         resourcesPathBuilder.append("/");
         resourcesPathBuilder.append(getNameWithExtension());
-        try (BufferedReader fileReader = new BufferedReader(new InputStreamReader(getClass().getResourceAsStream(resourcesPathBuilder.toString())))) {
-            StringBuilder fileContent = new StringBuilder();
-            //Read the file line by line:
-            while (fileReader.ready()) {
-                fileContent.append(fileReader.readLine());
-                fileContent.append(Config.formats.lineSeparator);
-            }
-            fileReader.close();
-            return fileContent.toString();
+        InputStream stream = getClass().getResourceAsStream(resourcesPathBuilder.toString());
+        if (stream == null) {
+            //Resources file does not exist:
+            throw new FileNotFoundException(resourcesPathBuilder.toString());
+        }
+        try (ReadableByteChannel channel = Channels.newChannel(stream)) {
+            TextDecoder decoder = new TextDecoder();
+            String content = decoder.decode(channel, 0).toString();
+            setLoaded(decoder);
+            return content;
         }
         catch (IOException e) {
             //Could not open the resources file:
@@ -56,4 +59,18 @@ public class ResourcesFile extends File {
         }
     }
 
+
+    /**
+     * This method loads the contents of this resource file and passes them as a single chunk to the passed listener,
+     * as resource files cannot be read in windows.
+     *
+     * @param listener      Listener that receives the loaded chunk.
+     * @throws IOException  The resource file could not be loaded.
+     */
+    @Override
+    public void load(FileChunkListener listener) throws IOException {
+        String content = load();
+        listener.chunkLoaded(content, content.length(), content.length());
+    }
+
 }
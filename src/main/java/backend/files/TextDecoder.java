@@ -0,0 +1,452 @@
+package backend.files;
+
+import backend.document.LineSeparators;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * This class decodes the bytes of a file into characters. The charset is detected through the
+ * {@linkplain CharsetDetector} from the first bytes that are decoded. A single {@linkplain CharsetDecoder} is reused
+ * for all bytes of the file. If the charset is ASCII-compatible, runs of ASCII bytes are converted directly into
+ * characters without passing them through the decoder, which is considerably faster for direct ByteBuffers (i.e.
+ * mapped files). While the characters are decoded, every line separator ({@code "\n"}, {@code "\r\n"} or
+ * {@code "\r"}) is replaced by {@code '\n'} and recorded within a {@linkplain LineIndex}, so that the lines of the
+ * file are known without scanning the text again. Bytes that are invalid in the charset are replaced by
+ * {@code '\uFFFD'}, and the decoder is marked as lossy, so that a file is never saved with replacement characters
+ * unnoticed.
+ * <br><b><i>IMPORTANT:</i> Instances of this class can only decode a single file!</b>
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public class TextDecoder {
+
+    /**
+     * Stores the size (in bytes) of the blocks that are tested for the ASCII fast path and of the buffer through
+     * which channels are read.
+     */
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    /**
+     * Stores a mask that tests eight bytes at once whether they are all ASCII.
+     */
+    private static final long NON_ASCII_MASK = 0x8080808080808080L;
+
+    /**
+     * Stores the direct buffer through which channels are read by each thread. Allocating direct buffers is expensive,
+     * so that the buffer is reused for all files that are decoded by the same thread (i.e. when many files are
+     * searched).
+     */
+    private static final ThreadLocal<ByteBuffer> READ_BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BLOCK_SIZE));
+
+
+    /**
+     * Stores the detected charset. This is {@code null} until the charset is detected.
+     */
+    private Charset charset;
+
+    /**
+     * Stores whether the decoded bytes begin with a byte order mark.
+     */
+    private boolean byteOrderMark;
+
+    /**
+     * Stores the decoder that is reused for all bytes.
+     */
+    private CharsetDecoder decoder;
+
+    /**
+     * Stores whether the charset encodes ASCII characters as single bytes, so that the ASCII fast path can be used.
+     */
+    private boolean asciiCompatible;
+
+    /**
+     * Stores the index of the lines that were decoded, or {@code null} if the lines are not indexed.
+     */
+    private LineIndex lineIndex;
+
+    /**
+     * Stores the number of characters that were decoded so far, after line separators were replaced.
+     */
+    private long decodedChars;
+
+    /**
+     * Stores whether the last decoded character was {@code '\r'}, so that a following {@code '\n'} belongs to the same
+     * line separator, even if it is decoded with the next bytes.
+     */
+    private boolean carriageReturn;
+
+    /**
+     * Stores whether some bytes could not be decoded with the charset and were replaced.
+     */
+    private boolean lossy;
+
+
+    /**
+     * Constructs a new TextDecoder that detects the charset from the first decoded bytes.
+     */
+    public TextDecoder() {
+        charset = null;
+        lineIndex = new LineIndex(LineSeparators.LF);
+    }
+
+    /**
+     * Constructs a new TextDecoder that decodes bytes with the passed charset.
+     *
+     * @param charset   Charset with which the bytes are decoded.
+     */
+    public TextDecoder(Charset charset) {
+        setCharset(charset);
+        lineIndex = new LineIndex(LineSeparators.LF);
+    }
+
+
+    /**
+     * Returns the detected charset, or {@code null} if no bytes were decoded yet.
+     *
+     * @return  Charset of the decoded bytes.
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * Returns whether the decoded bytes began with a byte order mark.
+     *
+     * @return  Whether there was a byte order mark.
+     */
+    public boolean hasByteOrderMark() {
+        return byteOrderMark;
+    }
+
+    /**
+     * Returns whether some bytes could not be decoded with the charset and were replaced by {@code '\uFFFD'}, so that
+     * the decoded characters do not reproduce the bytes when they are encoded again.
+     *
+     * @return  Whether the decoded characters are lossy.
+     */
+    public boolean isLossy() {
+        return lossy;
+    }
+
+    /**
+     * Returns the index of the lines that were decoded so far.
+     *
+     * @return  Index of the decoded lines, or {@code null} if the lines are not indexed.
+     */
+    public LineIndex getLineIndex() {
+        return lineIndex;
+    }
+
+    /**
+     * Returns the maximum number of characters that are decoded from a single byte. This is only known once the
+     * charset is detected.
+     *
+     * @return  Maximum number of characters per byte.
+     */
+    public float getMaxCharsPerByte() {
+        return decoder.maxCharsPerByte();
+    }
+
+
+    /**
+     * Stops indexing the decoded lines, so that files of any size can be decoded without the index growing with the
+     * file. Line separators are still replaced by {@code '\n'}. Afterwards, {@link #getLineIndex()} returns
+     * {@code null}.
+     */
+    public void disableLineIndex() {
+        lineIndex = null;
+    }
+
+    /**
+     * Stops indexing the offsets of the decoded lines, whereas the line separators are still recorded within the
+     * {@linkplain LineIndex}. This MUST be called before any bytes are decoded.
+     */
+    public void disableLineStarts() {
+        if (lineIndex != null) {
+            lineIndex.disableLineStarts();
+        }
+    }
+
+
+    /**
+     * Detects the charset from the passed sample, unless the charset is already known. If the sample begins with a
+     * byte order mark, the position of the sample is moved behind the byte order mark.
+     *
+     * @param sample    First bytes of the file.
+     * @param complete  Whether the sample contains the whole file.
+     */
+    public void detect(ByteBuffer sample, boolean complete) {
+        if (charset == null) {
+            ByteBuffer head = sample.duplicate();
+            head.limit(Math.min(head.limit(), head.position() + CharsetDetector.SAMPLE_SIZE));
+            setCharset(CharsetDetector.detect(head, complete && head.limit() == sample.limit()));
+        }
+        int byteOrderMarkLength = CharsetDetector.getByteOrderMarkLength(sample);
+        if (byteOrderMarkLength > 0 && CharsetDetector.getByteOrderMark(charset).length == byteOrderMarkLength) {
+            byteOrderMark = true;
+            sample.position(sample.position() + byteOrderMarkLength);
+        }
+    }
+
+    /**
+     * Decodes the remaining bytes of the passed buffer into a new CharBuffer. If the buffer ends with an incomplete
+     * character and this is not the end of the input, the bytes of this character are not consumed, so that they can
+     * be decoded with the following bytes. If the charset is not detected yet, it is detected from the passed bytes.
+     *
+     * @param bytes         Bytes to be decoded.
+     * @param endOfInput    Whether the passed bytes are the last bytes of the file.
+     * @return              Decoded characters, ready to be read.
+     */
+    public CharBuffer decode(ByteBuffer bytes, boolean endOfInput) {
+        if (charset == null) {
+            detect(bytes, endOfInput);
+        }
+        CharBuffer chars = CharBuffer.allocate((int)Math.ceil(bytes.remaining() * (double)decoder.maxCharsPerByte()));
+        decodeInto(bytes, chars, endOfInput);
+        chars.flip();
+        return chars;
+    }
+
+    /**
+     * Decodes the remaining bytes of the passed buffer into the passed CharBuffer, beginning at its position, as
+     * described in {@link #decode(ByteBuffer, boolean)}. This allows a single CharBuffer to be reused for many
+     * windows of a file. Afterwards, the position of the CharBuffer is located behind the decoded characters.
+     *
+     * @param bytes         Bytes to be decoded.
+     * @param chars         Buffer into which the characters are decoded. This buffer must be backed by an array and
+     *                      have space for {@link #getMaxCharsPerByte()} characters per remaining byte.
+     * @param endOfInput    Whether the passed bytes are the last bytes of the file.
+     */
+    public void decode(ByteBuffer bytes, CharBuffer chars, boolean endOfInput) {
+        if (charset == null) {
+            detect(bytes, endOfInput);
+        }
+        decodeInto(bytes, chars, endOfInput);
+    }
+
+    /**
+     * Reads all bytes of the passed channel through a direct buffer, which is reused by the calling thread, and decodes
+     * them into a single CharBuffer. If the charset is not detected yet, it is detected from the first bytes of the
+     * channel.
+     *
+     * @param channel       Channel to be read.
+     * @param sizeHint      Expected number of bytes, i.e. the size of the file.
+     * @return              Decoded characters, ready to be read.
+     * @throws IOException  The channel could not be read.
+     */
+    public CharBuffer decode(ReadableByteChannel channel, long sizeHint) throws IOException {
+        ByteBuffer readBuffer = READ_BUFFER.get();
+        readBuffer.clear();
+        CharBuffer chars = null;
+        boolean endOfInput = false;
+        while (!endOfInput) {
+            //Fill the buffer:
+            while (readBuffer.hasRemaining()) {
+                if (channel.read(readBuffer) < 0) {
+                    endOfInput = true;
+                    break;
+                }
+            }
+            readBuffer.flip();
+            if (chars == null) {
+                //First block:
+                detect(readBuffer, endOfInput); //Detects the charset and skips the byte order mark.
+                chars = CharBuffer.allocate((int)Math.ceil(Math.max(sizeHint, readBuffer.remaining()) * (double)decoder.maxCharsPerByte()) + 1);
+            }
+            int required = (int)Math.ceil(readBuffer.remaining() * (double)decoder.maxCharsPerByte()) + 1;
+            if (chars.remaining() < required) {
+                //File grew or size was unknown:
+                CharBuffer larger = CharBuffer.allocate(Math.max(chars.capacity() * 2, chars.position() + required));
+                chars.flip();
+                larger.put(chars);
+                chars = larger;
+            }
+            decodeInto(readBuffer, chars, endOfInput);
+            readBuffer.compact(); //Keep bytes of an incomplete character.
+        }
+        chars.flip();
+        return chars;
+    }
+
+
+    /**
+     * Changes the charset with which bytes are decoded.
+     *
+     * @param charset   New charset.
+     */
+    private void setCharset(Charset charset) {
+        this.charset = charset;
+        decoder = charset.newDecoder();
+        //Invalid bytes are replaced manually, so that they are noticed:
+        decoder.onMalformedInput(CodingErrorAction.REPORT);
+        decoder.onUnmappableCharacter(CodingErrorAction.REPORT);
+        asciiCompatible = charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII) || charset.equals(StandardCharsets.ISO_8859_1) || charset.name().startsWith("windows-125");
+    }
+
+    /**
+     * Decodes the remaining bytes of the passed buffer into the passed CharBuffer, which must have enough space for
+     * all characters. The bytes are processed in blocks. Blocks that begin with ASCII bytes are converted directly
+     * until the first non-ASCII byte is encountered, the remainder of the block is passed to the decoder. The line
+     * separators of each block are replaced while the decoded characters are still cached.
+     *
+     * @param bytes         Bytes to be decoded.
+     * @param chars         Buffer into which the characters are decoded.
+     * @param endOfInput    Whether the passed bytes are the last bytes of the file.
+     */
+    private void decodeInto(ByteBuffer bytes, CharBuffer chars, boolean endOfInput) {
+        int limit = bytes.limit();
+        boolean incomplete = false;
+        while (bytes.hasRemaining() && !incomplete) {
+            int blockEnd = (int)Math.min(limit, (long)bytes.position() + BLOCK_SIZE);
+            int blockStart = chars.position();
+            if (asciiCompatible && chars.hasArray()) {
+                copyAscii(bytes, chars, blockEnd);
+            }
+            if (bytes.position() < blockEnd) {
+                bytes.limit(blockEnd);
+                decodeWithDecoder(bytes, chars, endOfInput && blockEnd == limit);
+                bytes.limit(limit);
+                //An incomplete character at the end of the last block is decoded with the following bytes, an
+                //incomplete character at the end of any other block is decoded with the next block:
+                incomplete = bytes.position() < blockEnd && blockEnd == limit;
+            }
+            replaceLineSeparators(chars, blockStart);
+        }
+        if (endOfInput) {
+            int flushStart = chars.position();
+            decodeWithDecoder(bytes, chars, true); //The decoder must see the end of the input, even if it decoded no bytes.
+            decoder.flush(chars);
+            replaceLineSeparators(chars, flushStart);
+            decoder.reset();
+            if (lineIndex != null) {
+                lineIndex.trim();
+            }
+        }
+    }
+
+    /**
+     * Decodes the remaining bytes of the passed buffer through the {@link #decoder}. Bytes that cannot be decoded are
+     * replaced by the replacement of the decoder, and the decoded characters are marked as {@link #lossy}.
+     *
+     * @param bytes         Bytes to be decoded.
+     * @param chars         Buffer into which the characters are decoded.
+     * @param endOfInput    Whether the passed bytes are the last bytes of the file.
+     */
+    private void decodeWithDecoder(ByteBuffer bytes, CharBuffer chars, boolean endOfInput) {
+        while (true) {
+            CoderResult result = decoder.decode(bytes, chars, endOfInput);
+            if (!result.isError()) {
+                return;
+            }
+            lossy = true;
+            bytes.position(bytes.position() + result.length());
+            chars.put(decoder.replacement());
+        }
+    }
+
+    /**
+     * Replaces all line separators within the passed CharBuffer between the passed index and its position with
+     * {@code '\n'} and records them within the {@link #lineIndex}. As {@code "\r\n"} is replaced with a single
+     * character, the position of the CharBuffer may be moved backwards.
+     *
+     * @param chars Buffer whose characters shall be processed. This buffer must be backed by an array.
+     * @param from  Index of the first character to be processed.
+     */
+    private void replaceLineSeparators(CharBuffer chars, int from) {
+        char[] array = chars.array();
+        int start = chars.arrayOffset() + from;
+        int end = chars.arrayOffset() + chars.position();
+        int out = start;
+        boolean carriageReturn = this.carriageReturn; //Local copy, so that it is not written for every character.
+        for (int in = start; in < end; in++) {
+            char c = array[in];
+            if (c > '\r') {
+                //Most characters are no line separators:
+                array[out++] = c;
+                carriageReturn = false;
+                continue;
+            }
+            if (c == '\n') {
+                if (carriageReturn) {
+                    //Second character of "\r\n":
+                    carriageReturn = false;
+                    if (lineIndex != null) {
+                        lineIndex.joinLastSeparator();
+                    }
+                    continue;
+                }
+                if (lineIndex != null) {
+                    lineIndex.addSeparator((int)(decodedChars + out - start), LineSeparators.LF);
+                }
+            }
+            else if (c == '\r') {
+                if (lineIndex != null) {
+                    lineIndex.addSeparator((int)(decodedChars + out - start), LineSeparators.CR);
+                }
+                array[out++] = '\n';
+                carriageReturn = true;
+                continue;
+            }
+            carriageReturn = false;
+            array[out++] = c;
+        }
+        this.carriageReturn = carriageReturn;
+        decodedChars += out - start;
+        chars.position(out - chars.arrayOffset());
+    }
+
+    /**
+     * Copies ASCII bytes from the passed buffer into the passed CharBuffer until the first non-ASCII byte or the end
+     * of the block is reached. Eight bytes are tested at once.
+     *
+     * @param bytes     Bytes to be copied.
+     * @param chars     Buffer into which the characters are copied. This buffer must be backed by an array.
+     * @param blockEnd  Index after the last byte of the block.
+     */
+    private void copyAscii(ByteBuffer bytes, CharBuffer chars, int blockEnd) {
+        char[] array = chars.array();
+        int out = chars.arrayOffset() + chars.position();
+        int in = bytes.position();
+        ByteOrder order = bytes.order();
+        bytes.order(ByteOrder.BIG_ENDIAN);
+        while (in + 8 <= blockEnd) {
+            long value = bytes.getLong(in);
+            if ((value & NON_ASCII_MASK) != 0) {
+                break;
+            }
+            //Unpack the eight bytes (in big endian order) without reading them again:
+            array[out] = (char)(value >>> 56);
+            array[out + 1] = (char)((value >>> 48) & 0x7F);
+            array[out + 2] = (char)((value >>> 40) & 0x7F);
+            array[out + 3] = (char)((value >>> 32) & 0x7F);
+            array[out + 4] = (char)((value >>> 24) & 0x7F);
+            array[out + 5] = (char)((value >>> 16) & 0x7F);
+            array[out + 6] = (char)((value >>> 8) & 0x7F);
+            array[out + 7] = (char)(value & 0x7F);
+            out += 8;
+            in += 8;
+        }
+        bytes.order(order);
+        while (in < blockEnd) {
+            byte b = bytes.get(in);
+            if (b < 0) {
+                break;
+            }
+            array[out++] = (char)b;
+            in++;
+        }
+        chars.position(out - chars.arrayOffset());
+        bytes.position(in);
+    }
+
+}
@@ -0,0 +1,105 @@
+package backend.search;
+
+import java.nio.file.Path;
+
+
+/**
+ * This class stores a single match that was found within a file through a {@linkplain FileSearch} or a
+ * {@linkplain StreamingSearch}. Besides the offset of the match within the decoded text, the line and column of the
+ * match and the line in which the match occurs are stored, so that the match can be displayed without loading the file
+ * again. The offset, line and column are stored as longs, as files that are searched as a stream may be larger than
+ * any text that can be opened.
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public class FileMatch {
+
+    /**
+     * Stores the file in which the match was found.
+     */
+    private final Path file;
+
+    /**
+     * Stores the offset of the match within the decoded text of the file, in which every line separator is replaced
+     * by {@code '\n'}.
+     */
+    private final long offset;
+
+    /**
+     * Stores the length of the match.
+     */
+    private final int length;
+
+    /**
+     * Stores the line of the match, beginning at 1.
+     */
+    private final long line;
+
+    /**
+     * Stores the column of the match, beginning at 1.
+     */
+    private final long column;
+
+    /**
+     * Stores the beginning of the line in which the match occurs.
+     */
+    private final String preview;
+
+
+    /**
+     * Constructs a new FileMatch.
+     *
+     * @param file      File in which the match was found.
+     * @param offset    Offset of the match within the decoded text.
+     * @param length    Length of the match.
+     * @param line      Line of the match, beginning at 1.
+     * @param column    Column of the match, beginning at 1.
+     * @param preview   Beginning of the line in which the match occurs.
+     */
+    public FileMatch(Path file, long offset, int length, long line, long column, String preview) {
+        this.file = file;
+        this.offset = offset;
+        this.length = length;
+        this.line = line;
+        this.column = column;
+        this.preview = preview;
+    }
+
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public long getColumn() {
+        return column;
+    }
+
+    public String getPreview() {
+        return preview;
+    }
+
+
+    /**
+     * Returns the match as String in the format {@code "file:line:column: preview"}.
+     *
+     * @return  Match as String.
+     */
+    @Override
+    public String toString() {
+        return file + ":" + line + ":" + column + ": " + preview;
+    }
+
+}
@@ -0,0 +1,302 @@
+package backend.search;
+
+import backend.files.CharsetDetector;
+import backend.files.File;
+import backend.files.LineIndex;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * This class searches all files within a directory tree for a {@linkplain SearchQuery}, without opening the files in
+ * the editor. The tree is walked in parallel through a {@linkplain FileWalker}. Files whose names do not match the glob
+ * filters are skipped, and so are binary files, which are detected from their first bytes. Every other file is loaded
+ * in the same way as {@link File#load(backend.files.FileChunkListener)}, so that the offsets, lines and columns of the
+ * matches are exactly those of the file when it is opened in the editor.
+ * If a {@linkplain TrigramIndex} covering the directory is passed, only the files which may contain a match according
+ * to the index are searched, instead of walking the tree.
+ * <p>
+ * Files that are larger than the memory budget of a {@linkplain StreamingSearch} are not loaded, but searched window
+ * by window through a StreamingSearch. The matches of such files are passed to the listener after every window.
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public class FileSearch {
+
+    /**
+     * Stores the maximum length of the line previews of the matches.
+     */
+    private static final int PREVIEW_LENGTH = 200;
+
+
+    /**
+     * Stores the walker that finds the files to be searched.
+     */
+    private final FileWalker walker;
+
+    /**
+     * Stores the query to be searched.
+     */
+    private final SearchQuery query;
+
+    /**
+     * Stores the index that narrows the files to be searched, or {@code null} if all files are searched.
+     */
+    private TrigramIndex index;
+
+    /**
+     * Stores the listener that receives the matches.
+     */
+    private FileSearchListener listener;
+
+    /**
+     * Stores the number of text files that were searched.
+     */
+    private final AtomicInteger filesSearched;
+
+
+    /**
+     * Constructs a new FileSearch.
+     *
+     * @param root      Directory to be searched. If this is a file, only this file is searched.
+     * @param filters   Glob filters separated by commas or semicolons, i.e. {@code "*.log, *.{conf,cfg}"}. A file is
+     *                  searched if its name (or its path relative to the root) matches any of the filters. If this is
+     *                  empty, all files are searched.
+     * @param query     Query to be searched.
+     */
+    public FileSearch(Path root, String filters, SearchQuery query) {
+        walker = new FileWalker(root, filters);
+        this.query = query;
+        filesSearched = new AtomicInteger(0);
+    }
+
+
+    /**
+     * Returns the number of text files that were searched so far.
+     *
+     * @return  Number of searched files.
+     */
+    public int getFilesSearched() {
+        return filesSearched.get();
+    }
+
+    /**
+     * Changes the index that narrows the files to be searched. The index is only used if it is ready and covers the
+     * searched directory.
+     *
+     * @param index Index to be used, or {@code null} if all files shall be searched.
+     */
+    public void setIndex(TrigramIndex index) {
+        this.index = index;
+    }
+
+
+    /**
+     * Searches all accepted files and passes their matches to the passed listener as soon as each file is searched.
+     * This method blocks until all files are searched or the search is cancelled through the listener.
+     *
+     * @param listener                                  Listener that receives the matches.
+     * @return                                          Number of text files that were searched.
+     * @throws IOException                              The root does not exist.
+     * @throws java.util.regex.PatternSyntaxException   The query is an invalid regular expression.
+     */
+    public int search(FileSearchListener listener) throws IOException {
+        this.listener = listener;
+        filesSearched.set(0);
+        if (!LiteralMatcher.supports(query) && !query.getPattern().isEmpty()) {
+            //Detect invalid regular expressions before any file is read:
+            PatternCache.get(query);
+        }
+        Path root = walker.getRoot();
+        if (!Files.exists(root)) {
+            throw new IOException(root + " does not exist");
+        }
+        List<Path> candidates = null;
+        if (index != null && index.isReady() && index.covers(root)) {
+            candidates = index.getCandidates(query);
+        }
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            if (candidates != null) {
+                walker.walk(pool, candidates, this::searchFile, listener::isCancelled);
+            }
+            else {
+                walker.walk(pool, this::searchFile, listener::isCancelled);
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+        return filesSearched.get();
+    }
+
+
+    /**
+     * Searches the passed file, unless it is binary, and passes its matches to the {@link #listener}. Files that
+     * cannot be read are skipped, and so are the remaining matches of files in which the regular expression exceeds
+     * its limits.
+     *
+     * @param path  File to be searched.
+     */
+    private void searchFile(Path path) {
+        try {
+            if (Files.size(path) > StreamingSearch.getMemoryBudget()) {
+                searchLargeFile(path);
+                return;
+            }
+            File file = new File(path.toString());
+            CharSequence text = loadText(path, file);
+            if (text == null) {
+                return;
+            }
+            filesSearched.incrementAndGet();
+            SearchResult result = SearchEngine.search(text, query);
+            if (result.size() == 0) {
+                return;
+            }
+
+            LineIndex lineIndex = file.getLineIndex();
+            ArrayList<FileMatch> matches = new ArrayList<FileMatch>(result.size());
+            for (int i = 0; i < result.size(); i++) {
+                int start = result.getStart(i);
+                int line = lineIndex.getLineOfOffset(start);
+                int lineStart = lineIndex.getLineStart(line);
+                matches.add(new FileMatch(path, start, result.getLength(i), line + 1, start - lineStart + 1, getPreview(text, lineStart)));
+            }
+            listener.matchesFound(matches);
+        }
+        catch (IOException e) {
+            //File cannot be read: Skip file...
+        }
+        catch (RegexTimeoutException e) {
+            //Regular expression is too complex for the file: Skip file...
+        }
+    }
+
+
+    /**
+     * Searches the passed file window by window through a {@linkplain StreamingSearch}, unless it is binary, and
+     * passes the matches of every window to the {@link #listener}.
+     *
+     * @param path          File to be searched.
+     * @throws IOException  The file cannot be read.
+     */
+    private void searchLargeFile(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (isBinary(channel)) {
+                return;
+            }
+        }
+        filesSearched.incrementAndGet();
+        new StreamingSearch(path, query).search(new StreamingSearchListener() {
+            @Override
+            public void matchesFound(List<FileMatch> matches) {
+                listener.matchesFound(matches);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return listener.isCancelled();
+            }
+
+            @Override
+            public void progressed(long bytesSearched, long fileSize, long matches) {
+                //Progress is reported per file...
+            }
+        });
+    }
+
+
+    /**
+     * Loads the text of the passed file, unless the file is binary. The file is decoded in the same way as through
+     * {@link File#load(backend.files.FileChunkListener)}, so that the line index of the passed file is available
+     * afterwards.
+     *
+     * @param path          File to be loaded.
+     * @param file          File into which the line index is loaded.
+     * @return              Decoded text of the file, or {@code null} if the file is binary.
+     * @throws IOException  The file cannot be read.
+     */
+    static CharSequence loadText(Path path, File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (isBinary(channel)) {
+                return null;
+            }
+
+            ArrayList<CharSequence> chunks = new ArrayList<CharSequence>(1);
+            file.load(channel, (chunk, bytesLoaded, fileSize) -> chunks.add(chunk));
+            return join(chunks);
+        }
+    }
+
+    /**
+     * Tests whether the file of the passed channel is binary, which is detected from its first bytes. The position of
+     * the channel is not changed.
+     *
+     * @param channel       Channel of the file.
+     * @return              Whether the file is binary.
+     * @throws IOException  The file cannot be read.
+     */
+    static boolean isBinary(FileChannel channel) throws IOException {
+        ByteBuffer sample = ByteBuffer.allocate((int)Math.min(CharsetDetector.SAMPLE_SIZE, channel.size()));
+        channel.read(sample, 0);
+        sample.flip();
+        return CharsetDetector.isBinary(sample);
+    }
+
+    /**
+     * Joins the passed chunks of a file into a single text. Only files that are loaded in multiple windows consist
+     * of more than one chunk.
+     *
+     * @param chunks    Chunks to be joined.
+     * @return          Text of the file.
+     */
+    private static CharSequence join(ArrayList<CharSequence> chunks) {
+        if (chunks.size() == 1) {
+            return chunks.get(0);
+        }
+        int length = 0;
+        for (CharSequence chunk : chunks) {
+            length += chunk.length();
+        }
+        CharBuffer text = CharBuffer.allocate(length);
+        for (CharSequence chunk : chunks) {
+            if (chunk instanceof CharBuffer) {
+                text.put(((CharBuffer)chunk).duplicate());
+            }
+            else {
+                text.put(chunk.toString());
+            }
+        }
+        text.flip();
+        return text;
+    }
+
+    /**
+     * Returns the beginning of the line that begins at the passed offset, which is at most {@link #PREVIEW_LENGTH}
+     * characters long.
+     *
+     * @param text      Text containing the line.
+     * @param lineStart Offset of the first character of the line.
+     * @return          Beginning of the line.
+     */
+    private static String getPreview(CharSequence text, int lineStart) {
+        int end = lineStart;
+        int limit = Math.min(text.length(), lineStart + PREVIEW_LENGTH);
+        while (end < limit && text.charAt(end) != '\n') {
+            end++;
+        }
+        return text.subSequence(lineStart, end).toString();
+    }
+
+}
@@ -0,0 +1,32 @@
+package backend.search;
+
+import java.util.List;
+
+
+/**
+ * This interface can be implemented by classes that want to receive the matches of a {@linkplain FileSearch} while
+ * the files are searched.
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public interface FileSearchListener {
+
+    /**
+     * This method is called whenever matches were found within a file. All matches of the file are passed at once,
+     * except for files that are too large to be loaded, whose matches are passed after every searched window. As files
+     * are searched in parallel, this method is called by multiple threads, and the files are passed in no particular
+     * order.
+     *
+     * @param matches   Matches within a single file, in ascending order of their offsets.
+     */
+    void matchesFound(List<FileMatch> matches);
+
+    /**
+     * Returns whether the search shall be cancelled. If so, no further files are searched.
+     *
+     * @return  Whether the search shall be cancelled.
+     */
+    boolean isCancelled();
+
+}
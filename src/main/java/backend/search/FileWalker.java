@@ -0,0 +1,273 @@
+package backend.search;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+
+/**
+ * This class walks a directory tree in parallel on a {@linkplain ForkJoinPool}: every directory and every file is
+ * processed by a separate task. Only files whose names match the glob filters are passed to the action. Symbolic links
+ * to directories are not followed, so that the walk cannot run in circles.
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public class FileWalker {
+
+    /**
+     * This class implements a task that walks a directory and its subdirectories.
+     */
+    private class DirectoryTask extends RecursiveAction {
+
+        /**
+         * Stores the directory to be walked.
+         */
+        private final Path directory;
+
+        /**
+         * Stores the action to be performed for every accepted file.
+         */
+        private final Consumer<Path> action;
+
+        /**
+         * Stores whether the walk shall be cancelled.
+         */
+        private final BooleanSupplier cancelled;
+
+
+        /**
+         * Constructs a new DirectoryTask.
+         *
+         * @param directory Directory to be walked.
+         * @param action    Action to be performed for every accepted file.
+         * @param cancelled Returns whether the walk shall be cancelled.
+         */
+        private DirectoryTask(Path directory, Consumer<Path> action, BooleanSupplier cancelled) {
+            this.directory = directory;
+            this.action = action;
+            this.cancelled = cancelled;
+        }
+
+
+        /**
+         * Forks a task for every subdirectory and every file that is accepted by the filters, and waits until all of
+         * them are finished.
+         */
+        @Override
+        protected void compute() {
+            if (cancelled.getAsBoolean()) {
+                return;
+            }
+            ArrayList<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (attributes.isDirectory()) {
+                        tasks.add(new DirectoryTask(entry, action, cancelled).fork());
+                    }
+                    else if ((attributes.isRegularFile() || (attributes.isSymbolicLink() && Files.isRegularFile(entry))) && accepts(entry)) {
+                        tasks.add(new FileTask(entry, action, cancelled).fork());
+                    }
+                }
+            }
+            catch (IOException e) {
+                //Directory cannot be read, walk the entries that were read so far...
+            }
+            for (ForkJoinTask<?> task : tasks) {
+                task.join();
+            }
+        }
+
+    }
+
+
+    /**
+     * This class implements a task that performs the action for a single file.
+     */
+    private static class FileTask extends RecursiveAction {
+
+        /**
+         * Stores the file.
+         */
+        private final Path file;
+
+        /**
+         * Stores the action to be performed for the file.
+         */
+        private final Consumer<Path> action;
+
+        /**
+         * Stores whether the walk shall be cancelled.
+         */
+        private final BooleanSupplier cancelled;
+
+
+        /**
+         * Constructs a new FileTask.
+         *
+         * @param file      File.
+         * @param action    Action to be performed for the file.
+         * @param cancelled Returns whether the walk shall be cancelled.
+         */
+        private FileTask(Path file, Consumer<Path> action, BooleanSupplier cancelled) {
+            this.file = file;
+            this.action = action;
+            this.cancelled = cancelled;
+        }
+
+
+        /**
+         * Performs the action for the file.
+         */
+        @Override
+        protected void compute() {
+            if (!cancelled.getAsBoolean()) {
+                action.accept(file);
+            }
+        }
+
+    }
+
+
+    /**
+     * Stores the directory (or file) to be walked.
+     */
+    private final Path root;
+
+    /**
+     * Stores the glob filters which the names of the files must match. If there are no filters, all files are
+     * accepted.
+     */
+    private final ArrayList<PathMatcher> filters;
+
+
+    /**
+     * Constructs a new FileWalker.
+     *
+     * @param root      Directory to be walked. If this is a file, only this file is passed to the action.
+     * @param filters   Glob filters separated by commas or semicolons, i.e. {@code "*.log, *.{conf,cfg}"}. A file is
+     *                  accepted if its name (or its path relative to the root) matches any of the filters. If this is
+     *                  empty, all files are accepted.
+     */
+    public FileWalker(Path root, String filters) {
+        this.root = root;
+        this.filters = new ArrayList<PathMatcher>();
+        for (String filter : splitFilters(filters)) {
+            this.filters.add(FileSystems.getDefault().getPathMatcher("glob:" + filter));
+        }
+    }
+
+
+    public Path getRoot() {
+        return root;
+    }
+
+
+    /**
+     * Passes every accepted file to the passed action. The action is performed by the threads of the passed pool, so
+     * that files are processed in parallel. This method blocks until all files are processed or the walk is
+     * cancelled.
+     *
+     * @param pool      Pool on which the tree is walked.
+     * @param action    Action to be performed for every accepted file.
+     * @param cancelled Returns whether the walk shall be cancelled. This is tested before every file.
+     */
+    public void walk(ForkJoinPool pool, Consumer<Path> action, BooleanSupplier cancelled) {
+        if (Files.isDirectory(root)) {
+            pool.invoke(new DirectoryTask(root, action, cancelled));
+        }
+        else if (accepts(root)) {
+            pool.invoke(new FileTask(root, action, cancelled));
+        }
+    }
+
+    /**
+     * Passes every accepted file of the passed list to the passed action, in parallel on the passed pool. Files that
+     * are not located within the root are skipped. This is used instead of {@link #walk(ForkJoinPool, Consumer,
+     * BooleanSupplier)} if the files are already known, i.e. through a {@linkplain TrigramIndex}.
+     *
+     * @param pool      Pool on which the files are processed.
+     * @param files     Files to be processed.
+     * @param action    Action to be performed for every accepted file.
+     * @param cancelled Returns whether processing shall be cancelled. This is tested before every file.
+     */
+    public void walk(ForkJoinPool pool, List<Path> files, Consumer<Path> action, BooleanSupplier cancelled) {
+        ArrayList<FileTask> tasks = new ArrayList<FileTask>(files.size());
+        for (Path file : files) {
+            if (file.startsWith(root) && accepts(file)) {
+                tasks.add(new FileTask(file, action, cancelled));
+            }
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+    }
+
+    /**
+     * Tests whether the passed file is accepted by the filters.
+     *
+     * @param file  File to be tested.
+     * @return      Whether the file is accepted.
+     */
+    public boolean accepts(Path file) {
+        if (filters.isEmpty()) {
+            return true;
+        }
+        Path name = file.getFileName();
+        Path relativePath = root.relativize(file);
+        for (PathMatcher filter : filters) {
+            if ((name != null && filter.matches(name)) || filter.matches(relativePath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Splits the passed glob filters at commas and semicolons. Commas within braces (i.e. {@code "*.{conf,cfg}"})
+     * belong to the filter.
+     *
+     * @param filters   Glob filters to be split.
+     * @return          Separate glob filters without surrounding whitespace.
+     */
+    private static ArrayList<String> splitFilters(String filters) {
+        ArrayList<String> result = new ArrayList<String>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i <= filters.length(); i++) {
+            char c = i < filters.length() ? filters.charAt(i) : ',';
+            if (c == '{') {
+                depth++;
+            }
+            else if (c == '}') {
+                depth = Math.max(0, depth - 1);
+            }
+            else if ((c == ',' && depth == 0) || c == ';' || i == filters.length()) {
+                String filter = filters.substring(start, Math.min(i, filters.length())).trim();
+                if (!filter.isEmpty()) {
+                    result.add(filter);
+                }
+                start = i + 1;
+            }
+        }
+        return result;
+    }
+
+}
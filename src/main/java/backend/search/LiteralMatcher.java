@@ -0,0 +1,355 @@
+package backend.search;
+
+import backend.document.PieceTableContent;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
+import java.nio.CharBuffer;
+import java.util.concurrent.CancellationException;
+
+
+/**
+ * This class finds all occurrences of a literal within a text that is passed in chunks, i.e. through the segments of a
+ * document or the pieces of a snapshot. The chunks are searched in place, so that the text is never copied. Matches
+ * that cross the boundary between chunks are found through a small buffer that stores the end of the previous chunk.
+ * Long literals are searched through the Boyer-Moore-Horspool algorithm, which skips most characters. Short literals
+ * are searched by finding their first character, which is done through SIMD instructions if the vector API is
+ * available. Matches do not overlap.
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public class LiteralMatcher {
+
+    /**
+     * Stores the minimum length of literals that are searched through the Boyer-Moore-Horspool algorithm.
+     */
+    private static final int HORSPOOL_THRESHOLD = 4;
+
+    /**
+     * Stores whether the vector API (module {@code jdk.incubator.vector}) is available.
+     */
+    private static final boolean VECTORIZED = isVectorApiAvailable();
+
+    /**
+     * Stores the maximum number of characters that are searched before the {@linkplain SearchListener} is notified.
+     */
+    private static final int PROGRESS_INTERVAL = 1 << 20;
+
+
+    /**
+     * Stores the searched literal.
+     */
+    private final char[] needle;
+
+    /**
+     * Stores by how many characters the search can be moved for each character (indexed by its lower 8 bits) that is
+     * aligned with the last character of the literal.
+     */
+    private final int[] shifts;
+
+    /**
+     * Stores the end of the previous chunks whose characters may begin a match that ends in the next chunk.
+     */
+    private final char[] pending;
+
+    /**
+     * Stores the number of characters within {@link #pending}.
+     */
+    private int pendingLength;
+
+    /**
+     * Stores the offset of the first character of {@link #pending} within the text.
+     */
+    private int pendingOffset;
+
+    /**
+     * Stores the offset behind the last match, so that matches do not overlap.
+     */
+    private int lastEnd;
+
+    /**
+     * Stores the found matches.
+     */
+    private SearchResult result;
+
+
+    /**
+     * Constructs a new LiteralMatcher that finds the passed literal.
+     *
+     * @param literal   Literal to be found. This MUST NOT be empty.
+     */
+    public LiteralMatcher(String literal) {
+        needle = literal.toCharArray();
+        shifts = new int[256];
+        for (int i = 0; i < shifts.length; i++) {
+            shifts[i] = needle.length;
+        }
+        for (int i = 0; i < needle.length - 1; i++) {
+            shifts[needle[i] & 0xFF] = needle.length - 1 - i;
+        }
+        pending = new char[2 * (needle.length - 1)];
+    }
+
+
+    /**
+     * Tests whether the passed query can be searched through a LiteralMatcher, which is the case for single non-empty
+     * literals that are case sensitive and not restricted to whole words.
+     *
+     * @param query Query to be tested.
+     * @return      Whether the query can be searched through a LiteralMatcher.
+     */
+    public static boolean supports(SearchQuery query) {
+        return !query.isRegex() && !query.isMultiTerm() && query.isCaseSensitive() && !query.isWholeWord() && !query.getPattern().isEmpty();
+    }
+
+
+    /**
+     * Searches the passed document. The document is read through segments without copying its characters while it is
+     * locked for reading.
+     *
+     * @param document  Document to be searched.
+     * @return          All matches of the literal.
+     */
+    public SearchResult search(Document document) {
+        begin();
+        document.render(() -> {
+            Segment segment = new Segment();
+            segment.setPartialReturn(true);
+            int length = document.getLength();
+            int offset = 0;
+            while (offset < length) {
+                try {
+                    document.getText(offset, length - offset, segment);
+                }
+                catch (BadLocationException e) {
+                    //Cannot happen, as the document is locked:
+                    break;
+                }
+                search(segment.array, segment.offset, segment.count, offset);
+                offset += segment.count;
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Searches the passed range of the array.
+     *
+     * @param array Array to be searched.
+     * @param from  Index of the first character to be searched.
+     * @param count Number of characters to be searched.
+     * @return      All matches of the literal, with offsets relative to the first searched character.
+     */
+    public SearchResult search(char[] array, int from, int count) {
+        begin();
+        search(array, from, count, 0);
+        return result;
+    }
+
+    /**
+     * Searches the passed snapshot, one piece after another.
+     *
+     * @param snapshot  Snapshot to be searched.
+     * @return          All matches of the literal.
+     */
+    public SearchResult search(PieceTableContent.Snapshot snapshot) {
+        return search(snapshot, null);
+    }
+
+    /**
+     * Searches the passed snapshot, one piece after another. Large pieces are searched in parts, after each of which
+     * the passed listener is notified about the matches found so far and asked whether to cancel the search.
+     *
+     * @param snapshot                                      Snapshot to be searched.
+     * @param listener                                      Listener following the search, or {@code null}.
+     * @return                                              All matches of the literal.
+     * @throws java.util.concurrent.CancellationException   The search was cancelled by the listener.
+     */
+    public SearchResult search(PieceTableContent.Snapshot snapshot, SearchListener listener) {
+        begin();
+        int offset = 0;
+        for (CharBuffer chunk : snapshot) {
+            int count = chunk.remaining();
+            char[] array;
+            int from;
+            if (chunk.hasArray()) {
+                array = chunk.array();
+                from = chunk.arrayOffset() + chunk.position();
+            }
+            else {
+                array = new char[count];
+                chunk.get(array);
+                from = 0;
+            }
+            for (int part = 0; part < count; part += PROGRESS_INTERVAL) {
+                int partCount = Math.min(PROGRESS_INTERVAL, count - part);
+                search(array, from + part, partCount, offset + part);
+                if (listener != null) {
+                    if (listener.isCancelled()) {
+                        throw new CancellationException();
+                    }
+                    listener.matchesFound(result.size());
+                }
+            }
+            offset += count;
+        }
+        return result;
+    }
+
+
+    /**
+     * Prepares a new search.
+     */
+    private void begin() {
+        pendingLength = 0;
+        pendingOffset = 0;
+        lastEnd = 0;
+        result = new SearchResult();
+    }
+
+    /**
+     * Searches the passed chunk of the text. First, matches that begin within the end of the previous chunks are
+     * searched. If the chunk is too short to complete these matches, the chunk is only appended to the end of the
+     * previous chunks.
+     *
+     * @param array     Array containing the chunk.
+     * @param from      Index of the first character of the chunk within the array.
+     * @param count     Number of characters of the chunk.
+     * @param offset    Offset of the first character of the chunk within the text.
+     */
+    private void search(char[] array, int from, int count, int offset) {
+        int carry = needle.length - 1;
+        if (pendingLength > 0) {
+            //Search matches that cross the boundary to this chunk:
+            int take = Math.min(count, carry);
+            System.arraycopy(array, from, pending, pendingLength, take);
+            int length = pendingLength + take;
+            find(pending, 0, length, pendingOffset);
+            if (take == count) {
+                //Chunk is too short, keep the end of the previous chunks and this chunk:
+                int keep = Math.min(length, carry);
+                System.arraycopy(pending, length - keep, pending, 0, keep);
+                pendingOffset += length - keep;
+                pendingLength = keep;
+                return;
+            }
+        }
+        find(array, from, from + count, offset - from);
+        //Keep the end of this chunk, which may begin a match that ends in the next chunk:
+        pendingLength = Math.min(count, carry);
+        pendingOffset = offset + count - pendingLength;
+        System.arraycopy(array, from + count - pendingLength, pending, 0, pendingLength);
+    }
+
+    /**
+     * Finds all matches that lie completely within the passed range of the array and do not overlap the previous
+     * match.
+     *
+     * @param array Array to be searched.
+     * @param from  Index of the first character to be searched.
+     * @param to    Index after the last character to be searched.
+     * @param base  Offset within the text of index {@code 0} of the array.
+     */
+    private void find(char[] array, int from, int to, int base) {
+        int m = needle.length;
+        int last = to - m; //Index of the last possible match.
+        int i = Math.max(from, lastEnd - base);
+        if (m >= HORSPOOL_THRESHOLD) {
+            //Boyer-Moore-Horspool:
+            char lastChar = needle[m - 1];
+            while (i <= last) {
+                char c = array[i + m - 1];
+                if (c == lastChar && matches(array, i)) {
+                    report(base + i);
+                    i += m;
+                }
+                else {
+                    i += shifts[c & 0xFF];
+                }
+            }
+            return;
+        }
+        //First character filter:
+        char first = needle[0];
+        while (i <= last) {
+            int found = VECTORIZED ? VectorCharFilter.indexOf(array, i, last + 1, first) : indexOf(array, i, last + 1, first);
+            if (found < 0) {
+                return;
+            }
+            if (matches(array, found)) {
+                report(base + found);
+                i = found + m;
+            }
+            else {
+                i = found + 1;
+            }
+        }
+    }
+
+    /**
+     * Tests whether the literal occurs at the passed index of the array.
+     *
+     * @param array Array to be tested.
+     * @param index Index at which the literal may begin.
+     * @return      Whether the literal occurs at the index.
+     */
+    private boolean matches(char[] array, int index) {
+        for (int j = 0; j < needle.length; j++) {
+            if (array[index + j] != needle[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds the match at the passed offset to the result.
+     *
+     * @param offset    Offset of the match within the text.
+     */
+    private void report(int offset) {
+        result.add(offset, needle.length);
+        lastEnd = offset + needle.length;
+    }
+
+
+    /**
+     * Returns the index of the first occurrence of the passed character within the passed range of the array.
+     *
+     * @param array Array to be searched.
+     * @param from  Index of the first character to be searched.
+     * @param to    Index after the last character to be searched.
+     * @param c     Character to be found.
+     * @return      Index of the character, or {@code -1} if the character does not occur.
+     */
+    private static int indexOf(char[] array, int from, int to, char c) {
+        for (int i = from; i < to; i++) {
+            if (array[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Tests whether the vector API is available, which requires VATE to be started with
+     * {@code --add-modules jdk.incubator.vector}. The launcher ({@code launch4j-config.xml}) passes this option, while
+     * the {@code .jar}-file cannot add modules through its manifest.
+     *
+     * @return  Whether the vector API is available.
+     */
+    private static boolean isVectorApiAvailable() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        try {
+            return VectorCharFilter.indexOf(new char[] {'a'}, 0, 1, 'a') == 0;
+        }
+        catch (LinkageError e) {
+            //Vector API cannot be used:
+            return false;
+        }
+    }
+
+}
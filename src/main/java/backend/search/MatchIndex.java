@@ -0,0 +1,460 @@
+package backend.search;
+
+import backend.document.PieceTableBackedDocument;
+import backend.document.PieceTableContent;
+import backend.document.ReplaceEvent;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.Element;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+
+/**
+ * This class stores the matches of a {@linkplain SearchQuery} within a document and keeps them up to date while the
+ * document is edited. The matches are stored within a gap buffer: matches before the gap store their offsets, matches
+ * behind the gap store their distances to the end of the document, so that they do not need to be changed when text
+ * is inserted or removed before them. After every edit, the gap is moved to the edited lines and only these lines are
+ * searched again. Therefore, the costs of an edit depend on the size of the edit and the lengths of the edited lines,
+ * but not on the length of the document.
+ * <p>
+ * This requires that no match spans multiple lines, which is the case for all literals and for all regular expressions
+ * that cannot match line separators. For other regular expressions, and for edits that replace many ranges at once,
+ * the matches within the edited lines are removed and the index becomes {@linkplain #isStale() stale}: The owner of
+ * the index is notified and searches the document again in the background.
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public class MatchIndex implements DocumentListener {
+
+    /**
+     * Stores the escape sequences and constructs of a regular expression which may match line separators, or whose
+     * matches depend on text before the line of the match.
+     */
+    private static final String[] MULTILINE_CONSTRUCTS = {"\\s", "\\n", "\\R", "\\v", "\\W", "\\D", "\\H", "\\X", "\\p", "\\P", "\\x", "\\u", "\\0", "\\c", "\\N", "\\G", "\\z", "\\Z", "\\t-", "\\a-", "[^", "(?"};
+
+
+    /**
+     * Stores the document whose matches are stored.
+     */
+    private final PieceTableBackedDocument document;
+
+    /**
+     * Stores the query whose matches are stored.
+     */
+    private final SearchQuery query;
+
+    /**
+     * Stores whether no match of the {@link #query} can span multiple lines, so that only edited lines need to be
+     * searched again.
+     */
+    private final boolean lineLocal;
+
+    /**
+     * Stores the offsets of the matches before the gap, and the distances of the matches behind the gap to the end of
+     * the document.
+     */
+    private int[] starts;
+
+    /**
+     * Stores the lengths of the matches.
+     */
+    private int[] lengths;
+
+    /**
+     * Stores the index of the first element of the gap, which is the number of matches before the gap.
+     */
+    private int gapStart;
+
+    /**
+     * Stores the index of the first element behind the gap.
+     */
+    private int gapEnd;
+
+    /**
+     * Stores the length of the document to which the distances of the matches behind the gap refer.
+     */
+    private int documentLength;
+
+    /**
+     * Stores whether the document is being searched in the background, so that edits cannot be applied to the
+     * matches yet.
+     */
+    private boolean searching;
+
+    /**
+     * Stores whether the document was edited while it was searched in the background.
+     */
+    private boolean editedWhileSearching;
+
+    /**
+     * Stores whether matches may be missing due to an edit, so that the document needs to be searched again.
+     */
+    private boolean stale;
+
+    /**
+     * Stores the listeners that are notified when the matches changed due to an edit.
+     */
+    private final ArrayList<ChangeListener> changeListeners;
+
+
+    /**
+     * Constructs a new MatchIndex without any matches. The index listens to the passed document until it is
+     * {@linkplain #dispose() disposed}. The matches are added through {@link #setMatches(SearchResult)}.
+     *
+     * @param document  Document whose matches shall be stored.
+     * @param query     Query whose matches shall be stored.
+     */
+    public MatchIndex(PieceTableBackedDocument document, SearchQuery query) {
+        this.document = document;
+        this.query = query;
+        lineLocal = !query.isRegex() || !mayMatchLineSeparators(query.getPattern());
+        starts = new int[16];
+        lengths = new int[16];
+        gapStart = 0;
+        gapEnd = starts.length;
+        changeListeners = new ArrayList<ChangeListener>();
+        document.addDocumentListener(this);
+    }
+
+
+    public PieceTableBackedDocument getDocument() {
+        return document;
+    }
+
+    public SearchQuery getQuery() {
+        return query;
+    }
+
+
+    /**
+     * Returns the number of matches.
+     *
+     * @return  Number of matches.
+     */
+    public int size() {
+        return starts.length - (gapEnd - gapStart);
+    }
+
+    /**
+     * Returns the offset of the first character of the passed match.
+     *
+     * @param index Index of the match.
+     * @return      Offset of the match.
+     */
+    public int getStart(int index) {
+        return index < gapStart ? starts[index] : documentLength - starts[index + gapEnd - gapStart];
+    }
+
+    /**
+     * Returns the length of the passed match.
+     *
+     * @param index Index of the match.
+     * @return      Length of the match.
+     */
+    public int getLength(int index) {
+        return lengths[index < gapStart ? index : index + gapEnd - gapStart];
+    }
+
+    /**
+     * Returns whether matches may be missing due to an edit, so that the document needs to be searched again through
+     * {@link #beginSearch()}.
+     *
+     * @return  Whether the index is stale.
+     */
+    public boolean isStale() {
+        return stale;
+    }
+
+    /**
+     * Returns the index of the first match that begins at or behind the passed offset. If there is no such match,
+     * {@link #size()} is returned.
+     *
+     * @param offset    Offset to be searched.
+     * @return          Index of the match.
+     */
+    public int indexOf(int offset) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getStart(middle) < offset) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+
+    /**
+     * Returns a copy of the matches.
+     *
+     * @return  Matches in ascending order.
+     */
+    public SearchResult getMatches() {
+        SearchResult result = new SearchResult();
+        for (int i = 0; i < size(); i++) {
+            result.add(getStart(i), getLength(i));
+        }
+        return result;
+    }
+
+
+    /**
+     * Returns a snapshot of the document that can be searched in the background. Edits that happen until the matches
+     * are passed to {@link #setMatches(SearchResult)} are remembered.
+     *
+     * @return  Snapshot of the document.
+     */
+    public PieceTableContent.Snapshot beginSearch() {
+        searching = true;
+        editedWhileSearching = false;
+        return document.snapshot();
+    }
+
+    /**
+     * Replaces the matches with the passed matches, which were found within the snapshot that was returned by
+     * {@link #beginSearch()}. If the document was edited since, the matches no longer fit the document: The index
+     * keeps its matches, which followed the edits, and becomes stale, so that the listeners search it again. If the
+     * matches of the snapshot were already set, nothing happens.
+     *
+     * @param result    Matches within the snapshot.
+     */
+    public void setMatches(SearchResult result) {
+        if (!searching) {
+            return;
+        }
+        boolean edited = editedWhileSearching;
+        searching = false;
+        editedWhileSearching = false;
+        if (edited) {
+            stale = true;
+            fireStateChanged();
+            return;
+        }
+        stale = false;
+        replaceMatches(result);
+    }
+
+    /**
+     * Stops listening to the document.
+     */
+    public void dispose() {
+        document.removeDocumentListener(this);
+        changeListeners.clear();
+    }
+
+
+    /**
+     * Adds a listener that is notified whenever the matches changed due to an edit of the document, or whenever the
+     * index became {@linkplain #isStale() stale}.
+     *
+     * @param listener  Listener to be added.
+     */
+    public void addChangeListener(ChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Removes a listener that is notified whenever the matches changed due to an edit of the document.
+     *
+     * @param listener  Listener to be removed.
+     */
+    public void removeChangeListener(ChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+
+    /**
+     * Updates the matches after text was inserted into the document.
+     *
+     * @param e Event describing the insertion.
+     */
+    @Override
+    public void insertUpdate(DocumentEvent e) {
+        update(e.getOffset(), e.getLength());
+    }
+
+    /**
+     * Updates the matches after text was removed from the document.
+     *
+     * @param e Event describing the removal.
+     */
+    @Override
+    public void removeUpdate(DocumentEvent e) {
+        update(e.getOffset(), 0);
+    }
+
+    /**
+     * Updates the matches after multiple ranges of the document were replaced at once. The lines from the first to
+     * the last range may span the whole document, so they are not searched again, but the index becomes stale.
+     * Attributes do not change the text, so the matches do not change either.
+     *
+     * @param e Event describing the change.
+     */
+    @Override
+    public void changedUpdate(DocumentEvent e) {
+        if (e instanceof ReplaceEvent) {
+            update(e.getOffset(), e.getLength(), false);
+        }
+    }
+
+
+    /**
+     * Updates the matches after text was inserted or removed.
+     *
+     * @param offset    Offset at which text was inserted or removed.
+     * @param inserted  Number of characters that were inserted, or {@code 0} if characters were removed.
+     */
+    private void update(int offset, int inserted) {
+        update(offset, inserted, lineLocal);
+    }
+
+    /**
+     * Updates the matches after the document was edited. The matches within the edited lines are removed, the
+     * matches within all other lines only move with the edit. If the edited lines can be searched on their own, they
+     * are searched again, unless the document is being searched in the background. Otherwise, the index becomes
+     * stale, so that the whole document is searched again in the background.
+     *
+     * @param offset        Offset at which text was inserted or removed.
+     * @param inserted      Number of characters that were inserted or replaced, or {@code 0} if characters were
+     *                      removed.
+     * @param searchLines   Whether the edited lines can be searched on their own.
+     */
+    private void update(int offset, int inserted, boolean searchLines) {
+        if (searching) {
+            editedWhileSearching = true;
+        }
+
+        //Find the edited lines within the edited document:
+        Element root = document.getDefaultRootElement();
+        int from = root.getElement(root.getElementIndex(offset)).getStartOffset();
+        int length = document.getLength();
+        int to = Math.min(length, root.getElement(root.getElementIndex(offset + inserted)).getEndOffset());
+
+        //All matches before the edited lines remain valid, all other matches move with the end of the document:
+        moveGap(indexOf(from));
+        documentLength = length;
+
+        //Remove the matches within the edited lines and search these lines again:
+        while (gapEnd < starts.length && documentLength - starts[gapEnd] < to) {
+            gapEnd++;
+        }
+        if (!searchLines || searching) {
+            //The matches are found by the next search:
+            stale |= !searching;
+            fireStateChanged();
+            return;
+        }
+        SearchResult result = new SearchResult();
+        try {
+            SearchEngine.search(document.snapshot(), from, to, query, result);
+        }
+        catch (RegexTimeoutException e) {
+            //The edited lines remain without matches:
+            result = new SearchResult();
+        }
+        for (int i = 0; i < result.size(); i++) {
+            insert(result.getStart(i), result.getLength(i));
+        }
+        fireStateChanged();
+    }
+
+    /**
+     * Moves the gap, so that the passed number of matches are located before the gap.
+     *
+     * @param index Number of matches before the gap.
+     */
+    private void moveGap(int index) {
+        while (gapStart > index) {
+            gapStart--;
+            gapEnd--;
+            starts[gapEnd] = documentLength - starts[gapStart];
+            lengths[gapEnd] = lengths[gapStart];
+        }
+        while (gapStart < index) {
+            starts[gapStart] = documentLength - starts[gapEnd];
+            lengths[gapStart] = lengths[gapEnd];
+            gapStart++;
+            gapEnd++;
+        }
+    }
+
+    /**
+     * Inserts the passed match at the beginning of the gap.
+     *
+     * @param start     Offset of the match.
+     * @param length    Length of the match.
+     */
+    private void insert(int start, int length) {
+        if (gapStart == gapEnd) {
+            //Double the capacity:
+            int capacity = starts.length * 2;
+            int behindGap = starts.length - gapEnd;
+            int[] newStarts = Arrays.copyOf(starts, capacity);
+            int[] newLengths = Arrays.copyOf(lengths, capacity);
+            System.arraycopy(starts, gapEnd, newStarts, capacity - behindGap, behindGap);
+            System.arraycopy(lengths, gapEnd, newLengths, capacity - behindGap, behindGap);
+            starts = newStarts;
+            lengths = newLengths;
+            gapEnd = capacity - behindGap;
+        }
+        starts[gapStart] = start;
+        lengths[gapStart] = length;
+        gapStart++;
+    }
+
+    /**
+     * Replaces all matches with the passed matches. The gap is placed behind the last match.
+     *
+     * @param result    New matches.
+     */
+    private void replaceMatches(SearchResult result) {
+        int capacity = Math.max(16, Integer.highestOneBit(Math.max(1, result.size())) << 1);
+        starts = new int[capacity];
+        lengths = new int[capacity];
+        for (int i = 0; i < result.size(); i++) {
+            starts[i] = result.getStart(i);
+            lengths[i] = result.getLength(i);
+        }
+        gapStart = result.size();
+        gapEnd = capacity;
+        documentLength = document.getLength();
+    }
+
+    /**
+     * Notifies all listeners that the matches changed.
+     */
+    private void fireStateChanged() {
+        ChangeEvent event = new ChangeEvent(this);
+        for (ChangeListener listener : new ArrayList<ChangeListener>(changeListeners)) {
+            listener.stateChanged(event);
+        }
+    }
+
+
+    /**
+     * Tests whether the passed regular expression may match line separators, or whether its matches may depend on
+     * text before the line of the match. The test is conservative: It may return {@code true} for regular expressions
+     * which cannot match line separators, but never returns {@code false} for expressions which can.
+     *
+     * @param regex Regular expression.
+     * @return      Whether the matches of the regular expression may span multiple lines.
+     */
+    private static boolean mayMatchLineSeparators(String regex) {
+        String withoutGroups = regex.replace("(?:", "(");
+        for (String construct : MULTILINE_CONSTRUCTS) {
+            if (withoutGroups.contains(construct)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
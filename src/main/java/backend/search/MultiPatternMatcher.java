@@ -0,0 +1,601 @@
+package backend.search;
+
+import backend.document.PieceTableContent;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.CancellationException;
+
+
+/**
+ * This class finds the occurrences of multiple terms within a text in a single pass through the Aho-Corasick
+ * algorithm. The terms are stored within a trie, whose nodes are linked to the node of their longest proper suffix
+ * that is also a prefix of a term. Whenever the next character of the text does not continue the current prefix, the
+ * automaton follows these links instead of reading characters again, so that the costs of a search depend on the
+ * length of the text and the number of occurrences, but not on the number of terms. The transitions of the root are
+ * stored within a table that is indexed by the character, as most characters of a text do not begin any term. All
+ * other transitions are stored within a hash table.
+ * <p>
+ * Overlapping occurrences are resolved in the same way as by a regular expression which alternates the terms with
+ * longer terms first: The occurrence which begins first becomes a match, and of all occurrences that begin at the same
+ * offset the longest. Occurrences that overlap a match are skipped. Therefore, the matches can be marked and replaced
+ * like the matches of any other {@linkplain SearchQuery}.
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public class MultiPatternMatcher {
+
+    /**
+     * This class implements a hash table that maps the transitions of the automaton to the nodes which they lead to.
+     * The table uses open addressing with linear probing.
+     */
+    private static class TransitionTable {
+
+        /**
+         * Stores the transitions plus one, so that {@code 0} marks empty slots.
+         */
+        private long[] keys;
+
+        /**
+         * Stores the nodes which the transitions lead to.
+         */
+        private int[] values;
+
+        /**
+         * Stores the number of transitions within the table.
+         */
+        private int size;
+
+
+        /**
+         * Constructs a new TransitionTable.
+         *
+         * @param expectedSize  Expected number of transitions.
+         */
+        private TransitionTable(int expectedSize) {
+            int capacity = Integer.highestOneBit(Math.max(16, expectedSize) * 2 - 1) << 1;
+            keys = new long[capacity];
+            values = new int[capacity];
+        }
+
+
+        /**
+         * Returns the node which the passed transition leads to.
+         *
+         * @param transition    Transition, which is the node shifted by 16 bits and the character.
+         * @return              Node, or {@code -1} if there is no such transition.
+         */
+        private int get(long transition) {
+            long key = transition + 1;
+            int mask = keys.length - 1;
+            int slot = (int)((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+            while (keys[slot] != 0) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        /**
+         * Adds the passed transition, which MUST NOT be within the table yet.
+         *
+         * @param transition    Transition, which is the node shifted by 16 bits and the character.
+         * @param node          Node which the transition leads to.
+         */
+        private void put(long transition, int node) {
+            long key = transition + 1;
+            int mask = keys.length - 1;
+            int slot = (int)((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+            while (keys[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = node;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+        }
+
+        /**
+         * Doubles the capacity of the table.
+         */
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldValues.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    put(oldKeys[i] - 1, oldValues[i]);
+                }
+            }
+        }
+
+    }
+
+
+    /**
+     * Stores the node at which the automaton begins.
+     */
+    private static final int ROOT = 0;
+
+    /**
+     * Stores the maximum number of characters that are searched before the {@linkplain SearchListener} is notified.
+     */
+    private static final int PROGRESS_INTERVAL = 1 << 20;
+
+    /**
+     * Stores the size of the buffer into which texts that are not backed by an array are copied.
+     */
+    private static final int BUFFER_SIZE = 1 << 13;
+
+
+    /**
+     * Stores the distinct terms in the order in which they were passed.
+     */
+    private final ArrayList<String> terms;
+
+    /**
+     * Stores the index of every term within {@link #terms}, which is mapped from the term. If case is ignored, the
+     * terms are case-folded.
+     */
+    private final HashMap<String, Integer> termIndices;
+
+    /**
+     * Stores the rank of every term: Longer terms have lower ranks, so that they are preferred over shorter terms
+     * that begin at the same offset.
+     */
+    private final int[] ranks;
+
+    /**
+     * Stores the term of every rank.
+     */
+    private final int[] termsByRank;
+
+    /**
+     * Stores whether uppercase and lowercase letters are distinguished.
+     */
+    private final boolean caseSensitive;
+
+    /**
+     * Stores whether only occurrences that are whole words are matches.
+     */
+    private final boolean wholeWord;
+
+    /**
+     * Stores the node which every character leads to from the root. Characters that do not begin a term lead to the
+     * root.
+     */
+    private final int[] rootTransitions;
+
+    /**
+     * Stores the transitions of all other nodes.
+     */
+    private final TransitionTable transitions;
+
+    /**
+     * Stores the node of the longest proper suffix of every node.
+     */
+    private int[] failures;
+
+    /**
+     * Stores the term which ends at every node, or {@code -1} if no term ends at the node.
+     */
+    private int[] outputs;
+
+    /**
+     * Stores for every node the next node on the chain of its suffixes at which a term ends, or {@code -1} if there
+     * is no such node.
+     */
+    private int[] outputLinks;
+
+    /**
+     * Stores the first child of every node within the trie, or {@code -1} if the node has no children.
+     */
+    private int[] firstChildren;
+
+    /**
+     * Stores the next sibling of every node within the trie, or {@code -1} if the node is the last child.
+     */
+    private int[] nextSiblings;
+
+    /**
+     * Stores the character that leads to every node from its parent.
+     */
+    private char[] labels;
+
+    /**
+     * Stores the number of nodes of the automaton.
+     */
+    private int nodeCount;
+
+    /**
+     * Stores the node that was reached after the last character that was searched.
+     */
+    private int state;
+
+    /**
+     * Stores the occurrences that were found, each of which is encoded as its offset shifted by 32 bits and the rank
+     * of its term.
+     */
+    private long[] occurrences;
+
+    /**
+     * Stores the number of {@link #occurrences}.
+     */
+    private int occurrenceCount;
+
+
+    /**
+     * Constructs a new MultiPatternMatcher that finds the terms of the passed query.
+     *
+     * @param query Query whose terms shall be found.
+     */
+    public MultiPatternMatcher(SearchQuery query) {
+        caseSensitive = query.isCaseSensitive();
+        wholeWord = query.isWholeWord();
+
+        //Remove duplicate terms:
+        terms = new ArrayList<String>();
+        termIndices = new HashMap<String, Integer>();
+        for (String term : query.getTerms()) {
+            if (!term.isEmpty() && termIndices.putIfAbsent(fold(term), terms.size()) == null) {
+                terms.add(term);
+            }
+        }
+        Integer[] byLength = new Integer[terms.size()];
+        for (int i = 0; i < byLength.length; i++) {
+            byLength[i] = i;
+        }
+        Arrays.sort(byLength, (a, b) -> Integer.compare(terms.get(b).length(), terms.get(a).length()));
+        ranks = new int[terms.size()];
+        termsByRank = new int[terms.size()];
+        for (int rank = 0; rank < byLength.length; rank++) {
+            ranks[byLength[rank]] = rank;
+            termsByRank[rank] = byLength[rank];
+        }
+
+        //Build the trie:
+        int capacity = 1;
+        for (String term : terms) {
+            capacity += term.length();
+        }
+        rootTransitions = new int[Character.MAX_VALUE + 1];
+        transitions = new TransitionTable(capacity);
+        failures = new int[capacity];
+        outputs = new int[capacity];
+        outputLinks = new int[capacity];
+        firstChildren = new int[capacity];
+        nextSiblings = new int[capacity];
+        labels = new char[capacity];
+        nodeCount = 1;
+        firstChildren[ROOT] = -1;
+        outputs[ROOT] = -1;
+        outputLinks[ROOT] = -1;
+        for (int i = 0; i < terms.size(); i++) {
+            addTerm(i);
+        }
+        linkSuffixes();
+    }
+
+
+    /**
+     * Returns the distinct terms that are found, in the order in which they were passed.
+     *
+     * @return  Distinct terms.
+     */
+    public ArrayList<String> getTerms() {
+        return new ArrayList<String>(terms);
+    }
+
+
+    /**
+     * Searches the passed text.
+     *
+     * @param text  Text to be searched.
+     * @return      All matches of the terms.
+     */
+    public SearchResult search(CharSequence text) {
+        if (text instanceof PieceTableContent.Snapshot) {
+            return search((PieceTableContent.Snapshot)text, null);
+        }
+        return search(text, 0, text.length());
+    }
+
+    /**
+     * Searches the passed range of the text. Only occurrences that lie completely within the range are found, but
+     * the characters around the range are considered when testing whether an occurrence is a whole word.
+     *
+     * @param text  Text to be searched.
+     * @param from  Offset of the first character to be searched.
+     * @param to    Offset after the last character to be searched.
+     * @return      All matches of the terms within the range, with offsets relative to the beginning of the text.
+     */
+    public SearchResult search(CharSequence text, int from, int to) {
+        begin();
+        if (text instanceof CharBuffer && ((CharBuffer)text).hasArray()) {
+            CharBuffer buffer = (CharBuffer)text;
+            int arrayOffset = buffer.arrayOffset() + buffer.position();
+            scan(buffer.array(), arrayOffset + from, arrayOffset + to, -arrayOffset);
+            return finish(text);
+        }
+        //Copy the text into a buffer, one part after another:
+        char[] buffer = new char[BUFFER_SIZE];
+        for (int offset = from; offset < to; offset += buffer.length) {
+            int count = Math.min(buffer.length, to - offset);
+            for (int i = 0; i < count; i++) {
+                buffer[i] = text.charAt(offset + i);
+            }
+            scan(buffer, 0, count, offset);
+        }
+        return finish(text);
+    }
+
+    /**
+     * Searches the passed snapshot, one piece after another. Large pieces are searched in parts, after each of which
+     * the passed listener is notified about the occurrences found so far and asked whether to cancel the search.
+     *
+     * @param snapshot                                      Snapshot to be searched.
+     * @param listener                                      Listener following the search, or {@code null}.
+     * @return                                              All matches of the terms.
+     * @throws java.util.concurrent.CancellationException   The search was cancelled by the listener.
+     */
+    public SearchResult search(PieceTableContent.Snapshot snapshot, SearchListener listener) {
+        begin();
+        int offset = 0;
+        for (CharBuffer chunk : snapshot) {
+            int count = chunk.remaining();
+            char[] array;
+            int from;
+            if (chunk.hasArray()) {
+                array = chunk.array();
+                from = chunk.arrayOffset() + chunk.position();
+            }
+            else {
+                array = new char[count];
+                chunk.get(array);
+                from = 0;
+            }
+            for (int part = 0; part < count; part += PROGRESS_INTERVAL) {
+                int partCount = Math.min(PROGRESS_INTERVAL, count - part);
+                scan(array, from + part, from + part + partCount, offset - from);
+                if (listener != null) {
+                    if (listener.isCancelled()) {
+                        throw new CancellationException();
+                    }
+                    listener.matchesFound(occurrenceCount);
+                }
+            }
+            offset += count;
+        }
+        return finish(snapshot);
+    }
+
+    /**
+     * Counts the matches of every term within the passed matches, which were found within the passed text.
+     *
+     * @param text      Text in which the matches were found.
+     * @param matches   Matches of the terms.
+     * @return          Number of matches of every term, in the order of {@link #getTerms()}.
+     */
+    public int[] countTerms(CharSequence text, SearchResult matches) {
+        int[] counts = new int[terms.size()];
+        for (int i = 0; i < matches.size(); i++) {
+            int start = matches.getStart(i);
+            Integer term = termIndices.get(fold(text.subSequence(start, start + matches.getLength(i)).toString()));
+            if (term != null) {
+                counts[term]++;
+            }
+        }
+        return counts;
+    }
+
+
+    /**
+     * Adds the passed term to the trie.
+     *
+     * @param term  Index of the term.
+     */
+    private void addTerm(int term) {
+        String text = terms.get(term);
+        int node = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            char c = caseSensitive ? text.charAt(i) : TrigramIndex.fold(text.charAt(i));
+            int child = node == ROOT ? rootTransitions[c] : transitions.get(getTransition(node, c));
+            if (child <= ROOT) {
+                //Add a new node:
+                child = nodeCount++;
+                firstChildren[child] = -1;
+                outputs[child] = -1;
+                labels[child] = c;
+                nextSiblings[child] = firstChildren[node];
+                firstChildren[node] = child;
+                if (node == ROOT) {
+                    rootTransitions[c] = child;
+                }
+                else {
+                    transitions.put(getTransition(node, c), child);
+                }
+            }
+            node = child;
+        }
+        outputs[node] = term;
+    }
+
+    /**
+     * Links every node of the trie to the node of its longest proper suffix, and to the next suffix at which a term
+     * ends. The nodes are linked in breadth-first order, so that the suffixes of a node are linked before the node.
+     */
+    private void linkSuffixes() {
+        int[] queue = new int[nodeCount];
+        int head = 0;
+        int tail = 0;
+        failures[ROOT] = ROOT;
+        for (int child = firstChildren[ROOT]; child != -1; child = nextSiblings[child]) {
+            failures[child] = ROOT;
+            outputLinks[child] = -1;
+            queue[tail++] = child;
+        }
+        while (head < tail) {
+            int node = queue[head++];
+            for (int child = firstChildren[node]; child != -1; child = nextSiblings[child]) {
+                int suffix = next(failures[node], labels[child]);
+                failures[child] = suffix;
+                outputLinks[child] = outputs[suffix] != -1 ? suffix : outputLinks[suffix];
+                queue[tail++] = child;
+            }
+        }
+    }
+
+    /**
+     * Returns the node which the automaton reaches when the passed character is read at the passed node.
+     *
+     * @param node  Current node.
+     * @param c     Character that is read, which is already case-folded if case is ignored.
+     * @return      Next node.
+     */
+    private int next(int node, char c) {
+        while (node != ROOT) {
+            int child = transitions.get(getTransition(node, c));
+            if (child != -1) {
+                return child;
+            }
+            node = failures[node];
+        }
+        return rootTransitions[c];
+    }
+
+
+    /**
+     * Prepares a new search.
+     */
+    private void begin() {
+        state = ROOT;
+        occurrences = new long[16];
+        occurrenceCount = 0;
+    }
+
+    /**
+     * Reads the passed range of the array and remembers all occurrences of the terms that end within the range.
+     *
+     * @param array Array to be searched.
+     * @param from  Index of the first character to be searched.
+     * @param to    Index after the last character to be searched.
+     * @param base  Offset within the text of index {@code 0} of the array.
+     */
+    private void scan(char[] array, int from, int to, int base) {
+        int node = state;
+        for (int i = from; i < to; i++) {
+            char c = caseSensitive ? array[i] : TrigramIndex.fold(array[i]);
+            node = node == ROOT ? rootTransitions[c] : next(node, c);
+            if (node == ROOT) {
+                continue;
+            }
+            int output = outputs[node] != -1 ? node : outputLinks[node];
+            while (output != -1) {
+                int term = outputs[output];
+                addOccurrence(base + i + 1 - terms.get(term).length(), term);
+                output = outputLinks[output];
+            }
+        }
+        state = node;
+    }
+
+    /**
+     * Remembers the passed occurrence.
+     *
+     * @param start Offset of the occurrence.
+     * @param term  Index of the term.
+     */
+    private void addOccurrence(int start, int term) {
+        if (occurrenceCount == occurrences.length) {
+            occurrences = Arrays.copyOf(occurrences, occurrences.length * 2);
+        }
+        occurrences[occurrenceCount++] = ((long)start << 32) | ranks[term];
+    }
+
+    /**
+     * Orders the occurrences by their offsets and selects the matches among them.
+     *
+     * @param text  Text that was searched, which is required to test whether occurrences are whole words.
+     * @return      Matches in ascending order.
+     */
+    private SearchResult finish(CharSequence text) {
+        Arrays.sort(occurrences, 0, occurrenceCount);
+        SearchResult result = new SearchResult();
+        int lastEnd = 0;
+        for (int i = 0; i < occurrenceCount; i++) {
+            int start = (int)(occurrences[i] >>> 32);
+            int length = terms.get(termsByRank[(int)occurrences[i]]).length();
+            if (start < lastEnd || (wholeWord && !isWholeWord(text, start, start + length))) {
+                continue;
+            }
+            result.add(start, length);
+            lastEnd = start + length;
+        }
+        occurrences = null;
+        return result;
+    }
+
+    /**
+     * Case-folds the passed term if case is ignored.
+     *
+     * @param term  Term to be folded.
+     * @return      Folded term.
+     */
+    private String fold(String term) {
+        if (caseSensitive) {
+            return term;
+        }
+        char[] folded = term.toCharArray();
+        for (int i = 0; i < folded.length; i++) {
+            folded[i] = TrigramIndex.fold(folded[i]);
+        }
+        return new String(folded);
+    }
+
+
+    /**
+     * Returns the transition of the passed node for the passed character.
+     *
+     * @param node  Node.
+     * @param c     Character.
+     * @return      Transition.
+     */
+    private static long getTransition(int node, char c) {
+        return ((long)node << 16) | c;
+    }
+
+    /**
+     * Tests whether the passed range of the text is a whole word, which means that it is neither preceded nor
+     * followed by a letter, number or underscore.
+     *
+     * @param text  Text.
+     * @param start Offset of the first character of the range.
+     * @param end   Offset after the last character of the range.
+     * @return      Whether the range is a whole word.
+     */
+    private static boolean isWholeWord(CharSequence text, int start, int end) {
+        return (start == 0 || !isWordCharacter(text.charAt(start - 1))) && (end == text.length() || !isWordCharacter(text.charAt(end)));
+    }
+
+    /**
+     * Tests whether the passed character belongs to a word, which is the case for letters, numbers and underscores.
+     *
+     * @param c Character to be tested.
+     * @return  Whether the character belongs to a word.
+     */
+    private static boolean isWordCharacter(char c) {
+        if (c == '_' || Character.isLetter(c)) {
+            return true;
+        }
+        int type = Character.getType(c);
+        return type == Character.DECIMAL_DIGIT_NUMBER || type == Character.LETTER_NUMBER || type == Character.OTHER_NUMBER;
+    }
+
+}
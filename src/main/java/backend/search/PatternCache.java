@@ -0,0 +1,168 @@
+package backend.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.regex.Pattern;
+
+
+/**
+ * This class caches compiled patterns for {@linkplain SearchQuery}s, so that repeated searches (i.e. while the user
+ * iterates through matches or searches multiple tabs) do not compile the same pattern again. The least recently used
+ * pattern is removed once the cache is full. The cache can be used by multiple threads. Besides the patterns, the
+ * {@linkplain RegexAutomaton}s of the queries are cached. Every entry is a task that compiles the query once: The
+ * cache is only locked while the task is looked up, so that a thread which compiles a query does not block threads
+ * which request other queries, while threads which request the same query wait for its task.
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public class PatternCache {
+
+    /**
+     * Stores the maximum number of cached patterns.
+     */
+    private static final int CAPACITY = 32;
+
+    /**
+     * Stores the cached patterns in access order, so that the eldest entry is the least recently used pattern.
+     */
+    private static final Map<SearchQuery, FutureTask<Pattern>> patterns = new LinkedHashMap<>(CAPACITY, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<SearchQuery, FutureTask<Pattern>> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+
+    /**
+     * Stores the cached automata in access order. Queries that cannot be compiled into an automaton are mapped to
+     * {@code null}.
+     */
+    private static final Map<SearchQuery, FutureTask<RegexAutomaton>> automata = new LinkedHashMap<>(CAPACITY, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<SearchQuery, FutureTask<RegexAutomaton>> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+
+
+    /**
+     * Returns the compiled pattern for the passed query. If the pattern is not cached, it is compiled and cached.
+     *
+     * @param query                                     Query whose pattern shall be returned.
+     * @return                                          Compiled pattern.
+     * @throws java.util.regex.PatternSyntaxException   The query is an invalid regular expression.
+     */
+    public static Pattern get(SearchQuery query) {
+        return get(patterns, query, () -> compile(query));
+    }
+
+    /**
+     * Returns the automaton for the passed query, through which the query can be matched in linear time. If the
+     * automaton is not cached, it is compiled and cached.
+     *
+     * @param query                                     Query whose automaton shall be returned.
+     * @return                                          Compiled automaton, or {@code null} if the query contains
+     *                                                  constructs that are not supported by automata.
+     * @throws java.util.regex.PatternSyntaxException   The query is an invalid regular expression.
+     */
+    public static RegexAutomaton getAutomaton(SearchQuery query) {
+        //The automaton requires a valid expression:
+        get(query);
+        return get(automata, query, () -> RegexAutomaton.compile(query));
+    }
+
+
+    /**
+     * Returns the result of the task of the passed query within the passed cache. If the cache contains no task for
+     * the query, a new task is cached and run by the calling thread, outside the lock of the cache. If another thread
+     * runs the task, the calling thread waits until the task is finished.
+     *
+     * @param cache     Cache containing the tasks.
+     * @param query     Query whose result shall be returned.
+     * @param compiler  Compiles the query.
+     * @param <T>       Type of the results.
+     * @return          Result of the task.
+     * @throws RuntimeException The task threw an exception, i.e. the query is an invalid regular expression.
+     */
+    private static <T> T get(Map<SearchQuery, FutureTask<T>> cache, SearchQuery query, Callable<T> compiler) {
+        FutureTask<T> task;
+        boolean created = false;
+        synchronized (cache) {
+            task = cache.get(query);
+            if (task == null) {
+                task = new FutureTask<T>(compiler);
+                cache.put(query, task);
+                created = true;
+            }
+        }
+        if (created) {
+            task.run();
+        }
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                }
+                catch (InterruptedException e) {
+                    //Compiling takes only a moment, the interrupt is restored afterwards:
+                    interrupted = true;
+                }
+                catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException)e.getCause();
+                    }
+                    throw (Error)e.getCause();
+                }
+            }
+        }
+        finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+
+    /**
+     * Compiles the pattern for the passed query. Literals are quoted, and whole words are matched through lookarounds,
+     * so that words that begin or end with non-word characters are matched as well. Multiple terms are matched
+     * through an alternation of the quoted terms, with longer terms first, so that the pattern finds the same matches
+     * as a {@linkplain MultiPatternMatcher}.
+     *
+     * @param query Query whose pattern shall be compiled.
+     * @return      Compiled pattern.
+     */
+    private static Pattern compile(SearchQuery query) {
+        String regex;
+        if (query.isMultiTerm()) {
+            ArrayList<String> terms = query.getTerms();
+            terms.sort(Comparator.comparingInt(String::length).reversed());
+            StringBuilder alternation = new StringBuilder();
+            for (String term : terms) {
+                if (alternation.length() > 0) {
+                    alternation.append('|');
+                }
+                alternation.append(Pattern.quote(term));
+            }
+            regex = alternation.toString();
+        }
+        else {
+            regex = query.isRegex() ? query.getPattern() : Pattern.quote(query.getPattern());
+        }
+        if (query.isWholeWord()) {
+            regex = "(?<![\\p{L}\\p{N}_])(?:" + regex + ")(?![\\p{L}\\p{N}_])";
+        }
+        int flags = Pattern.MULTILINE;
+        if (!query.isCaseSensitive()) {
+            flags |= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+        }
+        return Pattern.compile(regex, flags);
+    }
+
+}
@@ -0,0 +1,1935 @@
+package backend.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+
+/**
+ * This class matches regular expressions in time that is linear in the length of the searched text, regardless of
+ * the shape of the expression. The expression is compiled into a Thompson NFA, whose states are combined into the
+ * states of a DFA while the text is searched. The DFA states are cached, so that most characters are matched through a
+ * single array lookup. The end of the leftmost match is found by a forward DFA, whose states are ordered like the
+ * threads of a backtracking matcher, so that the matches are exactly those of {@link java.util.regex.Matcher#find()}.
+ * The beginning of the match is found afterwards by a DFA for the reversed expression, which scans backwards from the
+ * end of the match.
+ * <p>
+ * Only the constructs that can be matched without backtracking are supported: literals, character classes (without
+ * intersections and nested classes), {@code .}, the escapes {@code \d \D \s \S \w \W}, groups, alternations, greedy
+ * and lazy quantifiers, and the anchors {@code ^} and {@code $}. Whole words are supported as well. Expressions
+ * containing other constructs (i.e. backreferences or lookarounds) cannot be compiled and must be matched by
+ * {@link java.util.regex}.
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public class RegexAutomaton {
+
+    /**
+     * Stores the maximum number of NFA nodes of an expression, which limits the size of bounded repetitions.
+     */
+    private static final int MAX_NODES = 10000;
+
+    /**
+     * Stores the maximum number of distinct character sets of an expression.
+     */
+    private static final int MAX_SETS = 256;
+
+    /**
+     * Stores the maximum count of a bounded repetition.
+     */
+    private static final int MAX_REPETITIONS = 1000;
+
+    /**
+     * Stores the maximum number of cached transitions per DFA. Once the cache is full, it is cleared.
+     */
+    private static final int CACHE_ENTRIES = 1 << 18;
+
+    /**
+     * Stores the number of characters of the Basic Multilingual Plane.
+     */
+    private static final int BMP_SIZE = 0x10000;
+
+
+    /**
+     * Categories of the characters around a position, which are required to test anchors and word boundaries.
+     */
+    private static final int EDGE = 0, LINE_FEED = 1, CARRIAGE_RETURN = 2, LINE_SEPARATOR = 3, WORD = 4, OTHER = 5;
+
+    /**
+     * Stores the number of categories.
+     */
+    private static final int CATEGORIES = 6;
+
+    /**
+     * Kinds of zero-width assertions.
+     */
+    private static final int BEGIN_LINE = 0, END_LINE = 1, NOT_WORD_BEFORE = 2, NOT_WORD_AFTER = 3;
+
+    /**
+     * Operations of the NFA nodes.
+     */
+    private static final int CONSUME = 0, SPLIT = 1, ASSERT = 2, MATCH = 3;
+
+
+    /**
+     * This exception is thrown while an expression is parsed, if it contains a construct that is not supported.
+     */
+    private static class UnsupportedException extends RuntimeException {
+
+        /**
+         * Constructs a new UnsupportedException without stack trace.
+         */
+        private UnsupportedException() {
+            super(null, null, false, false);
+        }
+
+    }
+
+
+    /**
+     * This class implements an immutable set of characters, which is stored as sorted ranges, so that sets can be
+     * combined and partitioned in time that depends on the number of ranges instead of the number of characters. Sets
+     * that match supplementary characters contain both virtual characters behind the Basic Multilingual Plane.
+     */
+    private static class CharSet {
+
+        /**
+         * Stores the number of characters of which sets consist, which are the characters of the Basic Multilingual
+         * Plane and two virtual supplementary characters.
+         */
+        private static final int UNIVERSE = BMP_SIZE + 2;
+
+        /**
+         * Stores the set of all characters.
+         */
+        private static final CharSet ALL = new CharSet(new int[] {0, UNIVERSE});
+
+        /**
+         * Stores the set of the virtual supplementary characters.
+         */
+        private static final CharSet SUPPLEMENTARY = new CharSet(new int[] {BMP_SIZE, UNIVERSE});
+
+
+        /**
+         * Stores the bounds of the ranges in ascending order. Every range begins at an even index and ends before
+         * the bound at the following index.
+         */
+        private final int[] bounds;
+
+
+        /**
+         * Constructs a new CharSet from the passed bounds, which MUST be ascending and MUST not contain a bound twice.
+         *
+         * @param bounds    Bounds of the ranges.
+         */
+        private CharSet(int[] bounds) {
+            this.bounds = bounds;
+        }
+
+
+        /**
+         * Returns the set of the passed characters.
+         *
+         * @param characters    Characters of the set, in any order.
+         * @return              Set of the characters.
+         */
+        private static CharSet of(int... characters) {
+            long[] ranges = new long[characters.length];
+            for (int i = 0; i < characters.length; i++) {
+                ranges[i] = (long)characters[i] << 32 | (characters[i] + 1);
+            }
+            return normalize(ranges, ranges.length);
+        }
+
+        /**
+         * Returns the set of all characters from the passed first up to the passed last character.
+         *
+         * @param first First character of the set.
+         * @param last  Last character of the set.
+         * @return      Set of the characters.
+         */
+        private static CharSet range(int first, int last) {
+            return new CharSet(new int[] {first, last + 1});
+        }
+
+        /**
+         * Returns the union of the passed sets.
+         *
+         * @param sets  Sets to be combined.
+         * @return      Union of the sets.
+         */
+        private static CharSet union(List<CharSet> sets) {
+            int count = 0;
+            for (CharSet set : sets) {
+                count += set.bounds.length / 2;
+            }
+            long[] ranges = new long[count];
+            count = 0;
+            for (CharSet set : sets) {
+                for (int i = 0; i < set.bounds.length; i += 2) {
+                    ranges[count++] = (long)set.bounds[i] << 32 | set.bounds[i + 1];
+                }
+            }
+            return normalize(ranges, count);
+        }
+
+        /**
+         * Returns the set of the passed ranges, which may overlap.
+         *
+         * @param ranges    Ranges, each of which stores its beginning in the upper and its end in the lower 32 bits.
+         * @param count     Number of ranges.
+         * @return          Set of the ranges.
+         */
+        private static CharSet normalize(long[] ranges, int count) {
+            Arrays.sort(ranges, 0, count);
+            int[] bounds = new int[count * 2];
+            int length = 0;
+            for (int i = 0; i < count; i++) {
+                int start = (int)(ranges[i] >>> 32);
+                int end = (int)ranges[i];
+                if (length > 0 && start <= bounds[length - 1]) {
+                    //Range overlaps or touches the previous range:
+                    bounds[length - 1] = Math.max(bounds[length - 1], end);
+                }
+                else {
+                    bounds[length++] = start;
+                    bounds[length++] = end;
+                }
+            }
+            return new CharSet(Arrays.copyOf(bounds, length));
+        }
+
+
+        /**
+         * Returns the set of all characters that are not contained in this set.
+         *
+         * @return  Complement of the set.
+         */
+        private CharSet negate() {
+            int[] complement = new int[bounds.length + 2];
+            complement[0] = 0;
+            System.arraycopy(bounds, 0, complement, 1, bounds.length);
+            complement[complement.length - 1] = UNIVERSE;
+            //Remove empty ranges at the edges:
+            int from = complement[0] == complement[1] ? 2 : 0;
+            int to = complement[complement.length - 2] == complement[complement.length - 1] ? complement.length - 2 : complement.length;
+            return new CharSet(Arrays.copyOfRange(complement, from, to));
+        }
+
+        /**
+         * Tests for the first character of every passed interval whether it is contained in this set.
+         *
+         * @param starts    Ascending beginnings of the intervals.
+         * @param count     Number of intervals.
+         * @return          Whether the first character of every interval is contained.
+         */
+        private boolean[] containsStarts(int[] starts, int count) {
+            boolean[] contained = new boolean[count];
+            int bound = 0;
+            for (int i = 0; i < count; i++) {
+                while (bound < bounds.length && bounds[bound] <= starts[i]) {
+                    bound++;
+                }
+                contained[i] = (bound & 1) == 1;
+            }
+            return contained;
+        }
+
+    }
+
+
+    /**
+     * This class stores properties of the characters of the Basic Multilingual Plane, which are computed once when
+     * the first expression is compiled, so that expressions can be compiled without testing every character.
+     */
+    private static class CharacterTables {
+
+        /**
+         * Stores the characters which are changed by a case conversion, in ascending order.
+         */
+        private static final int[] CASED;
+
+        /**
+         * Stores the characters which are changed by {@link #fold(int)}, ordered by their folded characters. Every
+         * element stores the folded character in the upper and the character in the lower 32 bits.
+         */
+        private static final long[] FOLDED;
+
+        /**
+         * Stores the characters that belong to a word, including the virtual supplementary character that represents
+         * supplementary letters and numbers.
+         */
+        private static final CharSet WORD;
+
+        static {
+            int[] cased = new int[BMP_SIZE];
+            int casedCount = 0;
+            long[] folded = new long[BMP_SIZE];
+            int foldedCount = 0;
+            long[] words = new long[BMP_SIZE + 1];
+            int wordCount = 0;
+            for (int c = 0; c < BMP_SIZE; c++) {
+                if (Character.toUpperCase(c) != c || fold(c) != c) {
+                    cased[casedCount++] = c;
+                }
+                if (fold(c) != c) {
+                    folded[foldedCount++] = (long)fold(c) << 32 | c;
+                }
+                if (isWordCharacter(c)) {
+                    words[wordCount++] = (long)c << 32 | (c + 1);
+                }
+            }
+            words[wordCount++] = (long)BMP_SIZE << 32 | (BMP_SIZE + 1);
+            CASED = Arrays.copyOf(cased, casedCount);
+            FOLDED = Arrays.copyOf(folded, foldedCount);
+            Arrays.sort(FOLDED);
+            WORD = CharSet.normalize(words, wordCount);
+        }
+
+    }
+
+
+    /**
+     * This class implements a node of the syntax tree of an expression.
+     */
+    private static class Node {
+
+        /**
+         * Types of nodes.
+         */
+        private static final int SET = 0, ASSERTION = 1, CONCATENATION = 2, ALTERNATION = 3, REPETITION = 4;
+
+        /**
+         * Stores the type of the node.
+         */
+        private final int type;
+
+        /**
+         * Stores the character set of a {@link #SET} or the kind of an {@link #ASSERTION}.
+         */
+        private final int value;
+
+        /**
+         * Stores the children of the node.
+         */
+        private final Node[] children;
+
+        /**
+         * Stores the minimum and maximum count of a {@link #REPETITION}. A maximum of {@code -1} is unbounded.
+         */
+        private final int min, max;
+
+        /**
+         * Stores whether a {@link #REPETITION} is greedy.
+         */
+        private final boolean greedy;
+
+
+        /**
+         * Constructs a new Node.
+         *
+         * @param type      Type of the node.
+         * @param value     Character set or kind of assertion.
+         * @param children  Children of the node.
+         * @param min       Minimum count of a repetition.
+         * @param max       Maximum count of a repetition.
+         * @param greedy    Whether a repetition is greedy.
+         */
+        private Node(int type, int value, Node[] children, int min, int max, boolean greedy) {
+            this.type = type;
+            this.value = value;
+            this.children = children;
+            this.min = min;
+            this.max = max;
+            this.greedy = greedy;
+        }
+
+
+        /**
+         * Tests whether the node can match the empty String.
+         *
+         * @return  Whether the node can match the empty String.
+         */
+        private boolean isNullable() {
+            switch (type) {
+                case SET:
+                    return false;
+                case ASSERTION:
+                    return true;
+                case CONCATENATION:
+                    for (Node child : children) {
+                        if (!child.isNullable()) {
+                            return false;
+                        }
+                    }
+                    return true;
+                case ALTERNATION:
+                    for (Node child : children) {
+                        if (child.isNullable()) {
+                            return true;
+                        }
+                    }
+                    return false;
+                default:
+                    return min == 0 || children[0].isNullable();
+            }
+        }
+
+    }
+
+
+    /**
+     * This class parses expressions into syntax trees. The syntax is parsed in the same way as by
+     * {@link java.util.regex.Pattern}, so that the matches are identical. The expression must be valid.
+     */
+    private static class Parser {
+
+        /**
+         * Stores whether the expression is case insensitive.
+         */
+        private final boolean caseInsensitive;
+
+        /**
+         * Stores the distinct character sets of the expression.
+         */
+        private final ArrayList<CharSet> sets;
+
+        /**
+         * Maps descriptions of character sets to their indices within the {@link #sets}.
+         */
+        private final HashMap<String, Integer> setIndices;
+
+        /**
+         * Stores whether the expression contains line anchors.
+         */
+        private boolean lineAnchors;
+
+        /**
+         * Stores whether the expression contains word assertions.
+         */
+        private boolean wordAssertions;
+
+        /**
+         * Stores the expression that is parsed.
+         */
+        private String pattern;
+
+        /**
+         * Stores the index of the next character of the {@link #pattern}.
+         */
+        private int position;
+
+
+        /**
+         * Constructs a new Parser.
+         *
+         * @param caseInsensitive   Whether expressions are case insensitive.
+         */
+        private Parser(boolean caseInsensitive) {
+            this.caseInsensitive = caseInsensitive;
+            sets = new ArrayList<CharSet>();
+            setIndices = new HashMap<String, Integer>();
+        }
+
+
+        /**
+         * Parses the passed regular expression.
+         *
+         * @param regex                 Regular expression to be parsed.
+         * @return                      Syntax tree of the expression.
+         * @throws UnsupportedException The expression contains a construct that is not supported.
+         */
+        private Node parseRegex(String regex) {
+            pattern = regex;
+            position = 0;
+            Node root = parseAlternation();
+            if (position != pattern.length()) {
+                throw new UnsupportedException();
+            }
+            return root;
+        }
+
+        /**
+         * Parses the passed literal, which is matched in the same way as a quoted regular expression.
+         *
+         * @param literal               Literal to be parsed.
+         * @return                      Syntax tree of the literal.
+         * @throws UnsupportedException The literal contains supplementary characters.
+         */
+        private Node parseLiteral(String literal) {
+            for (int i = 0; i < literal.length(); i++) {
+                if (Character.isSurrogate(literal.charAt(i))) {
+                    throw new UnsupportedException();
+                }
+            }
+            return run(literal);
+        }
+
+        /**
+         * Parses an alternation of concatenations.
+         *
+         * @return  Syntax tree of the alternation.
+         */
+        private Node parseAlternation() {
+            ArrayList<Node> alternatives = new ArrayList<Node>();
+            alternatives.add(parseConcatenation());
+            while (position < pattern.length() && pattern.charAt(position) == '|') {
+                position++;
+                alternatives.add(parseConcatenation());
+            }
+            if (alternatives.size() == 1) {
+                return alternatives.get(0);
+            }
+            return new Node(Node.ALTERNATION, 0, alternatives.toArray(new Node[0]), 0, 0, false);
+        }
+
+        /**
+         * Parses a concatenation of quantified atoms. Consecutive literal characters are parsed as a single run, just
+         * like through {@link java.util.regex.Pattern}: If the run is followed by a quantifier, the last character is
+         * separated from the run, so that only this character is quantified.
+         *
+         * @return  Syntax tree of the concatenation.
+         */
+        private Node parseConcatenation() {
+            ArrayList<Node> atoms = new ArrayList<Node>();
+            while (position < pattern.length() && pattern.charAt(position) != '|' && pattern.charAt(position) != ')') {
+                StringBuilder run = new StringBuilder();
+                int lastStart = position;
+                while (position < pattern.length()) {
+                    int start = position;
+                    int c = parseLiteralCharacter();
+                    if (c < 0) {
+                        break;
+                    }
+                    run.append((char)c);
+                    lastStart = start;
+                }
+                Node atom;
+                if (run.length() > 0) {
+                    if (run.length() > 1 && position < pattern.length() && isQuantifier(pattern.charAt(position))) {
+                        //Unwind the last character, which is quantified:
+                        position = lastStart;
+                        run.setLength(run.length() - 1);
+                    }
+                    atom = run(run.toString());
+                }
+                else {
+                    atom = parseAtom();
+                }
+                atoms.add(parseQuantifier(atom));
+            }
+            if (atoms.size() == 1) {
+                return atoms.get(0);
+            }
+            return new Node(Node.CONCATENATION, 0, atoms.toArray(new Node[0]), 0, 0, false);
+        }
+
+        /**
+         * Parses an atom that is no literal character, i.e. a group or a character class.
+         *
+         * @return                      Syntax tree of the atom.
+         * @throws UnsupportedException The atom is not supported.
+         */
+        private Node parseAtom() {
+            char c = pattern.charAt(position++);
+            switch (c) {
+                case '(':
+                    return parseGroup();
+                case '[':
+                    return parseClass();
+                case '.':
+                    return set(".", CharSet.of('\n', '\r', '\u0085', '\u2028', '\u2029').negate());
+                case '^':
+                    lineAnchors = true;
+                    return new Node(Node.ASSERTION, BEGIN_LINE, null, 0, 0, false);
+                case '$':
+                    lineAnchors = true;
+                    return new Node(Node.ASSERTION, END_LINE, null, 0, 0, false);
+                case '\\':
+                    if (position < pattern.length()) {
+                        CharSet escape = getClassEscape(pattern.charAt(position));
+                        if (escape != null) {
+                            return set("\\" + pattern.charAt(position++), escape);
+                        }
+                    }
+                    throw new UnsupportedException();
+                default:
+                    throw new UnsupportedException();
+            }
+        }
+
+        /**
+         * Parses a group, whose opening parenthesis has already been parsed. Capturing groups, named groups and
+         * non-capturing groups are supported.
+         *
+         * @return                      Syntax tree of the group.
+         * @throws UnsupportedException The group is no supported group, i.e. a lookaround.
+         */
+        private Node parseGroup() {
+            if (pattern.startsWith("?:", position)) {
+                position += 2;
+            }
+            else if (pattern.startsWith("?<", position) && position + 2 < pattern.length() && Character.isLetter(pattern.charAt(position + 2))) {
+                //Named group:
+                int end = pattern.indexOf('>', position);
+                if (end < 0) {
+                    throw new UnsupportedException();
+                }
+                position = end + 1;
+            }
+            else if (pattern.startsWith("?", position)) {
+                throw new UnsupportedException();
+            }
+            Node group = parseAlternation();
+            if (position >= pattern.length() || pattern.charAt(position) != ')') {
+                throw new UnsupportedException();
+            }
+            position++;
+            return group;
+        }
+
+        /**
+         * Parses a character class, whose opening bracket has already been parsed. Ranges and escapes are supported,
+         * but intersections and nested classes are not.
+         *
+         * @return                      Syntax tree of the character class.
+         * @throws UnsupportedException The class contains constructs that are not supported.
+         */
+        private Node parseClass() {
+            int start = position;
+            boolean negated = position < pattern.length() && pattern.charAt(position) == '^';
+            if (negated) {
+                position++;
+            }
+            ArrayList<CharSet> items = new ArrayList<CharSet>();
+            if (position < pattern.length() && pattern.charAt(position) == ']') {
+                throw new UnsupportedException();
+            }
+            while (true) {
+                if (position >= pattern.length()) {
+                    throw new UnsupportedException();
+                }
+                char c = pattern.charAt(position);
+                if (c == ']') {
+                    position++;
+                    break;
+                }
+                if (c == '[' || c == '&') {
+                    throw new UnsupportedException();
+                }
+                if (c == '\\' && position + 1 < pattern.length() && getClassEscape(pattern.charAt(position + 1)) != null) {
+                    items.add(getClassEscape(pattern.charAt(position + 1)));
+                    position += 2;
+                    if (isRangeOperator()) {
+                        throw new UnsupportedException();
+                    }
+                    continue;
+                }
+                int first = parseClassCharacter();
+                if (isRangeOperator()) {
+                    position++;
+                    int last = parseClassCharacter();
+                    if (last < first) {
+                        throw new UnsupportedException();
+                    }
+                    items.add(range(first, last));
+                }
+                else {
+                    items.add(classCharacter(first));
+                }
+            }
+            CharSet union = CharSet.union(items);
+            return set("[" + pattern.substring(start, position), negated ? union.negate() : union);
+        }
+
+        /**
+         * Parses a quantifier that follows the passed atom, if there is any.
+         *
+         * @param atom                  Atom that is quantified.
+         * @return                      Syntax tree of the quantified atom.
+         * @throws UnsupportedException The quantifier is possessive, or it repeats an atom that can match the empty
+         *                              String.
+         */
+        private Node parseQuantifier(Node atom) {
+            if (position >= pattern.length() || !isQuantifier(pattern.charAt(position))) {
+                return atom;
+            }
+            int min;
+            int max;
+            char c = pattern.charAt(position++);
+            if (c == '*') {
+                min = 0;
+                max = -1;
+            }
+            else if (c == '+') {
+                min = 1;
+                max = -1;
+            }
+            else if (c == '?') {
+                min = 0;
+                max = 1;
+            }
+            else {
+                int end = pattern.indexOf('}', position);
+                if (end < 0) {
+                    throw new UnsupportedException();
+                }
+                String[] bounds = pattern.substring(position, end).split(",", -1);
+                try {
+                    min = Integer.parseInt(bounds[0]);
+                    max = bounds.length == 1 ? min : bounds[1].isEmpty() ? -1 : Integer.parseInt(bounds[1]);
+                }
+                catch (NumberFormatException e) {
+                    throw new UnsupportedException();
+                }
+                if (bounds.length > 2 || min > MAX_REPETITIONS || max > MAX_REPETITIONS || (max >= 0 && max < min)) {
+                    throw new UnsupportedException();
+                }
+                position = end + 1;
+            }
+            boolean greedy = true;
+            if (position < pattern.length() && pattern.charAt(position) == '?') {
+                greedy = false;
+                position++;
+            }
+            if (position < pattern.length() && (pattern.charAt(position) == '+' || isQuantifier(pattern.charAt(position)))) {
+                //Possessive or repeated quantifier:
+                throw new UnsupportedException();
+            }
+            if (atom.type == Node.ASSERTION || ((max < 0 || max > 1) && atom.isNullable())) {
+                //Repeated empty matches are handled differently by backtracking:
+                throw new UnsupportedException();
+            }
+            if (min == 1 && max == 1) {
+                return atom;
+            }
+            return new Node(Node.REPETITION, 0, new Node[] {atom}, min, max, greedy);
+        }
+
+        /**
+         * Parses the literal character at the current position, which may be escaped. If there is no literal
+         * character at the current position, nothing is parsed.
+         *
+         * @return                      Literal character, or {@code -1} if there is no literal character.
+         * @throws UnsupportedException The character is an escape sequence that is not supported.
+         */
+        private int parseLiteralCharacter() {
+            char c = pattern.charAt(position);
+            switch (c) {
+                case '.': case '^': case '$': case '(': case ')': case '[': case '|':
+                case '*': case '+': case '?': case '{':
+                    return -1;
+                case '\\':
+                    if (position + 1 < pattern.length() && getClassEscape(pattern.charAt(position + 1)) != null) {
+                        return -1;
+                    }
+                    return parseEscapedCharacter();
+                default:
+                    if (Character.isSurrogate(c)) {
+                        throw new UnsupportedException();
+                    }
+                    position++;
+                    return c;
+            }
+        }
+
+        /**
+         * Parses a character within a character class, which may be escaped.
+         *
+         * @return                      Parsed character.
+         * @throws UnsupportedException The character is not supported.
+         */
+        private int parseClassCharacter() {
+            if (position >= pattern.length()) {
+                throw new UnsupportedException();
+            }
+            char c = pattern.charAt(position);
+            if (c == '\\') {
+                return parseEscapedCharacter();
+            }
+            if (c == '[' || c == '&' || Character.isSurrogate(c)) {
+                throw new UnsupportedException();
+            }
+            position++;
+            return c;
+        }
+
+        /**
+         * Parses the escape sequence of a literal character at the current position.
+         *
+         * @return                      Escaped character.
+         * @throws UnsupportedException The escape sequence is not supported.
+         */
+        private int parseEscapedCharacter() {
+            if (position + 1 >= pattern.length()) {
+                throw new UnsupportedException();
+            }
+            char c = pattern.charAt(position + 1);
+            position += 2;
+            switch (c) {
+                case 't':
+                    return '\t';
+                case 'n':
+                    return '\n';
+                case 'r':
+                    return '\r';
+                case 'f':
+                    return '\f';
+                case 'a':
+                    return '\u0007';
+                case 'e':
+                    return '\u001B';
+                case 'x':
+                    return parseHexadecimal(2);
+                case 'u':
+                    return parseHexadecimal(4);
+                default:
+                    if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || Character.isSurrogate(c)) {
+                        //Backreferences, boundaries, properties etc.:
+                        throw new UnsupportedException();
+                    }
+                    return c;
+            }
+        }
+
+        /**
+         * Parses the passed number of hexadecimal digits at the current position.
+         *
+         * @param digits                Number of digits.
+         * @return                      Parsed character.
+         * @throws UnsupportedException The digits are invalid or denote a surrogate.
+         */
+        private int parseHexadecimal(int digits) {
+            if (position + digits > pattern.length()) {
+                throw new UnsupportedException();
+            }
+            int c = 0;
+            for (int i = 0; i < digits; i++) {
+                int digit = Character.digit(pattern.charAt(position++), 16);
+                if (digit < 0) {
+                    throw new UnsupportedException();
+                }
+                c = c * 16 + digit;
+            }
+            if (Character.isSurrogate((char)c)) {
+                throw new UnsupportedException();
+            }
+            return c;
+        }
+
+        /**
+         * Tests whether the current position is a range operator within a character class, which is a hyphen that
+         * is not the last character of the class.
+         *
+         * @return  Whether the current position is a range operator.
+         */
+        private boolean isRangeOperator() {
+            return position + 1 < pattern.length() && pattern.charAt(position) == '-' && pattern.charAt(position + 1) != ']';
+        }
+
+
+        /**
+         * Returns the syntax tree of a run of literal characters. A single character is matched like
+         * {@code Pattern.single()}, longer runs are matched like slices, whose characters are case folded.
+         *
+         * @param run   Run of characters.
+         * @return      Syntax tree of the run.
+         */
+        private Node run(String run) {
+            if (run.length() == 1) {
+                return single(run.charAt(0));
+            }
+            Node[] characters = new Node[run.length()];
+            for (int i = 0; i < run.length(); i++) {
+                char c = run.charAt(i);
+                if (caseInsensitive) {
+                    int folded = fold(c);
+                    characters[i] = set("u" + folded, caseVariants(folded));
+                }
+                else {
+                    characters[i] = set("c" + (int)c, CharSet.of(c));
+                }
+            }
+            return new Node(Node.CONCATENATION, 0, characters, 0, 0, false);
+        }
+
+        /**
+         * Returns the syntax tree of a single literal character.
+         *
+         * @param c Literal character.
+         * @return  Syntax tree of the character.
+         */
+        private Node single(int c) {
+            if (caseInsensitive) {
+                int upper = Character.toUpperCase(c);
+                int lower = Character.toLowerCase(upper);
+                if (upper != lower) {
+                    return set("u" + lower, caseVariants(lower));
+                }
+            }
+            return set("c" + c, CharSet.of(c));
+        }
+
+        /**
+         * Returns the set of all characters that are folded into the passed character, including the character.
+         *
+         * @param folded    Folded character.
+         * @return          Set of the characters.
+         */
+        private static CharSet caseVariants(int folded) {
+            long key = (long)folded << 32;
+            int index = Arrays.binarySearch(CharacterTables.FOLDED, key);
+            index = index < 0 ? -index - 1 : index;
+            ArrayList<Integer> variants = new ArrayList<Integer>();
+            variants.add(folded);
+            while (index < CharacterTables.FOLDED.length && (CharacterTables.FOLDED[index] >>> 32) == folded) {
+                variants.add((int)CharacterTables.FOLDED[index++]);
+            }
+            return CharSet.of(variants.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        /**
+         * Returns the set of a single character within a class. Characters below 256 are matched
+         * like the bit classes of {@link java.util.regex.Pattern}, except for those whose case variants are located
+         * outside this range.
+         *
+         * @param c Character within the class.
+         * @return  Set of the character.
+         */
+        private CharSet classCharacter(int c) {
+            boolean special = c == 0xff || c == 0xb5 || c == 0x49 || c == 0x69 || c == 0x53 || c == 0x73 || c == 0x4b || c == 0x6b || c == 0xc5 || c == 0xe5;
+            if (c < 256 && !(caseInsensitive && special)) {
+                if (!caseInsensitive) {
+                    return CharSet.of(c);
+                }
+                int lower = c < 128 ? (c >= 'A' && c <= 'Z' ? c + 32 : c) : Character.toLowerCase(c);
+                int upper = c < 128 ? (c >= 'a' && c <= 'z' ? c - 32 : c) : Character.toUpperCase(c);
+                return CharSet.of(c, lower, upper);
+            }
+            return sets.get(single(c).value);
+        }
+
+        /**
+         * Returns the set of a range within a character class. If the class is case insensitive, the set contains
+         * all characters whose upper or folded case is located within the range. Characters that are not changed by
+         * a case conversion only belong to the set if they are located within the range.
+         *
+         * @param first First character of the range.
+         * @param last  Last character of the range.
+         * @return      Set of the range.
+         */
+        private CharSet range(int first, int last) {
+            if (!caseInsensitive) {
+                return CharSet.range(first, last);
+            }
+            ArrayList<CharSet> variants = new ArrayList<CharSet>();
+            variants.add(CharSet.range(first, last));
+            for (int cp : CharacterTables.CASED) {
+                int upper = Character.toUpperCase(cp);
+                int lower = Character.toLowerCase(upper);
+                if ((upper >= first && upper <= last) || (lower >= first && lower <= last)) {
+                    variants.add(CharSet.of(cp));
+                }
+            }
+            return CharSet.union(variants);
+        }
+
+        /**
+         * Returns a node that matches the passed character set. Sets with the same description share their index.
+         *
+         * @param description           Description of the set, which is unique for all sets with the same
+         *                              characters.
+         * @param characters            Characters of the set.
+         * @return                      Node matching the set.
+         * @throws UnsupportedException The expression contains too many sets.
+         */
+        private Node set(String description, CharSet characters) {
+            Integer index = setIndices.get(description);
+            if (index == null) {
+                if (sets.size() >= MAX_SETS) {
+                    throw new UnsupportedException();
+                }
+                index = sets.size();
+                sets.add(characters);
+                setIndices.put(description, index);
+            }
+            return new Node(Node.SET, index, null, 0, 0, false);
+        }
+
+
+        /**
+         * Returns the set of the passed class escape, i.e. {@code 'd'} for {@code \d}.
+         *
+         * @param c Character following the backslash.
+         * @return  Set of the escape, or {@code null} if the character does not denote a class escape.
+         */
+        private static CharSet getClassEscape(char c) {
+            CharSet digit = CharSet.range('0', '9');
+            CharSet space = CharSet.union(List.of(CharSet.of(' '), CharSet.range('\t', '\r')));
+            CharSet word = CharSet.union(List.of(CharSet.range('a', 'z'), CharSet.range('A', 'Z'), digit, CharSet.of('_')));
+            switch (c) {
+                case 'd':
+                    return digit;
+                case 'D':
+                    return digit.negate();
+                case 's':
+                    return space;
+                case 'S':
+                    return space.negate();
+                case 'w':
+                    return word;
+                case 'W':
+                    return word.negate();
+                default:
+                    return null;
+            }
+        }
+
+        /**
+         * Tests whether the passed character begins a quantifier.
+         *
+         * @param c Character to be tested.
+         * @return  Whether the character begins a quantifier.
+         */
+        private static boolean isQuantifier(char c) {
+            return c == '*' || c == '+' || c == '?' || c == '{';
+        }
+
+    }
+
+
+    /**
+     * This class implements a Thompson NFA, whose nodes are stored within arrays.
+     */
+    private static class Program {
+
+        /**
+         * Stores the operations of the nodes.
+         */
+        private int[] operations;
+
+        /**
+         * Stores the preferred successors of the nodes.
+         */
+        private int[] successors;
+
+        /**
+         * Stores the alternative successors of {@link #SPLIT} nodes.
+         */
+        private int[] alternatives;
+
+        /**
+         * Stores the character sets of {@link #CONSUME} nodes and the kinds of {@link #ASSERT} nodes.
+         */
+        private int[] arguments;
+
+        /**
+         * Stores the number of nodes.
+         */
+        private int size;
+
+        /**
+         * Stores the first node.
+         */
+        private int start;
+
+
+        /**
+         * Constructs a new empty Program.
+         */
+        private Program() {
+            operations = new int[64];
+            successors = new int[64];
+            alternatives = new int[64];
+            arguments = new int[64];
+        }
+
+
+        /**
+         * Adds a node.
+         *
+         * @param operation             Operation of the node.
+         * @param successor             Preferred successor.
+         * @param alternative           Alternative successor.
+         * @param argument              Character set or kind of assertion.
+         * @return                      Index of the node.
+         * @throws UnsupportedException The program is too large.
+         */
+        private int add(int operation, int successor, int alternative, int argument) {
+            if (size >= MAX_NODES) {
+                throw new UnsupportedException();
+            }
+            if (size == operations.length) {
+                operations = Arrays.copyOf(operations, size * 2);
+                successors = Arrays.copyOf(successors, size * 2);
+                alternatives = Arrays.copyOf(alternatives, size * 2);
+                arguments = Arrays.copyOf(arguments, size * 2);
+            }
+            operations[size] = operation;
+            successors[size] = successor;
+            alternatives[size] = alternative;
+            arguments[size] = argument;
+            return size++;
+        }
+
+        /**
+         * Adds the nodes of the passed syntax tree, which are followed by the passed node.
+         *
+         * @param node      Syntax tree to be added.
+         * @param next      Node following the syntax tree.
+         * @param reverse   Whether the tree is added in reverse, so that it matches the reversed text.
+         * @return          First node of the syntax tree.
+         */
+        private int emit(Node node, int next, boolean reverse) {
+            switch (node.type) {
+                case Node.SET:
+                    return add(CONSUME, next, -1, node.value);
+                case Node.ASSERTION:
+                    return add(ASSERT, next, -1, node.value);
+                case Node.CONCATENATION:
+                    for (int i = 0; i < node.children.length; i++) {
+                        next = emit(node.children[reverse ? i : node.children.length - 1 - i], next, reverse);
+                    }
+                    return next;
+                case Node.ALTERNATION:
+                    int first = emit(node.children[node.children.length - 1], next, reverse);
+                    for (int i = node.children.length - 2; i >= 0; i--) {
+                        first = add(SPLIT, emit(node.children[i], next, reverse), first, 0);
+                    }
+                    return first;
+                default:
+                    Node child = node.children[0];
+                    if (node.max < 0) {
+                        //Unbounded loop:
+                        int loop = add(SPLIT, -1, -1, 0);
+                        int body = emit(child, loop, reverse);
+                        successors[loop] = node.greedy ? body : next;
+                        alternatives[loop] = node.greedy ? next : body;
+                        next = loop;
+                    }
+                    else {
+                        //Optional copies are nested like (x(x)?)?, each of which is skipped to behind the repetition:
+                        int exit = next;
+                        for (int i = node.min; i < node.max; i++) {
+                            int body = emit(child, next, reverse);
+                            next = node.greedy ? add(SPLIT, body, exit, 0) : add(SPLIT, exit, body, 0);
+                        }
+                    }
+                    for (int i = 0; i < node.min; i++) {
+                        next = emit(child, next, reverse);
+                    }
+                    return next;
+            }
+        }
+
+    }
+
+
+    /**
+     * This class implements a state of a DFA, which is an ordered set of NFA nodes that are reached after a
+     * character was consumed, together with the category of that character.
+     */
+    private static class State {
+
+        /**
+         * Stores the NFA nodes in the order of their priority.
+         */
+        private final int[] nodes;
+
+        /**
+         * Stores the category of the consumed character.
+         */
+        private final int category;
+
+        /**
+         * Stores the hash code of the state.
+         */
+        private final int hash;
+
+        /**
+         * Stores the cached successors for every character class.
+         */
+        private final State[] next;
+
+        /**
+         * Stores for every character class whether a match ends before a character of the class is consumed.
+         */
+        private final boolean[] matchBefore;
+
+        /**
+         * Stores for every category whether a match ends at the edge of the searched range, if the category describes
+         * the character behind the edge: {@code 0} if unknown, {@code 1} if not, and {@code 2} if so.
+         */
+        private final byte[] matchAtEdge;
+
+
+        /**
+         * Constructs a new State.
+         *
+         * @param nodes         NFA nodes in the order of their priority.
+         * @param category      Category of the consumed character.
+         * @param classCount    Number of character classes.
+         */
+        private State(int[] nodes, int category, int classCount) {
+            this.nodes = nodes;
+            this.category = category;
+            hash = Arrays.hashCode(nodes) * 31 + category;
+            next = new State[classCount];
+            matchBefore = new boolean[classCount];
+            matchAtEdge = new byte[CATEGORIES];
+        }
+
+
+        /**
+         * Tests whether no NFA node is reached, so that no match can be found anymore.
+         *
+         * @return  Whether the state is dead.
+         */
+        private boolean isDead() {
+            return nodes.length == 0;
+        }
+
+        /**
+         * Tests whether the passed object is a state with the same nodes and category.
+         *
+         * @param obj   Object to be compared.
+         * @return      Whether the object equals this state.
+         */
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof State)) {
+                return false;
+            }
+            State other = (State)obj;
+            return category == other.category && Arrays.equals(nodes, other.nodes);
+        }
+
+        /**
+         * Returns the hash code of the state.
+         *
+         * @return  Hash code.
+         */
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+    }
+
+
+    /**
+     * This class implements a DFA, whose states and transitions are created lazily from a {@linkplain Program}. A
+     * forward DFA keeps the NFA nodes of every state in the order of their priority and discards all nodes with
+     * a lower priority than a match, so that the end of the leftmost match is found like by a backtracking matcher.
+     * A reverse DFA keeps all nodes, so that the longest match is found. A DFA is used by a single thread at a time.
+     */
+    private class Dfa {
+
+        /**
+         * Stores the program whose states are combined.
+         */
+        private final Program program;
+
+        /**
+         * Stores whether the DFA scans backwards.
+         */
+        private final boolean reverse;
+
+        /**
+         * Stores the cached states.
+         */
+        private HashMap<State, State> states;
+
+        /**
+         * Stores the initial state for every category of the character before the first position.
+         */
+        private State[] initialStates;
+
+        /**
+         * Stores the maximum number of cached states.
+         */
+        private final int maxStates;
+
+        /**
+         * Stores marks for the NFA nodes, which are used to visit every node once.
+         */
+        private final int[] marks;
+
+        /**
+         * Stores the value of the {@link #marks} of nodes that are visited currently.
+         */
+        private int mark;
+
+        /**
+         * Stores the stack of nodes to be visited.
+         */
+        private final int[] stack;
+
+        /**
+         * Stores the consuming nodes that are reached from a state.
+         */
+        private final int[] reached;
+
+        /**
+         * Stores the nodes that are reached after a character was consumed.
+         */
+        private final int[] consumed;
+
+        /**
+         * Stores whether a match was reached by the last closure.
+         */
+        private boolean matched;
+
+
+        /**
+         * Constructs a new Dfa.
+         *
+         * @param program   Program whose states are combined.
+         * @param reverse   Whether the DFA scans backwards.
+         */
+        private Dfa(Program program, boolean reverse) {
+            this.program = program;
+            this.reverse = reverse;
+            maxStates = Math.max(16, CACHE_ENTRIES / classCount);
+            marks = new int[program.size];
+            stack = new int[program.size * 3 + 1];
+            reached = new int[program.size];
+            consumed = new int[program.size];
+            reset();
+        }
+
+
+        /**
+         * Returns the initial state.
+         *
+         * @param category  Category of the character before the first position, when seen in the direction of the
+         *                  scan.
+         * @return          Initial state.
+         */
+        private State getInitialState(int category) {
+            if (!contextual) {
+                category = EDGE;
+            }
+            if (initialStates[category] == null) {
+                initialStates[category] = intern(new int[] {program.start}, category);
+            }
+            return initialStates[category];
+        }
+
+        /**
+         * Computes the transition from the passed state for a character of the passed class, and caches it within
+         * the state.
+         *
+         * @param state         State from which the character is consumed.
+         * @param characterClass Class of the consumed character.
+         * @return              Next state.
+         */
+        private State transition(State state, int characterClass) {
+            int count = closure(state, reverse ? leftCategories[characterClass] : rightCategories[characterClass]);
+            boolean matchBefore = matched;
+            mark++;
+            int size = 0;
+            for (int i = 0; i < count; i++) {
+                int node = reached[i];
+                int successor = program.successors[node];
+                if (accepts[program.arguments[node]][characterClass] && marks[successor] != mark) {
+                    marks[successor] = mark;
+                    consumed[size++] = successor;
+                }
+            }
+            int[] nodes = Arrays.copyOf(consumed, size);
+            if (reverse) {
+                //The order is irrelevant, as the longest match is searched:
+                Arrays.sort(nodes);
+            }
+            State next = intern(nodes, reverse ? rightCategories[characterClass] : leftCategories[characterClass]);
+            state.next[characterClass] = next;
+            state.matchBefore[characterClass] = matchBefore;
+            return next;
+        }
+
+        /**
+         * Tests whether a match ends at the edge of the searched range after the passed state.
+         *
+         * @param state     State at the edge.
+         * @param category  Category of the character behind the edge, when seen in the direction of the scan.
+         * @return          Whether a match ends at the edge.
+         */
+        private boolean matchesAtEdge(State state, int category) {
+            if (state.matchAtEdge[category] == 0) {
+                closure(state, category);
+                state.matchAtEdge[category] = (byte)(matched ? 2 : 1);
+            }
+            return state.matchAtEdge[category] == 2;
+        }
+
+        /**
+         * Collects the consuming nodes that are reached from the nodes of the passed state without consuming a
+         * character, in the order of their priority. Assertions are tested with the category of the passed state and
+         * the passed category. Whether a match is reached is stored in {@link #matched}.
+         *
+         * @param state     State whose nodes are followed.
+         * @param category  Category of the next character, when seen in the direction of the scan.
+         * @return          Number of consuming nodes within {@link #reached}.
+         */
+        private int closure(State state, int category) {
+            int left = reverse ? category : state.category;
+            int right = reverse ? state.category : category;
+            mark++;
+            matched = false;
+            int count = 0;
+            int top = 0;
+            for (int i = state.nodes.length - 1; i >= 0; i--) {
+                stack[top++] = state.nodes[i];
+            }
+            while (top > 0) {
+                int node = stack[--top];
+                if (marks[node] == mark) {
+                    continue;
+                }
+                marks[node] = mark;
+                switch (program.operations[node]) {
+                    case CONSUME:
+                        reached[count++] = node;
+                        break;
+                    case SPLIT:
+                        stack[top++] = program.alternatives[node];
+                        stack[top++] = program.successors[node];
+                        break;
+                    case ASSERT:
+                        if (holds(program.arguments[node], left, right)) {
+                            stack[top++] = program.successors[node];
+                        }
+                        break;
+                    default:
+                        matched = true;
+                        if (!reverse) {
+                            //Nodes with lower priority than a match are never reached by backtracking:
+                            top = 0;
+                        }
+                        break;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Returns the cached state with the passed nodes and category. If the cache is full, it is cleared.
+         *
+         * @param nodes     NFA nodes of the state.
+         * @param category  Category of the consumed character.
+         * @return          Cached state.
+         */
+        private State intern(int[] nodes, int category) {
+            State state = new State(nodes, contextual ? category : EDGE, classCount);
+            State cached = states.get(state);
+            if (cached != null) {
+                return cached;
+            }
+            if (states.size() >= maxStates) {
+                reset();
+            }
+            states.put(state, state);
+            return state;
+        }
+
+        /**
+         * Clears all cached states.
+         */
+        private void reset() {
+            states = new HashMap<State, State>();
+            initialStates = new State[CATEGORIES];
+        }
+
+    }
+
+
+    /**
+     * Stores the number of character classes. All characters of a class are matched by the same sets and belong to
+     * the same category.
+     */
+    private final int classCount;
+
+    /**
+     * Stores the character class of every character of the Basic Multilingual Plane.
+     */
+    private final char[] classes;
+
+    /**
+     * Stores the class of supplementary characters that are letters or numbers.
+     */
+    private final int supplementaryWordClass;
+
+    /**
+     * Stores the class of all other supplementary characters.
+     */
+    private final int supplementaryOtherClass;
+
+    /**
+     * Stores the category of the characters of every class when the character is located before a position, which
+     * is the category of the last char of the character.
+     */
+    private final int[] leftCategories;
+
+    /**
+     * Stores the category of the characters of every class when the character is located behind a position.
+     */
+    private final int[] rightCategories;
+
+    /**
+     * Stores for every character set whether it accepts the characters of every class.
+     */
+    private final boolean[][] accepts;
+
+    /**
+     * Stores whether the expression contains line anchors.
+     */
+    private final boolean lineAnchors;
+
+    /**
+     * Stores whether the expression contains word assertions.
+     */
+    private final boolean wordAssertions;
+
+    /**
+     * Stores whether the expression contains any assertion, so that states depend on the category of the consumed
+     * character.
+     */
+    private final boolean contextual;
+
+    /**
+     * Stores the forward program.
+     */
+    private final Program forwardProgram;
+
+    /**
+     * Stores the reverse program.
+     */
+    private final Program reverseProgram;
+
+    /**
+     * Stores the forward DFAs which are currently not used. Every thread that searches concurrently uses its own
+     * DFA, whose cached states are kept for later searches.
+     */
+    private final ConcurrentLinkedQueue<Dfa> forwardDfas;
+
+    /**
+     * Stores the reverse DFAs which are currently not used.
+     */
+    private final ConcurrentLinkedQueue<Dfa> reverseDfas;
+
+
+    /**
+     * Constructs a new RegexAutomaton from a parsed expression.
+     *
+     * @param parser                Parser that parsed the expression.
+     * @param root                  Syntax tree of the expression.
+     * @throws UnsupportedException The expression is too large.
+     */
+    private RegexAutomaton(Parser parser, Node root) {
+        lineAnchors = parser.lineAnchors;
+        wordAssertions = parser.wordAssertions;
+        contextual = lineAnchors || wordAssertions;
+
+        //Forward program, which searches the expression at every position through a lazy loop:
+        forwardProgram = new Program();
+        int match = forwardProgram.add(MATCH, -1, -1, 0);
+        int expression = forwardProgram.emit(root, match, false);
+        int allSet = parser.set("all", CharSet.ALL).value;
+        int loop = forwardProgram.add(SPLIT, expression, -1, 0);
+        int any = forwardProgram.add(CONSUME, loop, -1, allSet);
+        forwardProgram.alternatives[loop] = any;
+        forwardProgram.start = loop;
+
+        //Reverse program, which is anchored at the end of a match:
+        reverseProgram = new Program();
+        reverseProgram.start = reverseProgram.emit(root, reverseProgram.add(MATCH, -1, -1, 0), true);
+
+        //Partition the characters into classes, which are distinguished by their categories and sets. The categories
+        //are distinguished through additional sets. Two virtual characters behind the Basic Multilingual Plane
+        //represent supplementary characters:
+        ArrayList<CharSet> distinctions = new ArrayList<CharSet>(parser.sets);
+        //Supplementary characters end with a low surrogate, so their left category differs from other words:
+        distinctions.add(CharSet.SUPPLEMENTARY);
+        if (lineAnchors) {
+            distinctions.add(CharSet.of('\n'));
+            distinctions.add(CharSet.of('\r'));
+            distinctions.add(CharSet.of('\u0085', '\u2028', '\u2029'));
+        }
+        if (wordAssertions) {
+            distinctions.add(CharacterTables.WORD);
+        }
+
+        //The bounds of all sets split the characters into intervals, whose characters belong to the same sets. Each
+        //set refines the partition of the intervals:
+        int boundCount = 2;
+        for (CharSet set : distinctions) {
+            boundCount += set.bounds.length;
+        }
+        int[] bounds = new int[boundCount];
+        boundCount = 0;
+        bounds[boundCount++] = 0;
+        bounds[boundCount++] = BMP_SIZE + 1;
+        for (CharSet set : distinctions) {
+            System.arraycopy(set.bounds, 0, bounds, boundCount, set.bounds.length);
+            boundCount += set.bounds.length;
+        }
+        Arrays.sort(bounds);
+        int intervals = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            if (bounds[i] < CharSet.UNIVERSE && (intervals == 0 || bounds[i] != bounds[intervals - 1])) {
+                bounds[intervals++] = bounds[i];
+            }
+        }
+        int[] partition = new int[intervals];
+        int count = 1;
+        for (CharSet set : distinctions) {
+            int[] refinement = new int[count * 2];
+            Arrays.fill(refinement, -1);
+            int refined = 0;
+            boolean[] contained = set.containsStarts(bounds, intervals);
+            for (int i = 0; i < intervals; i++) {
+                int key = partition[i] * 2 + (contained[i] ? 1 : 0);
+                if (refinement[key] < 0) {
+                    refinement[key] = refined++;
+                }
+                partition[i] = refinement[key];
+            }
+            count = refined;
+        }
+        if (count > Character.MAX_VALUE) {
+            throw new UnsupportedException();
+        }
+        classCount = count;
+        classes = new char[BMP_SIZE];
+        for (int i = 0; i < intervals && bounds[i] < BMP_SIZE; i++) {
+            Arrays.fill(classes, bounds[i], Math.min(BMP_SIZE, i + 1 < intervals ? bounds[i + 1] : BMP_SIZE), (char)partition[i]);
+        }
+        supplementaryWordClass = partition[Arrays.binarySearch(bounds, 0, intervals, BMP_SIZE)];
+        supplementaryOtherClass = partition[Arrays.binarySearch(bounds, 0, intervals, BMP_SIZE + 1)];
+        leftCategories = new int[classCount];
+        rightCategories = new int[classCount];
+        for (int i = 0; i < intervals; i++) {
+            leftCategories[partition[i]] = getLeftCategory(bounds[i]);
+            rightCategories[partition[i]] = getRightCategory(bounds[i]);
+        }
+        accepts = new boolean[parser.sets.size()][classCount];
+        for (int set = 0; set < parser.sets.size(); set++) {
+            boolean[] contained = parser.sets.get(set).containsStarts(bounds, intervals);
+            for (int i = 0; i < intervals; i++) {
+                accepts[set][partition[i]] = contained[i];
+            }
+        }
+
+        forwardDfas = new ConcurrentLinkedQueue<Dfa>();
+        reverseDfas = new ConcurrentLinkedQueue<Dfa>();
+    }
+
+
+    /**
+     * Compiles the passed query into an automaton. Literals are matched in the same way as quoted regular
+     * expressions, and multiple terms are matched like the alternation of {@linkplain PatternCache}.
+     *
+     * @param query Query to be compiled.
+     * @return      Compiled automaton, or {@code null} if the query contains constructs that are not supported.
+     */
+    public static RegexAutomaton compile(SearchQuery query) {
+        try {
+            Parser parser = new Parser(!query.isCaseSensitive());
+            Node root;
+            if (query.isMultiTerm()) {
+                ArrayList<String> terms = query.getTerms();
+                terms.sort(Comparator.comparingInt(String::length).reversed());
+                Node[] alternatives = new Node[terms.size()];
+                for (int i = 0; i < alternatives.length; i++) {
+                    alternatives[i] = parser.parseLiteral(terms.get(i));
+                }
+                root = new Node(Node.ALTERNATION, 0, alternatives, 0, 0, false);
+            }
+            else if (query.isRegex()) {
+                root = parser.parseRegex(query.getPattern());
+            }
+            else {
+                root = parser.parseLiteral(query.getPattern());
+            }
+            if (query.isWholeWord()) {
+                parser.wordAssertions = true;
+                Node before = new Node(Node.ASSERTION, NOT_WORD_BEFORE, null, 0, 0, false);
+                Node after = new Node(Node.ASSERTION, NOT_WORD_AFTER, null, 0, 0, false);
+                root = new Node(Node.CONCATENATION, 0, new Node[] {before, root, after}, 0, 0, false);
+            }
+            return new RegexAutomaton(parser, root);
+        }
+        catch (UnsupportedException e) {
+            return null;
+        }
+    }
+
+
+    /**
+     * Searches the passed range of the text and adds all non-empty matches to the passed result. The characters
+     * around the range are considered by anchors and word assertions, but matches do not exceed the range. This is
+     * equivalent to repeatedly calling {@link java.util.regex.Matcher#find()} with transparent and non-anchoring
+     * bounds.
+     *
+     * @param text      Text to be searched.
+     * @param from      Index of the first character to be searched.
+     * @param to        Index after the last character to be searched.
+     * @param result    Result to which the matches are added.
+     */
+    public void search(CharSequence text, int from, int to, SearchResult result) {
+        Dfa forward = forwardDfas.poll();
+        if (forward == null) {
+            forward = new Dfa(forwardProgram, false);
+        }
+        Dfa reverse = reverseDfas.poll();
+        if (reverse == null) {
+            reverse = new Dfa(reverseProgram, true);
+        }
+        try {
+            int position = from;
+            while (position <= to) {
+                int end = findEnd(forward, text, position, to);
+                if (end < 0) {
+                    return;
+                }
+                int start = findStart(reverse, text, end, position);
+                if (end > start) {
+                    result.add(start, end - start);
+                }
+                position = end == start ? end + 1 : end;
+            }
+        }
+        finally {
+            forwardDfas.add(forward);
+            reverseDfas.add(reverse);
+        }
+    }
+
+
+    /**
+     * Returns the end of the leftmost match that begins at or behind the passed position.
+     *
+     * @param dfa   Forward DFA.
+     * @param text  Text to be searched.
+     * @param from  Index at which the search begins.
+     * @param to    Index after the last character that may be matched.
+     * @return      End of the match, or {@code -1} if there is no match.
+     */
+    private int findEnd(Dfa dfa, CharSequence text, int from, int to) {
+        State state = dfa.getInitialState(from > 0 ? getLeftCategory(text.charAt(from - 1)) : EDGE);
+        int end = -1;
+        int i = from;
+        while (i < to) {
+            char c = text.charAt(i);
+            int characterClass;
+            int width = 1;
+            if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                if (i + 1 == to) {
+                    //Supplementary character exceeds the range:
+                    break;
+                }
+                characterClass = getSupplementaryClass(Character.toCodePoint(c, text.charAt(i + 1)));
+                width = 2;
+            }
+            else {
+                characterClass = classes[c];
+            }
+            State next = state.next[characterClass];
+            if (next == null) {
+                next = dfa.transition(state, characterClass);
+            }
+            if (state.matchBefore[characterClass]) {
+                end = i;
+            }
+            if (next.isDead()) {
+                return end;
+            }
+            state = next;
+            i += width;
+        }
+        if (dfa.matchesAtEdge(state, getRightCategoryAt(text, i))) {
+            end = i;
+        }
+        return end;
+    }
+
+    /**
+     * Returns the beginning of the leftmost match that ends at the passed position. This is the longest match of the
+     * reversed expression, scanning backwards from the end.
+     *
+     * @param dfa   Reverse DFA.
+     * @param text  Text to be searched.
+     * @param end   End of the match.
+     * @param from  Index of the first character that may be matched.
+     * @return      Beginning of the match.
+     */
+    private int findStart(Dfa dfa, CharSequence text, int end, int from) {
+        State state = dfa.getInitialState(getRightCategoryAt(text, end));
+        int start = end;
+        int i = end;
+        while (i > from) {
+            char c = text.charAt(i - 1);
+            int characterClass;
+            int width = 1;
+            if (Character.isLowSurrogate(c) && i - 2 >= from && Character.isHighSurrogate(text.charAt(i - 2))) {
+                characterClass = getSupplementaryClass(Character.toCodePoint(text.charAt(i - 2), c));
+                width = 2;
+            }
+            else {
+                characterClass = classes[c];
+            }
+            State next = state.next[characterClass];
+            if (next == null) {
+                next = dfa.transition(state, characterClass);
+            }
+            if (state.matchBefore[characterClass]) {
+                start = i;
+            }
+            if (next.isDead()) {
+                return start;
+            }
+            state = next;
+            i -= width;
+        }
+        if (dfa.matchesAtEdge(state, from > 0 ? getLeftCategory(text.charAt(from - 1)) : EDGE)) {
+            start = from;
+        }
+        return start;
+    }
+
+
+    /**
+     * Returns the class of the passed supplementary character.
+     *
+     * @param codePoint Supplementary character.
+     * @return          Class of the character.
+     */
+    private int getSupplementaryClass(int codePoint) {
+        return wordAssertions && isWordCharacter(codePoint) ? supplementaryWordClass : supplementaryOtherClass;
+    }
+
+    /**
+     * Returns the category of the character behind the passed position of the text.
+     *
+     * @param text      Text containing the character.
+     * @param position  Position before the character.
+     * @return          Category of the character.
+     */
+    private int getRightCategoryAt(CharSequence text, int position) {
+        if (position >= text.length()) {
+            return EDGE;
+        }
+        char c = text.charAt(position);
+        if (Character.isHighSurrogate(c) && position + 1 < text.length() && Character.isLowSurrogate(text.charAt(position + 1))) {
+            return getCategory(Character.toCodePoint(c, text.charAt(position + 1)));
+        }
+        return getCategory(c);
+    }
+
+    /**
+     * Returns the category of the passed character (or virtual supplementary character) when it is located before
+     * a position. Supplementary characters end with a low surrogate, which is neither a letter nor a line separator.
+     *
+     * @param c Character of the Basic Multilingual Plane, or a virtual supplementary character.
+     * @return  Category of the character.
+     */
+    private int getLeftCategory(int c) {
+        return c < BMP_SIZE ? getCategory(c) : OTHER;
+    }
+
+    /**
+     * Returns the category of the passed character (or virtual supplementary character) when it is located behind
+     * a position.
+     *
+     * @param c Character of the Basic Multilingual Plane, or a virtual supplementary character.
+     * @return  Category of the character.
+     */
+    private int getRightCategory(int c) {
+        if (c < BMP_SIZE) {
+            return getCategory(c);
+        }
+        return c == BMP_SIZE && wordAssertions ? WORD : OTHER;
+    }
+
+    /**
+     * Returns the category of the passed code point. Only categories that are distinguished by the assertions of
+     * the expression are returned.
+     *
+     * @param codePoint Code point to be categorized.
+     * @return          Category of the code point.
+     */
+    private int getCategory(int codePoint) {
+        if (lineAnchors) {
+            if (codePoint == '\n') {
+                return LINE_FEED;
+            }
+            if (codePoint == '\r') {
+                return CARRIAGE_RETURN;
+            }
+            if (codePoint == '\u0085' || codePoint == '\u2028' || codePoint == '\u2029') {
+                return LINE_SEPARATOR;
+            }
+        }
+        if (wordAssertions && isWordCharacter(codePoint)) {
+            return WORD;
+        }
+        return OTHER;
+    }
+
+
+    /**
+     * Tests whether the passed assertion holds between two characters. The anchors behave like those of
+     * {@link java.util.regex.Pattern#MULTILINE}, which do not match between {@code '\r'} and {@code '\n'}.
+     *
+     * @param kind  Kind of assertion.
+     * @param left  Category of the character before the position.
+     * @param right Category of the character behind the position.
+     * @return      Whether the assertion holds.
+     */
+    private static boolean holds(int kind, int left, int right) {
+        switch (kind) {
+            case BEGIN_LINE:
+                if (right == EDGE) {
+                    return false;
+                }
+                return left == EDGE || left == LINE_FEED || left == LINE_SEPARATOR || (left == CARRIAGE_RETURN && right != LINE_FEED);
+            case END_LINE:
+                return right == EDGE || right == CARRIAGE_RETURN || right == LINE_SEPARATOR || (right == LINE_FEED && left != CARRIAGE_RETURN);
+            case NOT_WORD_BEFORE:
+                return left != WORD;
+            default:
+                return right != WORD;
+        }
+    }
+
+    /**
+     * Returns the passed code point in lower case after it was converted to upper case, which is how characters
+     * are compared case insensitively.
+     *
+     * @param codePoint Code point to be folded.
+     * @return          Folded code point.
+     */
+    private static int fold(int codePoint) {
+        return Character.toLowerCase(Character.toUpperCase(codePoint));
+    }
+
+    /**
+     * Tests whether the passed code point belongs to a word, which is the case for letters, numbers and underscores.
+     *
+     * @param codePoint Code point to be tested.
+     * @return          Whether the code point belongs to a word.
+     */
+    private static boolean isWordCharacter(int codePoint) {
+        if (codePoint == '_' || Character.isLetter(codePoint)) {
+            return true;
+        }
+        int type = Character.getType(codePoint);
+        return type == Character.DECIMAL_DIGIT_NUMBER || type == Character.LETTER_NUMBER || type == Character.OTHER_NUMBER;
+    }
+
+}
@@ -0,0 +1,29 @@
+package backend.search;
+
+
+/**
+ * Implements an exception that is thrown whenever a regular expression exceeds the number of characters it may read
+ * or the time it may take, i.e. because it backtracks catastrophically.
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public class RegexTimeoutException extends RuntimeException {
+
+    public RegexTimeoutException() {
+        super();
+    }
+
+    public RegexTimeoutException(String message) {
+        super(message);
+    }
+
+    public RegexTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public RegexTimeoutException(Throwable cause) {
+        super(cause);
+    }
+
+}
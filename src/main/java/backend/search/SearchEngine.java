@@ -0,0 +1,392 @@
+package backend.search;
+
+import backend.config.Settings;
+import backend.document.PieceTableBackedDocument;
+import backend.document.PieceTableContent;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import java.nio.CharBuffer;
+import java.util.concurrent.CancellationException;
+import java.util.regex.Matcher;
+
+
+/**
+ * This class searches text for the matches of {@linkplain SearchQuery}s. The text is passed as CharSequence, so that
+ * documents can be searched through a view of their content (i.e. a snapshot of the piece table) without copying it.
+ * Literals are searched through a {@linkplain LiteralMatcher} whenever possible, which is considerably faster than
+ * matching a quoted regular expression. Multiple terms are searched at once through a {@linkplain MultiPatternMatcher}.
+ * Regular expressions are matched through a {@linkplain RegexAutomaton} whenever possible, whose run time is linear
+ * in the length of the text. All other regular expressions are matched by {@link java.util.regex}, which may backtrack
+ * catastrophically (i.e. {@code "(a+)+$"}). Therefore, the number of characters they read and their run time are
+ * limited relative to the length of the text, and a {@linkplain RegexTimeoutException} is thrown once a limit is
+ * exceeded.
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public class SearchEngine {
+
+    /**
+     * Stores the number of characters that are read by regular expressions before the {@linkplain SearchListener} is
+     * notified.
+     */
+    private static final int PROGRESS_INTERVAL = 1 << 20;
+
+    /**
+     * Stores the number of characters that are read by regular expressions between two checks of their run time.
+     */
+    private static final int TIMEOUT_INTERVAL = 1 << 16;
+
+    /**
+     * Stores the minimum number of characters that regular expressions may read, regardless of the length of the text.
+     */
+    private static final long MIN_STEPS = 1 << 24;
+
+
+    /**
+     * This class wraps the text that is searched for a regular expression, so that the search can be cancelled. As
+     * the matcher only returns when a match is found, the listener is notified after a fixed number of characters has
+     * been read.
+     */
+    private static class CancellableText implements CharSequence {
+
+        /**
+         * Stores the wrapped text.
+         */
+        private final CharSequence text;
+
+        /**
+         * Stores the listener following the search.
+         */
+        private final SearchListener listener;
+
+        /**
+         * Stores the matches found so far.
+         */
+        private final SearchResult result;
+
+        /**
+         * Stores the number of characters that can be read before the listener is notified again.
+         */
+        private int countdown;
+
+
+        /**
+         * Constructs a new CancellableText.
+         *
+         * @param text      Text to be wrapped.
+         * @param listener  Listener following the search.
+         * @param result    Matches found so far.
+         */
+        private CancellableText(CharSequence text, SearchListener listener, SearchResult result) {
+            this.text = text;
+            this.listener = listener;
+            this.result = result;
+            countdown = PROGRESS_INTERVAL;
+        }
+
+
+        /**
+         * Returns the length of the wrapped text.
+         *
+         * @return  Length of the text.
+         */
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        /**
+         * Returns the character at the passed index of the wrapped text and notifies the listener regularly.
+         *
+         * @param index                                         Index of the character.
+         * @return                                              Character at the passed index.
+         * @throws java.util.concurrent.CancellationException   The search was cancelled by the listener.
+         */
+        @Override
+        public char charAt(int index) {
+            if (--countdown == 0) {
+                countdown = PROGRESS_INTERVAL;
+                if (listener.isCancelled()) {
+                    throw new CancellationException();
+                }
+                listener.matchesFound(result.size());
+            }
+            return text.charAt(index);
+        }
+
+        /**
+         * Returns the characters within the passed range of the wrapped text.
+         *
+         * @param start Index of the first character.
+         * @param end   Index after the last character.
+         * @return      Characters within the passed range.
+         */
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return text.subSequence(start, end);
+        }
+
+        /**
+         * Returns the wrapped text as String.
+         *
+         * @return  Wrapped text.
+         */
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+
+    }
+
+
+    /**
+     * This class wraps the text that is searched by {@link java.util.regex}, so that a regular expression that
+     * backtracks catastrophically cannot search forever. The number of characters that are read and the run time are
+     * limited.
+     */
+    private static class BudgetedText implements CharSequence {
+
+        /**
+         * Stores the wrapped text.
+         */
+        private final CharSequence text;
+
+        /**
+         * Stores the number of characters that can still be read.
+         */
+        private long steps;
+
+        /**
+         * Stores the time (as returned by {@link System#nanoTime()}) after which no more characters can be read.
+         */
+        private final long deadline;
+
+        /**
+         * Stores the number of characters that can be read before the run time is checked again.
+         */
+        private int countdown;
+
+
+        /**
+         * Constructs a new BudgetedText, whose limits are configured through the {@linkplain Settings}.
+         *
+         * @param text      Text to be wrapped.
+         * @param length    Number of characters to be searched.
+         */
+        private BudgetedText(CharSequence text, int length) {
+            this.text = text;
+            steps = Math.max(MIN_STEPS, (long)Settings.regexStepsPerCharacter * length);
+            long millis = (long)Settings.regexTimeLimit * Math.max(1, length / 1_000_000);
+            deadline = System.nanoTime() + millis * 1_000_000L;
+            countdown = TIMEOUT_INTERVAL;
+        }
+
+
+        /**
+         * Returns the length of the wrapped text.
+         *
+         * @return  Length of the text.
+         */
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        /**
+         * Returns the character at the passed index of the wrapped text.
+         *
+         * @param index                     Index of the character.
+         * @return                          Character at the passed index.
+         * @throws RegexTimeoutException    The regular expression exceeded its limits.
+         */
+        @Override
+        public char charAt(int index) {
+            if (--steps < 0) {
+                throw new RegexTimeoutException("Regular expression read too many characters");
+            }
+            if (--countdown == 0) {
+                countdown = TIMEOUT_INTERVAL;
+                if (System.nanoTime() - deadline > 0) {
+                    throw new RegexTimeoutException("Regular expression took too long");
+                }
+            }
+            return text.charAt(index);
+        }
+
+        /**
+         * Returns the characters within the passed range of the wrapped text.
+         *
+         * @param start Index of the first character.
+         * @param end   Index after the last character.
+         * @return      Characters within the passed range.
+         */
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return text.subSequence(start, end);
+        }
+
+        /**
+         * Returns the wrapped text as String.
+         *
+         * @return  Wrapped text.
+         */
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+
+    }
+
+
+    /**
+     * Searches the passed document for all matches of the passed query. Literals are searched directly within the
+     * segments of the document, regular expressions are matched against a snapshot of the document.
+     *
+     * @param document                                  Document to be searched.
+     * @param query                                     Query to be searched.
+     * @return                                          All matches of the query.
+     * @throws java.util.regex.PatternSyntaxException   The query is an invalid regular expression.
+     * @throws RegexTimeoutException                    The regular expression exceeded its limits.
+     */
+    public static SearchResult search(Document document, SearchQuery query) {
+        if (LiteralMatcher.supports(query)) {
+            return new LiteralMatcher(query.getPattern()).search(document);
+        }
+        if (document instanceof PieceTableBackedDocument) {
+            return search((CharSequence)((PieceTableBackedDocument)document).snapshot(), query);
+        }
+        try {
+            return search(document.getText(0, document.getLength()), query);
+        }
+        catch (BadLocationException e) {
+            //Cannot happen, as the whole document is searched:
+            return new SearchResult();
+        }
+    }
+
+    /**
+     * Searches the passed snapshot for all matches of the passed query. The snapshot can be searched by any thread.
+     *
+     * @param snapshot                                  Snapshot to be searched.
+     * @param query                                     Query to be searched.
+     * @return                                          All matches of the query.
+     * @throws java.util.regex.PatternSyntaxException   The query is an invalid regular expression.
+     * @throws RegexTimeoutException                    The regular expression exceeded its limits.
+     */
+    public static SearchResult search(PieceTableContent.Snapshot snapshot, SearchQuery query) {
+        if (LiteralMatcher.supports(query)) {
+            return new LiteralMatcher(query.getPattern()).search(snapshot);
+        }
+        return search((CharSequence)snapshot, query);
+    }
+
+    /**
+     * Searches the passed snapshot for all matches of the passed query. The passed listener is notified regularly
+     * about the number of matches found so far and can cancel the search. This method is intended to be called by a
+     * background thread.
+     *
+     * @param snapshot                                      Snapshot to be searched.
+     * @param query                                         Query to be searched.
+     * @param listener                                      Listener following the search.
+     * @return                                              All matches of the query.
+     * @throws java.util.regex.PatternSyntaxException       The query is an invalid regular expression.
+     * @throws java.util.concurrent.CancellationException   The search was cancelled by the listener.
+     * @throws RegexTimeoutException                        The regular expression exceeded its limits.
+     */
+    public static SearchResult search(PieceTableContent.Snapshot snapshot, SearchQuery query, SearchListener listener) {
+        SearchResult result;
+        if (LiteralMatcher.supports(query)) {
+            result = new LiteralMatcher(query.getPattern()).search(snapshot, listener);
+        }
+        else if (query.isMultiTerm()) {
+            result = new MultiPatternMatcher(query).search(snapshot, listener);
+        }
+        else {
+            result = new SearchResult();
+            search(new CancellableText(snapshot, listener, result), query, result);
+        }
+        listener.matchesFound(result.size());
+        return result;
+    }
+
+    /**
+     * Searches the passed text for all matches of the passed query. Empty matches (i.e. of the regex {@code "a*"})
+     * are ignored, as they cannot be marked. Literals within CharBuffers that are backed by an array are searched
+     * through a {@linkplain LiteralMatcher}, and multiple terms through a {@linkplain MultiPatternMatcher}.
+     *
+     * @param text                                      Text to be searched.
+     * @param query                                     Query to be searched.
+     * @return                                          All matches of the query.
+     * @throws java.util.regex.PatternSyntaxException   The query is an invalid regular expression.
+     * @throws RegexTimeoutException                    The regular expression exceeded its limits.
+     */
+    public static SearchResult search(CharSequence text, SearchQuery query) {
+        if (text instanceof CharBuffer && ((CharBuffer)text).hasArray() && LiteralMatcher.supports(query)) {
+            CharBuffer buffer = (CharBuffer)text;
+            return new LiteralMatcher(query.getPattern()).search(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+        if (query.isMultiTerm()) {
+            return new MultiPatternMatcher(query).search(text);
+        }
+        SearchResult result = new SearchResult();
+        search(text, query, result);
+        return result;
+    }
+
+
+    /**
+     * Searches the passed text for all matches of the passed query and adds them to the passed result.
+     *
+     * @param text                                      Text to be searched.
+     * @param query                                     Query to be searched.
+     * @param result                                    Result to which the matches are added.
+     * @throws java.util.regex.PatternSyntaxException   The query is an invalid regular expression.
+     * @throws RegexTimeoutException                    The regular expression exceeded its limits.
+     */
+    private static void search(CharSequence text, SearchQuery query, SearchResult result) {
+        if (query.getPattern().isEmpty()) {
+            return;
+        }
+        search(text, 0, text.length(), query, result);
+    }
+
+    /**
+     * Searches the passed range of the text for all non-empty matches of the passed query as regular expression and
+     * adds them to the passed result. The characters around the range are considered by anchors and lookarounds, but
+     * matches do not exceed the range.
+     *
+     * @param text                                      Text to be searched.
+     * @param from                                      Index of the first character to be searched.
+     * @param to                                        Index after the last character to be searched.
+     * @param query                                     Query to be searched.
+     * @param result                                    Result to which the matches are added.
+     * @throws java.util.regex.PatternSyntaxException   The query is an invalid regular expression.
+     * @throws RegexTimeoutException                    The regular expression exceeded its limits.
+     */
+    static void search(CharSequence text, int from, int to, SearchQuery query, SearchResult result) {
+        RegexAutomaton automaton = PatternCache.getAutomaton(query);
+        if (automaton != null) {
+            automaton.search(text, from, to, result);
+            return;
+        }
+        Matcher matcher = PatternCache.get(query).matcher(new BudgetedText(text, to - from));
+        matcher.useTransparentBounds(true);
+        matcher.useAnchoringBounds(false);
+        matcher.region(from, to);
+        try {
+            while (matcher.find()) {
+                int start = matcher.start();
+                int end = matcher.end();
+                if (end > start) {
+                    result.add(start, end - start);
+                }
+            }
+        }
+        catch (StackOverflowError e) {
+            //Backtracking recurses for every repetition of a group:
+            throw new RegexTimeoutException("Regular expression recursed too deeply", e);
+        }
+    }
+
+}
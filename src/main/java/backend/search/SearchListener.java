@@ -0,0 +1,31 @@
+package backend.search;
+
+
+/**
+ * This interface can be implemented by classes that want to follow a search while it is running in the background
+ * through {@link SearchEngine#search(backend.document.PieceTableContent.Snapshot, SearchQuery, SearchListener)}. The
+ * listener is asked regularly whether the search shall be cancelled, so that searching large texts can be aborted
+ * quickly.
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public interface SearchListener {
+
+    /**
+     * This method is called regularly while the text is searched, with the number of matches that were found so far.
+     * This method is called by the thread that searches the text.
+     *
+     * @param matches   Number of matches that were found so far.
+     */
+    void matchesFound(int matches);
+
+    /**
+     * Returns whether the search shall be cancelled. If so, the search throws a
+     * {@linkplain java.util.concurrent.CancellationException}.
+     *
+     * @return  Whether the search shall be cancelled.
+     */
+    boolean isCancelled();
+
+}
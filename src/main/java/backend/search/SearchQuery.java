@@ -0,0 +1,146 @@
+package backend.search;
+
+import java.util.ArrayList;
+import java.util.Objects;
+
+
+/**
+ * This class describes what shall be searched, i.e. the searched text and how it is matched. Instances of this class
+ * are immutable, so that they can be used as keys within the {@linkplain PatternCache} and be passed to background
+ * threads.
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public class SearchQuery {
+
+    /**
+     * Stores the searched text. Depending on {@link #regex}, this is either a literal or a regular expression. If
+     * {@link #multiTerm} is {@code true}, this contains multiple literals that are separated by line breaks.
+     */
+    private final String pattern;
+
+    /**
+     * Stores whether the {@link #pattern} is a regular expression.
+     */
+    private final boolean regex;
+
+    /**
+     * Stores whether uppercase and lowercase letters are distinguished.
+     */
+    private final boolean caseSensitive;
+
+    /**
+     * Stores whether only matches that are whole words are found.
+     */
+    private final boolean wholeWord;
+
+    /**
+     * Stores whether the {@link #pattern} contains multiple literals, which are all searched at once.
+     */
+    private final boolean multiTerm;
+
+
+    /**
+     * Constructs a new SearchQuery.
+     *
+     * @param pattern       Searched text.
+     * @param regex         Whether the searched text is a regular expression.
+     * @param caseSensitive Whether uppercase and lowercase letters are distinguished.
+     * @param wholeWord     Whether only matches that are whole words are found.
+     */
+    public SearchQuery(String pattern, boolean regex, boolean caseSensitive, boolean wholeWord) {
+        this(pattern, regex, caseSensitive, wholeWord, false);
+    }
+
+    /**
+     * Constructs a new SearchQuery, which may search multiple literals at once.
+     *
+     * @param pattern       Searched text. If multiple terms are searched, the terms are separated by line breaks.
+     * @param regex         Whether the searched text is a regular expression. This is ignored if multiple terms are
+     *                      searched, as terms are always literals.
+     * @param caseSensitive Whether uppercase and lowercase letters are distinguished.
+     * @param wholeWord     Whether only matches that are whole words are found.
+     * @param multiTerm     Whether the searched text contains multiple terms.
+     */
+    public SearchQuery(String pattern, boolean regex, boolean caseSensitive, boolean wholeWord, boolean multiTerm) {
+        this.pattern = pattern;
+        this.regex = regex && !multiTerm;
+        this.caseSensitive = caseSensitive;
+        this.wholeWord = wholeWord;
+        this.multiTerm = multiTerm;
+    }
+
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public boolean isRegex() {
+        return regex;
+    }
+
+    public boolean isCaseSensitive() {
+        return caseSensitive;
+    }
+
+    public boolean isWholeWord() {
+        return wholeWord;
+    }
+
+    public boolean isMultiTerm() {
+        return multiTerm;
+    }
+
+
+    /**
+     * Returns the terms that are searched. If this query does not search multiple terms, the only term is the
+     * pattern. Otherwise, every non-blank line of the pattern is a term, without surrounding whitespace.
+     *
+     * @return  Searched terms.
+     */
+    public ArrayList<String> getTerms() {
+        ArrayList<String> terms = new ArrayList<String>();
+        if (!multiTerm) {
+            terms.add(pattern);
+            return terms;
+        }
+        for (String line : pattern.split("\n")) {
+            String term = line.strip();
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+
+    /**
+     * Tests whether this query finds the same matches as the passed object.
+     *
+     * @param o Object to be compared.
+     * @return  Whether the passed object is an equal SearchQuery.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SearchQuery)) {
+            return false;
+        }
+        SearchQuery other = (SearchQuery)o;
+        return regex == other.regex && caseSensitive == other.caseSensitive && wholeWord == other.wholeWord && multiTerm == other.multiTerm && pattern.equals(other.pattern);
+    }
+
+    /**
+     * Returns the hash code of this query.
+     *
+     * @return  Hash code.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(pattern, regex, caseSensitive, wholeWord, multiTerm);
+    }
+
+}
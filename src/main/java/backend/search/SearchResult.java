@@ -0,0 +1,108 @@
+package backend.search;
+
+import java.util.Arrays;
+
+
+/**
+ * This class stores the matches of a search. The offsets and lengths of the matches are stored within primitive
+ * arrays in ascending order of their offsets.
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public class SearchResult {
+
+    /**
+     * Stores the offsets of the first characters of the matches.
+     */
+    private int[] starts;
+
+    /**
+     * Stores the lengths of the matches.
+     */
+    private int[] lengths;
+
+    /**
+     * Stores the number of matches.
+     */
+    private int count;
+
+
+    /**
+     * Constructs a new SearchResult without any matches.
+     */
+    public SearchResult() {
+        starts = new int[16];
+        lengths = new int[16];
+        count = 0;
+    }
+
+
+    /**
+     * Returns the number of matches.
+     *
+     * @return  Number of matches.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the offset of the first character of the passed match.
+     *
+     * @param index Index of the match.
+     * @return      Offset of the match.
+     */
+    public int getStart(int index) {
+        return starts[index];
+    }
+
+    /**
+     * Returns the length of the passed match.
+     *
+     * @param index Index of the match.
+     * @return      Length of the match.
+     */
+    public int getLength(int index) {
+        return lengths[index];
+    }
+
+    /**
+     * Returns the offsets of the first characters of all matches.
+     *
+     * @return  Offsets of the matches.
+     */
+    public int[] getStarts() {
+        return Arrays.copyOf(starts, count);
+    }
+
+    /**
+     * Returns the index of the first match that begins at or behind the passed offset. If there is no such match,
+     * {@link #size()} is returned.
+     *
+     * @param offset    Offset to be searched.
+     * @return          Index of the match.
+     */
+    public int indexOf(int offset) {
+        int index = Arrays.binarySearch(starts, 0, count, offset);
+        return index >= 0 ? index : -index - 1;
+    }
+
+
+    /**
+     * Adds a match. The offset of the match MUST NOT be smaller than the offset of the previously added match.
+     *
+     * @param start     Offset of the first character of the match.
+     * @param length    Length of the match.
+     */
+    public void add(int start, int length) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            lengths = Arrays.copyOf(lengths, count * 2);
+        }
+        starts[count] = start;
+        lengths[count] = length;
+        count++;
+    }
+
+}
@@ -0,0 +1,358 @@
+package backend.search;
+
+import backend.config.Settings;
+import backend.files.CharsetDetector;
+import backend.files.TextDecoder;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+
+/**
+ * This class searches a single file for a {@linkplain SearchQuery} without loading the file, so that files of any size
+ * (i.e. logs which are larger than the heap) can be searched with a bounded amount of memory. The file is mapped into
+ * memory in windows, each of which is decoded into the same character buffer, whose size is the memory budget of the
+ * search. The end of every window remains within the buffer and is searched again together with the next window, so
+ * that matches which span the boundary between two windows are found. Matches of literals are never longer than the
+ * longest literal, matches of regular expressions are assumed not to be longer than a configurable maximum length.
+ * <p>
+ * The offsets of the matches refer to the decoded text, in which every line separator is replaced by {@code '\n'},
+ * just as if the file was opened. The lines of the matches are counted while the file is searched. If only the matches
+ * shall be counted, no lines are counted and no offsets are collected.
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public class StreamingSearch {
+
+    /**
+     * Stores the maximum length of the line previews of the matches.
+     */
+    private static final int PREVIEW_LENGTH = 200;
+
+    /**
+     * Stores the minimum number of characters of a window, regardless of the memory budget.
+     */
+    private static final int MIN_WINDOW_LENGTH = 64 * 1024;
+
+    /**
+     * Stores the number of characters that are reserved within the buffer for characters which the decoder emits at
+     * the end of the file.
+     */
+    private static final int FLUSH_RESERVE = 16;
+
+
+    /**
+     * Stores the file to be searched.
+     */
+    private final Path file;
+
+    /**
+     * Stores the query to be searched.
+     */
+    private final SearchQuery query;
+
+    /**
+     * Stores the matcher through which literals are searched, or {@code null} if the query is no such literal.
+     */
+    private final LiteralMatcher literalMatcher;
+
+    /**
+     * Stores the matcher through which multiple terms are searched, or {@code null} if the query has a single term.
+     */
+    private final MultiPatternMatcher multiPatternMatcher;
+
+    /**
+     * Stores the number of characters at the end of every window that are searched again with the next window. This
+     * is one character more than the longest match, so that the character behind every match is known (i.e. to test
+     * whether the match is a whole word).
+     */
+    private final int overlap;
+
+    /**
+     * Stores the buffer into which the windows are decoded.
+     */
+    private final char[] buffer;
+
+    /**
+     * Stores whether the matches are only counted.
+     */
+    private boolean countOnly;
+
+    /**
+     * Stores the listener following the search.
+     */
+    private StreamingSearchListener listener;
+
+    /**
+     * Stores the number of characters within the {@link #buffer}.
+     */
+    private int bufferLength;
+
+    /**
+     * Stores the offset within the decoded text of the first character of the {@link #buffer}.
+     */
+    private long bufferOffset;
+
+    /**
+     * Stores the offset behind the last match, so that matches do not overlap.
+     */
+    private long lastEnd;
+
+    /**
+     * Stores the number of matches that were found so far.
+     */
+    private long matchCount;
+
+    /**
+     * Stores the offset up to which the lines were counted.
+     */
+    private long countedOffset;
+
+    /**
+     * Stores the line which contains the {@link #countedOffset}, beginning at 1.
+     */
+    private long line;
+
+    /**
+     * Stores the offset of the first character of the {@link #line}.
+     */
+    private long lineStart;
+
+    /**
+     * Stores the matches that were found within the current window.
+     */
+    private ArrayList<FileMatch> matches;
+
+
+    /**
+     * Constructs a new StreamingSearch, whose memory budget and maximum length of matches of regular expressions are
+     * taken from the {@linkplain Settings}.
+     *
+     * @param file  File to be searched.
+     * @param query Query to be searched.
+     */
+    public StreamingSearch(Path file, SearchQuery query) {
+        this(file, query, getMemoryBudget(), Settings.streamingSearchOverlap);
+    }
+
+    /**
+     * Constructs a new StreamingSearch.
+     *
+     * @param file                  File to be searched.
+     * @param query                 Query to be searched.
+     * @param memoryBudget          Number of bytes that the buffer into which the file is decoded may occupy. The
+     *                              buffer is enlarged if it cannot hold two overlaps and a minimum window.
+     * @param maxRegexMatchLength   Maximum length of matches of regular expressions, which are found even if they
+     *                              span the boundary between two windows.
+     */
+    public StreamingSearch(Path file, SearchQuery query, long memoryBudget, int maxRegexMatchLength) {
+        this.file = file;
+        this.query = query;
+        literalMatcher = LiteralMatcher.supports(query) ? new LiteralMatcher(query.getPattern()) : null;
+        multiPatternMatcher = query.isMultiTerm() ? new MultiPatternMatcher(query) : null;
+        int maxMatchLength = 0;
+        if (query.isRegex()) {
+            maxMatchLength = Math.max(1, maxRegexMatchLength);
+        }
+        else {
+            for (String term : query.getTerms()) {
+                maxMatchLength = Math.max(maxMatchLength, term.length());
+            }
+        }
+        overlap = maxMatchLength + 1;
+        long capacity = Math.max(memoryBudget / Character.BYTES, 2L * overlap + MIN_WINDOW_LENGTH);
+        buffer = new char[(int)Math.min(capacity, Integer.MAX_VALUE - 8)];
+    }
+
+
+    /**
+     * Returns the memory budget of searches, which is configured through the {@linkplain Settings}.
+     *
+     * @return  Memory budget in bytes.
+     */
+    public static long getMemoryBudget() {
+        return Math.max(1, Settings.streamingSearchMemory) * 1024L * 1024L;
+    }
+
+
+    /**
+     * Changes whether the matches are only counted. If so, the listener is only notified about the number of
+     * matches through {@link StreamingSearchListener#progressed(long, long, long)}.
+     *
+     * @param countOnly Whether the matches shall only be counted.
+     */
+    public void setCountOnly(boolean countOnly) {
+        this.countOnly = countOnly;
+    }
+
+
+    /**
+     * Searches the file. After every window, the matches within the window are passed to the listener and the
+     * listener is notified about the progress. This method blocks until the file is searched or the search is
+     * cancelled through the listener.
+     *
+     * @param listener                                  Listener following the search.
+     * @return                                          Number of matches that were found.
+     * @throws IOException                              The file cannot be read.
+     * @throws java.util.regex.PatternSyntaxException   The query is an invalid regular expression.
+     * @throws RegexTimeoutException                    The regular expression exceeded its limits.
+     */
+    public long search(StreamingSearchListener listener) throws IOException {
+        this.listener = listener;
+        bufferLength = 0;
+        bufferOffset = 0;
+        lastEnd = 0;
+        matchCount = 0;
+        countedOffset = 0;
+        line = 1;
+        lineStart = 0;
+        matches = new ArrayList<FileMatch>();
+        if (query.getPattern().isEmpty()) {
+            return 0;
+        }
+        if (literalMatcher == null && multiPatternMatcher == null) {
+            //Detect invalid regular expressions before the file is read:
+            PatternCache.get(query);
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            TextDecoder decoder = new TextDecoder();
+            decoder.disableLineIndex(); //The index would grow with the file.
+
+            //Detect the charset and skip the byte order mark:
+            MappedByteBuffer sample = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, CharsetDetector.SAMPLE_SIZE));
+            decoder.detect(sample, sample.limit() == size);
+            long position = sample.position();
+
+            int searchFrom = 0;
+            boolean endOfInput;
+            do {
+                if (listener.isCancelled()) {
+                    break;
+                }
+                long windowSize = Math.min(size - position, (long)((buffer.length - bufferLength - FLUSH_RESERVE) / decoder.getMaxCharsPerByte()));
+                endOfInput = position + windowSize == size;
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+                CharBuffer chars = CharBuffer.wrap(buffer, bufferLength, buffer.length - bufferLength);
+                decoder.decode(window, chars, endOfInput);
+                if (!endOfInput && window.position() == 0) {
+                    //Decoder cannot make any progress:
+                    throw new IOException("Could not decode " + file);
+                }
+                //Bytes of a character that is split by the end of the window are decoded with the next window:
+                position += window.position();
+                bufferLength = chars.position();
+
+                //Matches that begin within the overlap may continue within the next window:
+                int searchTo = endOfInput ? bufferLength : Math.max(searchFrom, bufferLength - overlap + 1);
+                searchWindow(searchFrom, searchTo);
+                if (!matches.isEmpty()) {
+                    listener.matchesFound(matches);
+                    matches = new ArrayList<FileMatch>();
+                }
+
+                //Keep the overlap and the characters before it, which may be required by lookbehinds:
+                int next = (int)Math.max(searchTo, lastEnd - bufferOffset);
+                int keep = Math.max(0, next - overlap);
+                if (!countOnly) {
+                    countLines(keep);
+                }
+                System.arraycopy(buffer, keep, buffer, 0, bufferLength - keep);
+                bufferOffset += keep;
+                bufferLength -= keep;
+                searchFrom = next - keep;
+                listener.progressed(position, size, matchCount);
+            }
+            while (!endOfInput);
+        }
+        return matchCount;
+    }
+
+
+    /**
+     * Searches the buffer for all matches that begin within the passed range. Matches may end behind the range.
+     *
+     * @param from  Index of the first character at which a match may begin.
+     * @param to    Index after the last character at which a match may begin.
+     */
+    private void searchWindow(int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        if (literalMatcher != null) {
+            SearchResult result = literalMatcher.search(buffer, from, bufferLength - from);
+            for (int i = 0; i < result.size() && from + result.getStart(i) < to; i++) {
+                report(from + result.getStart(i), result.getLength(i));
+            }
+            return;
+        }
+        CharBuffer text = CharBuffer.wrap(buffer, 0, bufferLength);
+        if (multiPatternMatcher != null) {
+            SearchResult result = multiPatternMatcher.search(text, from, bufferLength);
+            for (int i = 0; i < result.size() && result.getStart(i) < to; i++) {
+                report(result.getStart(i), result.getLength(i));
+            }
+            return;
+        }
+        SearchResult result = new SearchResult();
+        SearchEngine.search(text, from, bufferLength, query, result);
+        for (int i = 0; i < result.size() && result.getStart(i) < to; i++) {
+            report(result.getStart(i), result.getLength(i));
+        }
+    }
+
+    /**
+     * Adds the passed match to the matches of the current window, unless the matches are only counted.
+     *
+     * @param start     Index of the match within the buffer.
+     * @param length    Length of the match.
+     */
+    private void report(int start, int length) {
+        matchCount++;
+        lastEnd = bufferOffset + start + length;
+        if (countOnly) {
+            return;
+        }
+        countLines(start);
+        long offset = bufferOffset + start;
+        matches.add(new FileMatch(file, offset, length, line, offset - lineStart + 1, getPreview((int)Math.max(0, lineStart - bufferOffset))));
+    }
+
+    /**
+     * Counts the lines up to the passed index of the buffer. Lines before the index may have been counted already.
+     *
+     * @param index Index within the buffer.
+     */
+    private void countLines(int index) {
+        for (int i = (int)(countedOffset - bufferOffset); i < index; i++) {
+            if (buffer[i] == '\n') {
+                line++;
+                lineStart = bufferOffset + i + 1;
+            }
+        }
+        countedOffset = Math.max(countedOffset, bufferOffset + index);
+    }
+
+    /**
+     * Returns the line that begins at the passed index of the buffer, which is at most {@link #PREVIEW_LENGTH}
+     * characters long.
+     *
+     * @param index Index of the first character of the line.
+     * @return      Beginning of the line.
+     */
+    private String getPreview(int index) {
+        int end = index;
+        int limit = Math.min(bufferLength, index + PREVIEW_LENGTH);
+        while (end < limit && buffer[end] != '\n') {
+            end++;
+        }
+        return new String(buffer, index, end - index);
+    }
+
+}
@@ -0,0 +1,23 @@
+package backend.search;
+
+
+/**
+ * This interface can be implemented by classes that want to follow a {@linkplain StreamingSearch}. Besides the
+ * matches, the listener is notified about the progress of the search after every window of the file.
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public interface StreamingSearchListener extends FileSearchListener {
+
+    /**
+     * This method is called after every window of the file was searched. If only matches are counted, this is the
+     * only method through which the matches are passed.
+     *
+     * @param bytesSearched Number of bytes of the file that were searched so far.
+     * @param fileSize      Size of the file in bytes.
+     * @param matches       Number of matches that were found so far.
+     */
+    void progressed(long bytesSearched, long fileSize, long matches);
+
+}
@@ -0,0 +1,1504 @@
+package backend.search;
+
+import backend.files.File;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+
+/**
+ * This class implements a persistent trigram index over all text files within a workspace directory, which narrows the
+ * files that need to be searched by a {@linkplain FileSearch}. For every trigram (three consecutive characters), the
+ * index stores the files containing it. A file can only contain a match of a query if it contains every trigram of
+ * the literal text which every match of the query must contain, so only these candidate files are searched.
+ * <p>
+ * Characters are case-folded before trigrams are formed, so that a single index serves case-sensitive and
+ * case-insensitive queries alike. The index is built in parallel and stored in a compact file, which is memory-mapped
+ * when the index is opened again. Files that are changed, created or deleted afterwards are detected through a
+ * {@linkplain WatchService} while VATE is running, and by comparing sizes and modification times when the index is
+ * opened. Their trigrams are kept in memory and merged into the index file when the index is closed.
+ * <p>
+ * Files are read window by window while their trigrams are collected, so that files of any size can be indexed. Files
+ * that cannot be indexed (i.e. because they contain too many distinct trigrams or cannot be read) are remembered and
+ * are candidates for every query, so that the index never hides a match.
+ * <p>
+ * The index file consists of the following sections (big-endian):
+ * <ol>
+ *     <li>Magic number and version (two ints).</li>
+ *     <li>Root directory (int length and UTF-8 bytes).</li>
+ *     <li>File table: int number of files, followed by the path relative to the root (int length and UTF-8 bytes),
+ *     size and modification time (two longs) of every file.</li>
+ *     <li>Dictionary: int number of trigrams, followed by the sorted trigrams (one long each).</li>
+ *     <li>Offsets: the offset of the posting list of every trigram, and the end of the last list (one int each).</li>
+ *     <li>Postings: for every trigram, the number of files and the ascending file IDs as variable-length deltas.</li>
+ * </ol>
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public class TrigramIndex {
+
+    /**
+     * Stores the magic number at the beginning of every index file.
+     */
+    private static final int MAGIC = 0x56544958;
+
+    /**
+     * Stores the version of the index file format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Stores the mask that removes the oldest character when a character is shifted into a trigram.
+     */
+    private static final long TRIGRAM_MASK = 0xFFFFFFFFFFFFL;
+
+    /**
+     * Stores an empty array of trigrams, which is used for binary files.
+     */
+    private static final long[] NO_TRIGRAMS = new long[0];
+
+    /**
+     * Stores the maximum number of distinct trigrams of a single file. Files with more trigrams are not indexed, as
+     * their trigrams would occupy too much memory while they are collected, and they contain almost every query.
+     */
+    private static final int MAX_FILE_TRIGRAMS = 1 << 20;
+
+
+    /**
+     * This class stores the part of the index that is read from the index file. Instances are immutable, so that
+     * they can be replaced while other threads are querying the index.
+     */
+    private static class IndexData {
+
+        /**
+         * Stores the paths of the indexed files relative to the root. The index of a path is the ID of the file.
+         */
+        private final String[] paths;
+
+        /**
+         * Stores the sizes of the indexed files when they were indexed.
+         */
+        private final long[] sizes;
+
+        /**
+         * Stores the modification times of the indexed files when they were indexed.
+         */
+        private final long[] modified;
+
+        /**
+         * Maps the relative paths of the indexed files to their IDs.
+         */
+        private final HashMap<String, Integer> ids;
+
+        /**
+         * Stores the mapped index file, or {@code null} if there is no index file.
+         */
+        private final ByteBuffer buffer;
+
+        /**
+         * Stores the number of trigrams within the dictionary.
+         */
+        private final int trigramCount;
+
+        /**
+         * Stores the positions of the dictionary, the offsets and the postings within the {@link #buffer}.
+         */
+        private final int dictionaryStart, offsetsStart, postingsStart;
+
+
+        /**
+         * Constructs new empty IndexData.
+         */
+        private IndexData() {
+            paths = new String[0];
+            sizes = new long[0];
+            modified = new long[0];
+            ids = new HashMap<String, Integer>();
+            buffer = null;
+            trigramCount = 0;
+            dictionaryStart = 0;
+            offsetsStart = 0;
+            postingsStart = 0;
+        }
+
+        /**
+         * Constructs new IndexData from the passed mapped index file.
+         *
+         * @param buffer        Mapped index file.
+         * @param root          Root directory which the index file must belong to.
+         * @throws IOException  The index file is invalid or belongs to another root directory.
+         */
+        private IndexData(ByteBuffer buffer, Path root) throws IOException {
+            try {
+                if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || !readString(buffer).equals(root.toString())) {
+                    throw new IOException("Index file does not match");
+                }
+                int fileCount = buffer.getInt();
+                paths = new String[fileCount];
+                sizes = new long[fileCount];
+                modified = new long[fileCount];
+                ids = new HashMap<String, Integer>(fileCount * 2);
+                for (int i = 0; i < fileCount; i++) {
+                    paths[i] = readString(buffer);
+                    sizes[i] = buffer.getLong();
+                    modified[i] = buffer.getLong();
+                    ids.put(paths[i], i);
+                }
+                trigramCount = buffer.getInt();
+                dictionaryStart = buffer.position();
+                offsetsStart = dictionaryStart + trigramCount * Long.BYTES;
+                postingsStart = offsetsStart + (trigramCount + 1) * Integer.BYTES;
+                if (postingsStart > buffer.limit() || postingsStart + buffer.getInt(offsetsStart + trigramCount * Integer.BYTES) != buffer.limit()) {
+                    throw new IOException("Index file is truncated");
+                }
+            }
+            catch (RuntimeException e) {
+                //BufferUnderflowException, IndexOutOfBoundsException...
+                throw new IOException("Index file is corrupted", e);
+            }
+            this.buffer = buffer;
+        }
+
+
+        /**
+         * Returns the position of the passed trigram within the dictionary.
+         *
+         * @param trigram   Trigram to be found.
+         * @return          Position of the trigram, or {@code -1} if no file contains the trigram.
+         */
+        private int find(long trigram) {
+            int low = 0;
+            int high = trigramCount - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                long current = buffer.getLong(dictionaryStart + middle * Long.BYTES);
+                if (current < trigram) {
+                    low = middle + 1;
+                }
+                else if (current > trigram) {
+                    high = middle - 1;
+                }
+                else {
+                    return middle;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Returns the trigram at the passed position within the dictionary.
+         *
+         * @param position  Position within the dictionary.
+         * @return          Trigram.
+         */
+        private long getTrigram(int position) {
+            return buffer.getLong(dictionaryStart + position * Long.BYTES);
+        }
+
+        /**
+         * Returns the IDs of all files that contain the trigram at the passed position within the dictionary.
+         *
+         * @param position  Position within the dictionary.
+         * @return          IDs of the files in ascending order.
+         */
+        private int[] getPostings(int position) {
+            ByteBuffer postings = buffer.duplicate();
+            postings.position(postingsStart + buffer.getInt(offsetsStart + position * Integer.BYTES));
+            int[] ids = new int[readVarInt(postings)];
+            int id = 0;
+            for (int i = 0; i < ids.length; i++) {
+                id += readVarInt(postings);
+                ids[i] = id;
+            }
+            return ids;
+        }
+
+    }
+
+
+    /**
+     * This class stores the information about a single file that is added to the index.
+     */
+    private static class IndexedFile {
+
+        /**
+         * Stores the path of the file relative to the root.
+         */
+        private final String path;
+
+        /**
+         * Stores the size of the file.
+         */
+        private final long size;
+
+        /**
+         * Stores the modification time of the file.
+         */
+        private final long modified;
+
+        /**
+         * Stores the sorted trigrams of the file, which are empty for binary files.
+         */
+        private final long[] trigrams;
+
+
+        /**
+         * Constructs a new IndexedFile.
+         *
+         * @param path      Path relative to the root.
+         * @param size      Size of the file.
+         * @param modified  Modification time of the file.
+         * @param trigrams  Sorted trigrams of the file.
+         */
+        private IndexedFile(String path, long size, long modified, long[] trigrams) {
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+            this.trigrams = trigrams;
+        }
+
+    }
+
+
+    /**
+     * This class implements a hash table with open addressing that maps trigrams to ints without boxing them.
+     */
+    private static class TrigramTable {
+
+        /**
+         * Stores the trigrams plus one, so that {@code 0} marks empty slots.
+         */
+        private long[] keys;
+
+        /**
+         * Stores the values of the trigrams.
+         */
+        private int[] values;
+
+        /**
+         * Stores the number of trigrams within the table.
+         */
+        private int size;
+
+
+        /**
+         * Constructs a new TrigramTable.
+         *
+         * @param expectedSize  Expected number of trigrams.
+         */
+        private TrigramTable(int expectedSize) {
+            int capacity = Integer.highestOneBit(Math.max(16, expectedSize) * 2 - 1) << 1;
+            keys = new long[capacity];
+            values = new int[capacity];
+        }
+
+
+        public int size() {
+            return size;
+        }
+
+
+        /**
+         * Returns the value of the passed trigram.
+         *
+         * @param trigram   Trigram.
+         * @return          Value of the trigram, or {@code -1} if the trigram is not within the table.
+         */
+        private int get(long trigram) {
+            long key = trigram + 1;
+            int mask = keys.length - 1;
+            int slot = (int)((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+            while (keys[slot] != 0) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        /**
+         * Returns the value of the passed trigram. If the trigram is not within the table, it is added with the passed
+         * value.
+         *
+         * @param trigram   Trigram.
+         * @param value     Value which is added if the trigram is not within the table.
+         * @return          Value of the trigram.
+         */
+        private int putIfAbsent(long trigram, int value) {
+            long key = trigram + 1;
+            int mask = keys.length - 1;
+            int slot = (int)((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+            while (keys[slot] != 0) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+            return value;
+        }
+
+        /**
+         * Returns all trigrams within the table in ascending order.
+         *
+         * @return  Sorted trigrams.
+         */
+        private long[] toSortedArray() {
+            long[] trigrams = new long[size];
+            int i = 0;
+            for (long key : keys) {
+                if (key != 0) {
+                    trigrams[i++] = key - 1;
+                }
+            }
+            Arrays.sort(trigrams);
+            return trigrams;
+        }
+
+        /**
+         * Doubles the capacity of the table.
+         */
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    putIfAbsent(oldKeys[i] - 1, oldValues[i]);
+                }
+            }
+        }
+
+    }
+
+
+    /**
+     * This class collects the trigrams of a text that is passed in consecutive chunks. Trigrams which span two chunks
+     * are collected as well.
+     */
+    private static class TrigramCollector {
+
+        /**
+         * Stores the collected trigrams.
+         */
+        private final TrigramTable table;
+
+        /**
+         * Stores the last (up to three) characters that were passed.
+         */
+        private long trigram;
+
+        /**
+         * Stores the number of characters that were passed.
+         */
+        private long length;
+
+
+        /**
+         * Constructs a new TrigramCollector.
+         *
+         * @param expectedSize  Expected number of trigrams.
+         */
+        private TrigramCollector(int expectedSize) {
+            table = new TrigramTable(expectedSize);
+        }
+
+
+        public int size() {
+            return table.size();
+        }
+
+
+        /**
+         * Collects the trigrams of the passed chunk, which continues the previous chunks. Every character is
+         * case-folded before the trigrams are formed.
+         *
+         * @param text  Chunk whose trigrams shall be collected.
+         */
+        private void add(CharSequence text) {
+            long trigram = this.trigram;
+            long length = this.length;
+            if (text instanceof CharBuffer && ((CharBuffer)text).hasArray()) {
+                //Read the characters directly from the backing array:
+                CharBuffer buffer = (CharBuffer)text;
+                char[] array = buffer.array();
+                int start = buffer.arrayOffset() + buffer.position();
+                int end = start + buffer.remaining();
+                for (int i = start; i < end; i++) {
+                    trigram = ((trigram << 16) | fold(array[i])) & TRIGRAM_MASK;
+                    if (++length >= 3) {
+                        table.putIfAbsent(trigram, 0);
+                    }
+                }
+            }
+            else {
+                for (int i = 0; i < text.length(); i++) {
+                    trigram = ((trigram << 16) | fold(text.charAt(i))) & TRIGRAM_MASK;
+                    if (++length >= 3) {
+                        table.putIfAbsent(trigram, 0);
+                    }
+                }
+            }
+            this.trigram = trigram;
+            this.length = length;
+        }
+
+        /**
+         * Returns the collected trigrams.
+         *
+         * @return  Sorted trigrams without duplicates.
+         */
+        private long[] toSortedArray() {
+            return table.toSortedArray();
+        }
+
+    }
+
+
+    /**
+     * This class collects the posting lists of all trigrams while files are added, and writes them to an index file.
+     * The posting lists are encoded while they are collected, so that the memory which is required to build the index
+     * is close to the size of the index file.
+     */
+    private static class IndexWriter {
+
+        /**
+         * Stores the files that were added, without their trigrams.
+         */
+        private final ArrayList<IndexedFile> files;
+
+        /**
+         * Maps every trigram to its term number, which is the index of its posting list.
+         */
+        private final TrigramTable terms;
+
+        /**
+         * Stores the encoded posting list of every term.
+         */
+        private byte[][] postings;
+
+        /**
+         * Stores the number of bytes used within the posting list of every term.
+         */
+        private int[] postingLengths;
+
+        /**
+         * Stores the number of files within the posting list of every term.
+         */
+        private int[] postingCounts;
+
+        /**
+         * Stores the ID of the last file within the posting list of every term.
+         */
+        private int[] lastIds;
+
+
+        /**
+         * Constructs a new IndexWriter.
+         */
+        private IndexWriter() {
+            files = new ArrayList<IndexedFile>();
+            terms = new TrigramTable(1 << 16);
+            postings = new byte[1 << 16][];
+            postingLengths = new int[1 << 16];
+            postingCounts = new int[1 << 16];
+            lastIds = new int[1 << 16];
+        }
+
+
+        /**
+         * Adds the passed file to the index. Files are added by multiple threads, which is why this method is
+         * synchronized.
+         *
+         * @param file  File to be added.
+         */
+        private synchronized void addFile(IndexedFile file) {
+            int id = files.size();
+            files.add(new IndexedFile(file.path, file.size, file.modified, null));
+            for (long trigram : file.trigrams) {
+                addPosting(trigram, id);
+            }
+        }
+
+        /**
+         * Adds the passed files to the posting list of the passed trigram. The IDs must be greater than all IDs that
+         * were added to the posting list before.
+         *
+         * @param trigram   Trigram.
+         * @param ids       Ascending IDs of files containing the trigram.
+         * @param count     Number of IDs within the array.
+         */
+        private synchronized void addPostings(long trigram, int[] ids, int count) {
+            for (int i = 0; i < count; i++) {
+                addPosting(trigram, ids[i]);
+            }
+        }
+
+        /**
+         * Adds the passed file to the posting list of the passed trigram.
+         *
+         * @param trigram   Trigram.
+         * @param id        ID of the file, which is greater than all IDs within the posting list.
+         */
+        private void addPosting(long trigram, int id) {
+            int term = terms.putIfAbsent(trigram, terms.size());
+            if (term == postings.length) {
+                int capacity = postings.length * 2;
+                postings = Arrays.copyOf(postings, capacity);
+                postingLengths = Arrays.copyOf(postingLengths, capacity);
+                postingCounts = Arrays.copyOf(postingCounts, capacity);
+                lastIds = Arrays.copyOf(lastIds, capacity);
+            }
+            byte[] posting = postings[term];
+            if (posting == null) {
+                posting = new byte[4];
+                postings[term] = posting;
+            }
+            else if (postingLengths[term] + 5 > posting.length) {
+                posting = Arrays.copyOf(posting, posting.length * 2);
+                postings[term] = posting;
+            }
+            int delta = id - lastIds[term];
+            while ((delta & ~0x7F) != 0) {
+                posting[postingLengths[term]++] = (byte)((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            posting[postingLengths[term]++] = (byte)delta;
+            postingCounts[term]++;
+            lastIds[term] = id;
+        }
+
+        /**
+         * Writes the index to the passed file. The index is written to a temporary file first, which replaces the
+         * index file afterwards, so that the index file is never left incomplete.
+         *
+         * @param indexFile     Index file.
+         * @param root          Root directory of the index.
+         * @throws IOException  The index file cannot be written.
+         */
+        private void write(Path indexFile, Path root) throws IOException {
+            long[] trigrams = terms.toSortedArray();
+            Path temporaryFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile), 1 << 16))) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                writeString(output, root.toString());
+                output.writeInt(files.size());
+                for (IndexedFile file : files) {
+                    writeString(output, file.path);
+                    output.writeLong(file.size);
+                    output.writeLong(file.modified);
+                }
+                output.writeInt(trigrams.length);
+                for (long trigram : trigrams) {
+                    output.writeLong(trigram);
+                }
+                int offset = 0;
+                for (long trigram : trigrams) {
+                    output.writeInt(offset);
+                    int term = terms.get(trigram);
+                    offset += varIntLength(postingCounts[term]) + postingLengths[term];
+                }
+                output.writeInt(offset);
+                for (long trigram : trigrams) {
+                    int term = terms.get(trigram);
+                    int count = postingCounts[term];
+                    while ((count & ~0x7F) != 0) {
+                        output.writeByte((count & 0x7F) | 0x80);
+                        count >>>= 7;
+                    }
+                    output.writeByte(count);
+                    output.write(postings[term], 0, postingLengths[term]);
+                }
+            }
+            Files.move(temporaryFile, indexFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+    }
+
+
+    /**
+     * Stores the absolute root directory of the indexed workspace.
+     */
+    private final Path root;
+
+    /**
+     * Stores the file in which the index is stored.
+     */
+    private final Path indexFile;
+
+    /**
+     * Stores the walker that finds the files to be indexed.
+     */
+    private final FileWalker walker;
+
+    /**
+     * Stores the part of the index that was read from the index file.
+     */
+    private volatile IndexData data;
+
+    /**
+     * Stores the files that were changed or created after the {@link #data} was written, mapped from their paths
+     * relative to the root.
+     */
+    private final ConcurrentHashMap<String, IndexedFile> changedFiles;
+
+    /**
+     * Stores the relative paths of the files within the {@link #data} that were changed or deleted afterwards.
+     */
+    private final Set<String> outdatedFiles;
+
+    /**
+     * Stores the relative paths of the files that could not be indexed, which are candidates for every query.
+     */
+    private final Set<String> unindexedFiles;
+
+    /**
+     * Stores the service that watches the workspace for changes, or {@code null} if the workspace is not watched.
+     */
+    private WatchService watchService;
+
+    /**
+     * Stores whether the index is ready to be queried.
+     */
+    private volatile boolean ready;
+
+    /**
+     * Stores whether the index was closed.
+     */
+    private volatile boolean closed;
+
+
+    /**
+     * Constructs a new TrigramIndex. The index cannot be queried until it is {@linkplain #open() opened}.
+     *
+     * @param root      Root directory of the indexed workspace.
+     * @param indexFile File in which the index is stored.
+     */
+    public TrigramIndex(Path root, Path indexFile) {
+        this.root = root.toAbsolutePath().normalize();
+        this.indexFile = indexFile;
+        walker = new FileWalker(this.root, "");
+        data = new IndexData();
+        changedFiles = new ConcurrentHashMap<String, IndexedFile>();
+        outdatedFiles = ConcurrentHashMap.newKeySet();
+        unindexedFiles = ConcurrentHashMap.newKeySet();
+    }
+
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+
+    /**
+     * Returns the number of text and binary files within the index, including the files that could not be indexed.
+     *
+     * @return  Number of indexed files.
+     */
+    public int getFileCount() {
+        IndexData data = this.data;
+        return data.paths.length - outdatedFiles.size() + changedFiles.size() + unindexedFiles.size();
+    }
+
+    /**
+     * Tests whether the passed directory lies within the indexed workspace, so that the index can be used to search
+     * it.
+     *
+     * @param directory Directory to be tested.
+     * @return          Whether the directory lies within the workspace.
+     */
+    public boolean covers(Path directory) {
+        return directory.toAbsolutePath().normalize().startsWith(root);
+    }
+
+
+    /**
+     * Opens the index. If the index file belongs to the workspace, it is mapped and files that were changed since it
+     * was written are indexed again. Otherwise, the index is built from scratch. Afterwards, the workspace is watched
+     * for changes and the index is ready to be queried. This method blocks until the index is ready, or the index is
+     * closed.
+     */
+    public void open() {
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            try {
+                data = map();
+                refresh(pool);
+            }
+            catch (IOException e) {
+                //No matching index file: Build a new index:
+                build(pool);
+            }
+            if (!closed) {
+                watch();
+                ready = true;
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Closes the index and stops watching the workspace. Files that were changed while the index was open are merged
+     * into the index file.
+     */
+    public void close() {
+        closed = true;
+        ready = false;
+        if (watchService != null) {
+            try {
+                watchService.close();
+            }
+            catch (IOException e) {
+                //Watch service cannot be closed: Do nothing...
+            }
+        }
+        if (changedFiles.isEmpty() && outdatedFiles.isEmpty()) {
+            return;
+        }
+        try {
+            IndexData data = this.data;
+            IndexWriter writer = new IndexWriter();
+            int[] newIds = new int[data.paths.length];
+            for (int i = 0; i < data.paths.length; i++) {
+                if (outdatedFiles.contains(data.paths[i])) {
+                    newIds[i] = -1;
+                }
+                else {
+                    newIds[i] = writer.files.size();
+                    writer.files.add(new IndexedFile(data.paths[i], data.sizes[i], data.modified[i], null));
+                }
+            }
+            for (int i = 0; i < data.trigramCount; i++) {
+                int[] ids = data.getPostings(i);
+                int count = 0;
+                for (int id : ids) {
+                    if (newIds[id] != -1) {
+                        ids[count++] = newIds[id];
+                    }
+                }
+                writer.addPostings(data.getTrigram(i), ids, count);
+            }
+            for (IndexedFile file : changedFiles.values()) {
+                writer.addFile(file);
+            }
+            writer.write(indexFile, root);
+        }
+        catch (IOException e) {
+            //Index cannot be written: The changes are detected again when the index is opened...
+        }
+    }
+
+
+    /**
+     * Returns the files that may contain matches of the passed query. Every file that contains a match is returned,
+     * but not every returned file needs to contain a match. Files that could not be indexed are always returned.
+     *
+     * @param query Query to be searched.
+     * @return      Absolute paths of the candidate files, or {@code null} if the index cannot narrow the files for the
+     *              query, i.e. because the query is shorter than a trigram.
+     */
+    public List<Path> getCandidates(SearchQuery query) {
+        if (query.isMultiTerm()) {
+            //Every file containing any of the terms is a candidate:
+            LinkedHashSet<Path> candidates = new LinkedHashSet<Path>();
+            for (String term : query.getTerms()) {
+                List<Path> termCandidates = getCandidates(new SearchQuery(term, false, query.isCaseSensitive(), query.isWholeWord()));
+                if (termCandidates == null) {
+                    return null;
+                }
+                candidates.addAll(termCandidates);
+            }
+            return new ArrayList<Path>(candidates);
+        }
+        long[] trigrams = getQueryTrigrams(query);
+        if (trigrams.length == 0) {
+            return null;
+        }
+        IndexData data = this.data;
+
+        //Intersect the posting lists, beginning with the shortest:
+        int[][] postings = new int[trigrams.length][];
+        for (int i = 0; i < trigrams.length; i++) {
+            int position = data.find(trigrams[i]);
+            postings[i] = position == -1 ? new int[0] : data.getPostings(position);
+        }
+        Arrays.sort(postings, (a, b) -> Integer.compare(a.length, b.length));
+        int[] ids = postings[0];
+        int count = ids.length;
+        for (int i = 1; i < postings.length && count > 0; i++) {
+            count = intersect(ids, count, postings[i]);
+        }
+
+        ArrayList<Path> candidates = new ArrayList<Path>();
+        for (int i = 0; i < count; i++) {
+            String path = data.paths[ids[i]];
+            if (!outdatedFiles.contains(path)) {
+                candidates.add(root.resolve(path));
+            }
+        }
+        for (IndexedFile file : changedFiles.values()) {
+            if (containsAll(file.trigrams, trigrams)) {
+                candidates.add(root.resolve(file.path));
+            }
+        }
+        for (String path : unindexedFiles) {
+            candidates.add(root.resolve(path));
+        }
+        return candidates;
+    }
+
+
+    /**
+     * Maps the index file and reads its file table.
+     *
+     * @return              Data of the index file.
+     * @throws IOException  The index file does not exist, cannot be read or belongs to another workspace.
+     */
+    private IndexData map() throws IOException {
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Index file is too large");
+            }
+            //The mapping remains valid after the channel is closed:
+            return new IndexData(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), root);
+        }
+    }
+
+    /**
+     * Builds the index from scratch by indexing all files of the workspace in parallel, and writes it to the index
+     * file.
+     *
+     * @param pool  Pool on which the files are indexed.
+     */
+    private void build(ForkJoinPool pool) {
+        IndexWriter writer = new IndexWriter();
+        walker.walk(pool, path -> {
+            IndexedFile file = index(path);
+            if (file != null) {
+                writer.addFile(file);
+            }
+        }, () -> closed);
+        if (closed) {
+            return;
+        }
+        try {
+            writer.write(indexFile, root);
+            data = map();
+        }
+        catch (IOException e) {
+            //Index file cannot be written: Keep the index in memory...
+            data = new IndexData();
+            for (IndexedFile file : writer.files) {
+                changedFiles.put(file.path, file);
+            }
+            walker.walk(pool, this::update, () -> closed);
+        }
+    }
+
+    /**
+     * Indexes all files of the workspace again whose sizes or modification times differ from those within the
+     * {@link #data}, and all files that were created since. Files that were deleted are removed from the index.
+     *
+     * @param pool  Pool on which the files are indexed.
+     */
+    private void refresh(ForkJoinPool pool) {
+        IndexData data = this.data;
+        Set<String> existingFiles = ConcurrentHashMap.newKeySet();
+        walker.walk(pool, path -> {
+            String relativePath = root.relativize(path).toString();
+            existingFiles.add(relativePath);
+            Integer id = data.ids.get(relativePath);
+            try {
+                if (id != null && Files.size(path) == data.sizes[id] && Files.getLastModifiedTime(path).toMillis() == data.modified[id]) {
+                    //File is up-to-date:
+                    return;
+                }
+            }
+            catch (IOException e) {
+                //File cannot be read: Remove it from the index...
+            }
+            update(path);
+        }, () -> closed);
+        if (closed) {
+            return;
+        }
+        for (String path : data.paths) {
+            if (!existingFiles.contains(path)) {
+                outdatedFiles.add(path);
+            }
+        }
+        unindexedFiles.retainAll(existingFiles);
+    }
+
+    /**
+     * Indexes the passed file again. If the file no longer exists, it is removed from the index.
+     *
+     * @param path  File to be indexed.
+     */
+    private void update(Path path) {
+        String relativePath = root.relativize(path).toString();
+        IndexedFile file = index(path);
+        if (data.ids.containsKey(relativePath)) {
+            outdatedFiles.add(relativePath);
+        }
+        if (file != null) {
+            changedFiles.put(relativePath, file);
+        }
+        else {
+            changedFiles.remove(relativePath);
+        }
+    }
+
+    /**
+     * Removes all files within the passed deleted directory from the index.
+     *
+     * @param directory Directory that was deleted.
+     */
+    private void remove(Path directory) {
+        String prefix = root.relativize(directory).toString() + directory.getFileSystem().getSeparator();
+        for (String path : data.paths) {
+            if (path.startsWith(prefix)) {
+                outdatedFiles.add(path);
+            }
+        }
+        changedFiles.keySet().removeIf(path -> path.startsWith(prefix));
+        unindexedFiles.removeIf(path -> path.startsWith(prefix));
+    }
+
+    /**
+     * Reads the passed file window by window and collects its trigrams. If the file cannot be indexed, it is added to
+     * the {@link #unindexedFiles}, so that it is searched for every query.
+     *
+     * @param path  File to be indexed.
+     * @return      Indexed file, or {@code null} if the file is no regular file or cannot be indexed.
+     */
+    private IndexedFile index(Path path) {
+        String relativePath = root.relativize(path).toString();
+        try {
+            if (!Files.isRegularFile(path)) {
+                unindexedFiles.remove(relativePath);
+                return null;
+            }
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            long[] trigrams = NO_TRIGRAMS;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                if (!FileSearch.isBinary(channel)) {
+                    TrigramCollector collector = new TrigramCollector((int)Math.min(attributes.size(), 1 << 14));
+                    new File(path.toString()).load(channel, (chunk, bytesLoaded, fileSize) -> {
+                        collector.add(chunk);
+                        if (collector.size() > MAX_FILE_TRIGRAMS) {
+                            //Stop reading the file:
+                            throw new UncheckedIOException(new IOException("Too many trigrams in " + path));
+                        }
+                    }, false);
+                    trigrams = collector.toSortedArray();
+                }
+            }
+            unindexedFiles.remove(relativePath);
+            return new IndexedFile(relativePath, attributes.size(), attributes.lastModifiedTime().toMillis(), trigrams);
+        }
+        catch (IOException | RuntimeException e) {
+            //File cannot be indexed, so it is searched for every query:
+            unindexedFiles.add(relativePath);
+            return null;
+        }
+    }
+
+
+    /**
+     * Registers all directories of the workspace with a new {@linkplain WatchService} and starts a daemon thread
+     * which indexes the files that are changed.
+     */
+    private void watch() {
+        try {
+            watchService = root.getFileSystem().newWatchService();
+        }
+        catch (IOException | UnsupportedOperationException e) {
+            //Workspace cannot be watched: Changes are detected when the index is opened again...
+            return;
+        }
+        register(root, false);
+        Thread watcher = new Thread(this::processEvents, "TrigramIndex watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * Registers the passed directory and all its subdirectories with the {@link #watchService}.
+     *
+     * @param directory Directory to be registered.
+     * @param created   Whether the directory was just created, so that its files must be indexed.
+     */
+    private void register(Path directory, boolean created) {
+        try {
+            Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                    try {
+                        dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                    }
+                    catch (IOException e) {
+                        //Directory cannot be watched, i.e. because the limit of watches is reached...
+                    }
+                    return closed ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    if (created) {
+                        update(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        catch (IOException | ClosedWatchServiceException e) {
+            //Directory cannot be walked, or the index was closed...
+        }
+    }
+
+    /**
+     * Waits for changes within the workspace and updates the index accordingly, until the index is closed.
+     */
+    private void processEvents() {
+        while (!closed) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            }
+            catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path directory = (Path)key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    //Events were lost, compare the whole workspace with the index:
+                    ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+                    refresh(pool);
+                    pool.shutdown();
+                    continue;
+                }
+                Path path = directory.resolve((Path)event.context());
+                if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                        register(path, true);
+                    }
+                }
+                else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE && !data.ids.containsKey(root.relativize(path).toString()) && !changedFiles.containsKey(root.relativize(path).toString())) {
+                    //Deleted path is no indexed file, so it may have been a directory:
+                    remove(path);
+                }
+                else {
+                    update(path);
+                }
+            }
+            key.reset();
+        }
+    }
+
+
+    /**
+     * Returns the trigrams which every file containing a match of the passed query must contain.
+     *
+     * @param query Query to be searched.
+     * @return      Sorted trigrams without duplicates, or an empty array if there are none.
+     */
+    static long[] getQueryTrigrams(SearchQuery query) {
+        ArrayList<String> literals = query.isRegex() ? getRequiredLiterals(query.getPattern()) : new ArrayList<String>(List.of(query.getPattern()));
+        TrigramTable table = new TrigramTable(16);
+        for (String literal : literals) {
+            long trigram = 0;
+            int length = 0;
+            for (int i = 0; i < literal.length(); i++) {
+                char c = literal.charAt(i);
+                if (!query.isCaseSensitive() && c >= 128) {
+                    //Non-ASCII characters may match characters that are folded differently:
+                    length = 0;
+                    continue;
+                }
+                trigram = ((trigram << 16) | fold(c)) & TRIGRAM_MASK;
+                if (++length >= 3) {
+                    table.putIfAbsent(trigram, 0);
+                }
+            }
+        }
+        return table.toSortedArray();
+    }
+
+    /**
+     * Returns literal texts which every match of the passed regular expression must contain. The regular expression
+     * is analyzed conservatively: Alternations, lookarounds and inline flags prevent any literal from being returned,
+     * and every optional or repeated part of the expression ends the current literal.
+     *
+     * @param regex Regular expression.
+     * @return      Literals that are contained in every match.
+     */
+    static ArrayList<String> getRequiredLiterals(String regex) {
+        ArrayList<String> literals = new ArrayList<String>();
+        if (regex.indexOf('|') != -1 || regex.contains("\\Q")) {
+            return new ArrayList<String>();
+        }
+        ArrayList<Integer> groupStarts = new ArrayList<Integer>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            int literalChar = -1;
+            switch (c) {
+                case '\\':
+                    if (i + 1 >= regex.length()) {
+                        return new ArrayList<String>();
+                    }
+                    char escaped = regex.charAt(i + 1);
+                    if (!Character.isLetterOrDigit(escaped)) {
+                        literalChar = escaped;
+                        i += 2;
+                    }
+                    else {
+                        //Character class, anchor, back reference or escaped control character:
+                        i = skipEscape(regex, i);
+                    }
+                    break;
+                case '[':
+                    i = skipCharacterClass(regex, i);
+                    break;
+                case '(':
+                    if (regex.startsWith("(?", i) && !regex.startsWith("(?:", i)) {
+                        //Lookaround, named group or inline flags:
+                        return new ArrayList<String>();
+                    }
+                    endLiteral(literal, literals);
+                    groupStarts.add(literals.size());
+                    i += regex.startsWith("(?:", i) ? 3 : 1;
+                    continue;
+                case ')':
+                    endLiteral(literal, literals);
+                    i++;
+                    int groupStart = groupStarts.isEmpty() ? 0 : groupStarts.remove(groupStarts.size() - 1);
+                    if (isOptional(regex, i)) {
+                        //Literals within an optional group are not required:
+                        literals.subList(groupStart, literals.size()).clear();
+                    }
+                    i = skipQuantifier(regex, i);
+                    continue;
+                case '.':
+                case '^':
+                case '$':
+                    i++;
+                    break;
+                default:
+                    literalChar = c;
+                    i++;
+                    break;
+            }
+            if (literalChar == -1) {
+                //Atom is no literal character:
+                endLiteral(literal, literals);
+                i = skipQuantifier(regex, i);
+            }
+            else if (isOptional(regex, i)) {
+                endLiteral(literal, literals);
+                i = skipQuantifier(regex, i);
+            }
+            else if (i < regex.length() && (regex.charAt(i) == '+' || regex.charAt(i) == '{')) {
+                //Character is required, but may be followed by repetitions of itself:
+                literal.append((char)literalChar);
+                endLiteral(literal, literals);
+                i = skipQuantifier(regex, i);
+            }
+            else {
+                literal.append((char)literalChar);
+            }
+        }
+        endLiteral(literal, literals);
+        return literals;
+    }
+
+
+    /**
+     * Adds the passed literal to the passed list, if it is long enough to contain a trigram, and clears it.
+     *
+     * @param literal   Literal that ends.
+     * @param literals  List of literals.
+     */
+    private static void endLiteral(StringBuilder literal, ArrayList<String> literals) {
+        if (literal.length() >= 3) {
+            literals.add(literal.toString());
+        }
+        literal.setLength(0);
+    }
+
+    /**
+     * Tests whether the quantifier at the passed position of the regex allows zero repetitions.
+     *
+     * @param regex     Regular expression.
+     * @param position  Position after an atom.
+     * @return          Whether the atom is optional.
+     */
+    private static boolean isOptional(String regex, int position) {
+        if (position >= regex.length()) {
+            return false;
+        }
+        char c = regex.charAt(position);
+        if (c == '?' || c == '*') {
+            return true;
+        }
+        if (c == '{') {
+            int end = position + 1;
+            while (end < regex.length() && Character.isDigit(regex.charAt(end))) {
+                end++;
+            }
+            return end == position + 1 || Integer.parseInt(regex.substring(position + 1, Math.min(end, position + 10))) == 0;
+        }
+        return false;
+    }
+
+    /**
+     * Skips the quantifier at the passed position of the regex, including a lazy or possessive suffix.
+     *
+     * @param regex     Regular expression.
+     * @param position  Position after an atom.
+     * @return          Position after the quantifier.
+     */
+    private static int skipQuantifier(String regex, int position) {
+        if (position >= regex.length()) {
+            return position;
+        }
+        char c = regex.charAt(position);
+        if (c == '?' || c == '*' || c == '+') {
+            position++;
+        }
+        else if (c == '{') {
+            int end = regex.indexOf('}', position);
+            position = end == -1 ? regex.length() : end + 1;
+        }
+        else {
+            return position;
+        }
+        if (position < regex.length() && (regex.charAt(position) == '?' || regex.charAt(position) == '+')) {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Skips the escape sequence at the passed position of the regex, whose second character is a letter or digit.
+     *
+     * @param regex     Regular expression.
+     * @param position  Position of the backslash.
+     * @return          Position after the escape sequence.
+     */
+    private static int skipEscape(String regex, int position) {
+        char c = regex.charAt(position + 1);
+        position += 2;
+        if ((c == 'p' || c == 'P' || c == 'x' || c == 'N') && position < regex.length() && regex.charAt(position) == '{') {
+            int end = regex.indexOf('}', position);
+            return end == -1 ? regex.length() : end + 1;
+        }
+        if (c == 'k' && position < regex.length() && regex.charAt(position) == '<') {
+            int end = regex.indexOf('>', position);
+            return end == -1 ? regex.length() : end + 1;
+        }
+        int length = c == 'x' ? 2 : c == 'u' ? 4 : c == 'c' || c == 'p' || c == 'P' ? 1 : 0;
+        if (c == '0' || Character.isDigit(c)) {
+            //Octal escape or back reference:
+            while (position < regex.length() && Character.isDigit(regex.charAt(position))) {
+                position++;
+            }
+        }
+        return Math.min(regex.length(), position + length);
+    }
+
+    /**
+     * Skips the character class at the passed position of the regex, including nested classes.
+     *
+     * @param regex     Regular expression.
+     * @param position  Position of the opening bracket.
+     * @return          Position after the closing bracket.
+     */
+    private static int skipCharacterClass(String regex, int position) {
+        int depth = 0;
+        int i = position;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == '[') {
+                depth++;
+                if (regex.startsWith("^", i + 1)) {
+                    i++;
+                }
+                if (regex.startsWith("]", i + 1)) {
+                    //Closing bracket at the beginning of a class is a literal:
+                    i++;
+                }
+            }
+            else if (c == ']' && --depth == 0) {
+                return i + 1;
+            }
+            i++;
+        }
+        return regex.length();
+    }
+
+
+    /**
+     * Case-folds the passed character in such a way that characters which are equal when case is ignored are folded
+     * to the same character.
+     *
+     * @param c Character to be folded.
+     * @return  Folded character.
+     */
+    static char fold(char c) {
+        if (c < 128) {
+            return c >= 'A' && c <= 'Z' ? (char)(c + ('a' - 'A')) : c;
+        }
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * Intersects the first IDs of the passed array with the passed sorted IDs. The result is stored at the
+     * beginning of the first array.
+     *
+     * @param ids   Sorted IDs, which are replaced by the intersection.
+     * @param count Number of IDs within the first array.
+     * @param other Sorted IDs to be intersected with.
+     * @return      Number of IDs within the intersection.
+     */
+    private static int intersect(int[] ids, int count, int[] other) {
+        int result = 0;
+        int j = 0;
+        for (int i = 0; i < count && j < other.length; i++) {
+            while (j < other.length && other[j] < ids[i]) {
+                j++;
+            }
+            if (j < other.length && other[j] == ids[i]) {
+                ids[result++] = ids[i];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Tests whether the first sorted trigrams contain all of the second sorted trigrams.
+     *
+     * @param trigrams  Sorted trigrams of a file.
+     * @param required  Sorted trigrams which are required.
+     * @return          Whether all required trigrams are contained.
+     */
+    private static boolean containsAll(long[] trigrams, long[] required) {
+        for (long trigram : required) {
+            if (Arrays.binarySearch(trigrams, trigram) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads a variable-length int from the passed buffer.
+     *
+     * @param buffer    Buffer from which the int is read.
+     * @return          Int.
+     */
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     * Returns the number of bytes of the passed int when it is written with variable length.
+     *
+     * @param value Int.
+     * @return      Number of bytes.
+     */
+    private static int varIntLength(int value) {
+        int length = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Reads a String, which is stored as int length and UTF-8 bytes, from the passed buffer.
+     *
+     * @param buffer    Buffer from which the String is read.
+     * @return          String.
+     */
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the passed String as int length and UTF-8 bytes.
+     *
+     * @param output        Stream to which the String is written.
+     * @param s             String.
+     * @throws IOException  The String cannot be written.
+     */
+    private static void writeString(DataOutputStream output, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+}
@@ -0,0 +1,53 @@
+package backend.search;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+
+/**
+ * This class finds characters within arrays through the vector API, which compares as many characters at once as fit
+ * into a SIMD register of the CPU.
+ * <br><b><i>IMPORTANT:</i> This class requires the module {@code jdk.incubator.vector}, which is only available if
+ * VATE is started with {@code --add-modules jdk.incubator.vector}. Use {@link LiteralMatcher} instead, which only uses
+ * this class if the module is available!</b>
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+final class VectorCharFilter {
+
+    /**
+     * Stores the preferred vector species of the CPU. As characters are 16 bits wide, they are compared as shorts.
+     */
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+
+
+    /**
+     * Returns the index of the first occurrence of the passed character within the passed range of the array.
+     *
+     * @param array Array to be searched.
+     * @param from  Index of the first character to be searched.
+     * @param to    Index after the last character to be searched.
+     * @param c     Character to be found.
+     * @return      Index of the character, or {@code -1} if the character does not occur.
+     */
+    static int indexOf(char[] array, int from, int to, char c) {
+        int i = from;
+        int bound = from + SPECIES.loopBound(to - from);
+        short value = (short)c;
+        for (; i < bound; i += SPECIES.length()) {
+            VectorMask<Short> mask = ShortVector.fromCharArray(SPECIES, array, i).eq(value);
+            if (mask.anyTrue()) {
+                return i + mask.firstTrue();
+            }
+        }
+        for (; i < to; i++) {
+            if (array[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+}
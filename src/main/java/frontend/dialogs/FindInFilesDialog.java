@@ -0,0 +1,612 @@
+package frontend.dialogs;
+
+import backend.config.Config;
+import backend.search.FileMatch;
+import backend.search.FileSearch;
+import backend.search.FileSearchListener;
+import backend.search.RegexTimeoutException;
+import backend.search.SearchQuery;
+import backend.search.StreamingSearch;
+import backend.search.StreamingSearchListener;
+import frontend.frames.main.MainFrame;
+import frontend.frames.main.components.EditorTab;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.PatternSyntaxException;
+
+
+/**
+ * Implements a dialog that allows the user to search a regex within all files of a directory, without opening the
+ * files. The files are searched in the background through a {@linkplain FileSearch}, and the matches are listed as
+ * soon as they are found. Double-clicking a match opens the file and marks the match.
+ * <p>
+ * If a single file is selected instead of a directory, the file is searched through a {@linkplain StreamingSearch},
+ * which does not load the file, so that files larger than the heap can be searched. The progress and throughput of
+ * such a search are shown while it is running, and the matches can be counted without listing them.
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public class FindInFilesDialog extends JDialog {
+
+    /**
+     * Stores the preview of the prototype match, which determines the size of the cells of the {@link #resultList}.
+     */
+    private static final String PROTOTYPE_PREVIEW = "x".repeat(120);
+
+
+    /**
+     * This class implements a worker that searches the files in the background and publishes the matches of every
+     * file as soon as the file is searched.
+     */
+    private class FileSearchWorker extends SwingWorker<Integer, FileMatch> implements FileSearchListener {
+
+        /**
+         * Stores the search to be performed.
+         */
+        private final FileSearch search;
+
+        /**
+         * Stores the number of files in which matches were found.
+         */
+        private final AtomicInteger filesWithMatches;
+
+
+        /**
+         * Constructs a new FileSearchWorker.
+         *
+         * @param search    Search to be performed.
+         */
+        private FileSearchWorker(FileSearch search) {
+            this.search = search;
+            filesWithMatches = new AtomicInteger(0);
+        }
+
+
+        /**
+         * Searches the files in the background.
+         *
+         * @return              Number of text files that were searched.
+         * @throws IOException  The directory does not exist.
+         */
+        @Override
+        protected Integer doInBackground() throws IOException {
+            return search.search(this);
+        }
+
+        /**
+         * Publishes the matches within a file.
+         *
+         * @param matches   Matches within a single file.
+         */
+        @Override
+        public void matchesFound(List<FileMatch> matches) {
+            filesWithMatches.incrementAndGet();
+            publish(matches.toArray(new FileMatch[0]));
+        }
+
+        /**
+         * Appends the published matches to the list of results.
+         *
+         * @param matches   Matches that were published.
+         */
+        @Override
+        protected void process(List<FileMatch> matches) {
+            if (isCancelled() || worker != this) {
+                return;
+            }
+            resultModel.addAll(matches);
+            statusLabel.setText(String.format(Config.strings.searchingFiles, resultModel.size(), filesWithMatches.get()));
+        }
+
+        /**
+         * Shows the result of the search once all files are searched.
+         */
+        @Override
+        protected void done() {
+            if (worker != this) {
+                //A newer search has been started:
+                return;
+            }
+            worker = null;
+            searchButton.setEnabled(true);
+            cancelButton.setEnabled(false);
+            if (isCancelled()) {
+                statusLabel.setText(String.format(Config.strings.searchedFiles, resultModel.size(), filesWithMatches.get(), search.getFilesSearched()));
+                return;
+            }
+            try {
+                statusLabel.setText(String.format(Config.strings.searchedFiles, resultModel.size(), filesWithMatches.get(), get()));
+            }
+            catch (InterruptedException | ExecutionException e) {
+                if (e.getCause() instanceof PatternSyntaxException) {
+                    //Invalid regex:
+                    statusLabel.setText(Config.strings.invalidRegex);
+                }
+                else {
+                    //Directory does not exist:
+                    statusLabel.setText(Config.strings.directoryNotFound);
+                }
+            }
+        }
+
+    }
+
+
+    /**
+     * This class implements a worker that searches a single file window by window in the background and publishes
+     * the matches of every window as soon as the window is searched.
+     */
+    private class StreamingSearchWorker extends SwingWorker<Long, FileMatch> implements StreamingSearchListener {
+
+        /**
+         * Stores the search to be performed.
+         */
+        private final StreamingSearch search;
+
+        /**
+         * Stores the time at which the search was started, in nanoseconds.
+         */
+        private final long startTime;
+
+        /**
+         * Stores the size of the searched file in bytes.
+         */
+        private volatile long fileSize;
+
+
+        /**
+         * Constructs a new StreamingSearchWorker.
+         *
+         * @param search    Search to be performed.
+         */
+        private StreamingSearchWorker(StreamingSearch search) {
+            this.search = search;
+            startTime = System.nanoTime();
+        }
+
+
+        /**
+         * Searches the file in the background.
+         *
+         * @return              Number of matches that were found.
+         * @throws IOException  The file cannot be read.
+         */
+        @Override
+        protected Long doInBackground() throws IOException {
+            return search.search(this);
+        }
+
+        /**
+         * Publishes the matches within a window of the file.
+         *
+         * @param matches   Matches within the window.
+         */
+        @Override
+        public void matchesFound(List<FileMatch> matches) {
+            publish(matches.toArray(new FileMatch[0]));
+        }
+
+        /**
+         * Shows the progress and throughput of the search.
+         *
+         * @param bytesSearched Number of bytes of the file that were searched so far.
+         * @param fileSize      Size of the file in bytes.
+         * @param matches       Number of matches that were found so far.
+         */
+        @Override
+        public void progressed(long bytesSearched, long fileSize, long matches) {
+            this.fileSize = fileSize;
+            int percentage = fileSize == 0 ? 100 : (int)(bytesSearched * 100 / fileSize);
+            String throughput = formatSize(getThroughput(bytesSearched));
+            SwingUtilities.invokeLater(() -> {
+                if (worker == this && !isDone()) {
+                    statusLabel.setText(String.format(Config.strings.streamingFile, matches, percentage, formatSize(fileSize), throughput));
+                }
+            });
+        }
+
+        /**
+         * Appends the published matches to the list of results.
+         *
+         * @param matches   Matches that were published.
+         */
+        @Override
+        protected void process(List<FileMatch> matches) {
+            if (isCancelled() || worker != this) {
+                return;
+            }
+            resultModel.addAll(matches);
+        }
+
+        /**
+         * Shows the result of the search once the file is searched.
+         */
+        @Override
+        protected void done() {
+            if (worker != this) {
+                //A newer search has been started:
+                return;
+            }
+            worker = null;
+            searchButton.setEnabled(true);
+            cancelButton.setEnabled(false);
+            if (isCancelled()) {
+                statusLabel.setText(" ");
+                return;
+            }
+            try {
+                double seconds = (System.nanoTime() - startTime) / 1e9;
+                statusLabel.setText(String.format(Config.strings.streamedFile, get(), formatSize(fileSize), seconds, formatSize(getThroughput(fileSize))));
+            }
+            catch (InterruptedException | ExecutionException e) {
+                if (e.getCause() instanceof PatternSyntaxException) {
+                    //Invalid regex:
+                    statusLabel.setText(Config.strings.invalidRegex);
+                }
+                else if (e.getCause() instanceof RegexTimeoutException) {
+                    //Regex backtracks catastrophically:
+                    statusLabel.setText(Config.strings.regexTooComplex);
+                }
+                else {
+                    //File cannot be read:
+                    statusLabel.setText(Config.strings.fileNotReadable);
+                }
+            }
+        }
+
+
+        /**
+         * Returns the number of bytes that were searched per second.
+         *
+         * @param bytesSearched Number of bytes that were searched so far.
+         * @return              Throughput in bytes per second.
+         */
+        private long getThroughput(long bytesSearched) {
+            long nanos = Math.max(1, System.nanoTime() - startTime);
+            return (long)(bytesSearched * 1e9 / nanos);
+        }
+
+    }
+
+
+    /**
+     * MainFrame in which the dialog is located.
+     */
+    private MainFrame context;
+
+    /**
+     * Buttons for the dialog.
+     */
+    private JButton browseButton, searchButton, cancelButton, indexButton, closeButton;
+
+    /**
+     * Text inputs for the dialog.
+     */
+    private JTextField directoryInput, filterInput, regexInput;
+
+    /**
+     * Checkboxes for the dialog.
+     */
+    private JCheckBox regexCheckbox, matchCaseCheckbox, wholeWordCheckbox, countOnlyCheckbox;
+
+    /**
+     * Label shows the progress and result of the search.
+     */
+    private JLabel statusLabel;
+
+    /**
+     * Stores the matches that were found.
+     */
+    private DefaultListModel<FileMatch> resultModel;
+
+    /**
+     * List displays the matches that were found.
+     */
+    private JList<FileMatch> resultList;
+
+    /**
+     * Stores the worker that is searching in the background, or {@code null} if no search is running.
+     */
+    private SwingWorker<?, FileMatch> worker;
+
+
+    /**
+     * Constructs a new non-modal FindInFilesDialog.
+     *
+     * @param context   MainFrame in which the dialog is located.
+     */
+    public FindInFilesDialog(MainFrame context) {
+        super(context, false); //Non modal dialog!
+
+        this.context = context;
+
+        create();
+    }
+
+
+    /**
+     * Constructs and instantiates the FindInFilesDialog.
+     */
+    private void create() {
+        setLayout(new BorderLayout());
+
+        //Construct configurationContainer:
+        JPanel configurationContainer = new JPanel(new GridLayout(4, 2));
+        add(configurationContainer, BorderLayout.NORTH);
+
+        //Construct directoryInput:
+        JPanel directoryContainer = new JPanel(new BorderLayout());
+        directoryInput = new JTextField(getDefaultDirectory());
+        directoryInput.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                updateCountOnly();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                updateCountOnly();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                updateCountOnly();
+            }
+        });
+        directoryContainer.add(directoryInput, BorderLayout.CENTER);
+        browseButton = new JButton(Config.strings.browseButton);
+        browseButton.addActionListener(e -> browse());
+        directoryContainer.add(browseButton, BorderLayout.EAST);
+        configurationContainer.add(new JLabel(Config.strings.searchDirectory));
+        configurationContainer.add(directoryContainer);
+
+        //Construct filterInput:
+        filterInput = new JTextField("*");
+        configurationContainer.add(new JLabel(Config.strings.searchFileFilter));
+        configurationContainer.add(filterInput);
+
+        //Construct regexInput:
+        regexInput = new JTextField();
+        regexInput.addActionListener(e -> search()); //Search when enter is pressed.
+        configurationContainer.add(new JLabel(Config.strings.searchWhat));
+        configurationContainer.add(regexInput);
+
+        //Construct checkboxes:
+        JPanel checkboxContainer = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        regexCheckbox = new JCheckBox(Config.strings.searchRegex);
+        checkboxContainer.add(regexCheckbox);
+        matchCaseCheckbox = new JCheckBox(Config.strings.searchMatchCase);
+        checkboxContainer.add(matchCaseCheckbox);
+        wholeWordCheckbox = new JCheckBox(Config.strings.searchWholeWord);
+        checkboxContainer.add(wholeWordCheckbox);
+        countOnlyCheckbox = new JCheckBox(Config.strings.countOnly);
+        checkboxContainer.add(countOnlyCheckbox);
+        updateCountOnly();
+        configurationContainer.add(new JPanel()); //No component in first column.
+        configurationContainer.add(checkboxContainer);
+
+        //Construct resultList:
+        resultModel = new DefaultListModel<FileMatch>();
+        resultList = new JList<FileMatch>(resultModel);
+        resultList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        resultList.setPrototypeCellValue(new FileMatch(Paths.get(""), 0, 0, 1, 1, PROTOTYPE_PREVIEW)); //All cells have the same size.
+        resultList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2 && resultList.getSelectedValue() != null) {
+                    showMatch(resultList.getSelectedValue());
+                }
+            }
+        });
+        add(new JScrollPane(resultList), BorderLayout.CENTER);
+
+        //Construct buttonContainer:
+        JPanel southContainer = new JPanel(new BorderLayout());
+        statusLabel = new JLabel(" ");
+        southContainer.add(statusLabel, BorderLayout.NORTH);
+        JPanel buttonContainer = new JPanel(new GridLayout(1, 2));
+        southContainer.add(buttonContainer, BorderLayout.SOUTH);
+        JPanel searchButtonContainer = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        buttonContainer.add(searchButtonContainer);
+        JPanel closeButtonContainer = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonContainer.add(closeButtonContainer);
+        add(southContainer, BorderLayout.SOUTH);
+
+        //Construct searchButton:
+        searchButton = new JButton(Config.strings.search);
+        searchButton.addActionListener(e -> search());
+        searchButtonContainer.add(searchButton);
+
+        //Construct cancelButton:
+        cancelButton = new JButton(Config.strings.cancelButton);
+        cancelButton.addActionListener(e -> cancelSearch());
+        cancelButton.setEnabled(false);
+        searchButtonContainer.add(cancelButton);
+
+        //Construct indexButton:
+        indexButton = new JButton(Config.strings.indexDirectory);
+        indexButton.addActionListener(e -> indexDirectory());
+        closeButtonContainer.add(indexButton);
+
+        //Construct closeButton:
+        closeButton = new JButton(Config.strings.closeButton);
+        closeButton.addActionListener(e -> dispose());
+        closeButtonContainer.add(closeButton);
+
+        setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+        setTitle(Config.strings.findInFiles);
+        setSize(720, 480);
+        setVisible(true);
+    }
+
+
+    /**
+     * Returns the directory that is searched by default, which is the directory of the file within the active tab.
+     *
+     * @return  Default directory, or an empty String if there is none.
+     */
+    private String getDefaultDirectory() {
+        if (context.getTabs().getSelectedComponent() instanceof EditorTab) {
+            Path parent = Paths.get(((EditorTab)context.getTabs().getSelectedComponent()).getFile().getAbsolutePath()).getParent();
+            if (parent != null) {
+                return parent.toString();
+            }
+        }
+        return "";
+    }
+
+    /**
+     * Lets the user select the directory to be searched.
+     */
+    private void browse() {
+        JFileChooser fileChooser = new JFileChooser(directoryInput.getText());
+        fileChooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES); //Single files are searched without loading them.
+        int option = fileChooser.showOpenDialog(this);
+        if (option == JFileChooser.APPROVE_OPTION) {
+            directoryInput.setText(fileChooser.getSelectedFile().getAbsolutePath());
+        }
+    }
+
+
+    /**
+     * Enables the {@link #countOnlyCheckbox} if a single file is selected, since only the matches of single files can
+     * be counted without listing them.
+     */
+    private void updateCountOnly() {
+        boolean singleFile;
+        try {
+            singleFile = Files.isRegularFile(Paths.get(directoryInput.getText().trim()));
+        }
+        catch (InvalidPathException e) {
+            singleFile = false;
+        }
+        countOnlyCheckbox.setEnabled(singleFile);
+    }
+
+
+    /**
+     * Searches the files in the background. A search that is still running is cancelled. If a single file is
+     * selected, it is searched through a {@linkplain StreamingSearch}.
+     */
+    private void search() {
+        cancelSearch();
+        resultModel.clear();
+        if (regexInput.getText().isEmpty()) {
+            //Nothing to search:
+            statusLabel.setText(" ");
+            return;
+        }
+        SearchQuery query = new SearchQuery(regexInput.getText(), regexCheckbox.isSelected(), matchCaseCheckbox.isSelected(), wholeWordCheckbox.isSelected());
+        Path directory;
+        try {
+            directory = Paths.get(directoryInput.getText().trim());
+        }
+        catch (InvalidPathException e) {
+            //Invalid directory:
+            statusLabel.setText(Config.strings.directoryNotFound);
+            return;
+        }
+        searchButton.setEnabled(false);
+        cancelButton.setEnabled(true);
+        if (Files.isRegularFile(directory)) {
+            //Search single file without loading it:
+            StreamingSearch search = new StreamingSearch(directory, query);
+            search.setCountOnly(countOnlyCheckbox.isSelected());
+            worker = new StreamingSearchWorker(search);
+            statusLabel.setText(String.format(Config.strings.streamingFile, 0, 0, formatSize(0), formatSize(0)));
+        }
+        else {
+            FileSearch search = new FileSearch(directory, filterInput.getText(), query);
+            search.setIndex(context.getWorkspaceIndex()); //Only search candidate files if the directory is indexed.
+            worker = new FileSearchWorker(search);
+            statusLabel.setText(String.format(Config.strings.searchingFiles, 0, 0));
+        }
+        worker.execute();
+    }
+
+    /**
+     * Indexes the directory to search as workspace in the background, so that later searches within the directory
+     * only need to search the files which may contain matches.
+     */
+    private void indexDirectory() {
+        Path directory;
+        try {
+            directory = Paths.get(directoryInput.getText().trim()).toAbsolutePath().normalize();
+        }
+        catch (InvalidPathException e) {
+            //Invalid directory:
+            statusLabel.setText(Config.strings.directoryNotFound);
+            return;
+        }
+        if (directoryInput.getText().isBlank() || !Files.isDirectory(directory)) {
+            statusLabel.setText(Config.strings.directoryNotFound);
+            return;
+        }
+        context.indexWorkspace(directory.toString());
+        statusLabel.setText(String.format(Config.strings.indexingDirectory, directory));
+    }
+
+    /**
+     * Cancels the search that is running in the background, if any.
+     */
+    private void cancelSearch() {
+        if (worker != null) {
+            worker.cancel(true);
+        }
+    }
+
+    /**
+     * Opens the file of the passed match and marks the match.
+     *
+     * @param match Match to be shown.
+     */
+    private void showMatch(FileMatch match) {
+        if (match.getOffset() > Integer.MAX_VALUE) {
+            //File is too large to be opened in the editor:
+            return;
+        }
+        context.getTabs().showMatch(match.getFile().toAbsolutePath().toString(), (int)match.getOffset(), match.getLength());
+    }
+
+    /**
+     * Formats the passed number of bytes with a binary unit, i.e. {@code "1.5 GB"}.
+     *
+     * @param bytes Number of bytes.
+     * @return      Formatted number of bytes.
+     */
+    private static String formatSize(long bytes) {
+        String[] units = {"B", "KB", "MB", "GB", "TB"};
+        double size = bytes;
+        int unit = 0;
+        while (size >= 1024 && unit < units.length - 1) {
+            size /= 1024;
+            unit++;
+        }
+        return unit == 0 ? bytes + " " + units[0] : String.format("%.1f %s", size, units[unit]);
+    }
+
+
+    /**
+     * Disposes (Closes) this dialog.
+     */
+    @Override
+    public void dispose() {
+        cancelSearch();
+        super.dispose();
+    }
+
+}
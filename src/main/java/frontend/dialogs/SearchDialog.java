@@ -1,24 +1,296 @@
 package frontend.dialogs;
 
 import backend.config.Config;
+import backend.document.PieceTableContent;
+import backend.search.MatchIndex;
+import backend.search.MultiPatternMatcher;
+import backend.search.RegexTimeoutException;
+import backend.search.SearchEngine;
+import backend.search.SearchListener;
+import backend.search.SearchQuery;
+import backend.search.SearchResult;
 import frontend.frames.main.MainFrame;
 import frontend.frames.main.components.EditorTab;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.regex.PatternSyntaxException;
 
 
 /**
- * Implements a dialog that allows the user search a regex within VATE.
+ * Implements a dialog that allows the user search a regex within VATE. The search is repeated while the user types,
+ * once no key was pressed for a short delay. Each search runs in the background and is cancelled as soon as the query
+ * changes again. Instead of a single regex, multiple terms can be searched at once, which are entered through a
+ * {@linkplain TermsDialog}.
  *
  * @author  Christian-2003
  * @version 29 May 2023
  */
 public class SearchDialog extends JDialog {
 
+    /**
+     * Stores the delay (in milliseconds) after the last change of the query, after which the query is searched.
+     */
+    private static final int SEARCH_DELAY = 250;
+
+
+    /**
+     * This class implements a worker that searches snapshots of the tabs in the background. The tabs are searched in
+     * parallel on the common {@linkplain ForkJoinPool}. The matches of every tab are published as soon as the tab is
+     * searched, together with the number of matches that were found so far within all tabs.
+     */
+    private class SearchWorker extends SwingWorker<ArrayList<SearchResult>, TabMatches> {
+
+        /**
+         * Stores the query to be searched.
+         */
+        private final SearchQuery query;
+
+        /**
+         * Stores the snapshots of the tabs to be searched. Tabs that cannot be searched are represented by
+         * {@code null}.
+         */
+        private final ArrayList<PieceTableContent.Snapshot> snapshots;
+
+        /**
+         * Stores the first match that shall be highlighted in the editor, or {@code -1} if only stale matches are
+         * searched again, so that the active match does not change.
+         */
+        private final int firstMatchToHighlight;
+
+        /**
+         * Stores the number of matches that were found so far within each tab.
+         */
+        private final AtomicIntegerArray matchesPerTab;
+
+
+        /**
+         * Constructs a new SearchWorker.
+         *
+         * @param query                 Query to be searched.
+         * @param snapshots             Snapshots of the tabs to be searched.
+         * @param firstMatchToHighlight First match that shall be highlighted in the editor, or {@code -1} if only
+         *                              stale matches are searched again.
+         */
+        private SearchWorker(SearchQuery query, ArrayList<PieceTableContent.Snapshot> snapshots, int firstMatchToHighlight) {
+            this.query = query;
+            this.snapshots = snapshots;
+            this.firstMatchToHighlight = firstMatchToHighlight;
+            matchesPerTab = new AtomicIntegerArray(snapshots.size());
+        }
+
+
+        /**
+         * Searches the snapshots in parallel and publishes the matches of every tab once the tab is searched.
+         *
+         * @return              Matches within the respective tabs.
+         * @throws Exception    The query is an invalid regular expression or the search was interrupted.
+         */
+        @Override
+        protected ArrayList<SearchResult> doInBackground() throws Exception {
+            ArrayList<SearchResult> results = new ArrayList<SearchResult>(Collections.nCopies(snapshots.size(), (SearchResult)null));
+            CompletionService<TabMatches> completionService = new ExecutorCompletionService<TabMatches>(ForkJoinPool.commonPool());
+            int submitted = 0;
+            for (int i = 0; i < snapshots.size(); i++) {
+                PieceTableContent.Snapshot snapshot = snapshots.get(i);
+                if (snapshot != null) {
+                    int tab = i;
+                    completionService.submit(() -> new TabMatches(tab, SearchEngine.search(snapshot, query, new TabSearchListener(tab))));
+                    submitted++;
+                }
+            }
+            for (int i = 0; i < submitted; i++) {
+                try {
+                    TabMatches matches = completionService.take().get();
+                    results.set(matches.tab, matches.result);
+                    publish(matches);
+                }
+                catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException) {
+                        //Invalid or too complex regex, or cancelled search:
+                        throw (RuntimeException)e.getCause();
+                    }
+                    throw e;
+                }
+            }
+            return results;
+        }
+
+        /**
+         * Shows the matches of the tabs that were searched and the number of matches found so far.
+         *
+         * @param chunks    Matches of tabs that were searched, or progress of tabs that are searched.
+         */
+        @Override
+        protected void process(List<TabMatches> chunks) {
+            if (isCancelled() || searchWorker != this) {
+                return;
+            }
+            for (TabMatches current : chunks) {
+                if (current.result != null) {
+                    indices.get(current.tab).setMatches(current.result);
+                }
+            }
+            updateMatches(Config.strings.noMatches);
+            if (firstMatchToHighlight < 0) {
+                //The tabs that are not searched again keep their matches:
+                return;
+            }
+            int matches = 0;
+            for (int i = 0; i < matchesPerTab.length(); i++) {
+                matches += matchesPerTab.get(i);
+            }
+            noMatches.setVisible(false);
+            matchesContainer.setVisible(true);
+            numberOfMatches.setText("" + matches);
+        }
+
+        /**
+         * Shows the matches once the search is finished. If the user already moved through the matches that were
+         * found while searching, the active match is kept.
+         */
+        @Override
+        protected void done() {
+            if (searchWorker != this) {
+                //A newer search has been started:
+                return;
+            }
+            searchWorker = null;
+            Runnable replacement = pendingReplacement;
+            pendingReplacement = null;
+            if (isCancelled()) {
+                return;
+            }
+            try {
+                ArrayList<SearchResult> results = get();
+                for (int i = 0; i < results.size(); i++) {
+                    if (results.get(i) != null) {
+                        //Matches that were already published are ignored by the index:
+                        indices.get(i).setMatches(results.get(i));
+                    }
+                }
+            }
+            catch (InterruptedException | ExecutionException e) {
+                disposeIndices();
+                if (e.getCause() instanceof PatternSyntaxException) {
+                    //Invalid regex:
+                    showMatches(0, Config.strings.invalidRegex);
+                    return;
+                }
+                if (e.getCause() instanceof RegexTimeoutException) {
+                    //Regex backtracks catastrophically:
+                    showMatches(0, Config.strings.regexTooComplex);
+                    return;
+                }
+            }
+            if (currentMatch < 0 && firstMatchToHighlight >= 0) {
+                showMatches(firstMatchToHighlight, Config.strings.noMatches);
+            }
+            else {
+                updateMatches(Config.strings.noMatches);
+            }
+            if (replacement != null && isUpToDate()) {
+                //The user replaced while the matches were searched:
+                replacement.run();
+            }
+            else if (replacement != null && isSearched()) {
+                //The tabs were edited while the matches were searched:
+                queueReplacement(replacement);
+            }
+        }
+
+
+        /**
+         * This class implements the listener that follows the search of a single tab.
+         */
+        private class TabSearchListener implements SearchListener {
+
+            /**
+             * Stores the index of the searched tab.
+             */
+            private final int tab;
+
+
+            /**
+             * Constructs a new TabSearchListener.
+             *
+             * @param tab   Index of the searched tab.
+             */
+            private TabSearchListener(int tab) {
+                this.tab = tab;
+            }
+
+
+            /**
+             * Publishes the number of matches found so far within the tab.
+             *
+             * @param matches   Number of matches that were found so far.
+             */
+            @Override
+            public void matchesFound(int matches) {
+                matchesPerTab.set(tab, matches);
+                publish(new TabMatches(tab, null));
+            }
+
+            /**
+             * Returns whether the search was cancelled.
+             *
+             * @return  Whether the search was cancelled.
+             */
+            @Override
+            public boolean isCancelled() {
+                return SearchWorker.this.isCancelled();
+            }
+
+        }
+
+    }
+
+
+    /**
+     * This class stores the matches within a single tab, which are published by the {@linkplain SearchWorker}.
+     */
+    private static class TabMatches {
+
+        /**
+         * Stores the index of the tab.
+         */
+        private final int tab;
+
+        /**
+         * Stores the matches within the tab, or {@code null} if the tab is still searched.
+         */
+        private final SearchResult result;
+
+
+        /**
+         * Constructs new TabMatches.
+         *
+         * @param tab       Index of the tab.
+         * @param result    Matches within the tab, or {@code null} if the tab is still searched.
+         */
+        private TabMatches(int tab, SearchResult result) {
+            this.tab = tab;
+            this.result = result;
+        }
+
+    }
+
+
     /**
      * MainFrame in which the dialog is located.
      */
@@ -27,7 +299,7 @@ public class SearchDialog extends JDialog {
     /**
      * Buttons for the dialog.
      */
-    private JButton closeButton, searchButton, nextButton, previousButton, replaceButton, replaceAllButton, swapReplaceWithRegex;
+    private JButton closeButton, searchButton, nextButton, previousButton, resultsButton, replaceButton, replaceAllButton, swapReplaceWithRegex;
 
     /**
      * Radio buttons for the dialog.
@@ -47,7 +319,7 @@ public class SearchDialog extends JDialog {
     /**
      * Checkboxes for the dialog.
      */
-    private JCheckBox enableReplacementCheckbox;
+    private JCheckBox enableReplacementCheckbox, regexCheckbox, matchCaseCheckbox, wholeWordCheckbox, multipleTermsCheckbox;
 
     /**
      * JPanel contains the display of the number of matches.
@@ -60,15 +332,49 @@ public class SearchDialog extends JDialog {
     private int numberOfMatchesInt, currentMatch, currentTab, currentPositionInCurrentTab;
 
     /**
-     * Stores the indices for the matches (inner ArrayList) for the individual tabs (outer ArrayList).
-     * If only the active tab shall be searched, the outer ArrayList contains only one element.
+     * Stores the matches for the individual tabs. If only the active tab shall be searched, the ArrayList contains
+     * only one element. The matches follow all edits of the tabs, so that they do not need to be searched again.
+     */
+    private ArrayList<MatchIndex> indices;
+
+    /**
+     * Stores the terms that are searched if multiple terms shall be searched, separated by line breaks.
+     */
+    private String terms;
+
+    /**
+     * Stores the query that was searched by the dialog.
+     */
+    private SearchQuery searchedQuery;
+
+    /**
+     * Stores whether all tabs were searched. If so, {@link #indices} contains the matches of every tab at the index of
+     * the tab.
      */
-    private ArrayList<ArrayList<Integer>> indices;
+    private boolean searchedAllTabs;
 
     /**
-     * Stores the regex that was searched by the dialog.
+     * Stores the timer which starts the search once the query was not changed for {@link #SEARCH_DELAY}
+     * milliseconds.
      */
-    private String searchedRegex;
+    private Timer searchTimer;
+
+    /**
+     * Stores the timer which searches the {@linkplain MatchIndex#isStale() stale} indices again once the tabs were
+     * not edited for {@link #SEARCH_DELAY} milliseconds.
+     */
+    private Timer refreshTimer;
+
+    /**
+     * Stores the worker that is searching in the background, or {@code null} if no search is running.
+     */
+    private SearchWorker searchWorker;
+
+    /**
+     * Stores the replacement that runs once the {@link #searchWorker} found all matches, or {@code null} if no
+     * replacement is waiting for the search.
+     */
+    private Runnable pendingReplacement;
 
 
     /**
@@ -89,7 +395,8 @@ public class SearchDialog extends JDialog {
      * Constructs and instantiates the SearchDialog.
      */
     private void create() {
-        indices = new ArrayList<ArrayList<Integer>>();
+        indices = new ArrayList<MatchIndex>();
+        terms = "";
 
         setLayout(new BorderLayout());
 
@@ -98,25 +405,66 @@ public class SearchDialog extends JDialog {
         mainContainer.setLayout(new BoxLayout(mainContainer, BoxLayout.PAGE_AXIS));
 
         //Construct configurationContainer:
-        JPanel configurationContainer = new JPanel(new GridLayout(3, 2));
+        JPanel configurationContainer = new JPanel(new GridLayout(4, 2));
         mainContainer.add(configurationContainer);
 
         //Construct regexInput:
         regexInput = new JTextField();
+        regexInput.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                scheduleSearch();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                scheduleSearch();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                //Attributes do not change the query...
+            }
+        });
         configurationContainer.add(new JLabel(Config.strings.searchWhat));
+        regexInput.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (multipleTermsCheckbox.isSelected()) {
+                    //The terms cannot be edited within the input:
+                    editTerms();
+                }
+            }
+        });
         configurationContainer.add(regexInput);
+        searchTimer = new Timer(SEARCH_DELAY, e -> searchInBackground(0));
+        searchTimer.setRepeats(false);
+        refreshTimer = new Timer(SEARCH_DELAY, e -> refreshInBackground());
+        refreshTimer.setRepeats(false);
 
         //Construct radioButtons:
         searchFile = new JRadioButton(Config.strings.searchActiveTab);
         searchFile.setSelected(true);
         searchAllFiles = new JRadioButton(Config.strings.searchAllTabs);
-        searchAllFiles.setEnabled(false);
         ButtonGroup radioButtonGroup = new ButtonGroup();
         radioButtonGroup.add(searchFile);
         radioButtonGroup.add(searchAllFiles);
         configurationContainer.add(searchFile);
-        configurationContainer.add(new JPanel()); //No component in second column.
+        regexCheckbox = new JCheckBox(Config.strings.searchRegex);
+        configurationContainer.add(regexCheckbox);
         configurationContainer.add(searchAllFiles);
+        matchCaseCheckbox = new JCheckBox(Config.strings.searchMatchCase);
+        configurationContainer.add(matchCaseCheckbox);
+        multipleTermsCheckbox = new JCheckBox(Config.strings.searchMultipleTerms);
+        configurationContainer.add(multipleTermsCheckbox);
+        wholeWordCheckbox = new JCheckBox(Config.strings.searchWholeWord);
+        configurationContainer.add(wholeWordCheckbox);
+        searchFile.addActionListener(e -> scheduleSearch());
+        searchAllFiles.addActionListener(e -> scheduleSearch());
+        regexCheckbox.addActionListener(e -> scheduleSearch());
+        matchCaseCheckbox.addActionListener(e -> scheduleSearch());
+        wholeWordCheckbox.addActionListener(e -> scheduleSearch());
+        multipleTermsCheckbox.addActionListener(e -> enableMultipleTerms(multipleTermsCheckbox.isSelected()));
 
         //Construct replaceContainer:
         JPanel replaceContainer = new JPanel(new GridLayout(4, 2));
@@ -151,6 +499,10 @@ public class SearchDialog extends JDialog {
         swapReplaceWithRegex.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
+                if (multipleTermsCheckbox.isSelected()) {
+                    //Terms cannot be swapped with the replacement:
+                    return;
+                }
                 String replacement = replacementInput.getText();
                 String regex = regexInput.getText();
                 regexInput.setText(replacement);
@@ -197,6 +549,12 @@ public class SearchDialog extends JDialog {
         JPanel closeButtonContainer = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         buttonContainer.add(closeButtonContainer);
 
+        //Construct resultsButton:
+        resultsButton = new JButton(Config.strings.showSearchResults);
+        resultsButton.addActionListener(e -> context.showSearchResults());
+        resultsButton.setEnabled(false);
+        closeButtonContainer.add(resultsButton);
+
         //Construct closeButton:
         closeButton = new JButton(Config.strings.closeButton);
         closeButton.addActionListener(e -> dispose());
@@ -204,7 +562,7 @@ public class SearchDialog extends JDialog {
 
         //Construct searchButton:
         searchButton = new JButton(Config.strings.search);
-        searchButton.addActionListener(e -> search(0));
+        searchButton.addActionListener(e -> searchInBackground(0));
         searchButtonContainer.add(searchButton);
 
         //Construct previousButton:
@@ -223,39 +581,225 @@ public class SearchDialog extends JDialog {
         add(mainContainer, BorderLayout.NORTH);
         setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
         setTitle(Config.strings.searchDialogTitle);
-        setSize(512, 300);
+        setSize(512, 330);
         setVisible(true);
     }
 
 
     /**
-     * Searches the regex in VATE.
+     * Restarts the delay after which the query is searched. A search that is still running is cancelled, as its
+     * query is outdated.
+     */
+    private void scheduleSearch() {
+        cancelSearch();
+        searchTimer.restart();
+    }
+
+    /**
+     * Cancels the search that is running in the background, if any.
+     */
+    private void cancelSearch() {
+        if (searchWorker != null) {
+            searchWorker.cancel(true);
+            searchWorker = null;
+        }
+        pendingReplacement = null;
+    }
+
+    /**
+     * Searches the regex in VATE in the background. If all tabs shall be searched, the tabs are searched in parallel
+     * and the matches of every tab are shown as soon as the tab is searched.
      *
      * @param firstMatchToHighlight First match that shall be highlighted in the editor.
      */
-    private void search(int firstMatchToHighlight) {
-        indices.clear();
-        searchedRegex = regexInput.getText();
-        if (searchAllFiles.isSelected()) {
-            //All files shall be searched:
-            indices = context.getTabs().searchAllTabs(searchedRegex);
+    private void searchInBackground(int firstMatchToHighlight) {
+        searchTimer.stop();
+        cancelSearch();
+        SearchQuery query = getQuery();
+        if (query.getPattern().isEmpty()) {
+            //Nothing to search:
+            disposeIndices();
+            currentMatch = -1;
+            noMatches.setVisible(false);
+            matchesContainer.setVisible(false);
+            nextButton.setEnabled(false);
+            previousButton.setEnabled(false);
+            return;
         }
-        else {
-            //Only the active tab shall be searched:
-            indices.add(context.getTabs().searchInActiveTab(searchedRegex));
+        searchedQuery = query;
+        searchedAllTabs = searchAllFiles.isSelected();
+        createIndices();
+        ArrayList<PieceTableContent.Snapshot> snapshots = new ArrayList<PieceTableContent.Snapshot>(indices.size());
+        for (MatchIndex index : indices) {
+            snapshots.add(index != null ? index.beginSearch() : null);
+        }
+        currentTab = 0;
+        currentMatch = -1;
+        searchWorker = new SearchWorker(query, snapshots, firstMatchToHighlight);
+        searchWorker.execute();
+    }
+
+    /**
+     * Searches the {@linkplain MatchIndex#isStale() stale} indices again in the background, unless a search is
+     * running already or the entered query was changed. The active match does not change.
+     */
+    private void refreshInBackground() {
+        refreshTimer.stop();
+        if (searchWorker != null || !isSearched() || !hasStaleIndices()) {
+            return;
+        }
+        ArrayList<PieceTableContent.Snapshot> snapshots = new ArrayList<PieceTableContent.Snapshot>(indices.size());
+        for (MatchIndex index : indices) {
+            snapshots.add(index != null && index.isStale() ? index.beginSearch() : null);
+        }
+        searchWorker = new SearchWorker(searchedQuery, snapshots, -1);
+        searchWorker.execute();
+    }
+
+    /**
+     * Tests whether any of the {@link #indices} is {@linkplain MatchIndex#isStale() stale}.
+     *
+     * @return  Whether matches may be missing.
+     */
+    private boolean hasStaleIndices() {
+        for (MatchIndex index : indices) {
+            if (index != null && index.isStale()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the query that is entered into the dialog.
+     *
+     * @return  Entered query.
+     */
+    private SearchQuery getQuery() {
+        if (multipleTermsCheckbox.isSelected()) {
+            return new SearchQuery(terms, false, matchCaseCheckbox.isSelected(), wholeWordCheckbox.isSelected(), true);
+        }
+        return new SearchQuery(regexInput.getText(), regexCheckbox.isSelected(), matchCaseCheckbox.isSelected(), wholeWordCheckbox.isSelected());
+    }
+
+    /**
+     * Tests whether the {@link #indices} contain all matches of the entered query, so that they can be replaced
+     * without searching again.
+     *
+     * @return  Whether the matches are up to date.
+     */
+    private boolean isUpToDate() {
+        return searchWorker == null && isSearched() && !hasStaleIndices();
+    }
+
+    /**
+     * Tests whether the entered query is the {@link #searchedQuery}, regardless of whether its search is finished.
+     *
+     * @return  Whether the entered query was searched.
+     */
+    private boolean isSearched() {
+        return searchedQuery != null && searchedQuery.equals(getQuery()) && searchedAllTabs == searchAllFiles.isSelected();
+    }
+
+    /**
+     * Runs the passed replacement once all matches of the entered query are found. The query is searched in the
+     * background, unless it is being searched already, so that the editor does not block while it is searched.
+     *
+     * @param replacement   Replacement that shall run once all matches are found.
+     */
+    private void queueReplacement(Runnable replacement) {
+        if (searchWorker == null && isSearched()) {
+            refreshInBackground();
+        }
+        if (searchWorker == null || !isSearched()) {
+            searchInBackground(currentMatch < 0 ? 0 : getActiveMatch());
+        }
+        if (searchWorker != null) {
+            pendingReplacement = replacement;
+        }
+    }
+
+    /**
+     * Replaces the {@link #indices} with new indices for the {@link #searchedQuery}, which do not contain any matches
+     * yet. Whenever the matches of an index change due to an edit, the dialog is updated.
+     */
+    private void createIndices() {
+        disposeIndices();
+        indices = context.getTabs().createMatchIndices(searchedQuery, searchedAllTabs);
+        for (MatchIndex index : indices) {
+            if (index != null) {
+                index.addChangeListener(e -> matchesEdited());
+            }
+        }
+        context.getSearchResultsPanel().setMatches(indices, this::resultSelected);
+        context.getTabs().highlightMatches(indices);
+    }
+
+    /**
+     * Disposes the {@link #indices}, so that they no longer follow the edits of the tabs.
+     */
+    private void disposeIndices() {
+        for (MatchIndex index : indices) {
+            if (index != null) {
+                index.dispose();
+            }
         }
+        indices = new ArrayList<MatchIndex>();
+        context.getSearchResultsPanel().setMatches(indices, null);
+        context.getTabs().highlightMatches(indices);
+    }
+
+    /**
+     * Updates the dialog after the matches changed due to an edit. If the active match no longer exists, the last
+     * match of the same tab becomes the active match. If matches may be missing, the tabs are searched again once
+     * they were not edited for a short delay.
+     */
+    private void matchesEdited() {
+        if (hasStaleIndices()) {
+            refreshTimer.restart();
+        }
+        if (currentMatch >= 0 && currentTab < indices.size() && indices.get(currentTab) != null) {
+            currentMatch = Math.min(currentMatch, indices.get(currentTab).size() - 1);
+        }
+        updateMatches(Config.strings.noMatches);
+    }
 
+    /**
+     * Shows the matches that were found and highlights the passed match in the editor.
+     *
+     * @param firstMatchToHighlight Index of the match (across all searched tabs) that shall be highlighted in the
+     *                              editor.
+     * @param noMatchesMessage      Message that is shown if there are no matches.
+     */
+    private void showMatches(int firstMatchToHighlight, String noMatchesMessage) {
+        currentTab = 0;
+        currentMatch = -1;
+        updateMatches(noMatchesMessage);
+        if (numberOfMatchesInt > 0) {
+            //Mark the first match:
+            selectMatch(firstMatchToHighlight < numberOfMatchesInt ? firstMatchToHighlight : 0);
+            markActiveMatch();
+        }
+    }
+
+    /**
+     * Counts the matches that were found so far and updates the dialog accordingly. The active match is not changed.
+     *
+     * @param noMatchesMessage  Message that is shown if there are no matches.
+     */
+    private void updateMatches(String noMatchesMessage) {
         //Count the occurrences:
         numberOfMatchesInt = 0;
-        for (ArrayList<Integer> current : indices) {
+        for (MatchIndex current : indices) {
             if (current != null) {
                 numberOfMatchesInt += current.size();
             }
         }
 
         //Update the dialog:
-        currentMatch = 0;
-        currentTab = 0;
+        context.getSearchResultsPanel().matchesChanged();
+        context.getTabs().repaint();
+        resultsButton.setEnabled(numberOfMatchesInt > 0);
         if (numberOfMatchesInt > 1) {
             nextButton.setEnabled(true);
             previousButton.setEnabled(true);
@@ -267,6 +811,7 @@ public class SearchDialog extends JDialog {
 
         if (numberOfMatchesInt == 0) {
             //No matches found:
+            noMatches.setText(noMatchesMessage);
             noMatches.setVisible(true);
             matchesContainer.setVisible(false);
             return;
@@ -276,37 +821,169 @@ public class SearchDialog extends JDialog {
             matchesContainer.setVisible(true);
         }
         numberOfMatches.setText("" + numberOfMatchesInt);
-        activeMatch.setText("" + (currentMatch + 1));
+        activeMatch.setText("" + (currentMatch < 0 ? 0 : getActiveMatch() + 1));
+    }
+
+
+    /**
+     * Returns the index of the active match across all searched tabs.
+     *
+     * @return  Index of the active match.
+     */
+    private int getActiveMatch() {
+        int match = currentMatch;
+        for (int i = 0; i < currentTab; i++) {
+            if (indices.get(i) != null) {
+                match += indices.get(i).size();
+            }
+        }
+        return match;
+    }
 
-        //Mark the first match:
-        currentMatch = firstMatchToHighlight - 1;
-        forwardIterateThroughMatches();
+    /**
+     * Changes the active match to the match with the passed index across all searched tabs.
+     *
+     * @param match Index of the match, which MUST be smaller than the number of matches.
+     */
+    private void selectMatch(int match) {
+        for (int i = 0; i < indices.size(); i++) {
+            int size = indices.get(i) != null ? indices.get(i).size() : 0;
+            if (match < size) {
+                currentTab = i;
+                currentMatch = match;
+                return;
+            }
+            match -= size;
+        }
     }
 
+    /**
+     * Returns the {@linkplain EditorTab} that edits the document in which the matches at the passed index of
+     * {@link #indices} were found, and selects this tab. The tab is found through its document, since the positions of
+     * the tabs change whenever tabs are closed or the user selects another tab.
+     *
+     * @param index Index of the matches within {@link #indices}.
+     * @return      Tab in which the matches were found, or {@code null} if the tab no longer exists.
+     */
+    private EditorTab getTab(int index) {
+        MatchIndex matches = indices.get(index);
+        if (matches == null) {
+            return null;
+        }
+        int tabIndex = context.getTabs().indexOfDocument(matches.getDocument());
+        if (tabIndex < 0) {
+            //Tab was closed:
+            return null;
+        }
+        context.getTabs().setSelectedIndex(tabIndex);
+        return (EditorTab)context.getTabs().getComponentAt(tabIndex);
+    }
 
     /**
-     * Iterates forwards through the matches.
+     * Marks the active match in the editor. If the match was found in another tab, this tab is selected.
+     */
+    private void markActiveMatch() {
+        EditorTab tab = getTab(currentTab);
+        if (tab != null) {
+            tab.markText(indices.get(currentTab).getStart(currentMatch), indices.get(currentTab).getLength(currentMatch));
+        }
+        activeMatch.setText("" + (getActiveMatch() + 1));
+        context.getSearchResultsPanel().selectRow(getActiveMatch());
+    }
+
+    /**
+     * Changes the active match after the user clicked it in the
+     * {@linkplain frontend.frames.main.components.SearchResultsPanel}, which already moved the cursor to the match.
+     *
+     * @param match Index of the match across all searched tabs.
+     */
+    private void resultSelected(int match) {
+        if (match < numberOfMatchesInt) {
+            selectMatch(match);
+            activeMatch.setText("" + (match + 1));
+        }
+    }
+
+
+    /**
+     * Iterates forwards through the matches. After the last match of a tab, the first match of the next tab is
+     * highlighted.
      */
     private void forwardIterateThroughMatches() {
-        //Set focus to textArea:
-        if (++currentMatch > indices.get(0).size() - 1) {
+        if (numberOfMatchesInt == 0) {
+            return;
+        }
+        int match = currentMatch < 0 ? 0 : getActiveMatch() + 1;
+        if (match >= numberOfMatchesInt) {
             //Start all over again:
-            currentMatch = 0;
+            match = 0;
         }
-        ((EditorTab)context.getTabs().getSelectedComponent()).markText(indices.get(currentTab).get(currentMatch), searchedRegex.length());
-        activeMatch.setText("" + (currentMatch + 1));
+        selectMatch(match);
+        markActiveMatch();
     }
 
     /**
-     * Iterates backwards through the matches.
+     * Iterates backwards through the matches. Before the first match of a tab, the last match of the previous tab is
+     * highlighted.
      */
     private void backwardsIterateThroughMatches() {
-        if (--currentMatch < 0) {
+        if (numberOfMatchesInt == 0) {
+            return;
+        }
+        int match = currentMatch < 0 ? -1 : getActiveMatch() - 1;
+        if (match < 0) {
             //Start all over again:
-            currentMatch = indices.get(0).size() - 1;
+            match = numberOfMatchesInt - 1;
+        }
+        selectMatch(match);
+        markActiveMatch();
+    }
+
+
+    /**
+     * Enables / Disables searching multiple terms at once. Once enabled, the user is asked to enter the terms.
+     *
+     * @param enabled   Whether multiple terms shall be searched.
+     */
+    private void enableMultipleTerms(boolean enabled) {
+        regexCheckbox.setEnabled(!enabled);
+        regexInput.setEditable(!enabled);
+        regexInput.setToolTipText(enabled ? Config.strings.termsDialogTitle : null);
+        if (enabled) {
+            editTerms();
+        }
+        else {
+            regexInput.setText("");
+        }
+    }
+
+    /**
+     * Shows a {@linkplain TermsDialog} in which the user can edit the terms to be searched. If the terms were searched,
+     * the dialog lists the number of matches of every term within the searched tabs.
+     */
+    private void editTerms() {
+        ArrayList<String> countedTerms = null;
+        int[] counts = null;
+        if (searchedQuery != null && searchedQuery.isMultiTerm() && searchWorker == null) {
+            //Count the matches of every term:
+            MultiPatternMatcher matcher = new MultiPatternMatcher(searchedQuery);
+            countedTerms = matcher.getTerms();
+            counts = new int[countedTerms.size()];
+            for (MatchIndex index : indices) {
+                if (index != null) {
+                    int[] countsInTab = matcher.countTerms(index.getDocument().snapshot(), index.getMatches());
+                    for (int i = 0; i < counts.length; i++) {
+                        counts[i] += countsInTab[i];
+                    }
+                }
+            }
+        }
+        TermsDialog dialog = new TermsDialog(this, terms, countedTerms, counts);
+        if (dialog.getTerms() != null) {
+            terms = dialog.getTerms();
+            regexInput.setText(String.format(Config.strings.numberOfTerms, getQuery().getTerms().size()));
+            scheduleSearch();
         }
-        ((EditorTab)context.getTabs().getSelectedComponent()).markText(indices.get(currentTab).get(currentMatch), searchedRegex.length());
-        activeMatch.setText("" + (currentMatch + 1));
     }
 
 
@@ -329,54 +1006,62 @@ public class SearchDialog extends JDialog {
      * Replaces the found regex with the entered replacement.
      */
     private void replace() {
-        if (indices == null || indices.size() < 1 || indices.get(0).size() < 1) {
+        if (!isUpToDate()) {
+            //Replace once the matches are found:
+            queueReplacement(this::replace);
+            return;
+        }
+        if (numberOfMatchesInt == 0) {
             //Cannot replace:
             return;
         }
-        search(currentMatch);
-
+        int match = currentMatch < 0 ? 0 : getActiveMatch();
+        if (currentMatch < 0) {
+            selectMatch(match);
+        }
         String replacement = replacementInput.getText();
-        int length = regexInput.getText().length();
-        int currentPosition = indices.get(0).get(currentMatch);
-        Component currentComponent = context.getTabs().getSelectedComponent();
-        if (currentComponent instanceof EditorTab) {
+        int length = indices.get(currentTab).getLength(currentMatch);
+        int currentPosition = indices.get(currentTab).getStart(currentMatch);
+        EditorTab tab = getTab(currentTab);
+        if (tab != null) {
             //Can replace:
-            EditorTab tab = (EditorTab)currentComponent;
             tab.replace(currentPosition, length, replacement);
         }
 
-        //Adapt the other indices:
-        search(currentMatch);
+        //The indices followed the replacement, the next match now has the index of the replaced match:
+        showMatches(match, Config.strings.noMatches);
     }
 
     /**
-     * Replaces all regex occurrences with the passed replacement.
+     * Replaces all regex occurrences with the passed replacement. If all tabs were searched, the occurrences are
+     * replaced within all tabs.
      */
     private void replaceAll() {
-        if (indices == null || indices.size() < 1 || indices.get(0).size() < 1) {
+        if (!isUpToDate()) {
+            //Replace once the matches are found:
+            queueReplacement(this::replaceAll);
+            return;
+        }
+        if (numberOfMatchesInt == 0) {
             //Cannot replace:
             return;
         }
-        search(currentMatch);
+        int match = currentMatch < 0 ? 0 : getActiveMatch();
 
         String replacement = replacementInput.getText();
-        int length = regexInput.getText().length();
-        ArrayList<Integer> positions = new ArrayList<Integer>(indices.get(0));
-        //Change indices to match new indices after each replacement:
-        int positionDifference = replacement.length() - length;
-        for (int i = 0; i < positions.size(); i++) {
-            positions.set(i, positions.get(i) + i * positionDifference);
-        }
-
-        Component currentComponent = context.getTabs().getSelectedComponent();
-        if (currentComponent instanceof EditorTab) {
-            //Can replace:
-            EditorTab tab = (EditorTab)currentComponent;
-            tab.replaceAll(positions, length, replacement);
+        for (int i = 0; i < indices.size(); i++) {
+            if (indices.get(i) == null || indices.get(i).size() == 0) {
+                continue;
+            }
+            EditorTab tab = getTab(i);
+            if (tab != null) {
+                //Can replace:
+                tab.replaceAll(indices.get(i).getMatches(), replacement);
+            }
         }
 
-        //Adapt the other indices:
-        search(currentMatch);
+        //The indices followed the replacements:
+        showMatches(match, Config.strings.noMatches);
     }
 
 
@@ -385,6 +1070,11 @@ public class SearchDialog extends JDialog {
      */
     @Override
     public void dispose() {
+        searchTimer.stop();
+        refreshTimer.stop();
+        cancelSearch();
+        disposeIndices();
+        context.getSearchResultsPanel().setVisible(false);
         super.dispose();
     }
 
@@ -0,0 +1,161 @@
+package frontend.dialogs;
+
+import backend.config.Config;
+import backend.files.File;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.io.FileNotFoundException;
+import java.util.List;
+
+
+/**
+ * Implements a modal dialog that allows the user to enter the terms which are searched at once by the
+ * {@linkplain SearchDialog}, one term per line. The terms can be loaded from a file. If the terms were searched
+ * before, the number of matches of every term is listed next to the terms.
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public class TermsDialog extends JDialog {
+
+    /**
+     * Buttons for the dialog.
+     */
+    private JButton loadButton, applyButton, cancelButton;
+
+    /**
+     * Text area in which the terms are entered.
+     */
+    private JTextArea termsInput;
+
+    /**
+     * Stores the terms that were entered, or {@code null} if the dialog was cancelled.
+     */
+    private String terms;
+
+
+    /**
+     * Constructs a new modal TermsDialog. The constructor returns once the dialog is closed.
+     *
+     * @param context       Window in which the dialog is located.
+     * @param terms         Terms that are shown, separated by line breaks.
+     * @param countedTerms  Terms whose matches were counted, or {@code null} if the terms were not searched.
+     * @param counts        Number of matches of the counted terms, or {@code null} if the terms were not searched.
+     */
+    public TermsDialog(Window context, String terms, List<String> countedTerms, int[] counts) {
+        super(context, ModalityType.APPLICATION_MODAL);
+
+        create(terms, countedTerms, counts);
+    }
+
+
+    /**
+     * Returns the terms that were entered, separated by line breaks.
+     *
+     * @return  Entered terms, or {@code null} if the dialog was cancelled.
+     */
+    public String getTerms() {
+        return terms;
+    }
+
+
+    /**
+     * Constructs and instantiates the TermsDialog.
+     *
+     * @param initialTerms  Terms that are shown, separated by line breaks.
+     * @param countedTerms  Terms whose matches were counted, or {@code null} if the terms were not searched.
+     * @param counts        Number of matches of the counted terms, or {@code null} if the terms were not searched.
+     */
+    private void create(String initialTerms, List<String> countedTerms, int[] counts) {
+        setLayout(new BorderLayout());
+
+        //Construct mainContainer:
+        JPanel mainContainer = new JPanel(new GridLayout(1, counts != null ? 2 : 1));
+        add(mainContainer, BorderLayout.CENTER);
+
+        //Construct termsInput:
+        JPanel termsContainer = new JPanel(new BorderLayout());
+        termsContainer.add(new JLabel(Config.strings.termsHint), BorderLayout.NORTH);
+        termsInput = new JTextArea(initialTerms);
+        termsContainer.add(new JScrollPane(termsInput), BorderLayout.CENTER);
+        mainContainer.add(termsContainer);
+
+        //Construct countsTable:
+        if (counts != null) {
+            DefaultTableModel countsModel = new DefaultTableModel(new Object[] {Config.strings.termColumn, Config.strings.termMatchesColumn}, 0) {
+                @Override
+                public boolean isCellEditable(int row, int column) {
+                    return false;
+                }
+
+                @Override
+                public Class<?> getColumnClass(int column) {
+                    return column == 0 ? String.class : Integer.class;
+                }
+            };
+            for (int i = 0; i < countedTerms.size(); i++) {
+                countsModel.addRow(new Object[] {countedTerms.get(i), counts[i]});
+            }
+            JTable countsTable = new JTable(countsModel);
+            countsTable.setAutoCreateRowSorter(true); //Allows sorting the terms by their number of matches.
+            mainContainer.add(new JScrollPane(countsTable));
+        }
+
+        //Construct buttonContainer:
+        JPanel buttonContainer = new JPanel(new GridLayout(1, 2));
+        JPanel loadButtonContainer = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        buttonContainer.add(loadButtonContainer);
+        JPanel closeButtonContainer = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonContainer.add(closeButtonContainer);
+        add(buttonContainer, BorderLayout.SOUTH);
+
+        //Construct loadButton:
+        loadButton = new JButton(Config.strings.loadTermsButton);
+        loadButton.addActionListener(e -> loadTerms());
+        loadButtonContainer.add(loadButton);
+
+        //Construct applyButton:
+        applyButton = new JButton(Config.strings.applyTermsButton);
+        applyButton.addActionListener(e -> {
+            terms = termsInput.getText();
+            dispose();
+        });
+        closeButtonContainer.add(applyButton);
+
+        //Construct cancelButton:
+        cancelButton = new JButton(Config.strings.cancelButton);
+        cancelButton.addActionListener(e -> dispose());
+        closeButtonContainer.add(cancelButton);
+
+        setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+        setTitle(Config.strings.termsDialogTitle);
+        setSize(counts != null ? 640 : 400, 400);
+        setLocationRelativeTo(getOwner());
+        setVisible(true);
+    }
+
+
+    /**
+     * Lets the user select a file, whose lines are appended to the entered terms.
+     */
+    private void loadTerms() {
+        JFileChooser fileChooser = new JFileChooser();
+        int option = fileChooser.showOpenDialog(this);
+        if (option == JFileChooser.APPROVE_OPTION) {
+            try {
+                String content = new File(fileChooser.getSelectedFile().getAbsolutePath()).load();
+                if (!termsInput.getText().isEmpty() && !termsInput.getText().endsWith("\n")) {
+                    termsInput.append("\n");
+                }
+                termsInput.append(content);
+            }
+            catch (FileNotFoundException e) {
+                //Error: Could not open file:
+                JOptionPane.showMessageDialog(this, e.getMessage(), Config.strings.couldNotOpenFile, JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+
+}
@@ -2,11 +2,13 @@ package frontend.frames.main;
 
 import backend.config.Config;
 import backend.files.File;
+import backend.search.TrigramIndex;
 import com.formdev.flatlaf.FlatDarculaLaf;
 import com.formdev.flatlaf.FlatDarkLaf;
 import com.formdev.flatlaf.FlatIntelliJLaf;
 import com.formdev.flatlaf.FlatLightLaf;
 import com.formdev.flatlaf.themes.FlatMacDarkLaf;
+import frontend.frames.main.components.SearchResultsPanel;
 import frontend.frames.main.components.Tab;
 import frontend.frames.main.components.TabbedPane;
 import frontend.menus.EditMenu;
@@ -16,6 +18,8 @@ import frontend.menus.HelpMenu;
 import javax.swing.*;
 import java.awt.*;
 import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
 
 
 /**
@@ -31,6 +35,16 @@ public class MainFrame extends JFrame {
      */
     private TabbedPane tabs;
 
+    /**
+     * Stores the panel listing the matches of the search, which is docked below the {@link #tabs}.
+     */
+    private SearchResultsPanel searchResultsPanel;
+
+    /**
+     * Stores the split pane which contains the {@link #tabs} and the {@link #searchResultsPanel}.
+     */
+    private JSplitPane splitPane;
+
     /**
      * Stores the file menu of this frame.
      */
@@ -51,6 +65,11 @@ public class MainFrame extends JFrame {
      */
     private JMenuBar menuBar;
 
+    /**
+     * Stores the index of the workspace, or {@code null} if no workspace is indexed.
+     */
+    private TrigramIndex workspaceIndex;
+
 
     /**
      * Constructs a new MainFrame.
@@ -93,7 +112,14 @@ public class MainFrame extends JFrame {
 
         //Construct tabs:
         tabs = new TabbedPane(this);
-        add(tabs, BorderLayout.CENTER);
+
+        //Construct searchResultsPanel, which is hidden until matches are listed:
+        searchResultsPanel = new SearchResultsPanel(this);
+        searchResultsPanel.setVisible(false);
+        splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT, tabs, searchResultsPanel);
+        splitPane.setResizeWeight(1.0);
+        splitPane.setBorder(null);
+        add(splitPane, BorderLayout.CENTER);
 
         //Construct menuBar:
         menuBar = new JMenuBar();
@@ -137,6 +163,11 @@ public class MainFrame extends JFrame {
             setSize((int)(screenSize.getWidth() * 0.6), (int)(screenSize.getHeight() * 0.6));
         }
 
+        //Open the index of the workspace in the background:
+        if (!Config.settings.indexedWorkspace.isEmpty()) {
+            indexWorkspace(Config.settings.indexedWorkspace);
+        }
+
         setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
         setVisible(true);
     }
@@ -146,6 +177,14 @@ public class MainFrame extends JFrame {
         return tabs;
     }
 
+    public SearchResultsPanel getSearchResultsPanel() {
+        return searchResultsPanel;
+    }
+
+    public TrigramIndex getWorkspaceIndex() {
+        return workspaceIndex;
+    }
+
     public FileMenu getFileMenu() {
         return fileMenu;
     }
@@ -154,6 +193,17 @@ public class MainFrame extends JFrame {
         return editMenu;
     }
 
+    /**
+     * Shows the {@linkplain SearchResultsPanel} below the tabs. If the panel was hidden, it occupies a third of the
+     * height of the frame.
+     */
+    public void showSearchResults() {
+        if (!searchResultsPanel.isVisible()) {
+            searchResultsPanel.setVisible(true);
+            splitPane.setDividerLocation(2 * splitPane.getHeight() / 3);
+        }
+    }
+
 
     /**
      * Requests the user to open a new file.
@@ -220,11 +270,39 @@ public class MainFrame extends JFrame {
     }
 
 
+    /**
+     * Indexes the passed directory as workspace in the background, so that it can be searched quickly through
+     * {@linkplain frontend.dialogs.FindInFilesDialog}. The index of the previous workspace is closed.
+     *
+     * @param directory Directory of the workspace.
+     */
+    public void indexWorkspace(String directory) {
+        if (workspaceIndex != null) {
+            workspaceIndex.close();
+            workspaceIndex = null;
+        }
+        Config.settings.indexedWorkspace = directory;
+        try {
+            workspaceIndex = new TrigramIndex(Paths.get(directory), Config.getIndexFilePath());
+        }
+        catch (InvalidPathException e) {
+            //Invalid directory: Do not index...
+            Config.settings.indexedWorkspace = "";
+            return;
+        }
+        Thread indexer = new Thread(workspaceIndex::open, "TrigramIndex");
+        indexer.setDaemon(true);
+        indexer.start();
+    }
+
+
     /**
      * Disposes (Closes) this frame.
      */
     @Override
     public void dispose() {
+        //Saves in the background are completed, as the JVM does not wait for them:
+        tabs.finishSavingAllTabs();
         if (tabs.hasUnsavedChanges()) {
             int option = JOptionPane.showConfirmDialog(this, Config.strings.unsavedChanges);
             if (option == JOptionPane.YES_OPTION) {
@@ -258,6 +336,11 @@ public class MainFrame extends JFrame {
             //Could not save config:
             //What am I supposed to do now? Do nothing instead.
         }
+
+        //Merge changes of the workspace into the index file:
+        if (workspaceIndex != null) {
+            workspaceIndex.close();
+        }
         super.dispose();
     }
 
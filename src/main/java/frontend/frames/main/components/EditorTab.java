@@ -1,12 +1,22 @@
 package frontend.frames.main.components;
 
 import backend.config.Config;
+import backend.document.LineSeparators;
+import backend.document.PieceTableBackedDocument;
+import backend.document.PieceTableContent;
+import backend.document.UndoJournal;
+import backend.files.File;
+import backend.search.MatchIndex;
+import backend.search.SearchResult;
 
 import javax.swing.*;
 import java.awt.*;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.charset.CharacterCodingException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 
 /**
@@ -17,6 +27,229 @@ import java.util.ArrayList;
  */
 public class EditorTab extends Tab {
 
+    /**
+     * This class stores a chunk of the file that was loaded by the {@linkplain FileLoader}.
+     */
+    private static class LoadedChunk {
+
+        /**
+         * Stores the loaded chunk.
+         */
+        private final CharSequence chunk;
+
+        /**
+         * Stores the number of bytes that have been loaded so far.
+         */
+        private final long bytesLoaded;
+
+        /**
+         * Stores the size of the file in bytes.
+         */
+        private final long fileSize;
+
+
+        /**
+         * Constructs a new LoadedChunk.
+         *
+         * @param chunk         Loaded chunk.
+         * @param bytesLoaded   Number of bytes that have been loaded so far.
+         * @param fileSize      Size of the file in bytes.
+         */
+        private LoadedChunk(CharSequence chunk, long bytesLoaded, long fileSize) {
+            this.chunk = chunk;
+            this.bytesLoaded = bytesLoaded;
+            this.fileSize = fileSize;
+        }
+
+    }
+
+
+    /**
+     * This class implements a worker that loads the file in the background. The loaded chunks are appended to the
+     * text area as soon as they are decoded, so that the user can start reading the beginning of the file while the
+     * rest of the file is loaded.
+     */
+    private class FileLoader extends SwingWorker<Void, LoadedChunk> {
+
+        /**
+         * Stores the action to be performed if the file could not be loaded or loading was cancelled.
+         */
+        private final Runnable onFailure;
+
+
+        /**
+         * Constructs a new FileLoader.
+         *
+         * @param onFailure Action to be performed if the file could not be loaded or loading was cancelled.
+         */
+        private FileLoader(Runnable onFailure) {
+            this.onFailure = onFailure;
+        }
+
+
+        /**
+         * Loads the file in the background.
+         *
+         * @return              Nothing.
+         * @throws IOException  The file could not be loaded.
+         */
+        @Override
+        protected Void doInBackground() throws IOException {
+            file.load((chunk, bytesLoaded, fileSize) -> publish(new LoadedChunk(chunk, bytesLoaded, fileSize)));
+            return null;
+        }
+
+        /**
+         * Appends the loaded chunks to the text area.
+         *
+         * @param chunks    Chunks that were loaded.
+         */
+        @Override
+        protected void process(List<LoadedChunk> chunks) {
+            if (isCancelled()) {
+                return;
+            }
+            for (LoadedChunk current : chunks) {
+                textArea.appendLoaded(current.chunk);
+                subline.showProgress(Config.strings.loadingFile, current.bytesLoaded, current.fileSize);
+            }
+        }
+
+        /**
+         * Finishes loading the file.
+         */
+        @Override
+        protected void done() {
+            loader = null;
+            subline.hideProgress();
+            if (isCancelled()) {
+                //Loading was cancelled:
+                onFailure.run();
+                return;
+            }
+            try {
+                get();
+            }
+            catch (InterruptedException | ExecutionException e) {
+                //Error: Could not load file:
+                JOptionPane.showMessageDialog(EditorTab.this, file.getAbsolutePath(), Config.strings.couldNotOpenFile, JOptionPane.ERROR_MESSAGE);
+                onFailure.run();
+                return;
+            }
+            textArea.endLoading();
+            finishLoading();
+            unsavedChanges = false; //No unsaved changes when the file was loaded!
+            for (Runnable action : loadedActions) {
+                action.run();
+            }
+            loadedActions.clear();
+        }
+
+    }
+
+
+    /**
+     * This class implements a worker that saves a snapshot of the text to the file in the background. Once the file
+     * is saved, the throughput is shown within the subline. A save can be finished before the worker is done through
+     * {@link #finish()}, i.e. when VATE is closed, so that the file is completely written.
+     */
+    private class FileSaver extends SwingWorker<Long, Void> {
+
+        /**
+         * Stores the file to which the snapshot is saved.
+         */
+        private final File target;
+
+        /**
+         * Stores the snapshot to be saved.
+         */
+        private final PieceTableContent.Snapshot snapshot;
+
+        /**
+         * Stores the journal of the undo history, which is written once the snapshot is saved, or {@code null}.
+         */
+        private final UndoJournal journal;
+
+        /**
+         * Stores the time (in nanoseconds) that was needed to save the file.
+         */
+        private long duration;
+
+        /**
+         * Stores whether the save was finished through {@link #finish()}.
+         */
+        private boolean finished;
+
+
+        /**
+         * Constructs a new FileSaver.
+         *
+         * @param target    File to which the snapshot is saved.
+         * @param snapshot  Snapshot to be saved.
+         * @param journal   Journal of the undo history, or {@code null}.
+         */
+        private FileSaver(File target, PieceTableContent.Snapshot snapshot, UndoJournal journal) {
+            this.target = target;
+            this.snapshot = snapshot;
+            this.journal = journal;
+        }
+
+
+        /**
+         * Saves the snapshot in the background.
+         *
+         * @return              Number of bytes written.
+         * @throws IOException  The file could not be saved.
+         */
+        @Override
+        protected Long doInBackground() throws IOException {
+            long start = System.nanoTime();
+            long bytesWritten = target.save(snapshot);
+            duration = System.nanoTime() - start;
+            return bytesWritten;
+        }
+
+        /**
+         * Finishes saving the file, unless it was finished already.
+         */
+        @Override
+        protected void done() {
+            finish();
+        }
+
+        /**
+         * Waits until the snapshot is saved and finishes saving the file: The journal of the undo history is written,
+         * or the user is told that the file could not be saved. If the text was saved again meanwhile, the next save
+         * is started. Finishing the save more than once has no effect. This MUST be called on the event dispatch
+         * thread.
+         */
+        private void finish() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (saver == this) {
+                saver = null;
+            }
+            try {
+                subline.showThroughput(Config.strings.savedFile, get(), duration);
+                writeUndoJournal(journal, target);
+            }
+            catch (InterruptedException | ExecutionException e) {
+                //Error: Could not save file:
+                unsavedChanges = true;
+                showSaveError(target, e.getCause());
+            }
+            if (saveAgain) {
+                //The text was saved again while this worker was running:
+                saveAgain = false;
+                saveInBackground();
+            }
+        }
+
+    }
+
+
     /**
      * Stores the main text area that displays the text.
      */
@@ -27,9 +260,30 @@ public class EditorTab extends Tab {
      */
     private Subline subline;
 
+    /**
+     * Stores the worker that loads the file in the background. This is {@code null} if the file is not being loaded.
+     */
+    private FileLoader loader;
+
+    /**
+     * Stores the actions to be performed once the file is loaded in the background.
+     */
+    private final ArrayList<Runnable> loadedActions = new ArrayList<Runnable>();
+
+    /**
+     * Stores the worker that saves the file in the background. This is {@code null} if the file is not being saved.
+     */
+    private FileSaver saver;
+
+    /**
+     * Stores whether the file shall be saved again once the {@link #saver} is done.
+     */
+    private boolean saveAgain;
+
 
     /**
-     * Constructs a new EditorTab which allows text to be edited.
+     * Constructs a new EditorTab which allows text to be edited. The file is not loaded until {@link #load()} or
+     * {@link #loadInBackground(Runnable)} is called.
      *
      * @param path  Path of the file to be edited.
      */
@@ -48,7 +302,6 @@ public class EditorTab extends Tab {
 
         subline = new Subline(file.getExtension(), 0, 0);
         textArea = new TextArea(this);
-        load();
 
         add(textArea, BorderLayout.CENTER);
         add(subline, BorderLayout.SOUTH);
@@ -61,26 +314,21 @@ public class EditorTab extends Tab {
 
 
     /**
-     * Searches the displayed text for the passed regex. The method returns and ArrayList containing the indices of
-     * the first character of all matches for the passed regex.
+     * Returns an immutable snapshot of the displayed text, which can be searched by any thread.
      *
-     * @param regex Regex to be searched in the displayed text.
-     * @return      ArrayList of the indices for all found matches.
+     * @return  Snapshot of the displayed text.
      */
-    public ArrayList<Integer> search(String regex) {
-        ArrayList<Integer> indices = new ArrayList<Integer>();
-        String text = getText();
-        int currentIndex = -1;
-        while (++currentIndex < text.length() - 1) {
-            currentIndex = text.indexOf(regex, currentIndex);
-            if (currentIndex == -1) {
-                //Did not find any other matches:
-                break;
-            }
-            indices.add(currentIndex);
-        }
-        //Return all indices:
-        return indices;
+    public PieceTableContent.Snapshot snapshot() {
+        return textArea.snapshot();
+    }
+
+    /**
+     * Returns the document that stores the text of this tab.
+     *
+     * @return  Document of this tab.
+     */
+    public PieceTableBackedDocument getDocument() {
+        return (PieceTableBackedDocument)textArea.getDocument();
     }
 
     /**
@@ -97,22 +345,32 @@ public class EditorTab extends Tab {
     }
 
     /**
-     * Replaces part of the displayed text with the passed replacement.
-     * Beginning at the passed index position, the specified number of characters (passed as length) will be removed.
-     * In their place, the replacement is then inserted.
-     * This is repeated for every element in the ArrayList positions.
-     *
-     * <br><b><i>IMPORTANT:</i> Consider the change for each position due to eventual difference in {@code length}
-     * and the length of the {@code replacement}!!!</b>
+     * Replaces all passed matches with the passed replacement through a single edit, which can be undone in one step.
      *
-     * @param positions     ArrayList of the positions at which the replacement shall be inserted.
-     * @param length        Number of characters to be removed.
+     * @param matches       Matches in ascending order, which must not overlap.
      * @param replacement   Replacement to be inserted.
      */
-    public void replaceAll(ArrayList<Integer> positions, int length, String replacement) {
-        for (int current : positions) {
-            textArea.replace(current, length, replacement);
-        }
+    public void replaceAll(SearchResult matches, String replacement) {
+        textArea.replaceAll(matches, replacement);
+    }
+
+    /**
+     * Moves the cursor to the specified position. If the position does not exist, nothing happens.
+     *
+     * @param position  Index of the character in front of which the cursor shall be placed.
+     * @return          Whether the cursor could be moved.
+     */
+    public boolean moveCursor(int position) {
+        return textArea.moveCursor(position);
+    }
+
+    /**
+     * Highlights the matches of the passed index, which MUST belong to the document of this tab.
+     *
+     * @param matches   Index whose matches shall be highlighted, or {@code null} to remove the highlights.
+     */
+    public void highlightMatches(MatchIndex matches) {
+        textArea.highlightMatches(matches);
     }
 
     /**
@@ -128,39 +386,203 @@ public class EditorTab extends Tab {
 
 
     /**
-     * Saves the content of the text editor to the edited file.
+     * Saves the content of the text editor to the edited file. This method blocks until the file is saved, which is
+     * needed when VATE is closed. Use {@link #saveInBackground()} otherwise. A save that is running in the background
+     * is finished first, so that neither the older file nor its undo journal overwrite this save.
      *
      * @return  Whether the file was saved successfully or not.
      */
     public boolean save() {
+        if (loader != null || !confirmLossySave()) {
+            //Do not overwrite the file with partially loaded content, or replace undecodable bytes unasked:
+            return false;
+        }
+        //The text is saved now, it needs not be saved again afterwards:
+        saveAgain = false;
+        finishSaving();
         try {
-            file.save(textArea.getText());
+            PieceTableContent.Snapshot snapshot = textArea.snapshot();
+            UndoJournal journal = createUndoJournal(snapshot);
+            long start = System.nanoTime();
+            long bytesWritten = file.save(snapshot);
+            subline.showThroughput(Config.strings.savedFile, bytesWritten, System.nanoTime() - start);
+            writeUndoJournal(journal, file);
             unsavedChanges = false;
         }
         catch (IOException e) {
             //Error: Could not save file:
+            showSaveError(file, e);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Saves the content of the text editor to the edited file in the background. A snapshot of the text is saved, so
+     * that the text can be edited while the file is saved. This method returns immediately.
+     */
+    @Override
+    public void saveInBackground() {
+        if (loader != null || !confirmLossySave()) {
+            //Do not overwrite the file with partially loaded content, or replace undecodable bytes unasked:
+            return;
+        }
+        if (saver != null) {
+            //Save again once the previous save is done:
+            saveAgain = true;
+            return;
+        }
+        File target = new File(file.getAbsolutePath());
+        target.setCharset(file.getCharset());
+        target.setByteOrderMark(file.hasByteOrderMark());
+        target.setLineSeparators(file.getLineSeparators().copy());
+        PieceTableContent.Snapshot snapshot = textArea.snapshot();
+        saver = new FileSaver(target, snapshot, createUndoJournal(snapshot));
+        unsavedChanges = false; //Edits made while saving mark the text as changed again.
+        saver.execute();
+    }
+
+    /**
+     * Blocks until the text that is saved in the background is saved, including the saves that were requested while
+     * saving. Afterwards, {@link #hasUnsavedChanges()} returns whether the text was saved successfully.
+     */
+    @Override
+    public void finishSaving() {
+        while (saver != null) {
+            saver.finish();
+        }
+    }
+
+    /**
+     * Asks the user whether the file shall be saved, if some bytes of the loaded file could not be decoded and would
+     * therefore be replaced. The user is only asked once.
+     *
+     * @return  Whether the file may be saved.
+     */
+    private boolean confirmLossySave() {
+        if (!file.isLossy()) {
+            return true;
+        }
+        int option = JOptionPane.showConfirmDialog(this, Config.strings.lossyFileWarning, file.getAbsolutePath(), JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+        if (option != JOptionPane.YES_OPTION) {
+            //Keep the bytes of the file:
             return false;
         }
+        file.setLossy(false);
         return true;
     }
 
+    /**
+     * Tells the user that the passed file could not be saved.
+     *
+     * @param target    File that could not be saved.
+     * @param cause     Reason why the file could not be saved.
+     */
+    private void showSaveError(File target, Throwable cause) {
+        String message = target.getAbsolutePath();
+        if (cause instanceof CharacterCodingException) {
+            //Text cannot be encoded with the charset of the file:
+            message += "\n" + Config.strings.couldNotEncodeFile;
+        }
+        JOptionPane.showMessageDialog(this, message, Config.strings.couldNotSaveFile, JOptionPane.ERROR_MESSAGE);
+    }
+
+    /**
+     * Creates a journal of the undo history for the passed snapshot, if the undo history shall be persisted.
+     *
+     * @param snapshot  Snapshot of the text that is saved.
+     * @return          Journal of the undo history, or {@code null}.
+     */
+    private UndoJournal createUndoJournal(PieceTableContent.Snapshot snapshot) {
+        return Config.settings.persistUndoHistory ? textArea.createUndoJournal(snapshot) : null;
+    }
+
+    /**
+     * Writes the passed journal of the undo history of the passed (saved) file in the background.
+     *
+     * @param journal   Journal to be written, or {@code null}.
+     * @param target    File that was saved.
+     */
+    private void writeUndoJournal(UndoJournal journal, File target) {
+        if (journal != null && target.getAbsolutePath() != null) {
+            journal.writeInBackground(Paths.get(target.getAbsolutePath()));
+        }
+    }
+
     /**
      * Loads the contents of the file and displays them within the text editor.
      *
      * @return  Whether the file was successfully loaded.
      */
     public boolean load() {
+        textArea.beginLoading();
         try {
-            textArea.setText(file.load());
-            unsavedChanges = false; //No unsaved changes when the file was loaded!
+            file.load((chunk, bytesLoaded, fileSize) -> textArea.appendLoaded(chunk));
         }
-        catch (FileNotFoundException e) {
+        catch (IOException e) {
             //Error: Could not open file:
             return false;
         }
+        finally {
+            textArea.endLoading();
+        }
+        finishLoading();
+        unsavedChanges = false; //No unsaved changes when the file was loaded!
         return true;
     }
 
+    /**
+     * Loads the contents of the file in the background and displays them within the text editor while they are
+     * loaded. The progress is shown within the subline, which also allows the user to cancel loading. This method
+     * returns immediately.
+     *
+     * @param onFailure Action to be performed (on the Event Dispatch Thread) if the file could not be loaded or the
+     *                  user cancelled loading, i.e. to close the tab.
+     */
+    public void loadInBackground(Runnable onFailure) {
+        if (loader != null) {
+            loader.cancel(true);
+        }
+        textArea.beginLoading();
+        loader = new FileLoader(onFailure);
+        subline.setCancelAction(e -> cancelLoading());
+        subline.showProgress(Config.strings.loadingFile, 0, 0);
+        loader.execute();
+    }
+
+    /**
+     * Performs the passed action once the file is loaded. If the file is not being loaded, the action is performed
+     * immediately. If loading fails, the action is never performed.
+     *
+     * @param action    Action to be performed.
+     */
+    public void whenLoaded(Runnable action) {
+        if (loader == null) {
+            action.run();
+        }
+        else {
+            loadedActions.add(action);
+        }
+    }
+
+    /**
+     * Cancels loading the file in the background. If the file is not being loaded, nothing happens.
+     */
+    public void cancelLoading() {
+        if (loader != null) {
+            loader.cancel(true);
+        }
+    }
+
+    /**
+     * Tests whether the file is currently being loaded in the background.
+     *
+     * @return  Whether the file is being loaded.
+     */
+    public boolean isLoading() {
+        return loader != null;
+    }
+
     /**
      * Updates the line numbers to the passed argument.
      *
@@ -179,6 +601,66 @@ public class EditorTab extends Tab {
         subline.setLength(length);
     }
 
+    /**
+     * Updates the memory of the undo history that is displayed within the subline.
+     *
+     * @param bytes Estimated memory (in bytes) of the undo history.
+     */
+    public void updateUndoMemory(long bytes) {
+        subline.setUndoMemory(bytes);
+    }
+
+    /**
+     * Returns the estimated memory (in bytes) that the undo history of this tab occupies.
+     *
+     * @return  Memory of the undo history.
+     */
+    public long getUndoMemoryUsage() {
+        return textArea.getUndoMemoryUsage();
+    }
+
+    /**
+     * Moves the cursor to the beginning of the passed line.
+     *
+     * @param line  Number of the line, beginning at 1.
+     * @return      Whether the line exists.
+     */
+    public boolean goToLine(int line) {
+        return textArea.moveCursorToLine(line);
+    }
+
+    /**
+     * Returns the number of lines of the edited text.
+     *
+     * @return  Number of lines.
+     */
+    public int getLineCount() {
+        return textArea.getLineNumbers();
+    }
+
+    /**
+     * Displays the charset and line separators of the loaded file and keeps the line separators up to date while the
+     * text is edited.
+     */
+    private void finishLoading() {
+        LineSeparators lineSeparators = file.getLineSeparators();
+        textArea.trackLineSeparators(lineSeparators);
+        subline.setCharset(getCharsetName());
+        subline.setLineSeparator(lineSeparators.isMixed() ? Config.strings.lineSeparatorMixed : LineSeparators.getName(lineSeparators.getDefaultSeparator()));
+    }
+
+    /**
+     * Returns the name of the charset of the file, including whether the file begins with a byte order mark.
+     *
+     * @return  Name of the charset.
+     */
+    private String getCharsetName() {
+        if (file.hasByteOrderMark()) {
+            return file.getCharset().name() + " BOM";
+        }
+        return file.getCharset().name();
+    }
+
     /**
      * Requests the tab to be closed. This method should do everything that is needed to properly close the tab and
      * save pending changes.
@@ -186,6 +668,12 @@ public class EditorTab extends Tab {
      * @return  Whether the tab was successfully disposed (closed) or not.
      */
     public boolean dispose() {
+        if (loader != null) {
+            //File is still loading, so there cannot be any changes:
+            loader.cancel(true);
+            return true;
+        }
+        finishSaving();
         if (unsavedChanges) {
             //There are unsaved changes:
             int option = JOptionPane.showConfirmDialog(this, Config.strings.askForChangesToBeSaved);
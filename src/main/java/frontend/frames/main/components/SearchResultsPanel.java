@@ -0,0 +1,546 @@
+package frontend.frames.main.components;
+
+import backend.config.Config;
+import backend.config.Settings;
+import backend.search.MatchIndex;
+import frontend.frames.main.MainFrame;
+
+import javax.swing.*;
+import javax.swing.border.Border;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+
+/**
+ * This class implements a panel that is docked below the tabs of the {@linkplain MainFrame} and lists every match of
+ * the {@linkplain frontend.dialogs.SearchDialog} with its tab, its line and a snippet of the surrounding text. The list
+ * is backed by a virtual model, which stores no rows: Rows are computed from the {@linkplain MatchIndex}es when they
+ * are displayed, and all rows have the same size, so that only the visible rows are ever computed. Therefore, millions
+ * of matches are listed instantly, and the rows follow all edits of the tabs. The lines before and after a match are
+ * shown as tooltip, which is only computed once the mouse rests on a row.
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public class SearchResultsPanel extends JPanel {
+
+    /**
+     * Stores the maximum number of characters of the snippet before a match.
+     */
+    private static final int SNIPPET_BEFORE = 40;
+
+    /**
+     * Stores the maximum number of characters of the snippet after a match, including the match.
+     */
+    private static final int SNIPPET_AFTER = 120;
+
+    /**
+     * Stores the maximum number of characters of the lines around a match that are shown as tooltip.
+     */
+    private static final int CONTEXT_LINE_LENGTH = 160;
+
+    /**
+     * Stores the gap (in pixels) between the location and the snippet of a row.
+     */
+    private static final int LOCATION_GAP = 12;
+
+
+    /**
+     * This class stores a row of the list, which is computed when the row is displayed.
+     */
+    private static class Row {
+
+        /**
+         * Stores the title of the tab and the line of the match, i.e. {@code "notes.txt:12"}.
+         */
+        private final String location;
+
+        /**
+         * Stores the text of the line before the match.
+         */
+        private final String before;
+
+        /**
+         * Stores the text of the match.
+         */
+        private final String match;
+
+        /**
+         * Stores the text of the line after the match.
+         */
+        private final String after;
+
+
+        /**
+         * Constructs a new Row.
+         *
+         * @param location  Title of the tab and line of the match.
+         * @param before    Text of the line before the match.
+         * @param match     Text of the match.
+         * @param after     Text of the line after the match.
+         */
+        private Row(String location, String before, String match, String after) {
+            this.location = location;
+            this.before = before;
+            this.match = match;
+            this.after = after;
+        }
+
+    }
+
+
+    /**
+     * This class implements the virtual model of the list, whose rows are the matches of all {@link #indices} in the
+     * order of the indices.
+     */
+    private class ResultModel extends AbstractListModel<Row> {
+
+        /**
+         * Stores the number of rows that the list was last notified about.
+         */
+        private int size;
+
+
+        /**
+         * Returns the number of rows.
+         *
+         * @return  Number of rows.
+         */
+        @Override
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * Computes the row with the passed index.
+         *
+         * @param index Index of the row.
+         * @return      Row with the passed index.
+         */
+        @Override
+        public Row getElementAt(int index) {
+            for (MatchIndex current : indices) {
+                if (current == null) {
+                    continue;
+                }
+                if (index < current.size()) {
+                    return createRow(current, index);
+                }
+                index -= current.size();
+            }
+            //Matches were removed, but the list was not yet notified:
+            return new Row("", "", "", "");
+        }
+
+        /**
+         * Counts the matches of the {@link #indices} and notifies the list that the rows changed.
+         */
+        private void update() {
+            int oldSize = size;
+            size = 0;
+            for (MatchIndex current : indices) {
+                if (current != null) {
+                    size += current.size();
+                }
+            }
+            if (size < oldSize) {
+                fireIntervalRemoved(this, size, oldSize - 1);
+            }
+            else if (size > oldSize) {
+                fireIntervalAdded(this, oldSize, size - 1);
+            }
+            if (Math.min(size, oldSize) > 0) {
+                fireContentsChanged(this, 0, Math.min(size, oldSize) - 1);
+            }
+        }
+
+    }
+
+
+    /**
+     * This class implements the renderer of the rows, which paints the location and the snippet of a row with the
+     * match in bold. The text is painted directly instead of being parsed as HTML, since the visible rows are rendered
+     * on every repaint of the list.
+     */
+    private static class RowRenderer extends JComponent implements ListCellRenderer<Row> {
+
+        /**
+         * Stores the border of rows that do not have the focus.
+         */
+        private final Border noFocusBorder;
+
+        /**
+         * Stores the row to be painted.
+         */
+        private Row row;
+
+        /**
+         * Stores whether the row to be painted is selected.
+         */
+        private boolean selected;
+
+        /**
+         * Stores the bold variant of the font, in which the match is painted.
+         */
+        private Font boldFont;
+
+
+        /**
+         * Constructs a new RowRenderer.
+         */
+        private RowRenderer() {
+            noFocusBorder = BorderFactory.createEmptyBorder(1, 1, 1, 1);
+            setOpaque(true);
+        }
+
+
+        /**
+         * Returns the component that renders the passed row.
+         *
+         * @param list          List containing the row.
+         * @param value         Row to be rendered.
+         * @param index         Index of the row.
+         * @param isSelected    Whether the row is selected.
+         * @param cellHasFocus  Whether the row has the focus.
+         * @return              Component rendering the row.
+         */
+        @Override
+        public Component getListCellRendererComponent(JList<? extends Row> list, Row value, int index, boolean isSelected, boolean cellHasFocus) {
+            row = value;
+            selected = isSelected;
+            if (!list.getFont().equals(getFont())) {
+                setFont(list.getFont());
+                boldFont = list.getFont().deriveFont(Font.BOLD);
+            }
+            setBackground(isSelected ? list.getSelectionBackground() : list.getBackground());
+            setForeground(isSelected ? list.getSelectionForeground() : list.getForeground());
+            Border focusBorder = UIManager.getBorder("List.focusCellHighlightBorder");
+            setBorder(cellHasFocus && focusBorder != null ? focusBorder : noFocusBorder);
+            return this;
+        }
+
+        /**
+         * Returns the size of the painted row.
+         *
+         * @return  Size of the row.
+         */
+        @Override
+        public Dimension getPreferredSize() {
+            FontMetrics metrics = getFontMetrics(getFont());
+            Insets insets = getInsets();
+            int width = metrics.stringWidth(row.location) + LOCATION_GAP + metrics.stringWidth(row.before) + getFontMetrics(boldFont).stringWidth(row.match) + metrics.stringWidth(row.after);
+            return new Dimension(insets.left + width + insets.right, insets.top + metrics.getHeight() + insets.bottom);
+        }
+
+        /**
+         * Paints the row.
+         *
+         * @param g Graphics to paint with.
+         */
+        @Override
+        protected void paintComponent(Graphics g) {
+            g.setColor(getBackground());
+            g.fillRect(0, 0, getWidth(), getHeight());
+            Object hints = Toolkit.getDefaultToolkit().getDesktopProperty("awt.font.desktophints");
+            if (hints instanceof Map && g instanceof Graphics2D) {
+                ((Graphics2D)g).addRenderingHints((Map<?, ?>)hints);
+            }
+            FontMetrics metrics = g.getFontMetrics(getFont());
+            Insets insets = getInsets();
+            int x = insets.left;
+            int y = insets.top + metrics.getAscent();
+            g.setFont(getFont());
+            g.setColor(selected ? getForeground() : Config.colors.searchResultLocation);
+            g.drawString(row.location, x, y);
+            x += metrics.stringWidth(row.location) + LOCATION_GAP;
+            g.setColor(getForeground());
+            g.drawString(row.before, x, y);
+            x += metrics.stringWidth(row.before);
+            g.setFont(boldFont);
+            g.drawString(row.match, x, y);
+            x += g.getFontMetrics(boldFont).stringWidth(row.match);
+            g.setFont(getFont());
+            g.drawString(row.after, x, y);
+        }
+
+    }
+
+
+    /**
+     * MainFrame in which the panel is docked.
+     */
+    private MainFrame context;
+
+    /**
+     * Stores the indices whose matches are listed. Indices of tabs that were not searched are {@code null}.
+     */
+    private List<MatchIndex> indices;
+
+    /**
+     * Stores the listener that is notified about the index of a row that the user clicked, or {@code null}.
+     */
+    private IntConsumer selectionListener;
+
+    /**
+     * Stores the model of the list.
+     */
+    private ResultModel model;
+
+    /**
+     * Stores the list of rows.
+     */
+    private JList<Row> resultList;
+
+    /**
+     * Stores the label displaying the number of matches.
+     */
+    private JLabel summaryLabel;
+
+
+    /**
+     * Constructs a new SearchResultsPanel, which lists no matches.
+     *
+     * @param context   MainFrame in which the panel is docked.
+     */
+    public SearchResultsPanel(MainFrame context) {
+        this.context = context;
+        create();
+    }
+
+
+    /**
+     * Constructs and instantiates the SearchResultsPanel.
+     */
+    private void create() {
+        indices = new ArrayList<MatchIndex>();
+        setLayout(new BorderLayout());
+
+        //Construct header:
+        JPanel header = new JPanel(new BorderLayout());
+        summaryLabel = new JLabel(Config.strings.searchResultsTitle);
+        header.add(summaryLabel, BorderLayout.CENTER);
+        JButton closeButton = new JButton(Config.strings.closeButton);
+        closeButton.addActionListener(e -> setVisible(false));
+        header.add(closeButton, BorderLayout.EAST);
+        add(header, BorderLayout.NORTH);
+
+        //Construct resultList:
+        model = new ResultModel();
+        resultList = new JList<Row>(model) {
+            @Override
+            public String getToolTipText(MouseEvent e) {
+                int row = locationToIndex(e.getPoint());
+                if (row < 0 || !getCellBounds(row, row).contains(e.getPoint())) {
+                    return null;
+                }
+                return getContext(row);
+            }
+        };
+        //The list computes the tooltips, since the renderer does not:
+        ToolTipManager.sharedInstance().registerComponent(resultList);
+        resultList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        resultList.setCellRenderer(new RowRenderer());
+        //All cells have the same size, so that only visible rows are computed:
+        resultList.setPrototypeCellValue(new Row("Untitled.txt:999999", "x".repeat(SNIPPET_BEFORE), "x", "x".repeat(SNIPPET_AFTER)));
+        resultList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int row = resultList.locationToIndex(e.getPoint());
+                if (row >= 0 && resultList.getCellBounds(row, row).contains(e.getPoint())) {
+                    showRow(row);
+                }
+            }
+        });
+        resultList.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_ENTER, 0), "showRow");
+        resultList.getActionMap().put("showRow", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (resultList.getSelectedIndex() >= 0) {
+                    showRow(resultList.getSelectedIndex());
+                }
+            }
+        });
+        add(new JScrollPane(resultList), BorderLayout.CENTER);
+    }
+
+
+    /**
+     * Lists the matches of the passed indices. The passed listener is notified about the index of every row that the
+     * user clicks, after the caret was moved to its match.
+     *
+     * @param indices           Indices whose matches shall be listed. Indices of tabs that were not searched are
+     *                          {@code null}.
+     * @param selectionListener Listener that is notified about clicked rows, or {@code null}.
+     */
+    public void setMatches(List<MatchIndex> indices, IntConsumer selectionListener) {
+        this.indices = indices;
+        this.selectionListener = selectionListener;
+        resultList.clearSelection();
+        matchesChanged();
+    }
+
+    /**
+     * Updates the list after the matches of the indices changed, i.e. while they are searched or after an edit.
+     */
+    public void matchesChanged() {
+        model.update();
+        summaryLabel.setText(String.format(Config.strings.searchResultsSummary, model.getSize()));
+    }
+
+    /**
+     * Selects the row with the passed index and scrolls it into view, i.e. if the active match of the
+     * {@linkplain frontend.dialogs.SearchDialog} changed.
+     *
+     * @param row   Index of the row, or {@code -1} to clear the selection.
+     */
+    public void selectRow(int row) {
+        if (row < 0 || row >= model.getSize()) {
+            resultList.clearSelection();
+            return;
+        }
+        resultList.setSelectedIndex(row);
+        resultList.ensureIndexIsVisible(row);
+    }
+
+
+    /**
+     * Moves the caret to the match of the row with the passed index and notifies the listener. If the match was found
+     * in another tab, this tab is selected.
+     *
+     * @param row   Index of the row.
+     */
+    private void showRow(int row) {
+        int index = row;
+        for (MatchIndex current : indices) {
+            if (current == null) {
+                continue;
+            }
+            if (index < current.size()) {
+                int tabIndex = context.getTabs().indexOfDocument(current.getDocument());
+                if (tabIndex < 0) {
+                    //Tab was closed:
+                    return;
+                }
+                context.getTabs().setSelectedIndex(tabIndex);
+                ((EditorTab)context.getTabs().getComponentAt(tabIndex)).moveCursor(current.getStart(index));
+                if (selectionListener != null) {
+                    selectionListener.accept(row);
+                }
+                return;
+            }
+            index -= current.size();
+        }
+    }
+
+    /**
+     * Computes the row of the passed match.
+     *
+     * @param index Index containing the match.
+     * @param match Index of the match within the index.
+     * @return      Row of the match.
+     */
+    private Row createRow(MatchIndex index, int match) {
+        Document document = index.getDocument();
+        int start = index.getStart(match);
+        int end = start + index.getLength(match);
+        int tabIndex = context.getTabs().indexOfDocument(document);
+        String title = tabIndex >= 0 ? context.getTabs().getTitleAt(tabIndex) : "";
+        Element root = document.getDefaultRootElement();
+        int line = root.getElementIndex(start);
+        Element lineElement = root.getElement(line);
+        int lineEnd = Math.max(lineElement.getStartOffset(), Math.min(lineElement.getEndOffset() - 1, document.getLength()));
+        int snippetStart = Math.max(lineElement.getStartOffset(), start - SNIPPET_BEFORE);
+        int snippetEnd = Math.min(Math.max(end, lineEnd), start + SNIPPET_AFTER);
+        int matchEnd = Math.min(end, snippetEnd);
+        return new Row(title + ":" + (line + 1), getText(document, snippetStart, start), getText(document, start, matchEnd), getText(document, matchEnd, Math.min(lineEnd, snippetEnd)));
+    }
+
+    /**
+     * Returns the lines around the match of the row with the passed index, which are shown as tooltip of the row.
+     *
+     * @param row   Index of the row.
+     * @return      Lines around the match, or {@code null} if they shall not be shown.
+     */
+    private String getContext(int row) {
+        if (Settings.searchResultsContextLines <= 0) {
+            return null;
+        }
+        int index = row;
+        for (MatchIndex current : indices) {
+            if (current == null) {
+                continue;
+            }
+            if (index < current.size()) {
+                Document document = current.getDocument();
+                return getContext(document, document.getDefaultRootElement().getElementIndex(current.getStart(index)));
+            }
+            index -= current.size();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the lines around the passed line as HTML, whose number is configured through the
+     * {@linkplain Settings}. The passed line is highlighted.
+     *
+     * @param document  Document containing the lines.
+     * @param line      Index of the line.
+     * @return          Lines around the passed line.
+     */
+    private static String getContext(Document document, int line) {
+        Element root = document.getDefaultRootElement();
+        int first = Math.max(0, line - Settings.searchResultsContextLines);
+        int last = Math.min(root.getElementCount() - 1, line + Settings.searchResultsContextLines);
+        StringBuilder html = new StringBuilder("<html><pre>");
+        for (int i = first; i <= last; i++) {
+            Element lineElement = root.getElement(i);
+            int lineStart = lineElement.getStartOffset();
+            int lineEnd = Math.min(lineElement.getEndOffset() - 1, lineStart + CONTEXT_LINE_LENGTH);
+            String text = escape(getText(document, lineStart, Math.min(lineEnd, document.getLength())));
+            html.append(String.format("%6d  ", i + 1)).append(i == line ? "<b>" + text + "</b>" : text).append('\n');
+        }
+        return html.append("</pre></html>").toString();
+    }
+
+    /**
+     * Returns the text within the passed range of the document. Tabs are replaced with spaces.
+     *
+     * @param document  Document containing the text.
+     * @param start     Index of the first character.
+     * @param end       Index after the last character.
+     * @return          Text within the range.
+     */
+    private static String getText(Document document, int start, int end) {
+        if (end <= start) {
+            return "";
+        }
+        try {
+            return document.getText(start, end - start).replace('\t', ' ');
+        }
+        catch (BadLocationException e) {
+            //Range is outdated:
+            return "";
+        }
+    }
+
+    /**
+     * Escapes the passed text, so that it can be displayed within HTML.
+     *
+     * @param text  Text to be escaped.
+     * @return      Escaped text.
+     */
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+}
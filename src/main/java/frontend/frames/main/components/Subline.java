@@ -3,6 +3,7 @@ package frontend.frames.main.components;
 import backend.config.Config;
 
 import javax.swing.*;
+import java.awt.event.ActionListener;
 
 
 /**
@@ -30,6 +31,21 @@ public class Subline extends JPanel {
      */
     private int length;
 
+    /**
+     * Stores the charset of the file.
+     */
+    private String charset;
+
+    /**
+     * Stores the line separator of the file.
+     */
+    private String lineSeparator;
+
+    /**
+     * Stores the estimated memory (in bytes) of the undo history.
+     */
+    private long undoMemory;
+
     /**
      * Stores the JLabel displaying info about the file extension.
      */
@@ -45,6 +61,41 @@ public class Subline extends JPanel {
      */
     private JLabel lengthLabel;
 
+    /**
+     * Stores the JLabel displaying info about the file's charset.
+     */
+    private JLabel charsetLabel;
+
+    /**
+     * Stores the JLabel displaying info about the file's line separator.
+     */
+    private JLabel lineSeparatorLabel;
+
+    /**
+     * Stores the JLabel displaying info about the memory of the undo history.
+     */
+    private JLabel undoMemoryLabel;
+
+    /**
+     * Stores the JLabel displaying which task is currently in progress (i.e. loading the file).
+     */
+    private JLabel progressLabel;
+
+    /**
+     * Stores the progress bar displaying the progress of the current task.
+     */
+    private JProgressBar progressBar;
+
+    /**
+     * Stores the button to cancel the current task.
+     */
+    private JButton cancelButton;
+
+    /**
+     * Stores the JLabel displaying the result of the last task (i.e. saving the file).
+     */
+    private JLabel statusLabel;
+
 
     /**
      * Constructs a new Subline with the passed arguments as it's displayed information.
@@ -57,10 +108,16 @@ public class Subline extends JPanel {
         extensionLabel = new JLabel();
         linesLabel = new JLabel();
         lengthLabel = new JLabel();
+        charsetLabel = new JLabel();
+        lineSeparatorLabel = new JLabel();
+        undoMemoryLabel = new JLabel();
 
         setExtension(extension);
         setLines(lines);
         setLength(length);
+        setCharset("");
+        setLineSeparator("");
+        setUndoMemory(0);
 
         //Configure the subline:
         add(new JLabel(Config.strings.fileExtension));
@@ -71,6 +128,27 @@ public class Subline extends JPanel {
         add(new JLabel("  |  "));
         add(new JLabel(Config.strings.fileLines));
         add(linesLabel);
+        add(new JLabel("  |  "));
+        add(new JLabel(Config.strings.fileCharset));
+        add(charsetLabel);
+        add(new JLabel("  |  "));
+        add(new JLabel(Config.strings.fileLineSeparator));
+        add(lineSeparatorLabel);
+        add(new JLabel("  |  "));
+        add(new JLabel(Config.strings.undoMemory));
+        add(undoMemoryLabel);
+
+        //Configure the progress display:
+        progressLabel = new JLabel();
+        progressBar = new JProgressBar(0, 1000);
+        progressBar.setStringPainted(true);
+        cancelButton = new JButton(Config.strings.cancelButton);
+        add(progressLabel);
+        add(progressBar);
+        add(cancelButton);
+        hideProgress();
+        statusLabel = new JLabel();
+        add(statusLabel);
     }
 
 
@@ -101,4 +179,92 @@ public class Subline extends JPanel {
         lengthLabel.setText("" + length);
     }
 
+    public String getCharset() {
+        return charset;
+    }
+
+    public void setCharset(String charset) {
+        this.charset = charset;
+        charsetLabel.setText(this.charset);
+    }
+
+    public String getLineSeparator() {
+        return lineSeparator;
+    }
+
+    public void setLineSeparator(String lineSeparator) {
+        this.lineSeparator = lineSeparator;
+        lineSeparatorLabel.setText(this.lineSeparator);
+    }
+
+    public long getUndoMemory() {
+        return undoMemory;
+    }
+
+    public void setUndoMemory(long undoMemory) {
+        this.undoMemory = undoMemory;
+        undoMemoryLabel.setText(formatBytes(undoMemory));
+    }
+
+
+    /**
+     * Shows the progress of a task (i.e. loading the file) that processes bytes.
+     *
+     * @param task      Description of the task.
+     * @param processed Number of bytes that have been processed so far.
+     * @param total     Total number of bytes to be processed.
+     */
+    public void showProgress(String task, long processed, long total) {
+        progressLabel.setText("  |  " + task);
+        progressBar.setValue(total == 0 ? progressBar.getMaximum() : (int)(processed * progressBar.getMaximum() / total));
+        progressBar.setString(formatBytes(processed) + " / " + formatBytes(total));
+        progressLabel.setVisible(true);
+        progressBar.setVisible(true);
+        cancelButton.setVisible(true);
+    }
+
+    /**
+     * Hides the progress of a task.
+     */
+    public void hideProgress() {
+        progressLabel.setVisible(false);
+        progressBar.setVisible(false);
+        cancelButton.setVisible(false);
+    }
+
+    /**
+     * Shows the throughput of a task (i.e. saving the file) that processed bytes.
+     *
+     * @param task      Description of the task.
+     * @param bytes     Number of bytes that were processed.
+     * @param duration  Time (in nanoseconds) that was needed to process the bytes.
+     */
+    public void showThroughput(String task, long bytes, long duration) {
+        double seconds = Math.max(duration, 1) / 1e9;
+        statusLabel.setText("  |  " + task + formatBytes(bytes) + String.format(" in %d ms (%s/s)", duration / 1000000, formatBytes((long)(bytes / seconds))));
+    }
+
+    /**
+     * Changes the action that is performed when the user cancels the task whose progress is shown.
+     *
+     * @param action    Action to be performed when the task is cancelled.
+     */
+    public void setCancelAction(ActionListener action) {
+        for (ActionListener current : cancelButton.getActionListeners()) {
+            cancelButton.removeActionListener(current);
+        }
+        cancelButton.addActionListener(action);
+    }
+
+
+    /**
+     * Formats the passed number of bytes as megabytes.
+     *
+     * @param bytes Number of bytes.
+     * @return      Formatted number of megabytes.
+     */
+    private String formatBytes(long bytes) {
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
 }
@@ -99,6 +99,22 @@ public abstract class Tab extends JPanel {
      */
     public abstract boolean save();
 
+    /**
+     * Saves the contents of the edited file without blocking the caller. Tabs that can save their contents in the
+     * background should override this method. By default, {@link #save()} is called.
+     */
+    public void saveInBackground() {
+        save();
+    }
+
+    /**
+     * Blocks until the contents that are saved in the background are saved. Tabs that save their contents in the
+     * background should override this method. By default, nothing happens.
+     */
+    public void finishSaving() {
+        //Contents are saved by save()...
+    }
+
     /**
      * Loads the file that is edited by this tab. Returns {@code false} if the file cannot be opened.
      *
@@ -120,6 +136,13 @@ public abstract class Tab extends JPanel {
      */
     public abstract void updateLength(int length);
 
+    /**
+     * Updates the memory of the undo history to the passed argument.
+     *
+     * @param bytes Estimated memory (in bytes) of the tab's undo history.
+     */
+    public abstract void updateUndoMemory(long bytes);
+
     /**
      * Requests the tab to be closed. This method should do everything that is needed to properly close the tab and
      * save pending changes.
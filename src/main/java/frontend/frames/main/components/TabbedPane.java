@@ -3,6 +3,9 @@ package frontend.frames.main.components;
 import backend.config.Config;
 import backend.files.File;
 import backend.html.ExportToHTML;
+import backend.search.MatchIndex;
+import backend.search.SearchQuery;
+import frontend.dialogs.FindInFilesDialog;
 import frontend.dialogs.SearchDialog;
 import frontend.frames.main.MainFrame;
 import frontend.menus.TabPopupMenu;
@@ -11,6 +14,7 @@ import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 
 
 /**
@@ -105,15 +109,41 @@ public class TabbedPane extends JTabbedPane implements MouseListener {
                 return false;
             }
         }
-        //Open file:
+        //Open file (the file is loaded in the background):
         EditorTab newTab = new EditorTab(path);
         addTab(newTab.getFile().getNameWithExtension(), newTab);
         setSelectedComponent(newTab); //Show opened tab.
+        newTab.loadInBackground(() -> remove(newTab));
 
         return true;
     }
 
 
+    /**
+     * Shows the passed match in the file with the passed path. If the file is not opened yet, it is opened in a new
+     * tab and the match is marked once the file is loaded.
+     *
+     * @param path      Path of the file.
+     * @param position  Offset of the match within the text of the file.
+     * @param length    Length of the match.
+     */
+    public void showMatch(String path, int position, int length) {
+        for (int i = 0; i < getTabCount(); i++) {
+            if (getComponentAt(i) instanceof EditorTab && ((EditorTab)getComponentAt(i)).getFile().getAbsolutePath().equals(path)) {
+                //Path already opened:
+                EditorTab tab = (EditorTab)getComponentAt(i);
+                setSelectedIndex(i);
+                tab.whenLoaded(() -> tab.markText(position, length));
+                return;
+            }
+        }
+        if (addTab(path)) {
+            EditorTab tab = (EditorTab)getSelectedComponent();
+            tab.whenLoaded(() -> tab.markText(position, length));
+        }
+    }
+
+
     /**
      * This method lets the user search a String.
      */
@@ -121,6 +151,13 @@ public class TabbedPane extends JTabbedPane implements MouseListener {
         SearchDialog dialog = new SearchDialog(context);
     }
 
+    /**
+     * This method lets the user search a String within all files of a directory.
+     */
+    public void findInFiles() {
+        FindInFilesDialog dialog = new FindInFilesDialog(context);
+    }
+
     /**
      * This method lets the user search and replace a String.
      */
@@ -130,39 +167,90 @@ public class TabbedPane extends JTabbedPane implements MouseListener {
     }
 
     /**
-     * Searches the active tab for the regex. This only works in an {@linkplain EditorTab}. If the active tab is no
-     * EditorTab, null will be returned.
-     *
-     * @param regex Regex to search in the active tab.
-     * @return      ArrayList containing the indices of the matches in the active tab.
+     * This method lets the user enter a line to which the cursor of the active tab is moved. This only works in an
+     * {@linkplain EditorTab}.
      */
-    public ArrayList<Integer> searchInActiveTab(String regex) {
-        if (getSelectedComponent() instanceof EditorTab) {
-            return ((EditorTab) getSelectedComponent()).search(regex);
+    public void goToLine() {
+        if (!(getSelectedComponent() instanceof EditorTab)) {
+            return;
+        }
+        EditorTab tab = (EditorTab)getSelectedComponent();
+        String input = JOptionPane.showInputDialog(this, String.format(Config.strings.enterLineNumber, tab.getLineCount()), Config.strings.goToLine, JOptionPane.QUESTION_MESSAGE);
+        if (input == null) {
+            //User cancelled:
+            return;
+        }
+        try {
+            tab.goToLine(Integer.parseInt(input.trim()));
+        }
+        catch (NumberFormatException e) {
+            //Invalid line number: Do nothing...
         }
-        return null;
     }
 
     /**
-     * Searches all {@linkplain EditorTab}s for the passed regex. The tabs are stored within the 'outer' ArrayList while
-     * the individual indices of the matches for the respective tabs are stored in the 'inner' ArrayList. If a Tab is
-     * encountered, that is no EditorTab, the 'outer' ArrayList contains {@code null}.
+     * Returns new {@linkplain MatchIndex}es for the {@linkplain EditorTab}s that shall be searched. If the active tab
+     * shall be searched, the ArrayList only contains the index of the active tab. If a tab is encountered, that is no
+     * EditorTab, the ArrayList contains {@code null}. The indices do not contain any matches yet.
      *
-     * @param regex Regex to search in al tabs.
-     * @return      ArrayList containing an ArrayList of the indices for each match in the respective tab.
+     * @param query     Query whose matches shall be stored.
+     * @param allTabs   Whether all tabs shall be searched, or only the active tab.
+     * @return          ArrayList containing the indices of the respective tabs.
      */
-    public ArrayList<ArrayList<Integer>> searchAllTabs(String regex) {
-        ArrayList<ArrayList<Integer>> tabs = new ArrayList<ArrayList<Integer>>(getTabCount());
+    public ArrayList<MatchIndex> createMatchIndices(SearchQuery query, boolean allTabs) {
+        ArrayList<MatchIndex> indices = new ArrayList<MatchIndex>();
+        if (!allTabs) {
+            indices.add(getSelectedComponent() instanceof EditorTab ? new MatchIndex(((EditorTab)getSelectedComponent()).getDocument(), query) : null);
+            return indices;
+        }
         for (int i = 0; i < getTabCount(); i++) {
             if (getComponentAt(i) instanceof EditorTab) {
-                tabs.add(((EditorTab) getComponentAt(i)).search(regex));
+                indices.add(new MatchIndex(((EditorTab)getComponentAt(i)).getDocument(), query));
             }
             else {
                 //Current tab is no EditorTab:
-                tabs.add(null);
+                indices.add(null);
+            }
+        }
+        return indices;
+    }
+
+    /**
+     * Highlights the matches of the passed indices within the {@linkplain EditorTab}s that edit their documents. The
+     * highlights of all other tabs are removed.
+     *
+     * @param indices   Indices whose matches shall be highlighted, which may contain {@code null}.
+     */
+    public void highlightMatches(List<MatchIndex> indices) {
+        for (int i = 0; i < getTabCount(); i++) {
+            if (getComponentAt(i) instanceof EditorTab) {
+                EditorTab tab = (EditorTab)getComponentAt(i);
+                MatchIndex matches = null;
+                for (MatchIndex index : indices) {
+                    if (index != null && index.getDocument() == tab.getDocument()) {
+                        matches = index;
+                        break;
+                    }
+                }
+                tab.highlightMatches(matches);
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the {@linkplain EditorTab} that edits the passed document, i.e. the document of a
+     * {@linkplain MatchIndex}.
+     *
+     * @param document  Document whose tab shall be found.
+     * @return          Index of the tab, or {@code -1} if no tab edits the document.
+     */
+    public int indexOfDocument(javax.swing.text.Document document) {
+        for (int i = 0; i < getTabCount(); i++) {
+            if (getComponentAt(i) instanceof EditorTab && ((EditorTab)getComponentAt(i)).getDocument() == document) {
+                return i;
             }
         }
-        return tabs;
+        return -1;
     }
 
 
@@ -204,7 +292,7 @@ public class TabbedPane extends JTabbedPane implements MouseListener {
      */
     public void saveActiveTab() {
         if (getSelectedComponent() instanceof Tab) {
-            ((Tab)getSelectedComponent()).save();
+            ((Tab)getSelectedComponent()).saveInBackground();
         }
     }
 
@@ -216,7 +304,7 @@ public class TabbedPane extends JTabbedPane implements MouseListener {
     public void saveActiveTabAs(String path) {
         if (getSelectedComponent() instanceof Tab) {
             ((Tab)getSelectedComponent()).getFile().setAbsolutePath(path);
-            ((Tab)getSelectedComponent()).save();
+            ((Tab)getSelectedComponent()).saveInBackground();
         }
     }
 
@@ -230,6 +318,15 @@ public class TabbedPane extends JTabbedPane implements MouseListener {
         }
     }
 
+    /**
+     * Blocks until every tab finished saving its contents in the background.
+     */
+    public void finishSavingAllTabs() {
+        for (int i = 0; i < getTabCount(); i++) {
+            ((Tab)getComponentAt(i)).finishSaving();
+        }
+    }
+
     /**
      * Tests whether any tab has unsaved changes. If so, {@code true} is returned, otherwise {@code false} will be
      * returned.
@@ -1,21 +1,54 @@
 package frontend.frames.main.components;
 
 import backend.config.Config;
+import backend.document.DocumentChange;
+import backend.document.DocumentChangeListener;
+import backend.document.LineSeparators;
+import backend.document.PieceTableContent;
+import backend.document.PieceTableBackedDocument;
+import backend.document.PieceTableDocument;
+import backend.document.PieceTablePlainDocument;
+import backend.document.ReplaceEvent;
+import backend.document.UndoHistory;
+import backend.document.UndoJournal;
+import backend.files.File;
+import backend.search.LiteralMatcher;
+import backend.search.MatchIndex;
+import backend.search.SearchQuery;
+import backend.search.SearchResult;
 import javax.swing.*;
+import javax.swing.event.ChangeListener;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import javax.swing.event.UndoableEditEvent;
 import javax.swing.event.UndoableEditListener;
+import javax.swing.text.AbstractDocument;
 import javax.swing.text.BadLocationException;
+import javax.swing.text.Caret;
+import javax.swing.text.DefaultEditorKit;
+import javax.swing.text.DefaultHighlighter;
 import javax.swing.text.Document;
+import javax.swing.text.EditorKit;
 import javax.swing.text.Element;
+import javax.swing.text.Highlighter;
+import javax.swing.text.JTextComponent;
+import javax.swing.text.PlainView;
+import javax.swing.text.Segment;
+import javax.swing.text.StyledEditorKit;
+import javax.swing.text.ViewFactory;
 import javax.swing.undo.CannotRedoException;
 import javax.swing.undo.CannotUndoException;
-import javax.swing.undo.UndoManager;
 import java.awt.*;
 import java.awt.event.ActionEvent;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
 
 
 /**
@@ -29,52 +62,389 @@ import java.util.regex.Pattern;
 public class TextArea extends JScrollPane {
 
     /**
-     * This class implements the line numbers for the {@linkplain TextArea}-class.
+     * This class implements the line numbers for the {@linkplain TextArea}-class. The line numbers are not stored
+     * anywhere, instead only the numbers of the lines that are visible within the clip are painted. The lines are
+     * mapped to y-coordinates through the root element of the document, so that memory and paint time only depend on
+     * the number of visible lines.
      *
      * @author  Christian-2003
-     * @version 25 May 2023
+     * @version 18 October 2026
      */
-    private class LineNumbers extends JTextPane {
+    private class LineNumbers extends JComponent {
+
+        /**
+         * Stores the horizontal space (in pixels) to the left and right of the line numbers.
+         */
+        private static final int INSET = 4;
+
+        /**
+         * Stores the number of digits for which the width of the line numbers is currently calculated.
+         */
+        private int digits;
+
 
         /**
          * Constructs new line numbers for the text editor.
          */
         public LineNumbers() {
             super();
-            setEditable(false);
+            digits = 1;
+            setOpaque(true);
+            setBackground(UIManager.getColor("TextPane.background"));
+            setForeground(UIManager.getColor("TextPane.foreground"));
             //setBackground(Config.colors.lineNumbersBackground);
             //setForeground(Config.colors.lineNumbersForeground);
         }
 
 
         /**
-         * Updates the line numbers of the component.
+         * Updates the line numbers of the component. This only changes the size of the component, as the line numbers
+         * are painted when they become visible.
          */
         public void updateLineNumbers() {
-            //Generate the line numbers for the component:
-            Document document = TextArea.this.textPane.getDocument();
-            int documentLength = document.getLength();
+            digits = Integer.toString(TextArea.this.textPane.lineNumbers).length();
+            revalidate();
+            repaint();
+        }
+
+
+        /**
+         * Returns the preferred size of the line numbers. The width fits the largest line number, the height equals the
+         * height of the text pane, so that the line numbers scroll together with the text.
+         *
+         * @return  Preferred size of the line numbers.
+         */
+        @Override
+        public Dimension getPreferredSize() {
+            FontMetrics metrics = getFontMetrics(getFont());
+            int width = 2 * INSET + Math.max(digits, 2) * metrics.charWidth('0');
+            return new Dimension(width, TextArea.this.textPane.getPreferredSize().height);
+        }
+
+        /**
+         * Paints the numbers of all lines that intersect the clip.
+         *
+         * @param g Graphics with which to paint.
+         */
+        @Override
+        protected void paintComponent(Graphics g) {
+            Rectangle clip = g.getClipBounds();
+            g.setColor(getBackground());
+            g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+            TextPane textPane = TextArea.this.textPane;
+            Element root = textPane.getDocument().getDefaultRootElement();
+            FontMetrics metrics = g.getFontMetrics(getFont());
+            int firstLine = root.getElementIndex(textPane.viewToModel2D(new Point(0, clip.y)));
+            int lastLine = root.getElementIndex(textPane.viewToModel2D(new Point(0, clip.y + clip.height)));
+            g.setColor(getForeground());
+            for (int line = firstLine; line <= lastLine; line++) {
+                Rectangle2D bounds;
+                try {
+                    bounds = textPane.modelToView2D(root.getElement(line).getStartOffset());
+                }
+                catch (BadLocationException e) {
+                    //Line is not displayed:
+                    break;
+                }
+                if (bounds == null) {
+                    //Text pane is not displayed yet:
+                    break;
+                }
+                String number = Integer.toString(line + 1);
+                int x = getWidth() - INSET - metrics.stringWidth(number);
+                int y = (int)(bounds.getY() + bounds.getHeight()) - metrics.getDescent();
+                g.drawString(number, x, y);
+            }
+        }
+
+    }
+
+
+    /**
+     * This class implements the highlights of the matches of a {@linkplain MatchIndex} and of all occurrences of the
+     * selected word. The highlights are not registered with the highlighter one by one, instead a single highlight
+     * spans the whole document, whose painter computes the matches within the visible part of every line that
+     * intersects the clip from the index whenever it is painted. Therefore, memory and paint time only depend on the
+     * number of visible matches, regardless of how many matches the document contains. The occurrences of the
+     * selected word are searched within the visible part of every line as well, through a {@linkplain LiteralMatcher}
+     * whose matches are only highlighted if they are whole words.
+     *
+     * @author  Christian-2003
+     * @version 18 October 2026
+     */
+    private class MatchHighlighter implements Highlighter.HighlightPainter {
+
+        /**
+         * Stores the maximum length of a selected word whose occurrences are highlighted.
+         */
+        private static final int MAX_WORD_LENGTH = 100;
+
+        /**
+         * Stores the painter that paints the highlight of a single match.
+         */
+        private final DefaultHighlighter.DefaultHighlightPainter matchPainter;
+
+        /**
+         * Stores the painter that paints the highlight of a single occurrence of the selected word.
+         */
+        private final DefaultHighlighter.DefaultHighlightPainter occurrencePainter;
+
+        /**
+         * Stores the listener that repaints the text pane whenever the matches changed due to an edit.
+         */
+        private final ChangeListener repaintListener;
+
+        /**
+         * Stores the tag of the highlight that spans the whole document, or {@code null} if it was not added yet.
+         */
+        private Object tag;
+
+        /**
+         * Stores the index whose matches are highlighted, or {@code null} if no matches are highlighted.
+         */
+        private MatchIndex matches;
+
+        /**
+         * Stores the selected word, or {@code null} if no word is selected.
+         */
+        private String occurrence;
+
+        /**
+         * Stores the matcher that finds the {@link #occurrence}s, or {@code null} if no word is selected.
+         */
+        private LiteralMatcher occurrenceMatcher;
+
+
+        /**
+         * Constructs a new MatchHighlighter, which does not highlight anything.
+         */
+        public MatchHighlighter() {
+            matchPainter = new DefaultHighlighter.DefaultHighlightPainter(Config.colors.searchMatchHighlight);
+            occurrencePainter = new DefaultHighlighter.DefaultHighlightPainter(Config.colors.occurrenceHighlight);
+            repaintListener = e -> TextArea.this.textPane.repaint();
+        }
+
+
+        /**
+         * Adds the highlight that spans the whole document to the highlighter of the text pane. This is required
+         * whenever the document is replaced.
+         */
+        public void install() {
+            Highlighter highlighter = TextArea.this.textPane.getHighlighter();
+            if (tag != null) {
+                highlighter.removeHighlight(tag);
+            }
+            try {
+                tag = highlighter.addHighlight(0, 0, this);
+            }
+            catch (BadLocationException e) {
+                //Cannot happen, as the document always contains the offset 0:
+                tag = null;
+            }
+        }
+
+        /**
+         * Highlights the matches of the passed index, which MUST belong to the document of the text pane.
+         *
+         * @param matches   Index whose matches shall be highlighted, or {@code null} to remove the highlights.
+         */
+        public void setMatches(MatchIndex matches) {
+            if (this.matches != null) {
+                this.matches.removeChangeListener(repaintListener);
+            }
+            this.matches = matches;
+            if (matches != null) {
+                matches.addChangeListener(repaintListener);
+            }
+            TextArea.this.textPane.repaint();
+        }
+
+        /**
+         * Highlights all occurrences of the selected text if it is a single word within a single line.
+         */
+        public void selectionChanged() {
+            TextPane textPane = TextArea.this.textPane;
+            String previous = occurrence;
+            occurrence = null;
+            int start = textPane.getSelectionStart();
+            int end = textPane.getSelectionEnd();
+            if (end > start && end - start <= MAX_WORD_LENGTH) {
+                String word;
+                try {
+                    word = textPane.getDocument().getText(start, end - start);
+                }
+                catch (BadLocationException e) {
+                    //Selection is outdated:
+                    word = "";
+                }
+                if (!word.isEmpty() && word.chars().allMatch(c -> Character.isLetterOrDigit(c) || c == '_')) {
+                    occurrence = word;
+                }
+            }
+            if (!Objects.equals(previous, occurrence)) {
+                occurrenceMatcher = occurrence != null ? new LiteralMatcher(occurrence) : null;
+                textPane.repaint();
+            }
+        }
+
+
+        /**
+         * Paints the highlights of all matches and occurrences within the visible part of every line that intersects
+         * the clip. The passed offsets span the whole document and are ignored.
+         *
+         * @param g         Graphics with which to paint.
+         * @param p0        Ignored.
+         * @param p1        Ignored.
+         * @param bounds    Bounding box of the text pane.
+         * @param c         Text pane that is painted.
+         */
+        @Override
+        public void paint(Graphics g, int p0, int p1, Shape bounds, JTextComponent c) {
+            if (matches == null && occurrence == null) {
+                return;
+            }
+            Rectangle clip = g.getClipBounds();
+            Document document = c.getDocument();
             Element root = document.getDefaultRootElement();
-            StringBuilder lineNumbers = new StringBuilder();
-            for (int i = 1; i < root.getElementIndex(documentLength) + 2; i++) {
-                lineNumbers.append(i);
-                lineNumbers.append(Config.formats.lineSeparator);
+            int firstLine = root.getElementIndex(c.viewToModel2D(new Point(0, clip.y)));
+            int lastLine = root.getElementIndex(c.viewToModel2D(new Point(0, clip.y + clip.height)));
+            int nextMatch = 0;
+            for (int line = firstLine; line <= lastLine; line++) {
+                Element lineElement = root.getElement(line);
+                int lineStart = lineElement.getStartOffset();
+                int lineEnd = Math.min(lineElement.getEndOffset() - 1, document.getLength());
+                Rectangle2D lineBounds;
+                try {
+                    lineBounds = c.modelToView2D(lineStart);
+                }
+                catch (BadLocationException e) {
+                    //Line is not displayed:
+                    break;
+                }
+                if (lineBounds == null) {
+                    //Text pane is not displayed yet:
+                    break;
+                }
+                //Offsets of the visible part of the line:
+                double y = lineBounds.getCenterY();
+                int from = Math.max(lineStart, c.viewToModel2D(new Point2D.Double(clip.x, y)) - 1);
+                int to = Math.min(lineEnd, c.viewToModel2D(new Point2D.Double(clip.x + clip.width, y)) + 1);
+                if (matches != null) {
+                    nextMatch = paintMatches(g, from, to, nextMatch, bounds, c);
+                }
+                if (occurrence != null) {
+                    paintOccurrences(g, from, to, lineStart, lineEnd, bounds, c);
+                }
             }
+        }
 
-            //Set the component's text to the generated line numbers:
-            setText(lineNumbers.toString());
+        /**
+         * Paints the highlights of all matches that intersect the passed range. Matches before the passed index were
+         * painted already, i.e. matches that span multiple lines.
+         *
+         * @param g         Graphics with which to paint.
+         * @param from      Offset of the first visible character.
+         * @param to        Offset after the last visible character.
+         * @param nextMatch Index of the first match that was not painted yet.
+         * @param bounds    Bounding box of the text pane.
+         * @param c         Text pane that is painted.
+         * @return          Index of the first match that was not painted yet.
+         */
+        private int paintMatches(Graphics g, int from, int to, int nextMatch, Shape bounds, JTextComponent c) {
+            int i = matches.indexOf(from);
+            if (i > 0 && matches.getStart(i - 1) + matches.getLength(i - 1) > from) {
+                //Previous match ends within the range:
+                i--;
+            }
+            for (i = Math.max(i, nextMatch); i < matches.size() && matches.getStart(i) < to; i++) {
+                matchPainter.paint(g, matches.getStart(i), matches.getStart(i) + matches.getLength(i), bounds, c);
+            }
+            return Math.max(i, nextMatch);
+        }
+
+        /**
+         * Paints the highlights of all occurrences of the selected word that intersect the passed range. Only the
+         * range and the characters around it are searched. Occurrences that are adjacent to letters, numbers or
+         * underscores are no whole words, and are not highlighted.
+         *
+         * @param g         Graphics with which to paint.
+         * @param from      Offset of the first visible character.
+         * @param to        Offset after the last visible character.
+         * @param lineStart Offset of the first character of the line.
+         * @param lineEnd   Offset of the line separator of the line.
+         * @param bounds    Bounding box of the text pane.
+         * @param c         Text pane that is painted.
+         */
+        private void paintOccurrences(Graphics g, int from, int to, int lineStart, int lineEnd, Shape bounds, JTextComponent c) {
+            //Search one character more than an occurrence around the range, so that whole words are recognized:
+            int length = occurrence.length();
+            int searchFrom = Math.max(lineStart, from - length - 1);
+            int searchTo = Math.min(lineEnd, to + length + 1);
+            if (searchTo - searchFrom < length) {
+                return;
+            }
+            Segment text = new Segment();
+            try {
+                c.getDocument().getText(searchFrom, searchTo - searchFrom, text);
+            }
+            catch (BadLocationException e) {
+                //Line is outdated:
+                return;
+            }
+            SearchResult result = occurrenceMatcher.search(text.array, text.offset, text.count);
+            for (int i = 0; i < result.size(); i++) {
+                int start = searchFrom + result.getStart(i);
+                int end = start + result.getLength(i);
+                if ((start == searchFrom && searchFrom != lineStart) || (end == searchTo && searchTo != lineEnd)) {
+                    //Characters around the occurrence are unknown:
+                    continue;
+                }
+                int before = text.offset + result.getStart(i);
+                int after = before + result.getLength(i);
+                if ((before > text.offset && isWordCharacter(Character.codePointBefore(text.array, before, text.offset))) || (after < text.offset + text.count && isWordCharacter(Character.codePointAt(text.array, after, text.offset + text.count)))) {
+                    //Occurrence is part of a longer word:
+                    continue;
+                }
+                if (end > from && start < to) {
+                    occurrencePainter.paint(g, start, end, bounds, c);
+                }
+            }
+        }
+
+        /**
+         * Tests whether the passed code point belongs to a word, which is the case for letters, numbers and
+         * underscores, just like for whole words of the {@linkplain SearchQuery}.
+         *
+         * @param codePoint Code point to be tested.
+         * @return          Whether the code point belongs to a word.
+         */
+        private boolean isWordCharacter(int codePoint) {
+            if (codePoint == '_' || Character.isLetter(codePoint)) {
+                return true;
+            }
+            int type = Character.getType(codePoint);
+            return type == Character.DECIMAL_DIGIT_NUMBER || type == Character.LETTER_NUMBER || type == Character.OTHER_NUMBER;
         }
 
     }
 
 
     /**
-     * This class implements the main text editor for the {@linkplain TextArea}-class.
+     * This class implements the main text editor for the {@linkplain TextArea}-class. The text is either edited as
+     * styled text within a {@linkplain PieceTableDocument}, or as plain text within a
+     * {@linkplain PieceTablePlainDocument}, which is displayed through lightweight {@linkplain PlainView}s.
      *
      * @author  Christian-2003
      * @version 25 May 2023
      */
-    private class TextPane extends JTextPane {
+    private class TextPane extends JEditorPane {
+
+        /**
+         * Stores the delay (in milliseconds) after which changes of the document are displayed, which is roughly one
+         * frame.
+         */
+        private static final int UPDATE_DELAY = 16;
 
         /**
          * This Java class implements a handler that handles undoable changes.
@@ -156,12 +526,93 @@ public class TextArea extends JScrollPane {
         }
 
 
+        /**
+         * This class implements a worker that reads the undo journal of the loaded file in the background. Once the
+         * journal is read, its edits are inserted in front of the undo history, so that the edits of previous sessions
+         * can be undone.
+         */
+        private class JournalLoader extends SwingWorker<UndoJournal, Void> {
+
+            /**
+             * Stores the document whose history is loaded.
+             */
+            private final PieceTableBackedDocument document;
+
+            /**
+             * Stores the path of the loaded file.
+             */
+            private final Path path;
+
+            /**
+             * Stores the snapshot of the loaded text, for which the journal must have been written.
+             */
+            private final PieceTableContent.Snapshot snapshot;
+
+
+            /**
+             * Constructs a new JournalLoader.
+             *
+             * @param document  Document whose history shall be loaded.
+             * @param path      Path of the loaded file.
+             */
+            private JournalLoader(PieceTableBackedDocument document, Path path) {
+                this.document = document;
+                this.path = path;
+                snapshot = document.snapshot();
+            }
+
+
+            /**
+             * Reads the journal in the background.
+             *
+             * @return  Journal of the file, or {@code null} if the file has no journal for the loaded text.
+             */
+            @Override
+            protected UndoJournal doInBackground() {
+                return UndoJournal.read(path, snapshot);
+            }
+
+            /**
+             * Inserts the edits of the journal in front of the undo history.
+             */
+            @Override
+            protected void done() {
+                if (journalLoader != this) {
+                    //Another file was loaded in the meantime:
+                    return;
+                }
+                journalLoader = null;
+                try {
+                    UndoJournal journal = get();
+                    if (journal != null && getDocument() == document) {
+                        undoManager.loadJournal(document, journal);
+                    }
+                }
+                catch (InterruptedException | ExecutionException e) {
+                    //Journal could not be read, the history is not restored...
+                }
+                undoAction.update();
+                redoAction.update();
+            }
+
+        }
+
+
         /**
          * Stores the number of lines within this TextPane.
          */
         private int lineNumbers;
 
-        private UndoManager undoManager;
+        /**
+         * Stores the undo history, which coalesces typed characters and is limited by its memory.
+         */
+        private UndoHistory undoManager;
+
+        /**
+         * Stores the worker that reads the undo journal of the loaded file, or {@code null} if the journal was loaded
+         * already (or if there is none).
+         */
+        private JournalLoader journalLoader;
 
         private UndoHandler undoHandler;
 
@@ -169,49 +620,260 @@ public class TextArea extends JScrollPane {
 
         private RedoAction redoAction;
 
+        /**
+         * Stores the listener that updates the line numbers and context whenever the document changes.
+         */
+        private DocumentListener documentHandler;
+
+        /**
+         * Stores the timer that flushes pending updates at most once per frame.
+         */
+        private Timer updateTimer;
+
+        /**
+         * Stores whether the context needs to be updated when the {@link #updateTimer} fires.
+         */
+        private boolean contextChanged;
+
+        /**
+         * Stores whether the line numbers need to be updated when the {@link #updateTimer} fires.
+         */
+        private boolean linesChanged;
+
+        /**
+         * Stores the changes that happened since the {@link #updateTimer} fired last. Changes are only collected if
+         * there are {@link #changeListeners}.
+         */
+        private ArrayList<DocumentChange> pendingChanges;
+
+        /**
+         * Stores the listeners that receive the changes of the document in batches.
+         */
+        private ArrayList<DocumentChangeListener> changeListeners;
+
 
         /**
          * Constructs a new TextPane.
+         *
+         * @param plainText Whether the text is edited as plain text.
          */
-        public TextPane() {
+        public TextPane(boolean plainText) {
             super();
+            putClientProperty(JEditorPane.HONOR_DISPLAY_PROPERTIES, Boolean.TRUE); //Use the font of the TextPane.
+            setEditorKit(createEditorKit(plainText));
 
-            lineNumbers = countLineSeparators();
+            lineNumbers = 1;
             undoAction = new UndoAction();
             redoAction = new RedoAction();
             undoHandler = new UndoHandler();
-            undoManager = new UndoManager();
+            undoManager = new UndoHistory();
+            pendingChanges = new ArrayList<>();
+            changeListeners = new ArrayList<>();
+            updateTimer = new Timer(UPDATE_DELAY, e -> flushUpdates());
+            updateTimer.setRepeats(false);
 
             //setBackground(Config.colors.textEditorBackground);
             //setForeground(Config.colors.textEditorForeground);
 
             //Add a document listener that can change the line numbers when needed:
-            setText("");
-            getDocument().addDocumentListener(new DocumentListener() {
+            documentHandler = new DocumentListener() {
                 @Override
                 public void insertUpdate(DocumentEvent e) {
-                    updateLineNumbers();
-                    updateContext();
+                    updateLineNumbers(e);
+                    recordChange(new DocumentChange(true, e.getOffset(), e.getLength()));
                 }
 
                 @Override
                 public void removeUpdate(DocumentEvent e) {
-                    updateLineNumbers();
-                    updateContext();
+                    updateLineNumbers(e);
+                    recordChange(new DocumentChange(false, e.getOffset(), e.getLength()));
                 }
 
                 @Override
                 public void changedUpdate(DocumentEvent e) {
-                    updateLineNumbers();
-                    updateContext();
+                    if (!(e instanceof ReplaceEvent)) {
+                        //Attributes do not change the lines or the text:
+                        recordChange(null);
+                        return;
+                    }
+                    ReplaceEvent event = (ReplaceEvent)e;
+                    updateLineNumbers(e);
+                    int shift = 0;
+                    for (int i = 0; i < event.size(); i++) {
+                        int offset = event.getStart(i) + shift;
+                        if (event.getRemovedLength(i) > 0) {
+                            recordChange(new DocumentChange(false, offset, event.getRemovedLength(i)));
+                        }
+                        if (event.getInsertedLength(i) > 0) {
+                            recordChange(new DocumentChange(true, offset, event.getInsertedLength(i)));
+                        }
+                        shift += event.getInsertedLength(i) - event.getRemovedLength(i);
+                    }
+                    //The caret only moves with removals and insertions, move it as these would:
+                    Caret caret = getCaret();
+                    int mark = event.mapOffset(caret.getMark());
+                    int dot = event.mapOffset(caret.getDot());
+                    caret.setDot(mark);
+                    caret.moveDot(dot);
                 }
-            });
+            };
+            setText("");
 
-            //Add undoEditListener:
+            //Add listeners to the document:
+            getDocument().addDocumentListener(documentHandler);
             getDocument().addUndoableEditListener(undoHandler);
         }
 
 
+        /**
+         * Creates the editor kit of the TextPane. The kit for styled text creates {@linkplain PieceTableDocument}s, the
+         * kit for plain text creates {@linkplain PieceTablePlainDocument}s, each line of which is displayed through a
+         * {@linkplain PlainView}. In both cases, the content of the TextPane is stored within a piece table.
+         *
+         * @param plainText Whether the text is edited as plain text.
+         * @return          Editor kit for the TextPane.
+         */
+        private EditorKit createEditorKit(boolean plainText) {
+            if (plainText) {
+                return new DefaultEditorKit() {
+                    @Override
+                    public Document createDefaultDocument() {
+                        return new PieceTablePlainDocument();
+                    }
+
+                    @Override
+                    public ViewFactory getViewFactory() {
+                        return PlainView::new;
+                    }
+                };
+            }
+            return new StyledEditorKit() {
+                @Override
+                public Document createDefaultDocument() {
+                    return new PieceTableDocument();
+                }
+            };
+        }
+
+        /**
+         * Changes the document of the TextPane. All listeners of the TextPane are moved from the previous document to
+         * the passed document.
+         *
+         * @param doc   New document for the TextPane.
+         */
+        @Override
+        public void setDocument(Document doc) {
+            Document previous = getDocument();
+            if (previous != null && documentHandler != null) {
+                previous.removeDocumentListener(documentHandler);
+                previous.removeUndoableEditListener(undoHandler);
+            }
+            super.setDocument(doc);
+            if (documentHandler != null) {
+                doc.addDocumentListener(documentHandler);
+                doc.addUndoableEditListener(undoHandler);
+            }
+            if (TextArea.this.matchHighlighter != null) {
+                TextArea.this.matchHighlighter.install();
+            }
+        }
+
+
+        /**
+         * Replaces the displayed text with a new empty document, to which loaded chunks can be
+         * appended through {@link #appendLoaded(CharSequence)}. The TextPane is not editable until
+         * {@link #endLoading()} is called. The undo history is discarded.
+         */
+        public void beginLoading() {
+            setEditable(false);
+            setDocument(getEditorKit().createDefaultDocument());
+            undoManager.discardAllEdits();
+            journalLoader = null;
+            undoAction.update();
+            redoAction.update();
+            pendingChanges.clear();
+            resetLineNumbers();
+            updateContext();
+        }
+
+        /**
+         * Appends the passed chunk of loaded text to the document. The chunk is not copied, instead it is referenced
+         * by the document. Therefore, the passed chunk MUST NOT be modified afterwards. The insertion cannot be undone.
+         *
+         * @param chunk Chunk of loaded text.
+         */
+        public void appendLoaded(CharSequence chunk) {
+            PieceTableBackedDocument document = (PieceTableBackedDocument)getDocument();
+            try {
+                document.insertBuffer(document.getLength(), chunk);
+            }
+            catch (BadLocationException e) {
+                //Cannot happen, as the chunk is appended...
+            }
+        }
+
+        /**
+         * Finishes loading and makes the TextPane editable again. If the loaded file has an undo journal, the journal
+         * is read in the background and inserted in front of the history afterwards.
+         */
+        public void endLoading() {
+            setEditable(true);
+            setCaretPosition(0);
+            File file = TextArea.this.context.getFile();
+            if (Config.settings.persistUndoHistory && file != null && file.getAbsolutePath() != null) {
+                Path path = Paths.get(file.getAbsolutePath());
+                if (Files.exists(UndoJournal.getJournalFile(path))) {
+                    journalLoader = new JournalLoader((PieceTableBackedDocument)getDocument(), path);
+                    journalLoader.execute();
+                }
+            }
+            undoAction.update();
+        }
+
+
+        /**
+         * Replaces the passed range of the document with the passed text through a single mutation of the document.
+         * The removal and the insertion are combined into a single edit, so that they are undone in one step.
+         *
+         * @param position              Position of the first character to be replaced.
+         * @param length                Number of characters to be replaced.
+         * @param text                  Text to be inserted in their place.
+         * @throws BadLocationException The passed range is not within the document.
+         */
+        public void replaceRange(int position, int length, String text) throws BadLocationException {
+            undoManager.beginCompoundEdit();
+            try {
+                ((AbstractDocument)getDocument()).replace(position, length, text, null);
+            }
+            finally {
+                undoManager.endCompoundEdit();
+                undoAction.update();
+                redoAction.update();
+            }
+        }
+
+
+        /**
+         * Replaces the passed ranges of the document with the passed text through a single edit, which is undone in
+         * one step. The text between the ranges is not touched.
+         *
+         * @param starts                Offsets of the ranges in ascending order.
+         * @param lengths               Lengths of the ranges, which must not overlap.
+         * @param count                 Number of ranges.
+         * @param text                  Text to be inserted in their place.
+         * @throws BadLocationException The passed ranges are not within the document.
+         */
+        public void replaceRanges(int[] starts, int[] lengths, int count, String text) throws BadLocationException {
+            try {
+                ((PieceTableBackedDocument)getDocument()).replaceRanges(starts, lengths, count, text);
+            }
+            finally {
+                undoAction.update();
+                redoAction.update();
+            }
+        }
+
+
         /**
          * Undoes changes.
          */
@@ -253,38 +915,110 @@ public class TextArea extends JScrollPane {
 
 
         /**
-         * Updates the context of the TextArea.
+         * Adds a listener that receives the changes of the document in batches.
+         *
+         * @param listener  Listener to be added.
          */
-        private void updateContext() {
-            TextArea.this.context.updateLength(getDocument().getLength());
-            TextArea.this.context.updateLineNumbers(lineNumbers + 1);
-            TextArea.this.context.unsavedChanges = true;
+        public void addDocumentChangeListener(DocumentChangeListener listener) {
+            changeListeners.add(listener);
+        }
+
+        /**
+         * Removes a listener that receives the changes of the document in batches.
+         *
+         * @param listener  Listener to be removed.
+         */
+        public void removeDocumentChangeListener(DocumentChangeListener listener) {
+            changeListeners.remove(listener);
         }
 
 
         /**
-         * Updates the line numbers of the TextPane.
+         * Records a change of the document. The text is marked as changed immediately, all other updates are delayed
+         * until the {@link #updateTimer} fires, so that many changes in a short time (i.e. when replacing all matches)
+         * only cause a single update.
+         *
+         * @param change    Change of the document, or {@code null} if the text did not change.
          */
-        private void updateLineNumbers() {
-            int newLineNumbers = countLineSeparators();
-            if (lineNumbers != newLineNumbers) {
-                //Updated line numbers needed:
+        private void recordChange(DocumentChange change) {
+            TextArea.this.context.unsavedChanges = true;
+            if (change != null && !changeListeners.isEmpty()) {
+                pendingChanges.add(change);
+            }
+            contextChanged = true;
+            if (!updateTimer.isRunning()) {
+                updateTimer.start();
+            }
+        }
+
+        /**
+         * Performs all updates that were delayed since the {@link #updateTimer} fired last.
+         */
+        private void flushUpdates() {
+            if (linesChanged) {
+                linesChanged = false;
                 if (TextArea.this.lineNumbers != null) {
                     TextArea.this.lineNumbers.updateLineNumbers();
                 }
-                lineNumbers = newLineNumbers;
             }
+            if (contextChanged) {
+                contextChanged = false;
+                updateContext();
+            }
+            if (!pendingChanges.isEmpty()) {
+                List<DocumentChange> changes = new ArrayList<>(pendingChanges);
+                pendingChanges.clear();
+                for (DocumentChangeListener listener : new ArrayList<>(changeListeners)) {
+                    listener.documentChanged(changes);
+                }
+            }
+        }
+
+        /**
+         * Updates the context of the TextArea.
+         */
+        private void updateContext() {
+            TextArea.this.context.updateLength(getDocument().getLength());
+            TextArea.this.context.updateLineNumbers(lineNumbers);
+            TextArea.this.context.updateUndoMemory(undoManager.getMemoryUsage());
         }
 
+
         /**
-         * Counts the number of line separators that occur within the displayed text.
+         * Updates the line numbers of the TextPane through the passed event. The root element of the document contains
+         * one element per line, so that the change of the root element describes exactly which lines were added or
+         * removed. If the root element did not change, no line was added or removed and nothing needs to be updated.
+         * Therefore, counting the lines only takes time in the number of added or removed lines. This does not make
+         * the entire edit independent of the length of the document, since the root element still copies its array
+         * of lines whenever lines are added or removed. The line numbers are displayed once the {@link #updateTimer}
+         * fires.
          *
-         * @return  Number of line separators.
+         * @param e Event describing the change of the document.
+         */
+        private void updateLineNumbers(DocumentEvent e) {
+            DocumentEvent.ElementChange change = e.getChange(e.getDocument().getDefaultRootElement());
+            if (change == null) {
+                //No line was added or removed:
+                return;
+            }
+            int difference = change.getChildrenAdded().length - change.getChildrenRemoved().length;
+            if (difference == 0) {
+                //Lines were only restructured:
+                return;
+            }
+            lineNumbers += difference;
+            linesChanged = true;
+        }
+
+        /**
+         * Reads the line numbers of the TextPane from the root element of the document. This is required whenever the
+         * document is replaced.
          */
-        private int countLineSeparators() {
-            Pattern pattern = Pattern.compile(Config.formats.lineSeparator);
-            Matcher matcher = pattern.matcher(getText());
-            return (int)(matcher.results().count());
+        private void resetLineNumbers() {
+            lineNumbers = getDocument().getDefaultRootElement().getElementCount();
+            if (TextArea.this.lineNumbers != null) {
+                TextArea.this.lineNumbers.updateLineNumbers();
+            }
         }
 
     }
@@ -300,6 +1034,11 @@ public class TextArea extends JScrollPane {
      */
     private LineNumbers lineNumbers;
 
+    /**
+     * Stores the highlighter for the matches of the search and the occurrences of the selected word.
+     */
+    private MatchHighlighter matchHighlighter;
+
     /**
      * Context (the {@linkplain Tab}) in which the TextArea is located.
      */
@@ -314,8 +1053,11 @@ public class TextArea extends JScrollPane {
      */
     public TextArea(Tab context) {
         this.context = context;
-        textPane = new TextPane();
+        textPane = new TextPane(isPlainText(context.getFile()));
         lineNumbers = new LineNumbers();
+        matchHighlighter = new MatchHighlighter();
+        matchHighlighter.install();
+        textPane.addCaretListener(e -> matchHighlighter.selectionChanged());
 
         updateFont();
 
@@ -329,6 +1071,18 @@ public class TextArea extends JScrollPane {
     }
 
 
+    /**
+     * Tests whether the passed file shall be edited as plain text. This is the case if the extension of the file is
+     * listed within {@code Config.settings.plainTextExtensions}.
+     *
+     * @param file  File to be edited.
+     * @return      Whether the file shall be edited as plain text.
+     */
+    public static boolean isPlainText(File file) {
+        return file != null && Config.settings.plainTextExtensions.contains(file.getExtension().toLowerCase());
+    }
+
+
     /**
      * Changes the text of this TextArea to the passed argument.
      *
@@ -338,6 +1092,31 @@ public class TextArea extends JScrollPane {
         textPane.setText(s);
     }
 
+    /**
+     * Removes the text of this TextArea, so that the contents of a file can be appended through
+     * {@link #appendLoaded(CharSequence)}. The TextArea is not editable until {@link #endLoading()} is called.
+     */
+    public void beginLoading() {
+        textPane.beginLoading();
+    }
+
+    /**
+     * Appends the passed chunk of loaded text without copying it. The passed chunk MUST NOT be modified afterwards.
+     * Changes made through this method cannot be undone.
+     *
+     * @param chunk Chunk of loaded text.
+     */
+    public void appendLoaded(CharSequence chunk) {
+        textPane.appendLoaded(chunk);
+    }
+
+    /**
+     * Finishes loading, which makes the TextArea editable again.
+     */
+    public void endLoading() {
+        textPane.endLoading();
+    }
+
     /**
      * Returns the text of this TextArea.
      *
@@ -348,6 +1127,46 @@ public class TextArea extends JScrollPane {
     }
 
 
+    /**
+     * Returns the document that stores the text of this TextArea.
+     *
+     * @return  Document of this TextArea.
+     */
+    public Document getDocument() {
+        return textPane.getDocument();
+    }
+
+
+    /**
+     * Returns an immutable snapshot of the text of this TextArea. Unlike {@link #getText()}, no characters are copied
+     * and the snapshot can be read by any thread.
+     *
+     * @return  Snapshot of the text of this TextArea.
+     */
+    public PieceTableContent.Snapshot snapshot() {
+        return ((PieceTableBackedDocument)textPane.getDocument()).snapshot();
+    }
+
+
+    /**
+     * Adds a listener that receives the changes of the edited text in batches, at most once per frame.
+     *
+     * @param listener  Listener to be added.
+     */
+    public void addDocumentChangeListener(DocumentChangeListener listener) {
+        textPane.addDocumentChangeListener(listener);
+    }
+
+    /**
+     * Removes a listener that receives the changes of the edited text in batches.
+     *
+     * @param listener  Listener to be removed.
+     */
+    public void removeDocumentChangeListener(DocumentChangeListener listener) {
+        textPane.removeDocumentChangeListener(listener);
+    }
+
+
     /**
      * Returns the number of lines of the edited text.
      *
@@ -358,6 +1177,27 @@ public class TextArea extends JScrollPane {
     }
 
 
+    /**
+     * Returns the estimated memory (in bytes) that the undo history of the edited text occupies.
+     *
+     * @return  Memory of the undo history.
+     */
+    public long getUndoMemoryUsage() {
+        return textPane.undoManager.getMemoryUsage();
+    }
+
+    /**
+     * Creates a journal of the undo history, which is written once the passed snapshot of the edited text was saved.
+     * If the journal of the previous session was not loaded yet, its entries are written behind the undo history.
+     *
+     * @param snapshot  Snapshot of the edited text as it is saved.
+     * @return          Journal of the undo history.
+     */
+    public UndoJournal createUndoJournal(PieceTableContent.Snapshot snapshot) {
+        return textPane.undoManager.createJournal(snapshot, textPane.journalLoader);
+    }
+
+
     /**
      * Returns the length (number of characters) of the edited text.
      *
@@ -392,6 +1232,34 @@ public class TextArea extends JScrollPane {
         return false;
     }
 
+    /**
+     * Moves the cursor to the beginning of the passed line. If the passed line does not exist, nothing happens.
+     *
+     * @param line  Number of the line, beginning at 1.
+     * @return      Whether the cursor could be moved.
+     */
+    public boolean moveCursorToLine(int line) {
+        Element root = textPane.getDocument().getDefaultRootElement();
+        if (line >= 1 && line <= root.getElementCount()) {
+            textPane.setCaretPosition(root.getElement(line - 1).getStartOffset());
+            textPane.requestFocusInWindow();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Keeps the passed line separators up to date while the text is edited, so that the file can be saved with the
+     * line separators with which it was loaded. This is only necessary if the file uses different line separators.
+     *
+     * @param lineSeparators    Line separators of the loaded file.
+     */
+    public void trackLineSeparators(LineSeparators lineSeparators) {
+        if (lineSeparators.isMixed()) {
+            textPane.getDocument().addDocumentListener(lineSeparators);
+        }
+    }
+
     /**
      * Marks text at the specified position for the specified length.
      *
@@ -407,6 +1275,16 @@ public class TextArea extends JScrollPane {
         return false;
     }
 
+    /**
+     * Highlights the matches of the passed index, which MUST belong to the document of this TextArea. Only the
+     * matches within the visible part of the text are ever painted.
+     *
+     * @param matches   Index whose matches shall be highlighted, or {@code null} to remove the highlights.
+     */
+    public void highlightMatches(MatchIndex matches) {
+        matchHighlighter.setMatches(matches);
+    }
+
     /**
      * Replaces part of the displayed text with the passed replacement.
      * Beginning at the passed index position, the specified number of characters (passed as length) will be removed.
@@ -418,8 +1296,7 @@ public class TextArea extends JScrollPane {
      */
     public void replace(int position, int length, String replacement) {
         try {
-            textPane.getDocument().remove(position, length);
-            textPane.getDocument().insertString(position, replacement, null);
+            textPane.replaceRange(position, length, replacement);
         }
         catch (BadLocationException e) {
             //Could not remove the text: DO nothing...
@@ -427,6 +1304,27 @@ public class TextArea extends JScrollPane {
 
     }
 
+    /**
+     * Replaces all passed matches with the passed replacement. Only the matches are replaced, so that the text between
+     * them and all positions within it (i.e. the line separators) remain untouched. The document listeners are
+     * notified once and a single undo reverts all replacements.
+     *
+     * @param matches       Matches in ascending order, which must not overlap.
+     * @param replacement   Replacement to be inserted.
+     */
+    public void replaceAll(SearchResult matches, String replacement) {
+        int[] lengths = new int[matches.size()];
+        for (int i = 0; i < lengths.length; i++) {
+            lengths[i] = matches.getLength(i);
+        }
+        try {
+            textPane.replaceRanges(matches.getStarts(), lengths, lengths.length, replacement);
+        }
+        catch (BadLocationException e) {
+            //Matches are outdated: Do nothing...
+        }
+    }
+
 
     /**
      * Undoes changes made to the TextArea.
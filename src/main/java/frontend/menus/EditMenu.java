@@ -19,7 +19,7 @@ public class EditMenu extends JMenu {
     /**
      * Menu items for the EditMenu.
      */
-    private JMenuItem undo, redo, search, searchAndReplace;
+    private JMenuItem undo, redo, search, searchAndReplace, findInFiles, goToLine;
 
 
     /**
@@ -78,6 +78,20 @@ public class EditMenu extends JMenu {
         searchAndReplace = new JMenuItem(Config.strings.searchAndReplace);
         searchAndReplace.addActionListener(e -> context.getTabs().searchAndReplace());
         add(searchAndReplace);
+
+        //Configure findInFiles:
+        findInFiles = new JMenuItem(Config.strings.findInFiles);
+        findInFiles.addActionListener(e -> context.getTabs().findInFiles());
+        findInFiles.setAccelerator(KeyStroke.getKeyStroke('F', InputEvent.CTRL_DOWN_MASK | InputEvent.SHIFT_DOWN_MASK)); //Menu item is triggered with CTRL + SHIFT + F.
+        add(findInFiles);
+
+        add(new JSeparator());
+
+        //Configure goToLine:
+        goToLine = new JMenuItem(Config.strings.goToLine);
+        goToLine.addActionListener(e -> context.getTabs().goToLine());
+        goToLine.setAccelerator(KeyStroke.getKeyStroke('G', InputEvent.CTRL_DOWN_MASK)); //Menu item is triggered with CTRL + G.
+        add(goToLine);
     }
 
 
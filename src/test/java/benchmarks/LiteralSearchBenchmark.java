@@ -0,0 +1,142 @@
+package benchmarks;
+
+import backend.document.PieceTablePlainDocument;
+import backend.search.SearchEngine;
+import backend.search.SearchQuery;
+import backend.search.SearchResult;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+
+
+/**
+ * This class implements a benchmark that compares the search of literals through the {@linkplain SearchEngine} with
+ * the previous search, which copied the document through {@link Document#getText(int, int)} and searched the copy
+ * through {@link String#indexOf(String, int)}. Short literals are searched through the first character filter, which
+ * only uses SIMD instructions if the module {@code jdk.incubator.vector} is available. Therefore, the benchmark should be
+ * run with and without the module, i.e. through
+ * {@code MAVEN_OPTS="--add-modules jdk.incubator.vector" mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=benchmarks.LiteralSearchBenchmark}
+ * and the same command without {@code MAVEN_OPTS}.
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public class LiteralSearchBenchmark {
+
+    /**
+     * Stores the number of lines of the searched document.
+     */
+    private static final int LINES = 2_000_000;
+
+    /**
+     * Stores the searched literals. The first two are searched through the first character filter, the others through
+     * the Boyer-Moore-Horspool algorithm.
+     */
+    private static final String[] LITERALS = {"e", "q7", "number 1234", "This is line number 1999999"};
+
+    /**
+     * Stores the number of rounds, of which the fastest is reported to reduce the noise of the JIT and the GC.
+     */
+    private static final int ROUNDS = 7;
+
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args  Arguments are ignored.
+     * @throws Exception    The benchmark could not be run.
+     */
+    public static void main(String[] args) throws Exception {
+        Document document = createDocument();
+        boolean vectorized = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+        System.out.printf("%d characters, vector API %s%n", document.getLength(), vectorized ? "available" : "not available");
+        System.out.printf("%-30s %10s %14s %14s%n", "literal", "matches", "indexOf [ms]", "engine [ms]");
+        for (String literal : LITERALS) {
+            SearchQuery query = new SearchQuery(literal, false, true, false);
+            int expected = searchIndexOf(document, literal);
+            int found = SearchEngine.search(document, query).size();
+            if (found != expected) {
+                throw new IllegalStateException("Found " + found + " instead of " + expected + " matches of " + literal);
+            }
+            double indexOf = measure(() -> searchIndexOf(document, literal));
+            double engine = measure(() -> SearchEngine.search(document, query).size());
+            System.out.printf("%-30s %10d %14.1f %14.1f%n", "\"" + literal + "\"", found, indexOf, engine);
+        }
+    }
+
+
+    /**
+     * Measures the time of the passed search.
+     *
+     * @param search    Search to be measured, which returns the number of matches.
+     * @return          Fastest time of the search in milliseconds.
+     * @throws BadLocationException The document could not be read.
+     */
+    private static double measure(Search search) throws BadLocationException {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            search.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1_000_000.0;
+    }
+
+    /**
+     * Searches the passed document as before the {@linkplain backend.search.LiteralMatcher} was introduced, i.e.
+     * by copying the document and finding all non-overlapping occurrences through {@link String#indexOf(String, int)}.
+     *
+     * @param document  Document to be searched.
+     * @param literal   Literal to be found.
+     * @return          Number of matches.
+     * @throws BadLocationException The document could not be read.
+     */
+    private static int searchIndexOf(Document document, String literal) throws BadLocationException {
+        String text = document.getText(0, document.getLength());
+        SearchResult result = new SearchResult();
+        int index = text.indexOf(literal);
+        while (index >= 0) {
+            result.add(index, literal.length());
+            index = text.indexOf(literal, index + literal.length());
+        }
+        return result.size();
+    }
+
+    /**
+     * Creates the searched document. The text is inserted in parts, so that the document consists of several pieces
+     * and matches cross the boundaries between them.
+     *
+     * @return  Searched document.
+     * @throws BadLocationException The text could not be inserted.
+     */
+    private static Document createDocument() throws BadLocationException {
+        Document document = new PieceTablePlainDocument();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < LINES; i++) {
+            text.append("This is line number ").append(i).append(", which contains some words.\n");
+            if (text.length() > 1 << 20) {
+                document.insertString(document.getLength(), text.toString(), null);
+                text.setLength(0);
+            }
+        }
+        document.insertString(document.getLength(), text.toString(), null);
+        return document;
+    }
+
+
+    /**
+     * Functional interface for a measured search.
+     */
+    private interface Search {
+
+        /**
+         * Runs the search.
+         *
+         * @return  Number of matches.
+         * @throws BadLocationException The document could not be read.
+         */
+        int run() throws BadLocationException;
+
+    }
+
+}
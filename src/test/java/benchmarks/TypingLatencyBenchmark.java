@@ -0,0 +1,119 @@
+package benchmarks;
+
+import frontend.frames.main.components.EditorTab;
+
+import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+
+/**
+ * This class implements a benchmark that measures how long a single keystroke in the middle of a document takes,
+ * including the updates of the line numbers, the undo history and all other listeners of an {@linkplain EditorTab}.
+ * The keystroke is measured for documents of different sizes, so that costs that grow with the size of the document
+ * become visible. The keystrokes are not typed into the longest line, since the {@linkplain javax.swing.text.PlainView}
+ * measures all lines again whenever the longest line becomes shorter. The benchmark runs without a JMH setup and can be started through
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=benchmarks.TypingLatencyBenchmark}.
+ *
+ * @author  Christian-2003
+ * @version 18 October 2026
+ */
+public class TypingLatencyBenchmark {
+
+    /**
+     * Stores the numbers of lines of the measured documents.
+     */
+    private static final int[] LINES = {10_000, 100_000, 1_000_000};
+
+    /**
+     * Stores the number of keystrokes per round.
+     */
+    private static final int KEYSTROKES = 2_000;
+
+    /**
+     * Stores the number of rounds, of which the fastest is reported to reduce the noise of the JIT and the GC.
+     */
+    private static final int ROUNDS = 5;
+
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args  Arguments are ignored.
+     * @throws Exception    The benchmark could not be run.
+     */
+    public static void main(String[] args) throws Exception {
+        System.out.printf("%10s %14s %14s%n", "lines", "letter [us]", "newline [us]");
+        for (int lines : LINES) {
+            Path path = createFile(lines);
+            try {
+                SwingUtilities.invokeAndWait(() -> {
+                    EditorTab tab = new EditorTab(path.toString());
+                    if (!tab.load()) {
+                        throw new IllegalStateException("Could not load " + path);
+                    }
+                    Document document = (Document)tab.getDocument();
+                    int offset = document.getLength() / 2;
+                    double letter = measure(document, offset, "x");
+                    double newline = measure(document, offset, "\n");
+                    if (tab.getLineCount() != lines + 1) {
+                        throw new IllegalStateException("Wrong line count " + tab.getLineCount());
+                    }
+                    System.out.printf("%10d %14.2f %14.2f%n", lines, letter, newline);
+                });
+            }
+            finally {
+                Files.deleteIfExists(path);
+            }
+        }
+        System.exit(0);
+    }
+
+
+    /**
+     * Measures the average time of inserting the passed text at the passed offset and removing it again.
+     *
+     * @param document  Document to be edited.
+     * @param offset    Offset at which the text is typed.
+     * @param text      Text to be typed.
+     * @return          Fastest average time of a single edit in microseconds.
+     */
+    private static double measure(Document document, int offset, String text) {
+        long best = Long.MAX_VALUE;
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < KEYSTROKES; i++) {
+                    document.insertString(offset, text, null);
+                    document.remove(offset, text.length());
+                }
+                best = Math.min(best, System.nanoTime() - start);
+            }
+        }
+        catch (BadLocationException e) {
+            throw new IllegalStateException(e);
+        }
+        return best / (2.0 * KEYSTROKES) / 1000.0;
+    }
+
+    /**
+     * Creates a temporary text file with the passed number of lines, the first of which is the longest.
+     *
+     * @param lines Number of lines.
+     * @return      Path of the file.
+     * @throws Exception    The file could not be created.
+     */
+    private static Path createFile(int lines) throws Exception {
+        StringBuilder text = new StringBuilder();
+        text.append("-".repeat(100)).append('\n');
+        for (int i = 1; i < lines; i++) {
+            text.append("This is line number ").append(i).append('\n');
+        }
+        Path path = Files.createTempFile("typing", ".txt");
+        Files.writeString(path, text);
+        return path;
+    }
+
+}